@@ -22,6 +22,7 @@ import eu.dariolucia.ccsds.cfdp.entity.segmenters.ICfdpSegmentationStrategy;
 import eu.dariolucia.ccsds.cfdp.filestore.IVirtualFilestore;
 import eu.dariolucia.ccsds.cfdp.mib.Mib;
 import eu.dariolucia.ccsds.cfdp.ut.IUtLayer;
+import eu.dariolucia.ccsds.tmtc.util.TaskScheduler;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -83,6 +84,25 @@ public interface ICfdpEntity {
         return new CfdpEntity(mib, filestore, transactionIdGenerator, layers);
     }
 
+    /**
+     * Create a {@link ICfdpEntity} with the provided {@link Mib}, {@link IVirtualFilestore}, {@link ITransactionIdGenerator} and a collection of {@link IUtLayer},
+     * whose entity and transaction processing is run by the provided {@link TaskScheduler} instead of dedicated threads.
+     * The entity, the subscriber notifications and each transaction are serialised on separate task queues of the
+     * scheduler, and all the transaction timers are handled by the scheduler timing wheel. Since the subscribers are
+     * notified by the scheduler executor, subscribers which block for long periods should be avoided with small thread
+     * pools. The entity shall be disposed before disposing the scheduler.
+     *
+     * @param mib the MIB to be used by the entity
+     * @param filestore the filestore to be used by the entity
+     * @param transactionIdGenerator the transaction ID generator, can be null
+     * @param layers the UT layers to be used by the entity
+     * @param scheduler the scheduler to be used by the entity and its transactions
+     * @return the {@link ICfdpEntity}
+     */
+    static ICfdpEntity create(Mib mib, IVirtualFilestore filestore, ITransactionIdGenerator transactionIdGenerator, Collection<IUtLayer> layers, TaskScheduler scheduler) {
+        return new CfdpEntity(mib, filestore, transactionIdGenerator, layers, scheduler);
+    }
+
     /**
      * Add a segmentation strategy to be taken into consideration by the entity in all subsequent {@link eu.dariolucia.ccsds.cfdp.entity.request.PutRequest}.
      *
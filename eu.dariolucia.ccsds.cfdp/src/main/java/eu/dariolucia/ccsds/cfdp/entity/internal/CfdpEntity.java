@@ -36,6 +36,7 @@ import eu.dariolucia.ccsds.cfdp.protocol.pdu.*;
 import eu.dariolucia.ccsds.cfdp.ut.IUtLayer;
 import eu.dariolucia.ccsds.cfdp.ut.IUtLayerSubscriber;
 import eu.dariolucia.ccsds.cfdp.ut.UtLayerException;
+import eu.dariolucia.ccsds.tmtc.util.TaskScheduler;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -61,6 +62,8 @@ public class CfdpEntity implements IUtLayerSubscriber, ICfdpEntity {
     private final ExecutorService subscriberNotifier;
     // Confinement thread
     private final ExecutorService entityConfiner;
+    // Scheduler running the entity and transaction tasks, null if dedicated threads are used
+    private final TaskScheduler scheduler;
     // Map of ongoing transactions
     private final Map<Long, CfdpTransaction> id2transaction = new ConcurrentHashMap<>();
     // Request processor map
@@ -74,7 +77,12 @@ public class CfdpEntity implements IUtLayerSubscriber, ICfdpEntity {
     private boolean disposed;
 
     public CfdpEntity(Mib mib, IVirtualFilestore filestore, ITransactionIdGenerator transactionIdGenerator, Collection<IUtLayer> layers) {
+        this(mib, filestore, transactionIdGenerator, layers, null);
+    }
+
+    public CfdpEntity(Mib mib, IVirtualFilestore filestore, ITransactionIdGenerator transactionIdGenerator, Collection<IUtLayer> layers, TaskScheduler scheduler) {
         this.mib = mib;
+        this.scheduler = scheduler;
         this.filestore = filestore;
         this.transactionIdGenerator = Objects.requireNonNullElseGet(transactionIdGenerator, SimpleTransactionIdGenerator::new);
         for(IUtLayer l : layers) {
@@ -83,18 +91,24 @@ public class CfdpEntity implements IUtLayerSubscriber, ICfdpEntity {
         if(LOG.isLoggable(Level.FINE)) {
             LOG.fine(String.format("CFDP Entity [%d]: creation in progress", getLocalEntityId()));
         }
-        // 1 separate thread to notify all listeners
-        this.subscriberNotifier = Executors.newFixedThreadPool(1, r -> {
-            Thread t = new Thread(r, "CFDP Entity " + mib.getLocalEntity().getLocalEntityId() + " - Subscribers Notifier");
-            t.setDaemon(true);
-            return t;
-        });
-        // 1 separate thread to manage the entity
-        this.entityConfiner = Executors.newFixedThreadPool(1, r -> {
-            Thread t = new Thread(r, "CFDP Entity " + mib.getLocalEntity().getLocalEntityId() + " - Manager");
-            t.setDaemon(true);
-            return t;
-        });
+        if(scheduler != null) {
+            // Task queues on the scheduler executor to notify all listeners and to manage the entity
+            this.subscriberNotifier = scheduler.createTaskQueue();
+            this.entityConfiner = scheduler.createTaskQueue();
+        } else {
+            // 1 separate thread to notify all listeners
+            this.subscriberNotifier = Executors.newFixedThreadPool(1, r -> {
+                Thread t = new Thread(r, "CFDP Entity " + mib.getLocalEntity().getLocalEntityId() + " - Subscribers Notifier");
+                t.setDaemon(true);
+                return t;
+            });
+            // 1 separate thread to manage the entity
+            this.entityConfiner = Executors.newFixedThreadPool(1, r -> {
+                Thread t = new Thread(r, "CFDP Entity " + mib.getLocalEntity().getLocalEntityId() + " - Manager");
+                t.setDaemon(true);
+                return t;
+            });
+        }
         // Register request processors
         this.requestProcessors.put(PutRequest.class, this::processPutRequest);
         this.requestProcessors.put(KeepAliveRequest.class, this::processKeepAliveRequest);
@@ -146,6 +160,10 @@ public class CfdpEntity implements IUtLayerSubscriber, ICfdpEntity {
         return this.filestore;
     }
 
+    TaskScheduler getScheduler() {
+        return this.scheduler;
+    }
+
     @Override
     public Set<Long> getTransactionIds() {
         return Collections.unmodifiableSet(id2transaction.keySet());
@@ -54,19 +54,22 @@ public abstract class CfdpTransaction {
     private final IUtLayer transmissionLayer;
 
     private final ExecutorService confiner;
+    // Set on dispose: the tasks still queued on the confiner are not run
+    private volatile boolean discardTasks;
 
     private final Map<ConditionCode, FaultHandlerStrategy.Action> faultHandlers = new EnumMap<>(ConditionCode.class);
 
+    // Dedicated timer thread, null if the timers are handled by the entity scheduler
     private final Timer timer;
     // Timer for the transaction inactivity limit
-    private TimerTask transactionInactivityLimitTimer;
+    private TransactionTimerTask transactionInactivityLimitTimer;
 
     // Inner status of active transactions
     // This variable is volatile because it is allowed to read its state also by external threads
     private volatile CfdpTransactionState currentState = CfdpTransactionState.RUNNING;
 
     // Ack timer for Positive Ack Procedure
-    private TimerTask ackTimer;
+    private TransactionTimerTask ackTimer;
     private int ackTimerCount;
 
     // Transmission opportunity window state
@@ -86,12 +89,18 @@ public abstract class CfdpTransaction {
         }
         this.remoteDestination = cfdpEntity.getMib().getRemoteEntityById(remoteEntityId);
         this.transmissionLayer = cfdpEntity.getUtLayerByDestinationEntity(remoteEntityId);
-        this.confiner = Executors.newFixedThreadPool(1, runnable -> {
-            Thread t = new Thread(runnable, String.format("CFDP Entity %s - Transaction [%d] [%d] Handler",  getLocalEntityId(), transactionId, remoteDestination.getRemoteEntityId()));
-            t.setDaemon(true);
-            return t;
-        });
-        this.timer = new Timer(String.format("CFDP Entity %s - Transaction [%d] [%d] Timer", getLocalEntityId(), transactionId, remoteDestination.getRemoteEntityId()), true);
+        if(cfdpEntity.getScheduler() != null) {
+            // Task queue on the scheduler executor, timers on the scheduler timing wheel
+            this.confiner = cfdpEntity.getScheduler().createTaskQueue();
+            this.timer = null;
+        } else {
+            this.confiner = Executors.newFixedThreadPool(1, runnable -> {
+                Thread t = new Thread(runnable, String.format("CFDP Entity %s - Transaction [%d] [%d] Handler", getLocalEntityId(), transactionId, remoteDestination.getRemoteEntityId()));
+                t.setDaemon(true);
+                return t;
+            });
+            this.timer = new Timer(String.format("CFDP Entity %s - Transaction [%d] [%d] Timer", getLocalEntityId(), transactionId, remoteDestination.getRemoteEntityId()), true);
+        }
         // Compute the entity ID length
         long maxEntityId = Long.max(remoteDestination.getRemoteEntityId(), entity.getMib().getLocalEntity().getLocalEntityId());
         this.entityIdLength = BytesUtil.getEncodingOctetsNb(maxEntityId);
@@ -175,7 +184,7 @@ public abstract class CfdpTransaction {
             LOG.log(Level.FINE, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: starting positive ACK timer for PDU %s", getLocalEntityId(), transactionId, getRemoteDestination().getRemoteEntityId(), pdu));
         }
         stopPositiveAckTimer();
-        this.ackTimer = new TimerTask() {
+        this.ackTimer = new TransactionTimerTask() {
             @Override
             public void run() {
                 handle(() -> handlePositiveAckTimerElapsed(this, pdu));
@@ -264,6 +273,9 @@ public abstract class CfdpTransaction {
     protected void handle(Runnable r) {
         if(!this.confiner.isShutdown()) {
             this.confiner.submit(() -> {
+                if(this.discardTasks) {
+                    return;
+                }
                 try {
                     r.run();
                 } catch (Exception e) {
@@ -274,9 +286,11 @@ public abstract class CfdpTransaction {
         // If it is shut down, it means it is disposed
     }
 
-    protected void schedule(TimerTask t, long period, boolean periodic) {
+    protected void schedule(TransactionTimerTask t, long period, boolean periodic) {
         if(!this.confiner.isShutdown()) { // Use the confiner status as a sentry to detect timer cancel
-            if (periodic) {
+            if (this.timer == null) {
+                t.scheduleOn(getEntity().getScheduler(), period, periodic);
+            } else if (periodic) {
                 this.timer.schedule(t, period, period);
             } else {
                 this.timer.schedule(t, period);
@@ -307,8 +321,15 @@ public abstract class CfdpTransaction {
         }
         // Raise a final indication, to indicate that the transaction is actually finalised
         getEntity().notifyIndication(new TransactionDisposedIndication(getTransactionId(), createStateObject()));
-        this.confiner.shutdownNow();
-        this.timer.cancel();
+        if(this.timer != null) {
+            this.confiner.shutdownNow();
+            this.timer.cancel();
+        } else {
+            // Task queue on the shared scheduler executor: do not interrupt the pool thread, which serves also other
+            // transactions, and skip the tasks still queued
+            this.discardTasks = true;
+            this.confiner.shutdown();
+        }
 
     }
 
@@ -417,13 +438,18 @@ public abstract class CfdpTransaction {
         if(LOG.isLoggable(Level.FINEST)) {
             LOG.log(Level.FINEST, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: start transaction inactivity timer", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId()));
         }
-        transactionInactivityLimitTimer = new TimerTask() {
+        transactionInactivityLimitTimer = new TransactionTimerTask() {
             @Override
             public void run() {
-                handleTransactionInactivity();
+                final TimerTask expiredTimer = this;
+                handle(() -> {
+                    if (transactionInactivityLimitTimer == expiredTimer) {
+                        handleTransactionInactivity();
+                    }
+                });
             }
         };
-        timer.schedule(transactionInactivityLimitTimer, getRemoteDestination().getTransactionInactivityLimit());
+        schedule(transactionInactivityLimitTimer, getRemoteDestination().getTransactionInactivityLimit(), false);
     }
 
     protected void resetTransactionInactivityTimer() {
@@ -0,0 +1,98 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.entity.internal;
+
+import eu.dariolucia.ccsds.cfdp.protocol.checksum.ICfdpChecksum;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork-join computation of the checksum of a range of a file. The range is split in chunks, whose checksums are
+ * computed in parallel by means of positional reads and then merged by means of
+ * {@link ICfdpChecksum#combine(int, int, long)}. The chunk boundaries are aligned to 4 octets from the start of the
+ * range, therefore the start of the range must be aligned to 4 octets from the start of the file.
+ *
+ * Only the stateless methods of the provided checksum are used: the incremental state of the checksum is not affected.
+ */
+final class FileChecksumTask extends RecursiveTask<Integer> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final FileChannel channel;
+    private final ICfdpChecksum checksum;
+    private final long start;
+    private final long end;
+    private final int chunkSize;
+
+    /**
+     * Construct a task computing the checksum of the provided file range.
+     *
+     * @param channel the file to read, it must support concurrent positional reads
+     * @param checksum the checksum to use, it must be combinable
+     * @param start the start offset of the range (inclusive), aligned to 4 octets
+     * @param end the end offset of the range (exclusive)
+     * @param chunkSize the maximum number of bytes read and checksummed by a single task, rounded down to a multiple of 4
+     */
+    FileChecksumTask(FileChannel channel, ICfdpChecksum checksum, long start, long end, int chunkSize) {
+        if(!checksum.isCombinable()) {
+            throw new IllegalArgumentException("Checksum type " + checksum.type() + " cannot be combined");
+        }
+        if((start & 0x03) != 0) {
+            throw new IllegalArgumentException("Start offset " + start + " not aligned to 4 octets");
+        }
+        this.channel = channel;
+        this.checksum = checksum;
+        this.start = start;
+        this.end = end;
+        this.chunkSize = Math.max(4, chunkSize & ~0x03);
+    }
+
+    @Override
+    protected Integer compute() {
+        if(end - start <= chunkSize) {
+            return checksumChunk();
+        }
+        // Split at the chunk boundary closest to the middle of the range
+        long chunks = (end - start + chunkSize - 1) / chunkSize;
+        long middle = start + (chunks / 2) * chunkSize;
+        FileChecksumTask first = new FileChecksumTask(channel, checksum, start, middle, chunkSize);
+        FileChecksumTask second = new FileChecksumTask(channel, checksum, middle, end, chunkSize);
+        first.fork();
+        int secondChecksum = second.compute();
+        int firstChecksum = first.join();
+        return checksum.combine(firstChecksum, secondChecksum, end - middle);
+    }
+
+    private int checksumChunk() {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        try {
+            while(buffer.hasRemaining()) {
+                int read = channel.read(buffer, start + buffer.position());
+                if(read < 0) {
+                    throw new IOException("Unexpected end of file at offset " + (start + buffer.position()) + ", expected end at " + end);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return checksum.checksum(buffer.array(), 0, buffer.position());
+    }
+}
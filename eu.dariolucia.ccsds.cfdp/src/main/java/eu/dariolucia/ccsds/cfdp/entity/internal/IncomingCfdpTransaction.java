@@ -37,8 +37,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -48,6 +50,10 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
 
     private static final Logger LOG = Logger.getLogger(IncomingCfdpTransaction.class.getName());
     private static final byte[] FILE_PADDING_BUFFER = new byte[4096];
+    // Size of the file chunks read back for checksum computation
+    private static final int CHECKSUM_CHUNK_SIZE = 1024 * 1024;
+    // Minimum number of bytes to checksum at the end of the file, to split the computation across the fork-join pool
+    private static final long PARALLEL_CHECKSUM_THRESHOLD = 8L * CHECKSUM_CHUNK_SIZE;
 
     private final CfdpPdu initialPdu;
 
@@ -55,26 +61,26 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
 
     private MetadataPdu metadataPdu;
 
-    private Map<Long, FileDataPduSummary> fileReconstructionMap; // optimisation: use a temporary random access file, use a stripped down version of the FileDataPdu, only offset, length
+    private ReceivedExtentSet fileReconstructionMap; // the data is stored in a temporary random access file, only the received extents are kept in memory
     private RandomAccessFile temporaryReconstructionFileMap;
     private final File temporaryReconstructionFile;
 
     private ICfdpChecksum checksum;
     private long receivedContiguousFileBytes = 0;
-    private boolean gapDetected = false;
+    private long checksummedFileBytes = 0; // the contiguous file data already folded into the checksum
     private boolean fileCompleted = false;
 
     private EndOfFilePdu eofPdu;
 
-    private TimerTask transactionFinishCheckTimer;
+    private TransactionTimerTask transactionFinishCheckTimer;
     private int transactionFinishCheckTimerCount;
 
-    private TimerTask nakComputationTimer;
+    private TransactionTimerTask nakComputationTimer;
 
-    private TimerTask nakTimer;
+    private TransactionTimerTask nakTimer;
     private int nakTimerCount;
 
-    private TimerTask keepAliveSendingTimer;
+    private TransactionTimerTask keepAliveSendingTimer;
 
     private boolean filestoreProblemDetected;
     private boolean checksumTypeMissingSupportDetected;
@@ -145,7 +151,7 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
             // Keep alive disabled
             return;
         }
-        this.keepAliveSendingTimer = new TimerTask() {
+        this.keepAliveSendingTimer = new TransactionTimerTask() {
             @Override
             public void run() {
                 final TimerTask expiredTimer = this;
@@ -292,7 +298,7 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
         // File or not?
         if(this.metadataPdu.getSourceFileName() != null && this.metadataPdu.getDestinationFileName() != null) {
             if(this.fileReconstructionMap == null) {
-                this.fileReconstructionMap = new TreeMap<>();
+                this.fileReconstructionMap = new ReceivedExtentSet();
             }
             // 4.2.4.2 For checksum computation at the receiving entity, the preferred checksum
             // computation algorithm shall be the algorithm identified by the checksum type specified in the
@@ -362,22 +368,19 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
         }
         // If this is the first PDU ever, then it means that the metadata PDU got lost but still allocates the reconstruction map
         if(this.fileReconstructionMap == null) {
-            this.fileReconstructionMap = new TreeMap<>();
+            this.fileReconstructionMap = new ReceivedExtentSet();
             if(this.metadataPdu == null && getRemoteDestination().isImmediateNakModeEnabled() && isAcknowledged()) {
                 sendMetadataNak();
             }
         }
-        // Check if there is already a FileData PDU like you in the map
-        FileDataPduSummary existing = this.fileReconstructionMap.get(pdu.getOffset());
-        // We cannot rely on the behaviour of other implementations, therefore here we need to overwrite the entry,
-        // if the length of the data is greater than the one currently in the map, or skip it if it is a subset of what
-        // we already have
-        if(existing != null && existing.length >= pdu.getFileData().length) {
+        // Add the extent of the PDU to the map: overlapping and adjacent extents are merged. We cannot rely on the behaviour
+        // of other implementations, therefore here we need to write the data if it is not fully contained in what
+        // we already have (regardless of the PDU offset), or skip it otherwise
+        long progressBefore = this.receivedContiguousFileBytes;
+        if(!this.fileReconstructionMap.add(pdu.getOffset(), pdu.getOffset() + pdu.getFileData().length)) {
             // 4.6.1.2.7 any repeated data shall be discarded
             return;
         }
-        // Add the PDU in the map
-        this.fileReconstructionMap.put(pdu.getOffset(), new FileDataPduSummary(pdu.getOffset(), pdu.getFileData().length));
         // Write it to the temp file
         try {
             this.temporaryReconstructionFileMap.seek(pdu.getOffset());
@@ -390,7 +393,9 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
         }
 
         // Identify the fully completed part offset and if there are gaps (to request retransmission if enabled), compute progress
-        verifyGapPresence(pdu);
+        verifyGapPresence(progressBefore);
+        // Fold the new contiguous data into the checksum, so that at EOF there is (almost) nothing left to compute
+        updateChecksum(pdu);
 
         // Receipt of a File Data PDU may optionally cause the receiving CFDP, if it is the
         // transaction's destination, to issue a File-Segment-Recv.indication.
@@ -440,40 +445,16 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
     }
 
     /**
-     * This method verifies if there is a gap linked to the reception of a new FileDataPdu, and recompute the progress as
-     * well.
+     * This method recomputes the progress after the reception of a new FileDataPdu, and verifies if there is a gap.
      *
-     * @param pdu the PDU to process
+     * @param progressBefore the number of contiguously received bytes before the reception of the PDU
      */
-    private void verifyGapPresence(FileDataPdu pdu) {
-        if(pdu.getOffset() < this.receivedContiguousFileBytes) {
-            throw new IllegalStateException("Software bug: FileDataPdu offset is " + pdu.getOffset() + " but completion is at " + this.receivedContiguousFileBytes + ", the PDU should have been ignored");
-        }
-        // Assuming that this.fullyCompletedPartSize reports the number of consecutive, no-gaps bytes of the file from the file start,
-        // if pdu.offset is equal to this number and there was so gap signalled before, then the pdu will increase this.fullyCompletedPartSize
-        // by pdu.getFileData().length.
-        if(pdu.getOffset() == this.receivedContiguousFileBytes) {
-            this.receivedContiguousFileBytes += pdu.getFileData().length;
-            // If there was a gap detected beforehand, then it could be that fullyCompletedPartSize is actually larger
-            if(this.gapDetected) {
-                for(Map.Entry<Long, FileDataPduSummary> e : this.fileReconstructionMap.entrySet()) {
-                    // All segments having an offset lower than fullyCompletedPartSize can be safely skipped
-                    if(e.getKey() == receivedContiguousFileBytes) {
-                        // We found a segment that can contribute to the progress of the file, so we take this into account, and we go on
-                        this.receivedContiguousFileBytes += e.getValue().length;
-                        // At this stage we reset the gap indicator, but we keep iterating on the map, since further gaps can be detected
-                        this.gapDetected = false;
-                    } else if(e.getKey() > receivedContiguousFileBytes) {
-                        // We found a segment that is not following the detected progress in a continuous way. We need to stop here, and we
-                        // raise the gapDetected flag.
-                        this.gapDetected = true;
-                        break;
-                    }
-                }
-            }
-        } else {
-            // Here we need to expect that the offset is not the one we expect, so we raise the gapDetected flag
-            this.gapDetected = true;
+    private void verifyGapPresence(long progressBefore) {
+        // The extent set merges the new data with what was received so far, so the progress is updated also when the
+        // PDU fills a gap followed by data received beforehand
+        this.receivedContiguousFileBytes = this.fileReconstructionMap.getContiguousEnd();
+        if(this.receivedContiguousFileBytes == progressBefore && this.fileReconstructionMap.hasGaps()) {
+            // The PDU did not contribute to the progress: here we need to expect that there is a gap
             if(isAcknowledged() && this.eofPdu == null && this.nakComputationTimer == null) {
                 // Start a periodic task that computes and sends the required NAKs: this you do until the EOF PDU arrives.
                 // When the EOF PDU arrives, then you go for the NAK Timer.
@@ -482,6 +463,54 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
         }
     }
 
+    /**
+     * This method folds the file data that became contiguous after the reception of a FileDataPdu into the checksum,
+     * using the PDU contents if they cover it, or reading it back from the temporary file if the PDU filled a gap.
+     * Nothing is done if the checksum type is not known yet, i.e. if the Metadata PDU was not received.
+     *
+     * @param pdu the received FileDataPdu
+     */
+    private void updateChecksum(FileDataPdu pdu) {
+        if(this.checksum == null || this.receivedContiguousFileBytes <= this.checksummedFileBytes) {
+            return;
+        }
+        long pduEnd = pdu.getOffset() + pdu.getFileData().length;
+        if(pdu.getOffset() <= this.checksummedFileBytes && pduEnd == this.receivedContiguousFileBytes) {
+            int skip = (int) (this.checksummedFileBytes - pdu.getOffset());
+            this.checksum.checksum(pdu.getFileData(), skip, pdu.getFileData().length - skip, this.checksummedFileBytes);
+            this.checksummedFileBytes = pduEnd;
+        } else {
+            try {
+                updateChecksumFromFile(this.receivedContiguousFileBytes);
+            } catch (IOException e) {
+                if(LOG.isLoggable(Level.WARNING)) {
+                    LOG.log(Level.WARNING, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: problem when reading back file data for checksum computation, deferring to end of file: %s", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), e.getMessage()), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method folds the contents of the temporary file, from the end of the data already folded up to the provided
+     * offset, into the checksum.
+     *
+     * @param endOffset the offset where to stop (exclusive)
+     * @throws IOException in case of problems when reading the temporary file
+     */
+    private void updateChecksumFromFile(long endOffset) throws IOException {
+        this.temporaryReconstructionFileMap.seek(this.checksummedFileBytes);
+        byte[] tmpBuffer = new byte[(int) Math.min(CHECKSUM_CHUNK_SIZE, endOffset - this.checksummedFileBytes)];
+        while (this.checksummedFileBytes < endOffset) {
+            // read(...) advances the position of the file pointer, no seek needed after that
+            int read = this.temporaryReconstructionFileMap.read(tmpBuffer, 0, (int) Math.min(tmpBuffer.length, endOffset - this.checksummedFileBytes));
+            if(read < 0) {
+                throw new IOException("Unexpected end of temporary file at offset " + this.checksummedFileBytes);
+            }
+            this.checksum.checksum(tmpBuffer, 0, read, this.checksummedFileBytes);
+            this.checksummedFileBytes += read;
+        }
+    }
+
     private void handleEndOfFilePdu(EndOfFilePdu pdu) throws FaultDeclaredException {
         // Receipt of a PDU to which Positive Acknowledgement procedures are applied shall cause the
         // receiving CFDP entity immediately to issue the Expected Response.
@@ -515,7 +544,7 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
         // If this is the first PDU ever, then it means that the metadata PDU got lost but still allocates the reconstruction map
         boolean metadataNakJustSent = false;
         if(this.fileReconstructionMap == null) {
-            this.fileReconstructionMap = new TreeMap<>();
+            this.fileReconstructionMap = new ReceivedExtentSet();
             if(isAcknowledged() && this.metadataPdu == null) {
                 sendMetadataNak();
                 metadataNakJustSent = true;
@@ -580,7 +609,7 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
                     if(LOG.isLoggable(Level.INFO)) {
                         LOG.log(Level.INFO, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: starting check limit timer: %d ms", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), getRemoteDestination().getCheckInterval()));
                     }
-                    this.transactionFinishCheckTimer = new TimerTask() {
+                    this.transactionFinishCheckTimer = new TransactionTimerTask() {
                         @Override
                         public void run() {
                             handle(IncomingCfdpTransaction.this::handleTransactionFinishedCheckTimerElapsed);
@@ -661,52 +690,42 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
             }
             sendMetadataNak();
         }
-        // Then, inspect what you have in terms of file reconstruction
-        List<NakPdu.SegmentRequest> missingSegments = new LinkedList<>();
-        // Initialise it with the number of bytes that we are sure we received
-        long startOfScope = receivedContiguousFileBytes;
-
-        long tmpFilePartOffset = receivedContiguousFileBytes;
-        for(Map.Entry<Long, FileDataPduSummary> e : this.fileReconstructionMap.entrySet()) {
-            // All segments having an offset lower than tmpFilePartOffset can be safely skipped
-            if(e.getKey() == tmpFilePartOffset) {
-                // We found a segment that can contribute to the progress of the file, so we take this into account and we go on
-                tmpFilePartOffset += e.getValue().length;
-            } else if(e.getKey() > tmpFilePartOffset) {
-                // The file part from tmpFilePartOffset and e.getValue().getOffset() is missing, create segment request
-                if(LOG.isLoggable(Level.FINER)) {
-                    LOG.log(Level.FINER, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: missing segment detected [%d - %d]", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), tmpFilePartOffset, e.getKey()));
-                }
-                missingSegments.add(new NakPdu.SegmentRequest(tmpFilePartOffset, e.getKey()));
-                // Set the progress to e.getValue().offset + e.getValue().length
-                tmpFilePartOffset = e.getValue().offset + e.getValue().length;
-            }
-        }
-        long endOfScope = tmpFilePartOffset;
-        // If EOF(No error) PDU was received, then add a segment from tmpFilePartOffset and the expected file size
-        if(this.eofPdu != null && this.eofPdu.getConditionCode() == ConditionCode.CC_NOERROR && tmpFilePartOffset < this.eofPdu.getFileSize()) {
+        // Then, inspect what you have in terms of file reconstruction: the scope starts with the number of bytes that we
+        // are sure we received, and ends with the last received byte or, if EOF(No error) PDU was received, with the
+        // expected file size
+        long startOfScope = this.receivedContiguousFileBytes;
+        long endOfScope = this.eofPdu != null && this.eofPdu.getConditionCode() == ConditionCode.CC_NOERROR ?
+                Math.max(this.fileReconstructionMap.getHighestEnd(), this.eofPdu.getFileSize()) :
+                this.fileReconstructionMap.getHighestEnd();
+        // Build and send the NAK PDUs as the gaps are found (group 4 segments into each NAK PDU - implementation-dependant)
+        List<NakPdu.SegmentRequest> missingSegments = new ArrayList<>(4);
+        this.fileReconstructionMap.forEachGap(startOfScope, endOfScope, (start, end) -> {
             if(LOG.isLoggable(Level.FINER)) {
-                LOG.log(Level.FINER, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: missing segment detected (last) [%d - %d]", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), tmpFilePartOffset, this.eofPdu.getFileSize()));
+                LOG.log(Level.FINER, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: missing segment detected [%d - %d]", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), start, end));
             }
-            missingSegments.add(new NakPdu.SegmentRequest(tmpFilePartOffset, this.eofPdu.getFileSize()));
-            endOfScope = this.eofPdu.getFileSize();
-        }
-        // Build and send the NAK PDUs (group 4 segments into each NAK PDU - implementation-dependant)
-        while(!missingSegments.isEmpty()) {
-            NakPduBuilder b = new NakPduBuilder();
-            setCommonPduValues(b);
-            b.setStartOfScope(startOfScope);
-            b.setEndOfScope(endOfScope);
-            int segmentsToAdd = 4;
-            while(!missingSegments.isEmpty() && segmentsToAdd > 0) {
-                b.addSegmentRequest(missingSegments.remove(0));
-                --segmentsToAdd;
+            missingSegments.add(new NakPdu.SegmentRequest(start, end));
+            if(missingSegments.size() == 4) {
+                sendNakPdu(startOfScope, endOfScope, missingSegments);
             }
-            NakPdu pdu = b.build();
-            sendPdu(pdu);
+        });
+        if(!missingSegments.isEmpty()) {
+            sendNakPdu(startOfScope, endOfScope, missingSegments);
         }
     }
 
+    private void sendNakPdu(long startOfScope, long endOfScope, List<NakPdu.SegmentRequest> missingSegments) {
+        NakPduBuilder b = new NakPduBuilder();
+        setCommonPduValues(b);
+        b.setStartOfScope(startOfScope);
+        b.setEndOfScope(endOfScope);
+        for(NakPdu.SegmentRequest segmentRequest : missingSegments) {
+            b.addSegmentRequest(segmentRequest);
+        }
+        missingSegments.clear();
+        NakPdu pdu = b.build();
+        sendPdu(pdu);
+    }
+
     @Override
     protected void handleCancel(ConditionCode conditionCode, long faultEntityId) {
         setLastConditionCode(conditionCode, faultEntityId);
@@ -910,8 +929,8 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
         schedule(this.nakTimer, getRemoteDestination().getNakTimerInterval(), false);
     }
 
-    private TimerTask createNakTimerTask() {
-        return new TimerTask() {
+    private TransactionTimerTask createNakTimerTask() {
+        return new TransactionTimerTask() {
             @Override
             public void run() {
                 handle(() -> {
@@ -967,7 +986,7 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
             this.nakComputationTimer = null;
         }
         // Start the recomputation timer here
-        this.nakComputationTimer = new TimerTask() {
+        this.nakComputationTimer = new TransactionTimerTask() {
             @Override
             public void run() {
                 final TimerTask expiredTimer = this;
@@ -1249,9 +1268,8 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
             storeFile();
         } else {
             if(LOG.isLoggable(Level.WARNING)) {
-                int currentChecksum = this.checksum.getCurrentChecksum();
                 int eofChecksum = this.eofPdu.getFileChecksum();
-                LOG.log(Level.WARNING, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: checksum mismatch, computed %d but EOF is %d", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), currentChecksum, eofChecksum));
+                LOG.log(Level.WARNING, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: checksum mismatch, computed %d but EOF is %d", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), finalChecksum, eofChecksum));
             }
             this.checksumMismatchDetected = true;
             // d) otherwise, a File Checksum Failure fault shall be declared.
@@ -1271,24 +1289,29 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
     }
 
     /**
-     * This method computes the checksum from the temporary random access file.
+     * This method completes the checksum computation with the part of the temporary random access file not yet folded
+     * into the checksum, which is usually empty. If the remaining part is large (e.g. the Metadata PDU was received
+     * after most of the file data) and the checksum can be combined, the remaining part is checksummed in parallel by
+     * the common fork-join pool.
      *
      * @return the computed checksum
      */
     private int computeFinalChecksum() {
         try {
             long length = this.temporaryReconstructionFileMap.length();
-            this.temporaryReconstructionFileMap.seek(0);
-            byte[] tmpBuffer = new byte[1024];
-            long position = 0;
-            while (position < length) {
-                // read(...) advances the position of the file pointer, no seek needed after that
-                int read = this.temporaryReconstructionFileMap.read(tmpBuffer);
-                this.checksum.checksum(tmpBuffer, 0, read, position);
-                position += read;
+            if(this.checksum.isCombinable() && length - this.checksummedFileBytes >= PARALLEL_CHECKSUM_THRESHOLD) {
+                // The parallel computation must start at a file offset aligned to 4 octets
+                updateChecksumFromFile((this.checksummedFileBytes + 3) & ~0x03L);
+                if(LOG.isLoggable(Level.FINER)) {
+                    LOG.log(Level.FINER, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: computing checksum of %d remaining bytes in parallel", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), length - this.checksummedFileBytes));
+                }
+                int remainingChecksum = ForkJoinPool.commonPool().invoke(new FileChecksumTask(this.temporaryReconstructionFileMap.getChannel(), this.checksum, this.checksummedFileBytes, length, CHECKSUM_CHUNK_SIZE));
+                return this.checksum.combine(this.checksum.getCurrentChecksum(), remainingChecksum, length - this.checksummedFileBytes);
+            } else {
+                updateChecksumFromFile(length);
+                return this.checksum.getCurrentChecksum();
             }
-            return this.checksum.getCurrentChecksum();
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             if(LOG.isLoggable(Level.SEVERE)) {
                 LOG.log(Level.SEVERE, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: problem when computing checksum for file %s: %s", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), this.metadataPdu.getDestinationFileName(), e.getMessage()), e);
             }
@@ -1506,24 +1529,4 @@ public class IncomingCfdpTransaction extends CfdpTransaction {
     protected boolean isAcknowledged() {
         return this.initialPdu.isAcknowledged();
     }
-
-    /**
-     * Internal class to be used to keep the summary of a received {@link FileDataPdu}.
-     */
-    private static class FileDataPduSummary {
-
-        /**
-         * The file offset as delivered by the {@link FileDataPdu}
-         */
-        public final long offset;
-        /**
-         * The file data length as delivered by the {@link FileDataPdu}
-         */
-        public final long length;
-
-        public FileDataPduSummary(long offset, long length) {
-            this.offset = offset;
-            this.length = length;
-        }
-    }
 }
@@ -25,6 +25,7 @@ import eu.dariolucia.ccsds.cfdp.entity.segmenters.FileSegment;
 import eu.dariolucia.ccsds.cfdp.entity.segmenters.ICfdpFileSegmenter;
 import eu.dariolucia.ccsds.cfdp.entity.segmenters.impl.FixedSizeSegmenter;
 import eu.dariolucia.ccsds.cfdp.filestore.FilestoreException;
+import eu.dariolucia.ccsds.cfdp.filestore.IFileReader;
 import eu.dariolucia.ccsds.cfdp.mib.FaultHandlerStrategy;
 import eu.dariolucia.ccsds.cfdp.protocol.builder.*;
 import eu.dariolucia.ccsds.cfdp.protocol.checksum.CfdpChecksumRegistry;
@@ -34,6 +35,7 @@ import eu.dariolucia.ccsds.cfdp.protocol.pdu.*;
 import eu.dariolucia.ccsds.cfdp.protocol.pdu.tlvs.*;
 import eu.dariolucia.ccsds.cfdp.ut.UtLayerException;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -45,7 +47,12 @@ public class OutgoingCfdpTransaction extends CfdpTransaction {
     private final PutRequest request;
 
     // Variables to handle file data transfer
-    private final List<CfdpPdu> sentPduList = new LinkedList<>();
+    // Retransmission buffer: the sent Metadata PDU and the index of the sent file segments, whose data is read again
+    // from the filestore when requested by a NAK PDU
+    private MetadataPdu sentMetadataPdu;
+    private final SentFileSegmentIndex sentSegmentIndex = new SentFileSegmentIndex();
+    // Reader of the source file for retransmissions, opened at the first NAK and kept open until disposal
+    private IFileReader retransmissionReader;
     private final List<CfdpPdu> pendingUtTransmissionPduList = new LinkedList<>();
 
     private ICfdpFileSegmenter segmentProvider;
@@ -54,7 +61,7 @@ public class OutgoingCfdpTransaction extends CfdpTransaction {
     private long sentContiguousFileBytes;
 
     // Timer for the declaration of transaction completed when transaction closure is required
-    private TimerTask transactionFinishCheckTimer;
+    private TransactionTimerTask transactionFinishCheckTimer;
 
     // Finished PDU for transactions with closure request
     private FinishedPdu finishedPdu;
@@ -122,11 +129,6 @@ public class OutgoingCfdpTransaction extends CfdpTransaction {
     }
 
     private void handleKeepAlivePdu(KeepAlivePdu pdu) {
-        // Optimisation: remove all FileDataPdu having offset + length < progress, to keep memory low. Another approach is to avoid storing
-        // the FileDataPdus and accessing the file using random access, but this would mean using a direct java.io.RandomAccessFile object
-        // on the virtual filestore, not making it 'virtual' anymore. So good enough for the time being.
-        this.sentPduList.removeIf(o -> o instanceof FileDataPdu && (((FileDataPdu) o).getOffset() + ((FileDataPdu) o).getFileData().length < pdu.getProgress()));
-
         // 4.6.5.3.1 At the sending CFDP entity, if the discrepancy between the reception progress
         // reported by the Keep Alive PDU, and the transaction’s transmission progress so far at this
         // entity exceeds a preset limit, the sending CFDP entity may optionally declare a Keep Alive
@@ -391,41 +393,66 @@ public class OutgoingCfdpTransaction extends CfdpTransaction {
         // 4.6.4.2.1 The sending CFDP entity shall respond to all received NAK PDUs by
         // retransmitting the requested Metadata PDU and/or the extents of the data file defined by the
         // start and end offsets of the segment requests in the NAK PDU.
+        if(this.sentMetadataPdu != null) {
+            // A metadata retransmission is requested if the segment request has offsets both set to 0
+            checkAndRetransmitMetadataPdu(this.sentMetadataPdu, pdu.getSegmentRequests());
+        }
+        if(this.sentSegmentIndex.size() == 0) {
+            return;
+        }
         long startOfScope = pdu.getStartOfScope();
         long endOfScope = pdu.getEndOfScope();
-        for(CfdpPdu sentPdu : this.sentPduList) {
-            if(sentPdu instanceof MetadataPdu) {
-                // A metadata retransmission is requested if the segment request has offsets both set to 0
-                checkAndRetransmitMetadataPdu((MetadataPdu) sentPdu, pdu.getSegmentRequests());
-            } else if(sentPdu instanceof FileDataPdu) {
-                FileDataPdu filePdu = (FileDataPdu) sentPdu;
-                if(filePdu.getOffset() + filePdu.getFileData().length < startOfScope ||
-                        filePdu.getOffset() > endOfScope) {
-                    continue;
+        // Process the segment requests in offset order, so that each sent segment is retransmitted at most once
+        List<NakPdu.SegmentRequest> segmentRequests = new ArrayList<>(pdu.getSegmentRequests());
+        segmentRequests.sort(Comparator.comparingLong(NakPdu.SegmentRequest::getStartOffset));
+        int nextSegment = 0;
+        for(NakPdu.SegmentRequest segmentRequest : segmentRequests) {
+            long start = Math.max(segmentRequest.getStartOffset(), startOfScope);
+            long end = Math.min(segmentRequest.getEndOffset(), endOfScope);
+            if(end <= start) {
+                // Metadata request or request outside the scope
+                continue;
+            }
+            int i = Math.max(nextSegment, this.sentSegmentIndex.firstEndingAfter(start));
+            while(i < this.sentSegmentIndex.size() && this.sentSegmentIndex.getOffset(i) < end) {
+                if(LOG.isLoggable(Level.FINER)) {
+                    LOG.log(Level.FINER, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: missing segment request %s overlaps file segment at offset %d, length %d: sending again", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), segmentRequest, this.sentSegmentIndex.getOffset(i), this.sentSegmentIndex.getLength(i)));
                 }
-                // File data is in offset, so check if there is a segment request
-                checkAndRetransmitFileDataPdu(filePdu, pdu.getSegmentRequests());
+                retransmitFileSegment(i);
+                ++i;
             }
-            // Ignore EOF PDUs
+            nextSegment = i;
         }
     }
 
-    private void checkAndRetransmitFileDataPdu(FileDataPdu filePdu, List<NakPdu.SegmentRequest> segmentRequests) {
-        for(NakPdu.SegmentRequest segmentRequest : segmentRequests) {
-            // If there is an overlap with the file data pdu, send the pdu again
-            if(segmentRequest.overlapWith(filePdu.getOffset(), filePdu.getOffset() + filePdu.getFileData().length)) {
-                if(LOG.isLoggable(Level.FINER)) {
-                    LOG.log(Level.FINER, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: missing segment request %s overlaps File Data PDU %s: sending again", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), segmentRequest, filePdu));
-                }
-                try {
-                    forwardPdu(filePdu, true);
-                } catch (UtLayerException e) {
-                    if(LOG.isLoggable(Level.SEVERE)) {
-                        LOG.log(Level.SEVERE, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: fail on File Data PDU transmission: %s", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), e.getMessage()), e);
-                    }
+    private void retransmitFileSegment(int segmentIndex) {
+        long offset = this.sentSegmentIndex.getOffset(segmentIndex);
+        int length = this.sentSegmentIndex.getLength(segmentIndex);
+        byte[] data = new byte[length];
+        try {
+            if(this.retransmissionReader == null) {
+                this.retransmissionReader = getEntity().getFilestore().openFileReader(request.getSourceFileName());
+            }
+            int read = this.retransmissionReader.read(offset, ByteBuffer.wrap(data));
+            if(read != length) {
+                if(LOG.isLoggable(Level.SEVERE)) {
+                    LOG.log(Level.SEVERE, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: cannot retransmit file segment at offset %d: expected %d bytes, read %d bytes", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), offset, length, read));
                 }
                 return;
             }
+        } catch (FilestoreException e) {
+            if(LOG.isLoggable(Level.SEVERE)) {
+                LOG.log(Level.SEVERE, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: cannot retransmit file segment at offset %d: %s", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), offset, e.getMessage()), e);
+            }
+            return;
+        }
+        FileDataPdu filePdu = prepareFileDataPdu(FileSegment.segment(offset, data, this.sentSegmentIndex.getMetadata(segmentIndex), this.sentSegmentIndex.getRecordContinuationState(segmentIndex)));
+        try {
+            forwardPdu(filePdu, true);
+        } catch (UtLayerException e) {
+            if(LOG.isLoggable(Level.SEVERE)) {
+                LOG.log(Level.SEVERE, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: fail on File Data PDU transmission: %s", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), e.getMessage()), e);
+            }
         }
     }
 
@@ -756,8 +783,13 @@ public class OutgoingCfdpTransaction extends CfdpTransaction {
             LOG.log(Level.FINEST, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: forwardPdu(), %s to UT layer %s - Retransmission: %s", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), pdu, getTransmissionLayer().getName(), retransmission));
         }
         if(isAcknowledged() && !retransmission) {
-            // Remember the PDU
-            this.sentPduList.add(pdu);
+            // Remember what is needed to retransmit the PDU
+            if(pdu instanceof MetadataPdu) {
+                this.sentMetadataPdu = (MetadataPdu) pdu;
+            } else if(pdu instanceof FileDataPdu) {
+                FileDataPdu filePdu = (FileDataPdu) pdu;
+                this.sentSegmentIndex.add(filePdu.getOffset(), filePdu.getFileData().length, filePdu.getSegmentMetadata(), filePdu.getRecordContinuationState());
+            }
         }
         // Add to the pending list
         this.pendingUtTransmissionPduList.add(pdu);
@@ -901,7 +933,7 @@ public class OutgoingCfdpTransaction extends CfdpTransaction {
             } else {
                 // 4.6.3.2.2 In the latter case, a transaction-specific Check timer shall be started. The expiry
                 // period of the timer shall be determined in an implementation-specific manner.
-                this.transactionFinishCheckTimer = new TimerTask() {
+                this.transactionFinishCheckTimer = new TransactionTimerTask() {
                     @Override
                     public void run() {
                         handle(OutgoingCfdpTransaction.this::handleTransactionFinishedCheckTimerElapsed);
@@ -920,7 +952,8 @@ public class OutgoingCfdpTransaction extends CfdpTransaction {
         // 4.11.1.1.1 On Notice of Completion of the Copy File procedure, the sending CFDP entity
         // shall
         // a) release all unreleased portions of the file retransmission buffer
-        this.sentPduList.clear();
+        this.sentMetadataPdu = null;
+        this.sentSegmentIndex.clear();
         // b) stop transmission of file segments and metadata.
         this.pendingUtTransmissionPduList.clear();
         this.txRunning = false;
@@ -987,13 +1020,24 @@ public class OutgoingCfdpTransaction extends CfdpTransaction {
     @Override
     protected void handlePreDispose() {
         // Cleanup resources and memory
-        this.sentPduList.clear();
+        this.sentMetadataPdu = null;
+        this.sentSegmentIndex.clear();
         this.pendingUtTransmissionPduList.clear();
         this.txRunning = false;
         if(this.segmentProvider != null) {
             this.segmentProvider.close();
             this.segmentProvider = null;
         }
+        if(this.retransmissionReader != null) {
+            try {
+                this.retransmissionReader.close();
+            } catch (FilestoreException e) {
+                if(LOG.isLoggable(Level.WARNING)) {
+                    LOG.log(Level.WARNING, String.format("CFDP Entity [%d]: [%d] with remote entity [%d]: cannot close file %s: %s", getLocalEntityId(), getTransactionId(), getRemoteDestination().getRemoteEntityId(), request.getSourceFileName(), e.getMessage()), e);
+                }
+            }
+            this.retransmissionReader = null;
+        }
         this.checksum = null;
         if(transactionFinishCheckTimer != null) {
             transactionFinishCheckTimer.cancel();
@@ -0,0 +1,160 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.entity.internal;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Set of the file extents received by an incoming transaction. Overlapping and adjacent extents are coalesced on
+ * insertion, so that the set contains disjoint, non-adjacent extents sorted by offset: its size is proportional to the
+ * number of gaps in the received data, not to the number of received segments. Insertion and merge are O(log n), and
+ * the end of the contiguous part of the file starting at offset 0 is kept up to date at each insertion.
+ *
+ * This class is not thread-safe: it is meant to be accessed by the transaction confinement thread only.
+ */
+final class ReceivedExtentSet {
+
+    /**
+     * Consumer of the gaps reported by {@link ReceivedExtentSet#forEachGap(long, long, GapConsumer)}.
+     */
+    @FunctionalInterface
+    interface GapConsumer {
+        /**
+         * Process a gap.
+         *
+         * @param start the first missing offset
+         * @param end the offset following the last missing one
+         */
+        void gap(long start, long end);
+    }
+
+    // Extent start offset -> extent end offset (exclusive)
+    private final NavigableMap<Long, Long> extents = new TreeMap<>();
+    private long contiguousEnd;
+    private long highestEnd;
+
+    /**
+     * Add the extent [start, end) to the set.
+     *
+     * @param start the first offset of the extent
+     * @param end the offset following the last one of the extent
+     * @return true if the extent contains at least one offset not already in the set, false if the extent is empty or
+     * already fully contained in the set
+     */
+    boolean add(long start, long end) {
+        if(end <= start) {
+            return false;
+        }
+        long newStart = start;
+        long newEnd = end;
+        Map.Entry<Long, Long> floor = this.extents.floorEntry(start);
+        if(floor != null) {
+            if(floor.getValue() >= end) {
+                // Repeated data
+                return false;
+            }
+            if(floor.getValue() >= start) {
+                // Overlapping or adjacent: merge with the previous extent
+                newStart = floor.getKey();
+            }
+        }
+        // Absorb all the extents starting within the new one or adjacent to its end
+        Iterator<Map.Entry<Long, Long>> it = this.extents.subMap(newStart, true, newEnd, true).entrySet().iterator();
+        while(it.hasNext()) {
+            newEnd = Math.max(newEnd, it.next().getValue());
+            it.remove();
+        }
+        this.extents.put(newStart, newEnd);
+        if(newStart == 0) {
+            this.contiguousEnd = newEnd;
+        }
+        if(newEnd > this.highestEnd) {
+            this.highestEnd = newEnd;
+        }
+        return true;
+    }
+
+    /**
+     * This method returns the number of bytes received contiguously from the start of the file.
+     *
+     * @return the end offset of the extent starting at 0, or 0 if such extent is not present
+     */
+    long getContiguousEnd() {
+        return this.contiguousEnd;
+    }
+
+    /**
+     * This method returns the end offset of the last extent.
+     *
+     * @return the end offset of the last extent, or 0 if the set is empty
+     */
+    long getHighestEnd() {
+        return this.highestEnd;
+    }
+
+    /**
+     * This method returns whether the set has gaps, i.e. whether some data was received after a missing part.
+     *
+     * @return true if there are gaps, false otherwise
+     */
+    boolean hasGaps() {
+        return this.contiguousEnd < this.highestEnd;
+    }
+
+    /**
+     * This method reports, in offset order, the gaps of the set within [from, to). Only the extents in the range are
+     * visited, so the cost is proportional to the number of reported gaps.
+     *
+     * @param from the first offset to check
+     * @param to the offset following the last one to check
+     * @param consumer the consumer of the gaps
+     */
+    void forEachGap(long from, long to, GapConsumer consumer) {
+        long cursor = from;
+        Long floorKey = this.extents.floorKey(from);
+        for(Map.Entry<Long, Long> e : this.extents.tailMap(floorKey != null ? floorKey : from, true).entrySet()) {
+            if(cursor >= to) {
+                return;
+            }
+            if(e.getKey() > cursor) {
+                consumer.gap(cursor, Math.min(e.getKey(), to));
+            }
+            cursor = Math.max(cursor, e.getValue());
+        }
+        if(cursor < to) {
+            consumer.gap(cursor, to);
+        }
+    }
+
+    /**
+     * This method returns the number of disjoint extents in the set.
+     *
+     * @return the number of extents
+     */
+    int size() {
+        return this.extents.size();
+    }
+
+    void clear() {
+        this.extents.clear();
+        this.contiguousEnd = 0;
+        this.highestEnd = 0;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.entity.internal;
+
+import eu.dariolucia.ccsds.cfdp.protocol.pdu.FileDataPdu;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact index of the file segments sent by an acknowledged outgoing transaction, used to answer NAK PDUs without
+ * keeping the sent File Data PDUs in memory: only offset and length of each segment are stored, in two primitive arrays
+ * sorted by offset, while the segment metadata and record continuation state are stored only for the segments that
+ * have them. The data to retransmit is read again from the filestore.
+ *
+ * This class is not thread-safe: it is meant to be accessed by the transaction confinement thread only.
+ */
+final class SentFileSegmentIndex {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] offsets = new long[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private final Map<Long, SegmentAnnotation> annotations = new HashMap<>();
+
+    /**
+     * Record a sent segment. Segments are normally added in offset order: out of order segments are inserted at their
+     * position, a segment with an offset already recorded replaces the previous one.
+     *
+     * @param offset the offset of the segment in the file
+     * @param length the length of the segment data
+     * @param metadata the segment metadata, can be null
+     * @param recordContinuationState the record continuation state, or {@link FileDataPdu#RCS_NOT_PRESENT}
+     */
+    void add(long offset, int length, byte[] metadata, byte recordContinuationState) {
+        int idx;
+        if(this.size == 0 || this.offsets[this.size - 1] < offset) {
+            idx = this.size;
+        } else {
+            idx = Arrays.binarySearch(this.offsets, 0, this.size, offset);
+            if(idx >= 0) {
+                // Same offset: replace
+                this.lengths[idx] = length;
+                annotate(offset, metadata, recordContinuationState);
+                return;
+            }
+            idx = -idx - 1;
+        }
+        if(this.size == this.offsets.length) {
+            this.offsets = Arrays.copyOf(this.offsets, this.size * 2);
+            this.lengths = Arrays.copyOf(this.lengths, this.size * 2);
+        }
+        if(idx < this.size) {
+            System.arraycopy(this.offsets, idx, this.offsets, idx + 1, this.size - idx);
+            System.arraycopy(this.lengths, idx, this.lengths, idx + 1, this.size - idx);
+        }
+        this.offsets[idx] = offset;
+        this.lengths[idx] = length;
+        ++this.size;
+        annotate(offset, metadata, recordContinuationState);
+    }
+
+    private void annotate(long offset, byte[] metadata, byte recordContinuationState) {
+        if((metadata != null && metadata.length > 0) || recordContinuationState != FileDataPdu.RCS_NOT_PRESENT) {
+            this.annotations.put(offset, new SegmentAnnotation(metadata, recordContinuationState));
+        } else {
+            this.annotations.remove(offset);
+        }
+    }
+
+    /**
+     * This method returns the index of the first segment ending after the provided offset, i.e. the first segment that
+     * can overlap a range starting at the provided offset.
+     *
+     * @param offset the start offset
+     * @return the index of the first segment ending after the offset, or {@link SentFileSegmentIndex#size()} if no such segment exists
+     */
+    int firstEndingAfter(long offset) {
+        int low = 0;
+        int high = this.size;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(this.offsets[mid] + this.lengths[mid] > offset) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    long getOffset(int i) {
+        return this.offsets[i];
+    }
+
+    int getLength(int i) {
+        return this.lengths[i];
+    }
+
+    byte[] getMetadata(int i) {
+        SegmentAnnotation a = this.annotations.get(this.offsets[i]);
+        return a == null ? null : a.metadata;
+    }
+
+    byte getRecordContinuationState(int i) {
+        SegmentAnnotation a = this.annotations.get(this.offsets[i]);
+        return a == null ? FileDataPdu.RCS_NOT_PRESENT : a.recordContinuationState;
+    }
+
+    void clear() {
+        this.offsets = new long[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.size = 0;
+        this.annotations.clear();
+    }
+
+    private static final class SegmentAnnotation {
+        private final byte[] metadata;
+        private final byte recordContinuationState;
+
+        private SegmentAnnotation(byte[] metadata, byte recordContinuationState) {
+            this.metadata = metadata;
+            this.recordContinuationState = recordContinuationState;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.entity.internal;
+
+import eu.dariolucia.ccsds.tmtc.util.TaskScheduler;
+
+import java.util.TimerTask;
+
+/**
+ * {@link TimerTask} used by the transactions, which can be scheduled either on a {@link java.util.Timer} or on the
+ * timing wheel of a {@link TaskScheduler}. In the latter case, periodic tasks are rescheduled on the wheel at each
+ * expiration (fixed-delay execution, as {@link java.util.Timer#schedule(TimerTask, long, long)}), and
+ * {@link TimerTask#cancel()} cancels the pending timeout.
+ *
+ * The {@link TimerTask#run()} method is invoked by the timer thread or by the ticker of the scheduler: it must not
+ * block, and it shall only hand over the processing to the transaction confinement executor.
+ */
+abstract class TransactionTimerTask extends TimerTask {
+
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private boolean cancelled;
+
+    // Guarded by lock
+    private TaskScheduler.Timeout timeout;
+
+    /**
+     * Schedule the task on the timing wheel of the provided scheduler.
+     *
+     * @param scheduler the scheduler
+     * @param period the delay before the first execution and, if periodic, between subsequent executions
+     * @param periodic true if the task must be run periodically until cancelled
+     */
+    void scheduleOn(TaskScheduler scheduler, long period, boolean periodic) {
+        synchronized (this.lock) {
+            // Checked under the same lock used by cancel(), so that a task cancelled while running cannot re-arm
+            if(this.cancelled) {
+                return;
+            }
+            this.timeout = scheduler.schedule(() -> expire(scheduler, period, periodic), period);
+        }
+    }
+
+    private void expire(TaskScheduler scheduler, long period, boolean periodic) {
+        synchronized (this.lock) {
+            if(this.cancelled) {
+                return;
+            }
+        }
+        if(periodic) {
+            scheduleOn(scheduler, period, true);
+        }
+        run();
+    }
+
+    @Override
+    public boolean cancel() {
+        boolean pending;
+        synchronized (this.lock) {
+            this.cancelled = true;
+            pending = this.timeout != null && this.timeout.cancel();
+        }
+        return super.cancel() || pending;
+    }
+}
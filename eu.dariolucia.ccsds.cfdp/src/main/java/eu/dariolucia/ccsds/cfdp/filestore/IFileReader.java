@@ -0,0 +1,48 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and 
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.filestore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This interface allows to read a file of a {@link IVirtualFilestore} at arbitrary positions, keeping the file open
+ * across reads. Instances are obtained from {@link IVirtualFilestore#openFileReader(String)} and must be closed when no
+ * longer needed.
+ *
+ * Implementations are not required to be thread-safe.
+ */
+public interface IFileReader extends AutoCloseable {
+
+    /**
+     * Read the contents of the file starting at the provided position, until the buffer is full or the end of the file
+     * is reached.
+     *
+     * @param position the position of the first byte to read
+     * @param buffer the buffer receiving the data, from its position up to its limit
+     * @return the number of read bytes
+     * @throws FilestoreException in case of problems when reading the file
+     */
+    int read(long position, ByteBuffer buffer) throws FilestoreException;
+
+    /**
+     * Close the reader and release the underlying resources.
+     *
+     * @throws FilestoreException in case of problems when closing the file
+     */
+    @Override
+    void close() throws FilestoreException;
+}
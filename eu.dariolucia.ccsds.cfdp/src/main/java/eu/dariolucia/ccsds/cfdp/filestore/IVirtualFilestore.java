@@ -18,6 +18,7 @@ package eu.dariolucia.ccsds.cfdp.filestore;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 public interface IVirtualFilestore {
@@ -55,4 +56,37 @@ public interface IVirtualFilestore {
     InputStream readFile(String fullPath) throws FilestoreException;
 
     OutputStream writeFile(String fullPath, boolean append) throws FilestoreException;
+
+    /**
+     * Read the contents of the file starting at the provided position, until the buffer is full or the end of the file
+     * is reached. The file is opened and closed at each invocation: callers performing several reads on the same file
+     * should use {@link IVirtualFilestore#openFileReader(String)} instead.
+     *
+     * @param fullPath the file to read
+     * @param position the position of the first byte to read
+     * @param buffer the buffer receiving the data, from its position up to its limit
+     * @return the number of read bytes
+     * @throws FilestoreException in case of problems when reading the file
+     */
+    default int readFile(String fullPath, long position, ByteBuffer buffer) throws FilestoreException {
+        try (IFileReader reader = openFileReader(fullPath)) {
+            return reader.read(position, buffer);
+        }
+    }
+
+    /**
+     * Open the file for reads at arbitrary positions. The returned reader keeps the file open until closed.
+     *
+     * The default implementation reads the stream returned by {@link IVirtualFilestore#readFile(String)} and skips the
+     * bytes before the requested position: the cost of a read is proportional to the distance from the previous read,
+     * if the requested position is after it, or to the requested position otherwise, since the file must be reopened.
+     * Implementations supporting random access should override it.
+     *
+     * @param fullPath the file to read
+     * @return the reader, to be closed by the caller
+     * @throws FilestoreException in case of problems when opening the file
+     */
+    default IFileReader openFileReader(String fullPath) throws FilestoreException {
+        return new SequentialFileReader(this, fullPath);
+    }
 }
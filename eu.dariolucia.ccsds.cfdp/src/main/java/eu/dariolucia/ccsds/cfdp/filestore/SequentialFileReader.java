@@ -0,0 +1,90 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and 
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.filestore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Default {@link IFileReader}, based on the sequential stream returned by {@link IVirtualFilestore#readFile(String)}.
+ * The stream is kept open between reads: reading at increasing positions only skips the bytes in between, while
+ * reading before the current stream position reopens the file and skips from its start.
+ */
+class SequentialFileReader implements IFileReader {
+
+    private final IVirtualFilestore filestore;
+    private final String fullPath;
+
+    private InputStream stream;
+    private long streamPosition;
+
+    SequentialFileReader(IVirtualFilestore filestore, String fullPath) throws FilestoreException {
+        this.filestore = filestore;
+        this.fullPath = fullPath;
+        this.stream = filestore.readFile(fullPath);
+    }
+
+    @Override
+    public int read(long position, ByteBuffer buffer) throws FilestoreException {
+        try {
+            if(this.stream == null || position < this.streamPosition) {
+                close();
+                this.stream = this.filestore.readFile(this.fullPath);
+            }
+            while (this.streamPosition < position) {
+                long skipped = this.stream.skip(position - this.streamPosition);
+                if (skipped <= 0) {
+                    // End of file or stream not supporting skip
+                    if (this.stream.read() == -1) {
+                        return 0;
+                    }
+                    skipped = 1;
+                }
+                this.streamPosition += skipped;
+            }
+            int read = 0;
+            byte[] chunk = new byte[Math.min(buffer.remaining(), 8192)];
+            while (buffer.hasRemaining()) {
+                int n = this.stream.read(chunk, 0, Math.min(chunk.length, buffer.remaining()));
+                if (n == -1) {
+                    break;
+                }
+                buffer.put(chunk, 0, n);
+                read += n;
+                this.streamPosition += n;
+            }
+            return read;
+        } catch (IOException e) {
+            throw new FilestoreException(e);
+        }
+    }
+
+    @Override
+    public void close() throws FilestoreException {
+        if(this.stream != null) {
+            InputStream toClose = this.stream;
+            this.stream = null;
+            this.streamPosition = 0;
+            try {
+                toClose.close();
+            } catch (IOException e) {
+                throw new FilestoreException(e);
+            }
+        }
+    }
+}
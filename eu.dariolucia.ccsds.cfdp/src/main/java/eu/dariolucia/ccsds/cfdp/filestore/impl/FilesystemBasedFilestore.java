@@ -17,11 +17,15 @@
 package eu.dariolucia.ccsds.cfdp.filestore.impl;
 
 import eu.dariolucia.ccsds.cfdp.filestore.FilestoreException;
+import eu.dariolucia.ccsds.cfdp.filestore.IFileReader;
 import eu.dariolucia.ccsds.cfdp.filestore.IVirtualFilestore;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -273,6 +277,19 @@ public class FilesystemBasedFilestore implements IVirtualFilestore {
         }
     }
 
+    @Override
+    public IFileReader openFileReader(String fullPath) throws FilestoreException {
+        File target = constructTarget(fullPath);
+        if(!target.exists()) {
+            throw new FilestoreException(String.format("Cannot read file %s: file does not exist", fullPath));
+        }
+        try {
+            return new ChannelFileReader(FileChannel.open(target.toPath(), StandardOpenOption.READ));
+        } catch (IOException e) {
+            throw new FilestoreException(e);
+        }
+    }
+
     @Override
     public OutputStream writeFile(String fullPath, boolean append) throws FilestoreException {
         File target = constructTarget(fullPath);
@@ -301,4 +318,42 @@ public class FilesystemBasedFilestore implements IVirtualFilestore {
                 "root=" + root +
                 '}';
     }
+
+    /**
+     * {@link IFileReader} performing positional reads on an open {@link FileChannel}.
+     */
+    private static final class ChannelFileReader implements IFileReader {
+
+        private final FileChannel channel;
+
+        private ChannelFileReader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read(long position, ByteBuffer buffer) throws FilestoreException {
+            try {
+                int read = 0;
+                while(buffer.hasRemaining()) {
+                    int n = this.channel.read(buffer, position + read);
+                    if(n == -1) {
+                        break;
+                    }
+                    read += n;
+                }
+                return read;
+            } catch (IOException e) {
+                throw new FilestoreException(e);
+            }
+        }
+
+        @Override
+        public void close() throws FilestoreException {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                throw new FilestoreException(e);
+            }
+        }
+    }
 }
@@ -17,6 +17,8 @@
 package eu.dariolucia.ccsds.cfdp.protocol.checksum;
 
 import eu.dariolucia.ccsds.cfdp.common.CfdpStandardComplianceError;
+import eu.dariolucia.ccsds.cfdp.protocol.checksum.impl.Crc32Checksum;
+import eu.dariolucia.ccsds.cfdp.protocol.checksum.impl.Crc32cChecksum;
 import eu.dariolucia.ccsds.cfdp.protocol.checksum.impl.ModularChecksum;
 import eu.dariolucia.ccsds.cfdp.protocol.checksum.impl.NullChecksum;
 
@@ -29,6 +31,8 @@ import java.util.stream.Collectors;
 public final class CfdpChecksumRegistry {
 
     public static final int MODULAR_CHECKSUM_TYPE = 0;
+    public static final int CRC32C_CHECKSUM_TYPE = 2;
+    public static final int CRC32_CHECKSUM_TYPE = 3;
     public static final int NULL_CHECKSUM_TYPE = 15;
 
     private CfdpChecksumRegistry() {
@@ -40,9 +44,11 @@ public final class CfdpChecksumRegistry {
     public static synchronized ICfdpChecksumFactory getChecksum(int type) throws CfdpUnsupportedChecksumType {
         ServiceLoader<ICfdpChecksumFactory> loader = ServiceLoader.load(ICfdpChecksumFactory.class);
         if(type2factory.isEmpty()) {
-            // Add null and modular checksums (part of the implementation)
+            // Add null, modular and CRC checksums (part of the implementation)
             type2factory.put(NULL_CHECKSUM_TYPE, new NullChecksum());
             type2factory.put(MODULAR_CHECKSUM_TYPE, new ModularChecksum());
+            type2factory.put(CRC32C_CHECKSUM_TYPE, new Crc32cChecksum());
+            type2factory.put(CRC32_CHECKSUM_TYPE, new Crc32Checksum());
             // Initialise the remaining algorithms
             type2factory.putAll(loader.stream().map(ServiceLoader.Provider::get).collect(Collectors.toMap(ICfdpChecksumFactory::type, Function.identity())));
         }
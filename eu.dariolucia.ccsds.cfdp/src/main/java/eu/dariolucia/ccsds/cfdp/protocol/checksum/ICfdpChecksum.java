@@ -76,6 +76,34 @@ public interface ICfdpChecksum {
      */
     int getCurrentChecksum();
 
+    /**
+     * Return whether the checksums of adjacent parts of a file, computed by means of
+     * {@link ICfdpChecksum#checksum(byte[], int, int)}, can be merged by means of
+     * {@link ICfdpChecksum#combine(int, int, long)}. This allows the checksum of a file to be computed in parallel.
+     *
+     * @return true if checksums can be combined, otherwise false
+     */
+    default boolean isCombinable() {
+        return false;
+    }
+
+    /**
+     * Combine the checksum of a part of the file with the checksum of the part immediately following it, both
+     * computed by means of {@link ICfdpChecksum#checksum(byte[], int, int)}, or by the incremental computation for the
+     * first part. The length of the first part shall be a multiple of 4 octets.
+     *
+     * This method is stateless and thread safe.
+     *
+     * @param firstChecksum the checksum of the first part
+     * @param secondChecksum the checksum of the second part
+     * @param secondLength the length of the second part in bytes
+     * @return the checksum of the two parts
+     * @throws UnsupportedOperationException if the checksum cannot be combined
+     */
+    default int combine(int firstChecksum, int secondChecksum, long secondLength) {
+        throw new UnsupportedOperationException("Checksum type " + type() + " cannot be combined");
+    }
+
     /**
      * Return the type of the checksum (as in the SANA Checksum Identifiers registry)
      *
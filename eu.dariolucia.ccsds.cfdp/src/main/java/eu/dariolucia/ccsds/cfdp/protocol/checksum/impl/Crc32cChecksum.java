@@ -0,0 +1,45 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and 
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.protocol.checksum.impl;
+
+import eu.dariolucia.ccsds.cfdp.protocol.checksum.CfdpChecksumRegistry;
+import eu.dariolucia.ccsds.cfdp.protocol.checksum.ICfdpChecksum;
+import eu.dariolucia.ccsds.cfdp.protocol.checksum.ICfdpChecksumFactory;
+
+import java.util.zip.CRC32C;
+
+/**
+ * The CRC-32C checksum (identified by checksum type two) is the 32-bit CRC with the Castagnoli polynomial
+ * 0x1EDC6F41, as defined in IETF RFC 4960, Appendix B. The computation relies on {@link CRC32C}, which is
+ * intrinsified by the JVM on most platforms.
+ *
+ * Ref: CCSDS 727.0-B-5, 4.2 and SANA Checksum Identifiers registry
+ */
+public class Crc32cChecksum implements ICfdpChecksumFactory {
+
+    private static final int REFLECTED_POLYNOMIAL = 0x82F63B78;
+
+    @Override
+    public int type() {
+        return CfdpChecksumRegistry.CRC32C_CHECKSUM_TYPE;
+    }
+
+    @Override
+    public ICfdpChecksum build() {
+        return new CrcChecksumComputer(CRC32C::new, REFLECTED_POLYNOMIAL, type());
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and 
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.protocol.checksum.impl;
+
+import eu.dariolucia.ccsds.cfdp.protocol.checksum.ICfdpChecksum;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.zip.Checksum;
+
+/**
+ * Incremental computer of a reflected 32-bit CRC (such as the IEEE 802.3 CRC-32 or the CRC-32C), based on a
+ * {@link Checksum} implementation of the JDK.
+ *
+ * Differently from the modular checksum, a CRC depends on the order of the data: file data received in order is fed
+ * straight into the underlying {@link Checksum}, while file data received out of order is checksummed on its own
+ * and kept, by file offset, until the contiguous part of the file reaches it. The CRCs of adjacent file segments are
+ * then combined (as done by zlib's crc32_combine), so that no file data needs to be retained. File data already
+ * included in the checksum (e.g. retransmitted segments) is ignored.
+ */
+public class CrcChecksumComputer implements ICfdpChecksum {
+
+    private final Supplier<Checksum> checksumSupplier;
+
+    private final CrcCombiner combiner;
+
+    private final int type;
+
+    // CRC of the first prefixLength bytes of the file, already combined
+    private long prefixCrc = 0;
+    private long prefixLength = 0;
+    // Checksum of the contiguous bytes following the combined prefix
+    private final Checksum run;
+    private long runLength = 0;
+    // File segments received after a gap: start offset -> segment
+    private final TreeMap<Long, PendingSegment> pendingSegments = new TreeMap<>();
+
+    /**
+     * Construct a CRC computer.
+     *
+     * @param checksumSupplier the supplier of new instances of the underlying {@link Checksum}
+     * @param reflectedPolynomial the reflected polynomial of the CRC, used to combine the CRCs of adjacent segments
+     * @param type the type of the checksum (as in the SANA Checksum Identifiers registry)
+     */
+    public CrcChecksumComputer(Supplier<Checksum> checksumSupplier, int reflectedPolynomial, int type) {
+        this.checksumSupplier = checksumSupplier;
+        this.combiner = CrcCombiner.forPolynomial(reflectedPolynomial);
+        this.type = type;
+        this.run = checksumSupplier.get();
+    }
+
+    @Override
+    public int checksum(byte[] data, int offset, int len) {
+        Checksum checksum = checksumSupplier.get();
+        checksum.update(data, offset, len);
+        return (int) checksum.getValue();
+    }
+
+    @Override
+    public int checksum(byte[] data, int offset, int length, long fileOffset) {
+        long contiguousEnd = prefixLength + runLength;
+        long end = fileOffset + length;
+        if(end <= contiguousEnd) {
+            // Already included
+            return getCurrentChecksum();
+        }
+        // Collect the parts of the data not already covered by the contiguous part or by the pending segments
+        long cursor = Math.max(fileOffset, contiguousEnd);
+        List<long[]> newParts = new ArrayList<>(1);
+        Map.Entry<Long, PendingSegment> previous = pendingSegments.floorEntry(cursor);
+        Long fromKey = previous != null && previous.getValue().end > cursor ? previous.getKey() : Long.valueOf(cursor);
+        for(Map.Entry<Long, PendingSegment> e : pendingSegments.tailMap(fromKey, true).entrySet()) {
+            if(e.getKey() >= end) {
+                break;
+            }
+            if(e.getKey() > cursor) {
+                newParts.add(new long[] { cursor, e.getKey() });
+            }
+            cursor = Math.max(cursor, e.getValue().end);
+            if(cursor >= end) {
+                break;
+            }
+        }
+        if(cursor < end) {
+            newParts.add(new long[] { cursor, end });
+        }
+        for(long[] part : newParts) {
+            addPart(data, offset + (int) (part[0] - fileOffset), part[0], part[1]);
+        }
+        foldPendingSegments();
+        return getCurrentChecksum();
+    }
+
+    private void addPart(byte[] data, int dataOffset, long start, long end) {
+        int length = (int) (end - start);
+        if(start == prefixLength + runLength) {
+            // In order: straight into the running checksum
+            run.update(data, dataOffset, length);
+            runLength += length;
+            return;
+        }
+        Checksum checksum = checksumSupplier.get();
+        checksum.update(data, dataOffset, length);
+        PendingSegment segment = new PendingSegment(end, checksum.getValue());
+        // Merge with the adjacent pending segments, if any
+        Map.Entry<Long, PendingSegment> before = pendingSegments.lowerEntry(start);
+        if(before != null && before.getValue().end == start) {
+            before.getValue().append(combiner, segment);
+            segment = before.getValue();
+            start = before.getKey();
+        } else {
+            pendingSegments.put(start, segment);
+        }
+        PendingSegment after = pendingSegments.remove(end);
+        if(after != null) {
+            segment.append(combiner, after);
+        }
+    }
+
+    private void foldPendingSegments() {
+        long contiguousEnd = prefixLength + runLength;
+        PendingSegment next = pendingSegments.remove(contiguousEnd);
+        if(next != null) {
+            prefixCrc = combiner.combine(combiner.combine(prefixCrc, run.getValue(), runLength), next.crc, next.end - contiguousEnd);
+            prefixLength = next.end;
+            run.reset();
+            runLength = 0;
+        }
+    }
+
+    @Override
+    public int getCurrentChecksum() {
+        if(prefixLength == 0) {
+            return (int) run.getValue();
+        } else {
+            return (int) combiner.combine(prefixCrc, run.getValue(), runLength);
+        }
+    }
+
+    @Override
+    public boolean isCombinable() {
+        return true;
+    }
+
+    @Override
+    public int combine(int firstChecksum, int secondChecksum, long secondLength) {
+        return (int) combiner.combine(Integer.toUnsignedLong(firstChecksum), Integer.toUnsignedLong(secondChecksum), secondLength);
+    }
+
+    @Override
+    public int type() {
+        return type;
+    }
+
+    private static final class PendingSegment {
+        private long end;
+        private long crc;
+
+        private PendingSegment(long end, long crc) {
+            this.end = end;
+            this.crc = crc;
+        }
+
+        private void append(CrcCombiner combiner, PendingSegment next) {
+            this.crc = combiner.combine(this.crc, next.crc, next.end - this.end);
+            this.end = next.end;
+        }
+    }
+
+    /**
+     * Combination of the CRCs of two adjacent byte sequences, for a given reflected polynomial: the CRC of the first
+     * sequence is advanced over as many zero bytes as the length of the second sequence, by means of the GF(2) matrices
+     * of the zero-byte operators for the powers of two, and then added to the CRC of the second sequence.
+     */
+    static final class CrcCombiner {
+
+        private static final Map<Integer, CrcCombiner> COMBINERS = new HashMap<>();
+
+        // zeroOperators[k] advances a CRC over 2^k zero bytes
+        private final long[][] zeroOperators = new long[64][];
+
+        static synchronized CrcCombiner forPolynomial(int reflectedPolynomial) {
+            return COMBINERS.computeIfAbsent(reflectedPolynomial, CrcCombiner::new);
+        }
+
+        private CrcCombiner(int reflectedPolynomial) {
+            // Operator for one zero bit
+            long[] operator = new long[32];
+            operator[0] = Integer.toUnsignedLong(reflectedPolynomial);
+            long row = 1;
+            for(int n = 1; n < 32; ++n) {
+                operator[n] = row;
+                row <<= 1;
+            }
+            // Two, four and eight zero bits
+            for(int i = 0; i < 3; ++i) {
+                operator = square(operator);
+            }
+            zeroOperators[0] = operator;
+            for(int k = 1; k < zeroOperators.length; ++k) {
+                zeroOperators[k] = square(zeroOperators[k - 1]);
+            }
+        }
+
+        long combine(long crc1, long crc2, long length2) {
+            for(int k = 0; length2 != 0; ++k, length2 >>>= 1) {
+                if((length2 & 1) != 0) {
+                    crc1 = times(zeroOperators[k], crc1);
+                }
+            }
+            return crc1 ^ crc2;
+        }
+
+        private static long times(long[] matrix, long vector) {
+            long sum = 0;
+            for(int i = 0; vector != 0; ++i, vector >>>= 1) {
+                if((vector & 1) != 0) {
+                    sum ^= matrix[i];
+                }
+            }
+            return sum;
+        }
+
+        private static long[] square(long[] matrix) {
+            long[] result = new long[32];
+            for(int n = 0; n < 32; ++n) {
+                result[n] = times(matrix, matrix[n]);
+            }
+            return result;
+        }
+    }
+}
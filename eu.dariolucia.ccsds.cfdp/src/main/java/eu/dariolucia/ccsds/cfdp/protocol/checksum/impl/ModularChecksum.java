@@ -20,7 +20,9 @@ import eu.dariolucia.ccsds.cfdp.protocol.checksum.CfdpChecksumRegistry;
 import eu.dariolucia.ccsds.cfdp.protocol.checksum.ICfdpChecksum;
 import eu.dariolucia.ccsds.cfdp.protocol.checksum.ICfdpChecksumFactory;
 
-import java.nio.ByteBuffer;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 
 /**
  * The modular checksum (identified by checksum type zero) shall be calculated by the
@@ -63,73 +65,83 @@ public class ModularChecksum implements ICfdpChecksumFactory {
 
     public static class ModularChecksumComputer implements ICfdpChecksum {
 
+        // Big endian views on byte arrays, intrinsified as single (possibly unaligned) loads
+        private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+        private static final VarHandle INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+        private static final long WORD_MASK = 0xFFFFFFFFL;
+
         private long currentChecksum = 0;
 
         @Override
         public int checksum(byte[] data, int offset, int len) {
-            // The checksum shall initially be set to all 'zeroes'
+            // The checksum shall initially be set to all 'zeroes'. The checksum shall be calculated by modulo 2^32
+            // addition of all 4-octet words, aligned from the start of the file: two words are read at a time as a
+            // big endian long. The accumulator cannot overflow for any array length, since each step adds less than 2^33.
             long accumulator = 0;
-            int i = 0;
-            for(;i < len; i += 4) {
-                if(len - i >= 4) {
-                    // The checksum shall be calculated by modulo 2^32 addition of all 4-octet words, aligned from the
-                    // start of the file
-
-                    // Read 4 bytes in a row as integer (unsigned and increment the accumulator)
-                    long read = Integer.toUnsignedLong(ByteBuffer.wrap(data, i + offset, 4).getInt());
-                    accumulator += read;
-                } else {
-                    // I need to pad at the end
-                    byte[] tmp = new byte[] {0,0,0,0};
-                    System.arraycopy(data, i + offset, tmp, 0, len - i);
-                    long read = Integer.toUnsignedLong(ByteBuffer.wrap(tmp, 0, 4).getInt());
-                    accumulator += read;
-                }
+            int i = offset;
+            int end = offset + len;
+            for(; end - i >= 8; i += 8) {
+                long read = (long) LONG_VIEW.get(data, i);
+                accumulator += (read >>> 32) + (read & WORD_MASK);
+            }
+            if(end - i >= 4) {
+                accumulator += (int) INT_VIEW.get(data, i) & WORD_MASK;
+                i += 4;
+            }
+            if(i < end) {
+                // I need to pad at the end
+                accumulator += paddedWord(data, i, end - i, 0);
             }
             // the results of the addition shall be carried into each available octet of the checksum unless the
             // addition overflows the checksum length, in which case, carry shall be discarded
-            accumulator &= 0xFFFFFFFF;
             return (int) accumulator;
         }
 
         @Override
         public int checksum(byte[] data, int offset, int length, long fileOffset) {
-            // Check the file offset: if not 4-bytes aligned, do so and just the first 4-bytes word
-            int leadingZeroes = (int) fileOffset % 4;
-            if(leadingZeroes > 0) {
-                if(length > 4 - leadingZeroes) {
-                    // I need to pad at the beginning
-                    byte[] tmp = new byte[]{0, 0, 0, 0};
-                    System.arraycopy(data, offset, tmp, leadingZeroes, 4 - leadingZeroes);
-                    long read = Integer.toUnsignedLong(ByteBuffer.wrap(tmp, 0, 4).getInt());
-                    currentChecksum += read;
-                    currentChecksum &= 0xFFFFFFFF;
-                    offset += 4 - leadingZeroes;
-                } else {
-                    // Everything fits into a single byte array of 4 bytes
-                    byte[] tmp = new byte[]{0, 0, 0, 0};
-                    System.arraycopy(data, offset, tmp, leadingZeroes, length);
-                    long read = Integer.toUnsignedLong(ByteBuffer.wrap(tmp, 0, 4).getInt());
-                    currentChecksum += read;
-                    currentChecksum &= 0xFFFFFFFF;
-                    offset += length;
-                }
-                // Then compute the checksum using the standard approach
-                currentChecksum += Integer.toUnsignedLong(checksum(data, offset, length - (4 - leadingZeroes)));
-                currentChecksum &= 0xFFFFFFFF;
-            } else {
-                currentChecksum += Integer.toUnsignedLong(checksum(data, offset, length));
-                currentChecksum &= 0xFFFFFFFF;
+            // Check the file offset: if not 4-bytes aligned, pad at the beginning the first 4-bytes word
+            int leadingZeroes = (int) (fileOffset & 0x03);
+            if(leadingZeroes > 0 && length > 0) {
+                int headLength = Math.min(length, 4 - leadingZeroes);
+                currentChecksum += paddedWord(data, offset, headLength, leadingZeroes);
+                offset += headLength;
+                length -= headLength;
             }
-
+            // Then compute the checksum using the standard approach
+            currentChecksum += Integer.toUnsignedLong(checksum(data, offset, length));
+            currentChecksum &= WORD_MASK;
             return (int) currentChecksum;
         }
 
+        /**
+         * Build the 4-octet word made by the provided bytes (less than 4), preceded by the specified number of
+         * 'zero' octets and followed by as many 'zero' octets as needed.
+         */
+        private static long paddedWord(byte[] data, int offset, int length, int leadingZeroes) {
+            long word = 0;
+            for(int k = 0; k < length; ++k) {
+                word |= (data[offset + k] & 0xFFL) << (8 * (3 - leadingZeroes - k));
+            }
+            return word;
+        }
+
         @Override
         public int getCurrentChecksum() {
             return (int) currentChecksum;
         }
 
+        @Override
+        public boolean isCombinable() {
+            return true;
+        }
+
+        @Override
+        public int combine(int firstChecksum, int secondChecksum, long secondLength) {
+            // The addition of aligned words is commutative: the partial sums can be simply added
+            return firstChecksum + secondChecksum;
+        }
+
         @Override
         public int type() {
             return CfdpChecksumRegistry.MODULAR_CHECKSUM_TYPE;
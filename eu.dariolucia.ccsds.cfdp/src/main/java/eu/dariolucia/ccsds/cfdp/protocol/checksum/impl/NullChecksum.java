@@ -55,6 +55,16 @@ public class NullChecksum implements ICfdpChecksumFactory {
             return 0;
         }
 
+        @Override
+        public boolean isCombinable() {
+            return true;
+        }
+
+        @Override
+        public int combine(int firstChecksum, int secondChecksum, long secondLength) {
+            return 0;
+        }
+
         @Override
         public int type() {
             return CfdpChecksumRegistry.NULL_CHECKSUM_TYPE;
@@ -2,7 +2,7 @@
 open module eu.dariolucia.ccsds.cfdp {
     requires java.logging;
     requires transitive java.xml.bind;
-    requires eu.dariolucia.ccsds.tmtc;
+    requires transitive eu.dariolucia.ccsds.tmtc;
 
     exports eu.dariolucia.ccsds.cfdp.common;
     exports eu.dariolucia.ccsds.cfdp.protocol.checksum;
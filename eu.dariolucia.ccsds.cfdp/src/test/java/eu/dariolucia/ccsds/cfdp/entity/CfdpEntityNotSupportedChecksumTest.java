@@ -165,7 +165,7 @@ public class CfdpEntityNotSupportedChecksumTest {
         // Metadata specific
         b.setSegmentationControlPreserved(false); // Always 0 for file directive PDUs
         b.setClosureRequested(false);
-        b.setChecksumType((byte) 3); // Not supported
+        b.setChecksumType((byte) 1); // Not supported
         // File data
         b.setSourceFileName("sourcefile");
         b.setDestinationFileName("destfile");
@@ -0,0 +1,133 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.entity;
+
+import eu.dariolucia.ccsds.cfdp.entity.indication.*;
+import eu.dariolucia.ccsds.cfdp.entity.request.PutRequest;
+import eu.dariolucia.ccsds.cfdp.protocol.pdu.CfdpPdu;
+import eu.dariolucia.ccsds.cfdp.protocol.pdu.FileDataPdu;
+import eu.dariolucia.ccsds.cfdp.ut.impl.AbstractUtLayer;
+import eu.dariolucia.ccsds.cfdp.util.EntityIndicationSubscriber;
+import eu.dariolucia.ccsds.cfdp.util.TestUtils;
+import eu.dariolucia.ccsds.cfdp.util.UtLayerTxPduDecorator;
+import eu.dariolucia.ccsds.tmtc.util.TaskScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CfdpEntitySchedulerTcpTest {
+
+    @BeforeEach
+    public void setup() {
+        Logger.getLogger("").setLevel(Level.OFF);
+        Logger.getLogger("eu.dariolucia.ccsds.cfdp").setLevel(Level.ALL);
+        for(Handler h : Logger.getLogger("").getHandlers()) {
+            h.setLevel(Level.ALL);
+        }
+    }
+
+    @Test
+    public void testAcknowledgedTransactionsOnSharedScheduler() throws Exception {
+        ScheduledExecutorService pool = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "CFDP Scheduler Test");
+            t.setDaemon(true);
+            return t;
+        });
+        TaskScheduler scheduler = new TaskScheduler(pool, pool, 10, 64);
+        // Create the two entities: the 5th file data PDU of each transaction is lost, so that the NAK timers and the
+        // retransmission are exercised
+        ICfdpEntity e1 = TestUtils.createTcpEntity("configuration_entity_1.xml", 23001, scheduler, UtLayerTxPduDecorator.rule("Drop 5th file PDU", new Function<>() {
+            int filePduCount = 0;
+
+            @Override
+            public Boolean apply(CfdpPdu cfdpPdu) {
+                if (cfdpPdu instanceof FileDataPdu) {
+                    ++filePduCount;
+                    return filePduCount == 5;
+                } else {
+                    return false; // No discard
+                }
+            }
+        }));
+        ICfdpEntity e2 = TestUtils.createTcpEntity("configuration_entity_2.xml", 23002, scheduler);
+        try {
+            // Subscription to the entities
+            EntityIndicationSubscriber s1 = new EntityIndicationSubscriber();
+            e1.register(s1);
+            EntityIndicationSubscriber s2 = new EntityIndicationSubscriber();
+            e2.register(s2);
+            // Enable reachability of the two entities
+            ((AbstractUtLayer)((UtLayerTxPduDecorator) e1.getUtLayerByName("TCP")).getDelegate()).setRxAvailability(true, 2);
+            ((AbstractUtLayer)((UtLayerTxPduDecorator) e2.getUtLayerByName("TCP")).getDelegate()).setRxAvailability(true, 1);
+            ((AbstractUtLayer)((UtLayerTxPduDecorator) e1.getUtLayerByName("TCP")).getDelegate()).setTxAvailability(true, 2);
+            ((AbstractUtLayer)((UtLayerTxPduDecorator) e2.getUtLayerByName("TCP")).getDelegate()).setTxAvailability(true, 1);
+            // Create file in filestore
+            String path = TestUtils.createRandomFileIn(e1.getFilestore(), "testfile_ack.bin", 10); // 10 KB
+            String destPath = "recv_testfile_ack.bin";
+            // Create request and start transaction
+            PutRequest fduTxReq = PutRequest.build(2, path, destPath, false, null);
+            e1.request(fduTxReq);
+            // Wait for the transaction to be disposed on the two entities
+            s1.waitForIndication(TransactionDisposedIndication.class, 10000);
+            s2.waitForIndication(TransactionDisposedIndication.class, 10000);
+            // Check that the file was transferred and it has exactly the same contents of the source file
+            assertTrue(e2.getFilestore().fileExists(destPath));
+            assertTrue(TestUtils.compareFiles(e1.getFilestore(), path, e2.getFilestore(), destPath));
+            // No dedicated entity or transaction thread was created
+            for(Thread t : Thread.getAllStackTraces().keySet()) {
+                assertFalse(t.getName().startsWith("CFDP Entity"), "Unexpected thread " + t.getName());
+            }
+            // Deactivate the UT layers
+            ((UtLayerTxPduDecorator) e1.getUtLayerByName("TCP")).getDelegate().dispose();
+            ((UtLayerTxPduDecorator) e2.getUtLayerByName("TCP")).getDelegate().dispose();
+            // Dispose the entities
+            e1.dispose();
+            e2.dispose();
+
+            // Wait for the entity disposition
+            s1.waitForIndication(EntityDisposedIndication.class, 1000);
+            s2.waitForIndication(EntityDisposedIndication.class, 1000);
+
+            // Assert indications: sender
+            s1.assertPresentAt(0, TransactionIndication.class);
+            s1.assertPresentAt(1, EofSentIndication.class);
+            s1.assertPresentAt(2, TransactionFinishedIndication.class);
+            TransactionDisposedIndication dispInd = s1.assertPresentAt(3, TransactionDisposedIndication.class);
+            assertEquals(CfdpTransactionState.COMPLETED, dispInd.getStatusReport().getCfdpTransactionState());
+            s1.assertPresentAt(4, EntityDisposedIndication.class);
+        } catch (Throwable e) {
+            // Deactivate the UT layers
+            ((UtLayerTxPduDecorator) e1.getUtLayerByName("TCP")).getDelegate().dispose();
+            ((UtLayerTxPduDecorator) e2.getUtLayerByName("TCP")).getDelegate().dispose();
+            // Dispose the entities
+            e1.dispose();
+            e2.dispose();
+            throw e;
+        } finally {
+            scheduler.dispose();
+            pool.shutdownNow();
+        }
+    }
+}
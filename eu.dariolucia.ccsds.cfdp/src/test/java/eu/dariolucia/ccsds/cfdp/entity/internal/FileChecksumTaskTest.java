@@ -0,0 +1,68 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and 
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.entity.internal;
+
+import eu.dariolucia.ccsds.cfdp.protocol.checksum.CfdpChecksumRegistry;
+import eu.dariolucia.ccsds.cfdp.protocol.checksum.ICfdpChecksum;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileChecksumTaskTest {
+
+    @Test
+    public void testParallelChecksum() throws Exception {
+        Random r = new Random(42);
+        byte[] data = new byte[100003];
+        r.nextBytes(data);
+        File file = Files.createTempFile("cfdp_checksum_test_", ".tmp").toFile();
+        try {
+            Files.write(file.toPath(), data);
+            try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                for(int type : new int[] { CfdpChecksumRegistry.MODULAR_CHECKSUM_TYPE, CfdpChecksumRegistry.CRC32C_CHECKSUM_TYPE,
+                        CfdpChecksumRegistry.CRC32_CHECKSUM_TYPE, CfdpChecksumRegistry.NULL_CHECKSUM_TYPE }) {
+                    ICfdpChecksum checksum = CfdpChecksumRegistry.getChecksum(type).build();
+                    int expected = checksum.checksum(data, 0, data.length);
+                    // Whole file, with chunk sizes not aligned to 4 octets and larger than the file
+                    for(int chunkSize : new int[] { 1000, 1001, 4099, 200000 }) {
+                        int computed = ForkJoinPool.commonPool().invoke(new FileChecksumTask(channel, checksum, 0, data.length, chunkSize));
+                        assertEquals(expected, computed, "Type " + type + ", chunk size " + chunkSize);
+                    }
+                    // Incremental computation of the first part, combined with the parallel computation of the rest
+                    ICfdpChecksum incremental = CfdpChecksumRegistry.getChecksum(type).build();
+                    incremental.checksum(data, 0, 3, 0);
+                    incremental.checksum(data, 3, 40001, 3);
+                    int rest = ForkJoinPool.commonPool().invoke(new FileChecksumTask(channel, incremental, 40004, data.length, 1000));
+                    assertEquals(expected, incremental.combine(incremental.getCurrentChecksum(), rest, data.length - 40004L), "Type " + type);
+                    // The incremental state is not affected by the parallel computation
+                    assertEquals(checksum.checksum(data, 0, 40004), incremental.getCurrentChecksum());
+                }
+                ICfdpChecksum checksum = CfdpChecksumRegistry.getModularChecksum().build();
+                assertThrows(IllegalArgumentException.class, () -> new FileChecksumTask(channel, checksum, 2, data.length, 1000));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and 
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.entity.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceivedExtentSetTest {
+
+    @Test
+    public void testCoalescing() {
+        ReceivedExtentSet set = new ReceivedExtentSet();
+        assertFalse(set.add(10, 10));
+        assertTrue(set.add(100, 200));
+        assertEquals(0, set.getContiguousEnd());
+        assertEquals(200, set.getHighestEnd());
+        assertTrue(set.hasGaps());
+        // Repeated data
+        assertFalse(set.add(100, 200));
+        assertFalse(set.add(120, 180));
+        // Adjacent and overlapping
+        assertTrue(set.add(200, 300));
+        assertTrue(set.add(250, 350));
+        assertTrue(set.add(500, 600));
+        assertEquals(2, set.size());
+        // Starting from 0
+        assertTrue(set.add(0, 50));
+        assertEquals(50, set.getContiguousEnd());
+        assertEquals(3, set.size());
+        // Fill the first gap: merge with [100, 350)
+        assertTrue(set.add(40, 100));
+        assertEquals(350, set.getContiguousEnd());
+        assertEquals(2, set.size());
+        // Cover everything, absorbing the last extent
+        assertTrue(set.add(300, 700));
+        assertEquals(700, set.getContiguousEnd());
+        assertEquals(1, set.size());
+        assertFalse(set.hasGaps());
+
+        set.clear();
+        assertEquals(0, set.size());
+        assertEquals(0, set.getContiguousEnd());
+        assertEquals(0, set.getHighestEnd());
+    }
+
+    @Test
+    public void testGaps() {
+        ReceivedExtentSet set = new ReceivedExtentSet();
+        // Segments of 10 bytes, every third is missing
+        for(int i = 0; i < 30; ++i) {
+            if(i % 3 != 1) {
+                set.add(i * 10L, i * 10L + 10);
+            }
+        }
+        assertEquals(10, set.getContiguousEnd());
+        assertEquals(300, set.getHighestEnd());
+        assertEquals(11, set.size());
+
+        List<long[]> gaps = new ArrayList<>();
+        set.forEachGap(set.getContiguousEnd(), 320, (s, e) -> gaps.add(new long[] { s, e }));
+        assertEquals(11, gaps.size());
+        for(int i = 0; i < 10; ++i) {
+            assertArrayEquals(new long[] { i * 30L + 10, i * 30L + 20 }, gaps.get(i));
+        }
+        assertArrayEquals(new long[] { 300, 320 }, gaps.get(10));
+
+        // Partial range, starting and ending within extents and gaps
+        gaps.clear();
+        set.forEachGap(15, 45, (s, e) -> gaps.add(new long[] { s, e }));
+        assertEquals(2, gaps.size());
+        assertArrayEquals(new long[] { 15, 20 }, gaps.get(0));
+        assertArrayEquals(new long[] { 40, 45 }, gaps.get(1));
+
+        // No gaps
+        gaps.clear();
+        set.forEachGap(0, 10, (s, e) -> gaps.add(new long[] { s, e }));
+        assertTrue(gaps.isEmpty());
+
+        // Empty set
+        gaps.clear();
+        new ReceivedExtentSet().forEachGap(0, 100, (s, e) -> gaps.add(new long[] { s, e }));
+        assertEquals(1, gaps.size());
+        assertEquals(Arrays.toString(new long[] { 0, 100 }), Arrays.toString(gaps.get(0)));
+    }
+}
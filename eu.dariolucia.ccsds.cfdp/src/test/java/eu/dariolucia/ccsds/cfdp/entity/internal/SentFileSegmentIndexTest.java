@@ -0,0 +1,70 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and 
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.entity.internal;
+
+import eu.dariolucia.ccsds.cfdp.protocol.pdu.FileDataPdu;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SentFileSegmentIndexTest {
+
+    @Test
+    public void testOrderedAndOutOfOrderInsertion() {
+        SentFileSegmentIndex index = new SentFileSegmentIndex();
+        // 200 segments of 100 bytes, the odd ones added after the even ones
+        for(int i = 0; i < 200; i += 2) {
+            index.add(i * 100L, 100, null, FileDataPdu.RCS_NOT_PRESENT);
+        }
+        for(int i = 1; i < 200; i += 2) {
+            index.add(i * 100L, 100, i == 51 ? new byte[] { 1, 2, 3 } : null, i == 51 ? FileDataPdu.RCS_START_END : FileDataPdu.RCS_NOT_PRESENT);
+        }
+        assertEquals(200, index.size());
+        for(int i = 0; i < 200; ++i) {
+            assertEquals(i * 100L, index.getOffset(i));
+            assertEquals(100, index.getLength(i));
+        }
+        assertArrayEquals(new byte[] { 1, 2, 3 }, index.getMetadata(51));
+        assertEquals(FileDataPdu.RCS_START_END, index.getRecordContinuationState(51));
+        assertNull(index.getMetadata(50));
+        assertEquals(FileDataPdu.RCS_NOT_PRESENT, index.getRecordContinuationState(50));
+
+        // Same offset: replaced
+        index.add(5100, 80, null, FileDataPdu.RCS_NOT_PRESENT);
+        assertEquals(200, index.size());
+        assertEquals(80, index.getLength(51));
+        assertNull(index.getMetadata(51));
+
+        index.clear();
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testFirstEndingAfter() {
+        SentFileSegmentIndex index = new SentFileSegmentIndex();
+        assertEquals(0, index.firstEndingAfter(0));
+        index.add(0, 100, null, FileDataPdu.RCS_NOT_PRESENT);
+        index.add(100, 100, null, FileDataPdu.RCS_NOT_PRESENT);
+        index.add(200, 50, null, FileDataPdu.RCS_NOT_PRESENT);
+        assertEquals(0, index.firstEndingAfter(0));
+        assertEquals(0, index.firstEndingAfter(99));
+        assertEquals(1, index.firstEndingAfter(100));
+        assertEquals(1, index.firstEndingAfter(150));
+        assertEquals(2, index.firstEndingAfter(249));
+        assertEquals(3, index.firstEndingAfter(250));
+    }
+}
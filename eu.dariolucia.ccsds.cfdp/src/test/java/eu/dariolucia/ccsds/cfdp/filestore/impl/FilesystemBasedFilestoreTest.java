@@ -17,10 +17,15 @@
 package eu.dariolucia.ccsds.cfdp.filestore.impl;
 
 import eu.dariolucia.ccsds.cfdp.filestore.FilestoreException;
+import eu.dariolucia.ccsds.cfdp.filestore.IFileReader;
+import eu.dariolucia.ccsds.cfdp.filestore.IVirtualFilestore;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
@@ -72,6 +77,64 @@ class FilesystemBasedFilestoreTest {
         assertNotNull(fs.toString());
     }
 
+    @Test
+    public void testPositionalRead() throws IOException, FilestoreException {
+        Path tempPath = Files.createTempDirectory("CFDP_VFS_");
+        File root = tempPath.toFile();
+
+        FilesystemBasedFilestore fs = new FilesystemBasedFilestore(root.getAbsolutePath());
+        byte[] contents = new byte[10000];
+        for(int i = 0; i < contents.length; ++i) {
+            contents[i] = (byte) i;
+        }
+        fs.createFile("random.bin");
+        fs.replaceFileContents("random.bin", contents);
+
+        // Default implementation, based on the sequential read
+        IVirtualFilestore sequential = new IVirtualFilestore() {
+            @Override public void createFile(String fullPath) { throw new UnsupportedOperationException(); }
+            @Override public void deleteFile(String fullPath) { throw new UnsupportedOperationException(); }
+            @Override public void renameFile(String fullPath, String newFullPath) { throw new UnsupportedOperationException(); }
+            @Override public void appendContentsToFile(String fullPath, byte[] data) { throw new UnsupportedOperationException(); }
+            @Override public void replaceFileContents(String fullPath, byte[] data) { throw new UnsupportedOperationException(); }
+            @Override public void appendFileToFile(String targetFilePath, String fileToAddPath) { throw new UnsupportedOperationException(); }
+            @Override public void replaceFileWithFile(String targetFilePath, String fileToAddPath) { throw new UnsupportedOperationException(); }
+            @Override public byte[] getFile(String fullPath) { throw new UnsupportedOperationException(); }
+            @Override public void createDirectory(String fullPath) { throw new UnsupportedOperationException(); }
+            @Override public void deleteDirectory(String fullPath) { throw new UnsupportedOperationException(); }
+            @Override public List<String> listDirectory(String fullPath, boolean recursive) { throw new UnsupportedOperationException(); }
+            @Override public boolean fileExists(String fullPath) { throw new UnsupportedOperationException(); }
+            @Override public boolean directoryExists(String fullPath) { throw new UnsupportedOperationException(); }
+            @Override public long fileSize(String fullPath) { throw new UnsupportedOperationException(); }
+            @Override public boolean isUnboundedFile(String fullPath) { throw new UnsupportedOperationException(); }
+            @Override public InputStream readFile(String fullPath) throws FilestoreException { return fs.readFile(fullPath); }
+            @Override public OutputStream writeFile(String fullPath, boolean append) { throw new UnsupportedOperationException(); }
+        };
+
+        for(IVirtualFilestore store : Arrays.asList(fs, sequential)) {
+            byte[] data = new byte[300];
+            assertEquals(300, store.readFile("random.bin", 4321, ByteBuffer.wrap(data)));
+            assertArrayEquals(Arrays.copyOfRange(contents, 4321, 4621), data);
+            // Partial read at the end of the file
+            assertEquals(100, store.readFile("random.bin", 9900, ByteBuffer.wrap(data)));
+            assertArrayEquals(Arrays.copyOfRange(contents, 9900, 10000), Arrays.copyOfRange(data, 0, 100));
+            // Read beyond the end of the file
+            assertEquals(0, store.readFile("random.bin", 20000, ByteBuffer.wrap(data)));
+            // Several reads on the same open file, forward and backward
+            try (IFileReader reader = store.openFileReader("random.bin")) {
+                for(int position : new int[] {100, 5000, 5300, 200, 0}) {
+                    assertEquals(300, reader.read(position, ByteBuffer.wrap(data)));
+                    assertArrayEquals(Arrays.copyOfRange(contents, position, position + 300), data);
+                }
+                assertEquals(0, reader.read(20000, ByteBuffer.wrap(data)));
+                assertEquals(300, reader.read(9000, ByteBuffer.wrap(data)));
+                assertArrayEquals(Arrays.copyOfRange(contents, 9000, 9300), data);
+            }
+        }
+        assertThrows(FilestoreException.class, () -> fs.readFile("whatever", 0, ByteBuffer.allocate(10)));
+        assertThrows(FilestoreException.class, () -> fs.openFileReader("whatever"));
+    }
+
     @Test
     public void testExceptions() throws IOException {
         assertThrows(NullPointerException.class, () -> new FilesystemBasedFilestore((File) null));
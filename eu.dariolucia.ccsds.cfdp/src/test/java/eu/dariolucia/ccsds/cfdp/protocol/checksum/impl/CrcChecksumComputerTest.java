@@ -0,0 +1,124 @@
+/*
+ *   Copyright (c) 2021 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.cfdp.protocol.checksum.impl;
+
+import eu.dariolucia.ccsds.cfdp.protocol.checksum.CfdpChecksumRegistry;
+import eu.dariolucia.ccsds.cfdp.protocol.checksum.ICfdpChecksum;
+import eu.dariolucia.ccsds.cfdp.protocol.checksum.ICfdpChecksumFactory;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CrcChecksumComputerTest {
+
+    // The CRCs computed by CrcChecksumComputer: factory, checksum type, check value of "123456789", reference implementation
+    private static final List<CrcParameters> CRCS = Arrays.asList(
+            new CrcParameters(new Crc32Checksum(), CfdpChecksumRegistry.CRC32_CHECKSUM_TYPE, 0xCBF43926, CRC32::new),
+            new CrcParameters(new Crc32cChecksum(), CfdpChecksumRegistry.CRC32C_CHECKSUM_TYPE, 0xE3069283, CRC32C::new)
+    );
+
+    @Test
+    public void testCrcChecksum() throws Exception {
+        byte[] input1 = "123456789".getBytes(StandardCharsets.US_ASCII);
+        for(CrcParameters crc : CRCS) {
+            ICfdpChecksumFactory checksum = crc.factory;
+            assertEquals(crc.type, checksum.type());
+            assertSame(checksum.getClass(), CfdpChecksumRegistry.getChecksum(crc.type).getClass());
+            ICfdpChecksum ck1 = checksum.build();
+            assertEquals(crc.type, ck1.type());
+            assertEquals(crc.checkValue, ck1.checksum(input1, 0, input1.length));
+            ck1.checksum(input1, 0);
+            assertEquals(crc.checkValue, ck1.getCurrentChecksum());
+
+            ICfdpChecksum ck2 = checksum.build();
+            ck2.checksum(Arrays.copyOfRange(input1, 2, 7), 2);
+            ck2.checksum(Arrays.copyOfRange(input1, 7, 9), 7);
+            ck2.checksum(Arrays.copyOfRange(input1, 0, 2), 0);
+            assertEquals(crc.checkValue, ck2.getCurrentChecksum());
+
+            // Empty file
+            assertEquals(0, checksum.build().getCurrentChecksum());
+        }
+    }
+
+    @Test
+    public void testOutOfOrderSegments() {
+        for(CrcParameters crc : CRCS) {
+            Random r = new Random(42);
+            byte[] file = new byte[100000];
+            r.nextBytes(file);
+            Checksum reference = crc.reference.get();
+            reference.update(file, 0, file.length);
+            int expected = (int) reference.getValue();
+            // Segments of random length, delivered in random order, some of them more than once and some overlapping
+            List<int[]> segments = new ArrayList<>();
+            for(int offset = 0; offset < file.length;) {
+                int length = Math.min(file.length - offset, 1 + r.nextInt(2000));
+                segments.add(new int[] { offset, length });
+                if(r.nextInt(10) == 0) {
+                    segments.add(new int[] { offset, length });
+                }
+                if(r.nextInt(10) == 0) {
+                    int overlapStart = Math.max(0, offset - r.nextInt(500));
+                    segments.add(new int[] { overlapStart, Math.min(file.length - overlapStart, length + r.nextInt(1000)) });
+                }
+                offset += length;
+            }
+            for(int i = 0; i < 10; ++i) {
+                ICfdpChecksum ck = crc.factory.build();
+                for(int[] segment : segments) {
+                    ck.checksum(file, segment[0], segment[1], segment[0]);
+                }
+                assertEquals(expected, ck.getCurrentChecksum());
+                Collections.shuffle(segments, r);
+            }
+            // Reversed order
+            Collections.sort(segments, (a, b) -> Integer.compare(b[0], a[0]));
+            ICfdpChecksum ck = crc.factory.build();
+            for(int[] segment : segments) {
+                ck.checksum(file, segment[0], segment[1], segment[0]);
+            }
+            assertEquals(expected, ck.getCurrentChecksum());
+        }
+    }
+
+    private static class CrcParameters {
+        private final ICfdpChecksumFactory factory;
+        private final int type;
+        private final int checkValue;
+        private final Supplier<Checksum> reference;
+
+        private CrcParameters(ICfdpChecksumFactory factory, int type, int checkValue, Supplier<Checksum> reference) {
+            this.factory = factory;
+            this.type = type;
+            this.checkValue = checkValue;
+            this.reference = reference;
+        }
+    }
+}
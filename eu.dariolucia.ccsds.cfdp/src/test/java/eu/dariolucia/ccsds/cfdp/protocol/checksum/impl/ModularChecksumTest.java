@@ -21,7 +21,11 @@ import eu.dariolucia.ccsds.cfdp.protocol.checksum.ICfdpChecksum;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -73,4 +77,42 @@ class ModularChecksumTest {
 
         assertEquals(0x7E152D02, result);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMisalignedSegments() {
+        Random r = new Random(42);
+        byte[] file = new byte[10003];
+        r.nextBytes(file);
+        // Reference: word by word, padding the last word
+        long expected = 0;
+        for(int i = 0; i < file.length; i += 4) {
+            long word = 0;
+            for(int k = 0; k < 4; ++k) {
+                word = (word << 8) | (i + k < file.length ? file[i + k] & 0xFF : 0);
+            }
+            expected += word;
+        }
+        ICfdpChecksum whole = new ModularChecksum().build();
+        assertEquals((int) expected, whole.checksum(file, 0, file.length));
+        // Segments of random length, also shorter than a word, in random order
+        List<int[]> segments = new ArrayList<>();
+        for(int offset = 0; offset < file.length;) {
+            int length = Math.min(file.length - offset, 1 + r.nextInt(r.nextBoolean() ? 3 : 100));
+            segments.add(new int[] { offset, length });
+            offset += length;
+        }
+        Collections.shuffle(segments, r);
+        ICfdpChecksum ck = new ModularChecksum().build();
+        for(int[] segment : segments) {
+            // Copy into a larger array, to use a non-zero array offset
+            byte[] data = new byte[segment[1] + 5];
+            System.arraycopy(file, segment[0], data, 5, segment[1]);
+            ck.checksum(data, 5, segment[1], segment[0]);
+        }
+        assertEquals((int) expected, ck.getCurrentChecksum());
+        // Large file offset, beyond the int range
+        ICfdpChecksum ck2 = new ModularChecksum().build();
+        ck2.checksum(new byte[] {1, 2, 3, 4, 5}, 0x100000001L);
+        assertEquals(0x00010203 + 0x04050000, ck2.getCurrentChecksum());
+    }
+}
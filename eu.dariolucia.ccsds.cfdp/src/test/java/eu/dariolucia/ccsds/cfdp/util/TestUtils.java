@@ -25,12 +25,14 @@ import eu.dariolucia.ccsds.cfdp.protocol.pdu.CfdpPdu;
 import eu.dariolucia.ccsds.cfdp.ut.UtLayerException;
 import eu.dariolucia.ccsds.cfdp.ut.impl.TcpLayer;
 import eu.dariolucia.ccsds.cfdp.ut.impl.UdpLayer;
+import eu.dariolucia.ccsds.tmtc.util.TaskScheduler;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.util.Collections;
 import java.util.function.Function;
 
 public class TestUtils {
@@ -47,6 +49,18 @@ public class TestUtils {
         return ICfdpEntity.create(conf1File, fs1, decorator);
     }
 
+    public static ICfdpEntity createTcpEntity(String mibFile, int port, TaskScheduler scheduler, Function<CfdpPdu, Boolean>... discardingRules) throws IOException, UtLayerException {
+        InputStream in = TestUtils.class.getClassLoader().getResourceAsStream(mibFile);
+        Mib conf1File = Mib.load(in);
+        File fs1Folder = Files.createTempDirectory("cfdp").toFile();
+        FilesystemBasedFilestore fs1 = new FilesystemBasedFilestore(fs1Folder);
+        TcpLayer tcpLayer = new TcpLayer(conf1File, port);
+        tcpLayer.activate();
+        // Add UT Layer decorator
+        UtLayerTxPduDecorator decorator = new UtLayerTxPduDecorator(tcpLayer, discardingRules);
+        return ICfdpEntity.create(conf1File, fs1, null, Collections.singletonList(decorator), scheduler);
+    }
+
     public static ICfdpEntity createUdpEntity(String mibFile, int port, Function<CfdpPdu, Boolean>... discardingRules) throws IOException, UtLayerException {
         InputStream in = TestUtils.class.getClassLoader().getResourceAsStream(mibFile);
         Mib conf1File = Mib.load(in);
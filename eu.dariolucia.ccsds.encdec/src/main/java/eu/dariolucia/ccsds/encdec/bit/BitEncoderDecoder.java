@@ -22,7 +22,10 @@ package eu.dariolucia.ccsds.encdec.bit;
 
 import eu.dariolucia.ccsds.encdec.value.MilUtil;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -38,6 +41,8 @@ import java.util.Arrays;
  * - improve handling of unsigned integers
  * - pre-compute a bitmask lookup table to speed up extractions
  * - support MIL-STD-1750A format for real numbers
+ * - read and write integers up to 64 bits with a single big-endian word access (plus one byte access if the bits
+ *   span 9 bytes), or with a single short/int access for aligned fields at the end of the array
  *
  * Original code at:
  * https://github.com/devnied/Bit-lib4j
@@ -77,6 +82,13 @@ public final class BitEncoderDecoder {
      */
     private static volatile boolean tablesInitialised = false;
 
+    /**
+     * Big-endian views of the byte array, used by the word-at-a-time accesses
+     */
+    private static final VarHandle SHORT_HANDLE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INT_HANDLE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_HANDLE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
     /**
      * Table of read byte
      */
@@ -127,6 +139,27 @@ public final class BitEncoderDecoder {
         initTables();
     }
 
+    /**
+     * Constructor on top of the remaining bytes of the provided buffer. If the buffer is backed by an accessible array,
+     * no data copy is performed and the writes are visible in the buffer; otherwise (e.g. direct or read-only buffers)
+     * the remaining bytes are copied. The position of the buffer is not modified.
+     *
+     * @param buffer the buffer
+     */
+    public BitEncoderDecoder(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            this.byteTab = buffer.array();
+            this.offset = buffer.arrayOffset() + buffer.position();
+        } else {
+            this.byteTab = new byte[buffer.remaining()];
+            buffer.duplicate().get(this.byteTab);
+            this.offset = 0;
+        }
+        this.length = buffer.remaining();
+        this.size = this.length * BYTE_SIZE;
+        initTables();
+    }
+
     /**
      * Constructor for empty byte tab
      *
@@ -371,12 +404,11 @@ public final class BitEncoderDecoder {
             throw new IllegalArgumentException(LONG_OVERFLOW_WITH_LENGTH_64);
         }
         long decimal = getNextLongUnsigned(pLength);
-        long signMask = 1 << pLength - 1;
-
-        if ((decimal & signMask) != 0) {
-            return -(signMask - (signMask ^ decimal));
+        if (pLength <= 0) {
+            return decimal;
         }
-        return decimal;
+        // Sign extension
+        return (decimal << (Long.SIZE - pLength)) >> (Long.SIZE - pLength);
     }
 
     /**
@@ -402,8 +434,41 @@ public final class BitEncoderDecoder {
      * @return an long
      */
     public long getNextLongUnsigned(final int pLength) {
-        // allocate Size of Integer
-        ByteBuffer buffer = ByteBuffer.allocate(Long.SIZE);
+        if (pLength > 0 && pLength <= Long.SIZE && currentBitIndex >= 0) {
+            int mod = currentBitIndex % BYTE_SIZE;
+            int byteIndex = offset + currentBitIndex / BYTE_SIZE;
+            if (mod + pLength <= Long.SIZE && byteIndex <= byteTab.length - Long.BYTES) {
+                // The bits are in the 64 bits window starting at the current byte
+                long word = (long) LONG_HANDLE.get(byteTab, byteIndex);
+                incrementBitIndex(pLength);
+                return (word << mod) >>> (Long.SIZE - pLength);
+            } else if (mod + pLength > Long.SIZE && byteIndex <= byteTab.length - Long.BYTES - 1) {
+                // The bits span 9 bytes: the last bits are in the byte after the window
+                int rest = mod + pLength - Long.SIZE;
+                long word = (long) LONG_HANDLE.get(byteTab, byteIndex);
+                incrementBitIndex(pLength);
+                return ((word << mod) >>> (Long.SIZE - pLength)) | ((byteTab[byteIndex + Long.BYTES] & DEFAULT_VALUE) >>> (BYTE_SIZE - rest));
+            } else if (mod == 0 && byteIndex <= byteTab.length - pLength / BYTE_SIZE) {
+                // Aligned field near the end of the array
+                switch (pLength) {
+                    case Byte.SIZE:
+                        incrementBitIndex(pLength);
+                        return byteTab[byteIndex] & 0xFFL;
+                    case Short.SIZE:
+                        incrementBitIndex(pLength);
+                        return (short) SHORT_HANDLE.get(byteTab, byteIndex) & 0xFFFFL;
+                    case Integer.SIZE:
+                        incrementBitIndex(pLength);
+                        return (int) INT_HANDLE.get(byteTab, byteIndex) & 0xFFFFFFFFL;
+                    default:
+                        break;
+                }
+            }
+        }
+        return getNextLongUnsignedPerByte(pLength);
+    }
+
+    private long getNextLongUnsignedPerByte(final int pLength) {
         // final value
         long finalValue = 0;
         // Incremental value
@@ -430,11 +495,7 @@ public final class BitEncoderDecoder {
                 this.maxCurrentBitIndex = this.currentBitIndex;
             }
         }
-        buffer.putLong(finalValue);
-        // reset the current bytebuffer index to 0
-        buffer.rewind();
-        // return integer
-        return buffer.getLong();
+        return finalValue;
     }
 
     /**
@@ -572,6 +633,21 @@ public final class BitEncoderDecoder {
      */
     public void setNextByte(final byte[] pValue, final int pLength, final boolean pPadBefore) {
         int totalSize = (int) Math.ceil(pLength / BYTE_SIZE_F);
+        if (currentBitIndex % BYTE_SIZE == 0) {
+            // Fully aligned: copy the value and the padding directly
+            int start = offset + currentBitIndex / BYTE_SIZE;
+            int toCopy = Math.min(totalSize, pValue.length);
+            int padding = totalSize - toCopy;
+            if (pPadBefore) {
+                Arrays.fill(byteTab, start, start + padding, (byte) 0);
+                System.arraycopy(pValue, 0, byteTab, start + padding, toCopy);
+            } else {
+                System.arraycopy(pValue, 0, byteTab, start, toCopy);
+                Arrays.fill(byteTab, start + toCopy, start + totalSize, (byte) 0);
+            }
+            incrementBitIndex(pLength);
+            return;
+        }
         ByteBuffer buffer = ByteBuffer.allocate(totalSize);
         int nbBytesToSet = Math.max(totalSize - pValue.length, 0);
         if (pPadBefore) {
@@ -586,27 +662,21 @@ public final class BitEncoderDecoder {
             }
         }
         byte[] tab = buffer.array();
-        if (currentBitIndex % BYTE_SIZE != 0) {
-            int index = 0;
-            int max = currentBitIndex + pLength;
-            while (currentBitIndex < max) {
-                int mod = currentBitIndex % BYTE_SIZE;
-                int modTab = index % BYTE_SIZE;
-                int lengthToSet = Math.min(max - currentBitIndex, Math.min(BYTE_SIZE - mod, BYTE_SIZE - modTab));
-                byte val = (byte) (tab[index / BYTE_SIZE] & getMask(modTab, lengthToSet));
-                if (mod == 0) {
-                    val = (byte) (val << Math.min(modTab, BYTE_SIZE - lengthToSet));
-                } else {
-                    val = (byte) ((val & DEFAULT_VALUE) >> mod);
-                }
-                byteTab[offset + currentBitIndex / BYTE_SIZE] |= val;
-                incrementBitIndex(lengthToSet);
-                index += lengthToSet;
+        int index = 0;
+        int max = currentBitIndex + pLength;
+        while (currentBitIndex < max) {
+            int mod = currentBitIndex % BYTE_SIZE;
+            int modTab = index % BYTE_SIZE;
+            int lengthToSet = Math.min(max - currentBitIndex, Math.min(BYTE_SIZE - mod, BYTE_SIZE - modTab));
+            byte val = (byte) (tab[index / BYTE_SIZE] & getMask(modTab, lengthToSet));
+            if (mod == 0) {
+                val = (byte) (val << Math.min(modTab, BYTE_SIZE - lengthToSet));
+            } else {
+                val = (byte) ((val & DEFAULT_VALUE) >> mod);
             }
-
-        } else {
-            System.arraycopy(tab, 0, byteTab, offset + currentBitIndex / BYTE_SIZE, tab.length);
-            incrementBitIndex(pLength);
+            byteTab[offset + currentBitIndex / BYTE_SIZE] |= val;
+            incrementBitIndex(lengthToSet);
+            index += lengthToSet;
         }
     }
 
@@ -639,6 +709,9 @@ public final class BitEncoderDecoder {
         if (pValue > bitMax) {
             value = bitMax - 1;
         }
+        if (setNextBits(value, pLength)) {
+            return;
+        }
         // size to write
         int writeSize = pLength;
         while (writeSize > 0) {
@@ -660,6 +733,58 @@ public final class BitEncoderDecoder {
         }
     }
 
+    /**
+     * Write the low pLength bits of the value with a single word access, if possible. The result is the same of the
+     * per-byte write: the value is OR-ed with the existing bits, and, when the write does not start at a byte
+     * boundary, the values not fitting in pLength bits are left to the per-byte write. Unlike the per-byte write,
+     * unaligned 64 bits values are written correctly also when their most significant bit is set.
+     *
+     * @param value the value to write
+     * @param pLength the number of bits to write
+     * @return true if the value was written, false otherwise
+     */
+    private boolean setNextBits(final long value, final int pLength) {
+        if (pLength <= 0 || pLength > Long.SIZE || currentBitIndex < 0) {
+            return false;
+        }
+        int mod = currentBitIndex % BYTE_SIZE;
+        if (mod != 0 && pLength < Long.SIZE && (value >>> pLength) != 0) {
+            return false;
+        }
+        int byteIndex = offset + currentBitIndex / BYTE_SIZE;
+        // Do not touch the bytes outside the assigned region
+        int end = offset + length;
+        long bits = pLength == Long.SIZE ? value : value & ((1L << pLength) - 1);
+        if (mod + pLength <= Long.SIZE && byteIndex <= end - Long.BYTES) {
+            long word = (long) LONG_HANDLE.get(byteTab, byteIndex);
+            LONG_HANDLE.set(byteTab, byteIndex, word | (bits << (Long.SIZE - mod - pLength)));
+        } else if (mod + pLength > Long.SIZE && byteIndex <= end - Long.BYTES - 1) {
+            // The bits span 9 bytes: the last bits go in the byte after the window
+            int rest = mod + pLength - Long.SIZE;
+            long word = (long) LONG_HANDLE.get(byteTab, byteIndex);
+            LONG_HANDLE.set(byteTab, byteIndex, word | (bits >>> rest));
+            byteTab[byteIndex + Long.BYTES] |= (byte) (bits << (BYTE_SIZE - rest));
+        } else if (mod == 0 && byteIndex <= end - pLength / BYTE_SIZE) {
+            switch (pLength) {
+                case Byte.SIZE:
+                    byteTab[byteIndex] |= (byte) value;
+                    break;
+                case Short.SIZE:
+                    SHORT_HANDLE.set(byteTab, byteIndex, (short) ((short) SHORT_HANDLE.get(byteTab, byteIndex) | (short) value));
+                    break;
+                case Integer.SIZE:
+                    INT_HANDLE.set(byteTab, byteIndex, (int) INT_HANDLE.get(byteTab, byteIndex) | (int) value);
+                    break;
+                default:
+                    return false;
+            }
+        } else {
+            return false;
+        }
+        incrementBitIndex(pLength);
+        return true;
+    }
+
     /**
      * Add Integer to the current position with the specified size
      * <p>
@@ -55,7 +55,8 @@ import java.util.Objects;
 public class Definition implements Serializable {
 
     /**
-     * This method loads a {@link Definition} object from an {@link InputStream}.
+     * This method loads a {@link Definition} object from an {@link InputStream}. For large definitions loaded often, a
+     * {@link DefinitionSnapshot} can be used to speed up the loading.
      *
      * @param in the input stream, to read from
      * @return the loaded definition
@@ -63,8 +64,7 @@ public class Definition implements Serializable {
      */
     public static Definition load(InputStream in) throws IOException {
         try {
-            JAXBContext context = JAXBContext.newInstance(Definition.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
+            Unmarshaller unmarshaller = context().createUnmarshaller();
             return (Definition) unmarshaller.unmarshal(in);
         } catch (JAXBException e) {
             throw new IOException(e);
@@ -81,8 +81,7 @@ public class Definition implements Serializable {
      */
     public static void save(Definition d, OutputStream out) throws IOException {
         try {
-            JAXBContext context = JAXBContext.newInstance(Definition.class);
-            Marshaller marshaller = context.createMarshaller();
+            Marshaller marshaller = context().createMarshaller();
             marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
             marshaller.marshal(d, out);
         } catch (JAXBException e) {
@@ -90,6 +89,16 @@ public class Definition implements Serializable {
         }
     }
 
+    private static JAXBContext jaxbContext;
+
+    private static synchronized JAXBContext context() throws JAXBException {
+        // The context is thread safe and expensive to create: it is created once
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(Definition.class);
+        }
+        return jaxbContext;
+    }
+
     @XmlElementWrapper(name = "id_fields")
     @XmlElement(name = "field")
     private List<IdentField> identificationFields = new LinkedList<>();
@@ -102,6 +111,15 @@ public class Definition implements Serializable {
     @XmlElement(name = "parameter")
     private List<ParameterDefinition> parameters = new LinkedList<>();
 
+    public Definition() {
+    }
+
+    Definition(List<IdentField> identificationFields, List<PacketDefinition> packetDefinitions, List<ParameterDefinition> parameters) {
+        this.identificationFields = identificationFields;
+        this.packetDefinitions = packetDefinitions;
+        this.parameters = parameters;
+    }
+
     /**
      * This method returns the defined identification fields that can be used for packet recognition.
      *
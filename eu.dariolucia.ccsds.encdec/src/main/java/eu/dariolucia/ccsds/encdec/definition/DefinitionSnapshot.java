@@ -0,0 +1,817 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.definition;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A compact binary snapshot of a {@link Definition} object, which can be loaded much faster than the XML
+ * representation, e.g. by memory-mapping the snapshot file.
+ *
+ * In the snapshot, the references to {@link IdentField} and {@link ParameterDefinition} objects are stored as indexes
+ * and the strings are stored once, in a shared table. When a snapshot is opened, only the identification fields, the
+ * parameter definitions and the table of the packet definitions are read: each {@link PacketDefinition} is
+ * materialised on first access, by ID or by position, and then cached. The {@link Definition} returned by
+ * {@link DefinitionSnapshot#getDefinition()} is backed by the snapshot: its packet definition list is unmodifiable and
+ * materialises the packet definitions on access. A {@link eu.dariolucia.ccsds.encdec.structure.PacketDefinitionIndexer}
+ * built from a snapshot retrieves the packet definitions without materialising all of them.
+ *
+ * The XML representation remains the source of truth: the snapshot can record the digest of the XML file it was
+ * generated from, so that {@link DefinitionSnapshot#open(Path, Path)} regenerates it when the XML file changes.
+ *
+ * A snapshot can be used concurrently by several threads.
+ */
+public final class DefinitionSnapshot {
+
+    private static final int MAGIC = 0x45444453; // EDDS
+
+    private static final int VERSION = 1;
+
+    private static final int NULL_REF = -1;
+
+    private static final int PACKET_ENTRY_SIZE = 4 * Integer.BYTES;
+
+    // Encoded item kinds
+    private static final byte ITEM_PARAMETER = 0;
+    private static final byte ITEM_ARRAY = 1;
+    private static final byte ITEM_STRUCTURE = 2;
+
+    // Kinds of the optional members of the encoded items
+    private static final byte NONE = 0;
+    private static final byte LOCATION_ABSOLUTE = 1;
+    private static final byte LOCATION_LAST = 2;
+    private static final byte LOCATION_ITEM = 3;
+    private static final byte TYPE_FIXED = 1;
+    private static final byte TYPE_REFERENCE = 2;
+    private static final byte TYPE_PARAMETER = 3;
+    private static final byte TYPE_EXTENSION = 4;
+    private static final byte LENGTH_FIXED = 1;
+    private static final byte LENGTH_REFERENCE = 2;
+    private static final byte LENGTH_PARAMETER = 3;
+    private static final byte LINK_FIXED = 1;
+    private static final byte LINK_REFERENCE = 2;
+    private static final byte SIZE_FIXED = 1;
+    private static final byte SIZE_REFERENCE = 2;
+
+    /**
+     * This method writes a snapshot of the provided {@link Definition} object to the provided {@link OutputStream}.
+     *
+     * @param d the definition
+     * @param sourceDigest the digest of the source the definition was loaded from, can be null
+     * @param out the output stream
+     * @throws IOException in case of problems while writing to the stream, or if the definition refers to identification
+     * fields or parameters that are not part of the definition
+     */
+    public static void write(Definition d, byte[] sourceDigest, OutputStream out) throws IOException {
+        new Writer(d).write(sourceDigest == null ? new byte[0] : sourceDigest, out);
+    }
+
+    /**
+     * This method opens the snapshot stored in the provided file, by memory-mapping it.
+     *
+     * @param snapshotFile the snapshot file
+     * @return the snapshot
+     * @throws IOException in case of problems while reading the file, or if the file is not a valid snapshot
+     */
+    public static DefinitionSnapshot open(Path snapshotFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * This method opens the snapshot of the provided XML definition file. If the snapshot file does not exist, or if it
+     * was not generated from the current contents of the XML file, the XML file is loaded by means of
+     * {@link Definition#load(InputStream)} and the snapshot file is (re)generated.
+     *
+     * @param xmlFile the XML definition file
+     * @param snapshotFile the snapshot file
+     * @return the snapshot
+     * @throws IOException in case of problems while reading the XML file, or reading or writing the snapshot file
+     */
+    public static DefinitionSnapshot open(Path xmlFile, Path snapshotFile) throws IOException {
+        byte[] digest = digest(xmlFile);
+        if (Files.exists(snapshotFile) && Arrays.equals(digest, readSourceDigest(snapshotFile))) {
+            return open(snapshotFile);
+        }
+        Definition d;
+        try (InputStream in = Files.newInputStream(xmlFile)) {
+            d = Definition.load(in);
+        }
+        Path parent = snapshotFile.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, snapshotFile.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                write(d, digest, out);
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return open(snapshotFile);
+    }
+
+    /**
+     * This method creates a snapshot backed by the provided buffer, which must contain a snapshot written by
+     * {@link DefinitionSnapshot#write(Definition, byte[], OutputStream)}, starting at position 0. The buffer shall not be
+     * modified afterwards.
+     *
+     * @param buffer the buffer
+     * @return the snapshot
+     * @throws IOException if the buffer does not contain a valid snapshot
+     */
+    public static DefinitionSnapshot wrap(ByteBuffer buffer) throws IOException {
+        try {
+            return new DefinitionSnapshot(buffer.duplicate());
+        } catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupted definition snapshot", e);
+        }
+    }
+
+    private static byte[] digest(Path file) throws IOException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), md)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return md.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static byte[] readSourceDigest(Path snapshotFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES);
+            if (channel.read(header, 0) < header.capacity() || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                return null;
+            }
+            int digestLength = header.getInt(8);
+            if (digestLength < 0 || digestLength > channel.size() - header.capacity()) {
+                return null;
+            }
+            ByteBuffer digest = ByteBuffer.allocate(digestLength);
+            channel.read(digest, header.capacity());
+            return digest.array();
+        }
+    }
+
+    private final ByteBuffer buffer;
+
+    private final byte[] sourceDigest;
+
+    private final int stringCount;
+    private final int stringOffsetsPosition;
+    private final int stringDataPosition;
+    private final String[] strings;
+
+    private final List<IdentField> identificationFields;
+    private final List<ParameterDefinition> parameters;
+
+    private final int packetCount;
+    private final int packetTablePosition;
+    private final int packetDataPosition;
+    private final AtomicReferenceArray<PacketDefinition> packets;
+    private final Map<String, Integer> packetIndex;
+    private final Map<String, List<PacketDefinition>> packetTypeIndex = new HashMap<>();
+
+    private final Definition definition;
+
+    private DefinitionSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        Reader r = new Reader(0);
+        if (r.readInt() != MAGIC) {
+            throw new IOException("Not a definition snapshot");
+        }
+        int version = r.readInt();
+        if (version != VERSION) {
+            throw new IOException("Definition snapshot version " + version + " not supported");
+        }
+        this.sourceDigest = r.readBytes(r.readInt());
+        // String table, strings are decoded on first use
+        this.stringCount = r.readInt();
+        this.stringOffsetsPosition = r.pos;
+        this.stringDataPosition = this.stringOffsetsPosition + (this.stringCount + 1) * Integer.BYTES;
+        this.strings = new String[this.stringCount];
+        r.pos = this.stringDataPosition + buffer.getInt(this.stringOffsetsPosition + this.stringCount * Integer.BYTES);
+        // Identification fields
+        int count = r.readInt();
+        List<IdentField> fields = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            fields.add(new IdentField(r.readString(), r.readInt(), r.readInt(), r.readInt(), r.readInt(), r.readInt(), r.readInt()));
+        }
+        this.identificationFields = fields;
+        // Parameters
+        count = r.readInt();
+        List<ParameterDefinition> params = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            String id = r.readString();
+            long externalId = r.readLong();
+            String description = r.readString();
+            FixedType type = r.readBoolean() ? new FixedType(DataTypeEnum.fromCode(r.readInt()), r.readInt()) : null;
+            ParameterDefinition pd = new ParameterDefinition(id, externalId, description, type);
+            pd.setExtension(r.readString());
+            params.add(pd);
+        }
+        this.parameters = params;
+        // Packet table, packets are decoded on first use
+        this.packetCount = r.readInt();
+        this.packetTablePosition = r.pos;
+        this.packetDataPosition = this.packetTablePosition + this.packetCount * PACKET_ENTRY_SIZE;
+        this.packets = new AtomicReferenceArray<>(this.packetCount);
+        this.packetIndex = new HashMap<>();
+        Map<String, List<Integer>> typeIndexes = new LinkedHashMap<>();
+        for (int i = 0; i < this.packetCount; ++i) {
+            int entry = this.packetTablePosition + i * PACKET_ENTRY_SIZE;
+            // In case of duplicates, the first definition is indexed, as done by a sequential search
+            this.packetIndex.putIfAbsent(string(buffer.getInt(entry)), i);
+            typeIndexes.computeIfAbsent(string(buffer.getInt(entry + Integer.BYTES)), k -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<String, List<Integer>> e : typeIndexes.entrySet()) {
+            this.packetTypeIndex.put(e.getKey(), new PacketDefinitionList(e.getValue().stream().mapToInt(Integer::intValue).toArray()));
+        }
+        int[] all = new int[this.packetCount];
+        for (int i = 0; i < all.length; ++i) {
+            all[i] = i;
+        }
+        this.definition = new Definition(this.identificationFields, new PacketDefinitionList(all), this.parameters);
+    }
+
+    /**
+     * This method returns the digest of the source the snapshot was generated from.
+     *
+     * @return the source digest, empty if not set
+     */
+    public byte[] getSourceDigest() {
+        return sourceDigest.clone();
+    }
+
+    /**
+     * This method returns the {@link Definition} backed by this snapshot. The returned object is always the same.
+     *
+     * @return the definition
+     */
+    public Definition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * This method returns the number of packet definitions in the snapshot.
+     *
+     * @return the number of packet definitions
+     */
+    public int getPacketDefinitionCount() {
+        return packetCount;
+    }
+
+    /**
+     * This method returns the {@link PacketDefinition} at the provided position, materialising it if needed.
+     *
+     * @param index the position of the packet definition
+     * @return the packet definition
+     */
+    public PacketDefinition getPacketDefinition(int index) {
+        PacketDefinition pd = this.packets.get(index);
+        if (pd == null) {
+            int entry = this.packetTablePosition + index * PACKET_ENTRY_SIZE;
+            pd = new Reader(this.packetDataPosition + this.buffer.getInt(entry + 2 * Integer.BYTES)).readPacketDefinition();
+            // If another thread materialised the same definition, use that one
+            if (!this.packets.compareAndSet(index, null, pd)) {
+                pd = this.packets.get(index);
+            }
+        }
+        return pd;
+    }
+
+    /**
+     * This method returns the {@link PacketDefinition} having the provided ID, materialising it if needed.
+     *
+     * @param packetDefinitionId the packet definition ID
+     * @return the packet definition, or null if not present
+     */
+    public PacketDefinition getPacketDefinition(String packetDefinitionId) {
+        Integer index = this.packetIndex.get(packetDefinitionId);
+        return index == null ? null : getPacketDefinition(index);
+    }
+
+    /**
+     * This method returns the {@link PacketDefinition} objects having the provided type. The packet definitions are
+     * materialised when accessed through the returned list.
+     *
+     * @param type the packet type, can be null
+     * @return the (unmodifiable) list of packet definitions having the provided type, in definition order
+     */
+    public List<PacketDefinition> getPacketDefinitionsByType(String type) {
+        return this.packetTypeIndex.getOrDefault(type, Collections.emptyList());
+    }
+
+    private String string(int index) {
+        if (index == NULL_REF) {
+            return null;
+        }
+        String s = this.strings[index];
+        if (s == null) {
+            // Benign race: the string is immutable, at worst it is decoded twice
+            int start = this.buffer.getInt(this.stringOffsetsPosition + index * Integer.BYTES);
+            int end = this.buffer.getInt(this.stringOffsetsPosition + (index + 1) * Integer.BYTES);
+            byte[] data = new byte[end - start];
+            this.buffer.duplicate().position(this.stringDataPosition + start).get(data);
+            s = new String(data, StandardCharsets.UTF_8);
+            this.strings[index] = s;
+        }
+        return s;
+    }
+
+    /**
+     * Unmodifiable list view of packet definitions in the snapshot, materialising them on access.
+     */
+    private final class PacketDefinitionList extends AbstractList<PacketDefinition> implements RandomAccess, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] indexes;
+
+        private PacketDefinitionList(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        @Override
+        public PacketDefinition get(int index) {
+            return getPacketDefinition(this.indexes[index]);
+        }
+
+        @Override
+        public int size() {
+            return this.indexes.length;
+        }
+
+        private Object writeReplace() throws ObjectStreamException {
+            // The snapshot is not serialised
+            return new ArrayList<>(this);
+        }
+    }
+
+    /**
+     * Reader of the snapshot contents from a position of the buffer. It uses absolute reads only, so that several
+     * readers can work on the same buffer concurrently.
+     */
+    private final class Reader {
+
+        private int pos;
+
+        private Reader(int pos) {
+            this.pos = pos;
+        }
+
+        private byte readByte() {
+            return buffer.get(pos++);
+        }
+
+        private boolean readBoolean() {
+            return readByte() != 0;
+        }
+
+        private int readInt() {
+            int v = buffer.getInt(pos);
+            pos += Integer.BYTES;
+            return v;
+        }
+
+        private long readLong() {
+            long v = buffer.getLong(pos);
+            pos += Long.BYTES;
+            return v;
+        }
+
+        private Integer readNullableInt() {
+            return readBoolean() ? readInt() : null;
+        }
+
+        private String readString() {
+            return string(readInt());
+        }
+
+        private byte[] readBytes(int length) {
+            byte[] data = new byte[length];
+            buffer.duplicate().position(pos).get(data);
+            pos += length;
+            return data;
+        }
+
+        private PacketDefinition readPacketDefinition() {
+            PacketDefinition pd = new PacketDefinition(readString());
+            pd.setExternalId(readLong());
+            pd.setDescription(readString());
+            pd.setType(readString());
+            pd.setExtension(readString());
+            int matchers = readInt();
+            for (int i = 0; i < matchers; ++i) {
+                int field = readInt();
+                pd.getMatchers().add(new IdentFieldMatcher(field == NULL_REF ? null : identificationFields.get(field), readInt()));
+            }
+            if (readBoolean()) {
+                PacketStructure ps = new PacketStructure();
+                readItems(ps.getEncodedItems());
+                pd.setStructure(ps);
+            }
+            return pd;
+        }
+
+        private void readItems(List<AbstractEncodedItem> items) {
+            int count = readInt();
+            for (int i = 0; i < count; ++i) {
+                items.add(readItem());
+            }
+        }
+
+        private AbstractEncodedItem readItem() {
+            byte kind = readByte();
+            AbstractEncodedItem item;
+            if (kind == ITEM_PARAMETER) {
+                item = new EncodedParameter();
+            } else if (kind == ITEM_ARRAY) {
+                item = new EncodedArray();
+            } else if (kind == ITEM_STRUCTURE) {
+                item = new EncodedStructure();
+            } else {
+                throw new IllegalArgumentException("Encoded item kind " + kind + " not supported");
+            }
+            item.setId(readString());
+            item.setLocation(readLocation());
+            if (item instanceof EncodedParameter) {
+                readParameter((EncodedParameter) item);
+            } else if (item instanceof EncodedArray) {
+                ((EncodedArray) item).setSize(readArraySize());
+                readItems(((EncodedArray) item).getEncodedItems());
+            } else {
+                readItems(((EncodedStructure) item).getEncodedItems());
+            }
+            return item;
+        }
+
+        private AbstractEncodedLocation readLocation() {
+            byte kind = readByte();
+            switch (kind) {
+                case NONE:
+                    return null;
+                case LOCATION_ABSOLUTE:
+                    return new FixedAbsoluteLocation(readInt());
+                case LOCATION_LAST:
+                    return new LastRelativeLocation(readInt(), readInt());
+                case LOCATION_ITEM:
+                    return new EncodedItemRelativeLocation(readInt(), readInt(), readString());
+                default:
+                    throw new IllegalArgumentException("Location kind " + kind + " not supported");
+            }
+        }
+
+        private void readParameter(EncodedParameter ep) {
+            byte kind = readByte();
+            switch (kind) {
+                case NONE:
+                    break;
+                case TYPE_FIXED:
+                    ep.setType(new FixedType(DataTypeEnum.fromCode(readInt()), readInt()));
+                    break;
+                case TYPE_REFERENCE:
+                    ep.setType(new ReferenceType(readString()));
+                    break;
+                case TYPE_PARAMETER:
+                    ep.setType(new ParameterType(readString()));
+                    break;
+                case TYPE_EXTENSION:
+                    ep.setType(new ExtensionType(readString()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Type kind " + kind + " not supported");
+            }
+            kind = readByte();
+            switch (kind) {
+                case NONE:
+                    break;
+                case LENGTH_FIXED:
+                    ep.setLength(new FixedLength(readInt()));
+                    break;
+                case LENGTH_REFERENCE:
+                    ep.setLength(new ReferenceLength(readString()));
+                    break;
+                case LENGTH_PARAMETER:
+                    ep.setLength(new ParameterLength(readString()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Length kind " + kind + " not supported");
+            }
+            if (readBoolean()) {
+                ep.setTime(new GenerationTime(readString(), readString(), readNullableInt()));
+            }
+            ep.setValue(readString());
+            kind = readByte();
+            switch (kind) {
+                case NONE:
+                    break;
+                case LINK_FIXED:
+                    int parameter = readInt();
+                    ep.setLinkedParameter(new FixedLinkedParameter(parameter == NULL_REF ? null : parameters.get(parameter)));
+                    break;
+                case LINK_REFERENCE:
+                    ep.setLinkedParameter(new ReferenceLinkedParameter(readString()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Linked parameter kind " + kind + " not supported");
+            }
+            ep.setPaddedWidth(readNullableInt());
+        }
+
+        private AbstractArraySize readArraySize() {
+            byte kind = readByte();
+            switch (kind) {
+                case NONE:
+                    return null;
+                case SIZE_FIXED:
+                    return new FixedArraySize(readInt());
+                case SIZE_REFERENCE:
+                    return new ReferenceArraySize(readString());
+                default:
+                    throw new IllegalArgumentException("Array size kind " + kind + " not supported");
+            }
+        }
+    }
+
+    /**
+     * Writer of a snapshot. The strings are collected in a table while the sections are written, then the table is
+     * written before the sections.
+     */
+    private static final class Writer {
+
+        private final Definition definition;
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<IdentField, Integer> fieldIndexes = new IdentityHashMap<>();
+        private final Map<ParameterDefinition, Integer> parameterIndexes = new IdentityHashMap<>();
+
+        private Writer(Definition definition) {
+            this.definition = definition;
+            for (IdentField f : definition.getIdentificationFields()) {
+                this.fieldIndexes.putIfAbsent(f, this.fieldIndexes.size());
+            }
+            for (ParameterDefinition p : definition.getParameters()) {
+                this.parameterIndexes.putIfAbsent(p, this.parameterIndexes.size());
+            }
+        }
+
+        private void write(byte[] sourceDigest, OutputStream out) throws IOException {
+            // Packet definitions
+            ByteArrayOutputStream packetData = new ByteArrayOutputStream();
+            DataOutputStream pdos = new DataOutputStream(packetData);
+            List<PacketDefinition> packets = this.definition.getPacketDefinitions();
+            int[] offsets = new int[packets.size() + 1];
+            for (int i = 0; i < packets.size(); ++i) {
+                offsets[i] = pdos.size();
+                writePacketDefinition(pdos, packets.get(i));
+            }
+            offsets[packets.size()] = pdos.size();
+            // Identification fields, parameters and packet table
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream bdos = new DataOutputStream(body);
+            bdos.writeInt(this.definition.getIdentificationFields().size());
+            for (IdentField f : this.definition.getIdentificationFields()) {
+                writeString(bdos, f.getId());
+                bdos.writeInt(f.getByteOffset());
+                bdos.writeInt(f.getByteLength());
+                bdos.writeInt(f.getAndMask());
+                bdos.writeInt(f.getOrMask());
+                bdos.writeInt(f.getLShift());
+                bdos.writeInt(f.getRShift());
+            }
+            bdos.writeInt(this.definition.getParameters().size());
+            for (ParameterDefinition p : this.definition.getParameters()) {
+                writeString(bdos, p.getId());
+                bdos.writeLong(p.getExternalId());
+                writeString(bdos, p.getDescription());
+                bdos.writeBoolean(p.getType() != null);
+                if (p.getType() != null) {
+                    bdos.writeInt(p.getType().getType().getCode());
+                    bdos.writeInt(p.getType().getLength());
+                }
+                writeString(bdos, p.getExtension());
+            }
+            bdos.writeInt(packets.size());
+            for (int i = 0; i < packets.size(); ++i) {
+                writeString(bdos, packets.get(i).getId());
+                writeString(bdos, packets.get(i).getType());
+                bdos.writeInt(offsets[i]);
+                bdos.writeInt(offsets[i + 1] - offsets[i]);
+            }
+            // Now everything can be written
+            DataOutputStream dos = new DataOutputStream(out);
+            dos.writeInt(MAGIC);
+            dos.writeInt(VERSION);
+            dos.writeInt(sourceDigest.length);
+            dos.write(sourceDigest);
+            dos.writeInt(this.strings.size());
+            List<byte[]> encoded = new ArrayList<>(this.strings.size());
+            int offset = 0;
+            for (String s : this.strings.keySet()) {
+                byte[] data = s.getBytes(StandardCharsets.UTF_8);
+                encoded.add(data);
+                dos.writeInt(offset);
+                offset += data.length;
+            }
+            dos.writeInt(offset);
+            for (byte[] data : encoded) {
+                dos.write(data);
+            }
+            body.writeTo(dos);
+            packetData.writeTo(dos);
+            dos.flush();
+        }
+
+        private void writeString(DataOutputStream dos, String s) throws IOException {
+            dos.writeInt(s == null ? NULL_REF : this.strings.computeIfAbsent(s, k -> this.strings.size()));
+        }
+
+        private void writeNullableInt(DataOutputStream dos, Integer value) throws IOException {
+            dos.writeBoolean(value != null);
+            if (value != null) {
+                dos.writeInt(value);
+            }
+        }
+
+        private void writePacketDefinition(DataOutputStream dos, PacketDefinition pd) throws IOException {
+            writeString(dos, pd.getId());
+            dos.writeLong(pd.getExternalId());
+            writeString(dos, pd.getDescription());
+            writeString(dos, pd.getType());
+            writeString(dos, pd.getExtension());
+            dos.writeInt(pd.getMatchers().size());
+            for (IdentFieldMatcher m : pd.getMatchers()) {
+                dos.writeInt(indexOf(this.fieldIndexes, m.getField(), pd));
+                dos.writeInt(m.getValue());
+            }
+            dos.writeBoolean(pd.getStructure() != null);
+            if (pd.getStructure() != null) {
+                writeItems(dos, pd.getStructure().getEncodedItems(), pd);
+            }
+        }
+
+        private int indexOf(Map<?, Integer> indexes, Object referenced, PacketDefinition pd) throws IOException {
+            if (referenced == null) {
+                return NULL_REF;
+            }
+            Integer index = indexes.get(referenced);
+            if (index == null) {
+                throw new IOException(String.format("Packet definition %s refers to an object not part of the definition: %s", pd.getId(), referenced));
+            }
+            return index;
+        }
+
+        private void writeItems(DataOutputStream dos, List<AbstractEncodedItem> items, PacketDefinition pd) throws IOException {
+            dos.writeInt(items.size());
+            for (AbstractEncodedItem item : items) {
+                if (item instanceof EncodedParameter) {
+                    dos.writeByte(ITEM_PARAMETER);
+                } else if (item instanceof EncodedArray) {
+                    dos.writeByte(ITEM_ARRAY);
+                } else if (item instanceof EncodedStructure) {
+                    dos.writeByte(ITEM_STRUCTURE);
+                } else {
+                    throw new IOException(String.format("Encoded item type %s not supported", item.getClass().getSimpleName()));
+                }
+                writeString(dos, item.getId());
+                writeLocation(dos, item.getLocation());
+                if (item instanceof EncodedParameter) {
+                    writeParameter(dos, (EncodedParameter) item, pd);
+                } else if (item instanceof EncodedArray) {
+                    writeArraySize(dos, ((EncodedArray) item).getSize());
+                    writeItems(dos, ((EncodedArray) item).getEncodedItems(), pd);
+                } else {
+                    writeItems(dos, ((EncodedStructure) item).getEncodedItems(), pd);
+                }
+            }
+        }
+
+        private void writeLocation(DataOutputStream dos, AbstractEncodedLocation location) throws IOException {
+            if (location == null) {
+                dos.writeByte(NONE);
+            } else if (location instanceof FixedAbsoluteLocation) {
+                dos.writeByte(LOCATION_ABSOLUTE);
+                dos.writeInt(((FixedAbsoluteLocation) location).getAbsoluteLocation());
+            } else if (location instanceof EncodedItemRelativeLocation) {
+                dos.writeByte(LOCATION_ITEM);
+                dos.writeInt(((EncodedItemRelativeLocation) location).getBitOffset());
+                dos.writeInt(((EncodedItemRelativeLocation) location).getBitAlignment());
+                writeString(dos, ((EncodedItemRelativeLocation) location).getReference());
+            } else if (location instanceof LastRelativeLocation) {
+                dos.writeByte(LOCATION_LAST);
+                dos.writeInt(((LastRelativeLocation) location).getBitOffset());
+                dos.writeInt(((LastRelativeLocation) location).getBitAlignment());
+            } else {
+                throw new IOException(String.format("Location type %s not supported", location.getClass().getSimpleName()));
+            }
+        }
+
+        private void writeParameter(DataOutputStream dos, EncodedParameter ep, PacketDefinition pd) throws IOException {
+            AbstractEncodedType type = ep.getType();
+            if (type == null) {
+                dos.writeByte(NONE);
+            } else if (type instanceof FixedType) {
+                dos.writeByte(TYPE_FIXED);
+                dos.writeInt(((FixedType) type).getType().getCode());
+                dos.writeInt(((FixedType) type).getLength());
+            } else if (type instanceof ReferenceType) {
+                dos.writeByte(TYPE_REFERENCE);
+                writeString(dos, ((ReferenceType) type).getReference());
+            } else if (type instanceof ParameterType) {
+                dos.writeByte(TYPE_PARAMETER);
+                writeString(dos, ((ParameterType) type).getReference());
+            } else if (type instanceof ExtensionType) {
+                dos.writeByte(TYPE_EXTENSION);
+                writeString(dos, ((ExtensionType) type).getExternal());
+            } else {
+                throw new IOException(String.format("Type %s not supported", type.getClass().getSimpleName()));
+            }
+            AbstractEncodedLength length = ep.getLength();
+            if (length == null) {
+                dos.writeByte(NONE);
+            } else if (length instanceof FixedLength) {
+                dos.writeByte(LENGTH_FIXED);
+                dos.writeInt(((FixedLength) length).getLength());
+            } else if (length instanceof ReferenceLength) {
+                dos.writeByte(LENGTH_REFERENCE);
+                writeString(dos, ((ReferenceLength) length).getReference());
+            } else if (length instanceof ParameterLength) {
+                dos.writeByte(LENGTH_PARAMETER);
+                writeString(dos, ((ParameterLength) length).getReference());
+            } else {
+                throw new IOException(String.format("Length %s not supported", length.getClass().getSimpleName()));
+            }
+            GenerationTime time = ep.getTime();
+            dos.writeBoolean(time != null);
+            if (time != null) {
+                writeString(dos, time.getAbsoluteTimeReference());
+                writeString(dos, time.getRelativeTimeReference());
+                writeNullableInt(dos, time.getOffset());
+            }
+            writeString(dos, ep.getValue());
+            AbstractLinkedParameter linked = ep.getLinkedParameter();
+            if (linked == null) {
+                dos.writeByte(NONE);
+            } else if (linked instanceof FixedLinkedParameter) {
+                dos.writeByte(LINK_FIXED);
+                dos.writeInt(indexOf(this.parameterIndexes, ((FixedLinkedParameter) linked).getParameter(), pd));
+            } else if (linked instanceof ReferenceLinkedParameter) {
+                dos.writeByte(LINK_REFERENCE);
+                writeString(dos, ((ReferenceLinkedParameter) linked).getReference());
+            } else {
+                throw new IOException(String.format("Linked parameter %s not supported", linked.getClass().getSimpleName()));
+            }
+            writeNullableInt(dos, ep.getPaddedWidth());
+        }
+
+        private void writeArraySize(DataOutputStream dos, AbstractArraySize size) throws IOException {
+            if (size == null) {
+                dos.writeByte(NONE);
+            } else if (size instanceof FixedArraySize) {
+                dos.writeByte(SIZE_FIXED);
+                dos.writeInt(((FixedArraySize) size).getLength());
+            } else if (size instanceof ReferenceArraySize) {
+                dos.writeByte(SIZE_REFERENCE);
+                writeString(dos, ((ReferenceArraySize) size).getReference());
+            } else {
+                throw new IOException(String.format("Array size %s not supported", size.getClass().getSimpleName()));
+            }
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.identifier.impl;
+
+import eu.dariolucia.ccsds.encdec.definition.Definition;
+import eu.dariolucia.ccsds.encdec.definition.IdentField;
+import eu.dariolucia.ccsds.encdec.definition.IdentFieldMatcher;
+import eu.dariolucia.ccsds.encdec.definition.PacketDefinition;
+import eu.dariolucia.ccsds.encdec.identifier.IPacketIdentifier;
+import eu.dariolucia.ccsds.encdec.identifier.PacketAmbiguityException;
+import eu.dariolucia.ccsds.encdec.identifier.PacketNotIdentifiedException;
+
+import javax.xml.bind.DatatypeConverter;
+import java.util.*;
+
+/**
+ * An identification strategy equivalent to the {@link FieldGroupBasedPacketIdentifier}, which compiles the
+ * identification matchers of all the packet definitions into a decision tree.
+ *
+ * Each node of the tree extracts the value of an identification field, and selects the child node corresponding to the
+ * extracted value by means of a primitive lookup table: a direct array if the values are dense (e.g. PUS types and
+ * subtypes), an open addressing hash table otherwise. The packet definitions having the same leading identification
+ * fields (e.g. APID first, then PUS type and subtype) share the nodes of the tree, so that the values of the common
+ * fields are extracted only once. The identification of a packet does not allocate objects.
+ *
+ * As in the {@link FieldGroupBasedPacketIdentifier}, the packet definitions are partitioned by the ordered list of
+ * fields used by their matchers, and the partitions are ranked in the same way: if a packet matches several
+ * definitions, the definition of the best ranked partition is returned or, if the ambiguity checking is activated, a
+ * {@link PacketAmbiguityException} is thrown.
+ *
+ * As for the {@link FieldGroupBasedPacketIdentifier}, it is assumed that the matchers are always specified in the same
+ * order in all packet definitions.
+ */
+public class DecisionTreePacketIdentifier implements IPacketIdentifier {
+
+    private final Node root = new Node();
+
+    private final boolean checkForAmbiguity;
+
+    public DecisionTreePacketIdentifier(Definition d) {
+        this(d, false, null);
+    }
+
+    public DecisionTreePacketIdentifier(Definition d, boolean checkForAmbiguity) {
+        this(d, checkForAmbiguity, null);
+    }
+
+    public DecisionTreePacketIdentifier(Definition d, boolean checkForAmbiguity, List<String> typesToConsider) {
+        // Partition the definitions by identification fields, as done by the FieldGroupBasedPacketIdentifier
+        List<Partition> partitions = new ArrayList<>();
+        for (PacketDefinition pd : d.getPacketDefinitions()) {
+            if(typesToConsider == null || typesToConsider.contains(pd.getType())) {
+                getOrCreatePartition(partitions, pd).addDefinition(pd);
+            }
+        }
+        Collections.sort(partitions);
+        // Build the tree: the rank of each leaf is the position of its partition
+        for (int rank = 0; rank < partitions.size(); ++rank) {
+            Partition partition = partitions.get(rank);
+            for (Map.Entry<List<Integer>, PacketDefinition> entry : partition.id2packet.entrySet()) {
+                Node node = this.root;
+                for (int i = 0; i < partition.fields.size(); ++i) {
+                    node = node.branch(partition.fields.get(i)).child(entry.getKey().get(i));
+                }
+                node.definition = entry.getValue();
+                node.rank = rank;
+            }
+        }
+        this.root.compile();
+        this.checkForAmbiguity = checkForAmbiguity;
+    }
+
+    private static Partition getOrCreatePartition(List<Partition> partitions, PacketDefinition pd) {
+        for (Partition p : partitions) {
+            if (p.supports(pd)) {
+                return p;
+            }
+        }
+        Partition p = new Partition(pd);
+        partitions.add(p);
+        return p;
+    }
+
+    @Override
+    public String identify(byte[] packet) throws PacketNotIdentifiedException, PacketAmbiguityException {
+        Node pd = find(this.root, packet, null, null);
+        if(pd == null) {
+            throw new PacketNotIdentifiedException(packet);
+        }
+        if(checkForAmbiguity) {
+            Node other = find(this.root, packet, null, pd);
+            if(other != null) {
+                throw new PacketAmbiguityException("Definition ambiguity for packet: " + pd.definition.getId() + " and " + other.definition.getId() + " both match packet " + DatatypeConverter.printHexBinary(packet));
+            }
+        }
+        return pd.definition.getId();
+    }
+
+    /**
+     * Return the best ranked leaf matching the packet in the subtree of the provided node, if better ranked than the
+     * provided leaf, excluding the provided leaf.
+     */
+    private static Node find(Node node, byte[] packet, Node best, Node exclude) {
+        if (node.definition != null && node != exclude && (best == null || node.rank < best.rank)) {
+            best = node;
+        }
+        // Branches sorted by rank: the remaining ones cannot provide a better leaf
+        for (Branch branch : node.branches) {
+            if (best != null && branch.minRank >= best.rank) {
+                break;
+            }
+            // Fields outside the packet boundary cannot be read
+            if (branch.end > packet.length) {
+                continue;
+            }
+            Node child = branch.children.get(branch.field.extract(packet));
+            if (child != null) {
+                best = find(child, packet, best, exclude);
+            }
+        }
+        return best;
+    }
+
+    private static final class Node {
+
+        private PacketDefinition definition;
+
+        private int rank = Integer.MAX_VALUE;
+
+        // Minimum rank of the leaves of this subtree
+        private int minRank;
+
+        private Branch[] branches;
+
+        // Used only during the construction
+        private Map<IdentField, Branch> branchMap = new LinkedHashMap<>();
+
+        private Branch branch(IdentField field) {
+            return this.branchMap.computeIfAbsent(field, Branch::new);
+        }
+
+        private int compile() {
+            this.minRank = this.rank;
+            this.branches = this.branchMap.values().toArray(new Branch[0]);
+            for (Branch b : this.branches) {
+                this.minRank = Math.min(this.minRank, b.compile());
+            }
+            Arrays.sort(this.branches, Comparator.comparingInt(b -> b.minRank));
+            this.branchMap = null;
+            return this.minRank;
+        }
+    }
+
+    private static final class Branch {
+
+        private final IdentField field;
+
+        private final int end;
+
+        private int minRank = Integer.MAX_VALUE;
+
+        private ValueTable children;
+
+        // Used only during the construction
+        private Map<Integer, Node> childMap = new HashMap<>();
+
+        private Branch(IdentField field) {
+            this.field = field;
+            this.end = field.getByteOffset() + field.getByteLength();
+        }
+
+        private Node child(int value) {
+            return this.childMap.computeIfAbsent(value, v -> new Node());
+        }
+
+        private int compile() {
+            for (Node n : this.childMap.values()) {
+                this.minRank = Math.min(this.minRank, n.compile());
+            }
+            this.children = ValueTable.of(this.childMap);
+            this.childMap = null;
+            return this.minRank;
+        }
+    }
+
+    /**
+     * Lookup table from extracted values to child nodes.
+     */
+    private static final class ValueTable {
+
+        // Maximum number of empty slots per entry, for a direct table
+        private static final int MAX_SPARSENESS = 4;
+
+        private final int min;
+        // Direct table if keys is null, otherwise open addressing table with linear probing
+        private final int[] keys;
+        private final Node[] values;
+        private final int mask;
+
+        private static ValueTable of(Map<Integer, Node> map) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int key : map.keySet()) {
+                min = Math.min(min, key);
+                max = Math.max(max, key);
+            }
+            if (map.isEmpty() || (long) max - min < (long) map.size() * MAX_SPARSENESS + 16) {
+                return new ValueTable(map, map.isEmpty() ? 0 : min, map.isEmpty() ? 0 : max - min + 1);
+            } else {
+                return new ValueTable(map);
+            }
+        }
+
+        private ValueTable(Map<Integer, Node> map, int min, int size) {
+            this.min = min;
+            this.keys = null;
+            this.mask = 0;
+            this.values = new Node[size];
+            for (Map.Entry<Integer, Node> e : map.entrySet()) {
+                this.values[e.getKey() - min] = e.getValue();
+            }
+        }
+
+        private ValueTable(Map<Integer, Node> map) {
+            int capacity = Integer.highestOneBit(map.size() * 2 - 1) << 1;
+            this.min = 0;
+            this.mask = capacity - 1;
+            this.keys = new int[capacity];
+            this.values = new Node[capacity];
+            for (Map.Entry<Integer, Node> e : map.entrySet()) {
+                int idx = index(e.getKey());
+                while (this.values[idx] != null) {
+                    idx = (idx + 1) & this.mask;
+                }
+                this.keys[idx] = e.getKey();
+                this.values[idx] = e.getValue();
+            }
+        }
+
+        private int index(int key) {
+            int h = key * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & this.mask;
+        }
+
+        private Node get(int key) {
+            if (this.keys == null) {
+                // Unsigned comparison handles both the lower and upper bound
+                int idx = key - this.min;
+                return Integer.compareUnsigned(idx, this.values.length) < 0 ? this.values[idx] : null;
+            }
+            int idx = index(key);
+            Node n;
+            while ((n = this.values[idx]) != null) {
+                if (this.keys[idx] == key) {
+                    return n;
+                }
+                idx = (idx + 1) & this.mask;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Set of packet definitions identified by the same ordered list of identification fields. The ranking is the same
+     * of the IdSet objects of the {@link FieldGroupBasedPacketIdentifier}.
+     */
+    private static final class Partition implements Comparable<Partition> {
+
+        private final List<IdentField> fields = new ArrayList<>();
+
+        // The hash code of the list is the same of the int[] key used by the FieldGroupBasedPacketIdentifier
+        private final Map<List<Integer>, PacketDefinition> id2packet = new HashMap<>();
+
+        private Partition(PacketDefinition pd) {
+            for (IdentFieldMatcher m : pd.getMatchers()) {
+                this.fields.add(m.getField());
+            }
+        }
+
+        private boolean supports(PacketDefinition pd) {
+            if (pd.getMatchers().size() != fields.size()) {
+                return false;
+            }
+            // Assuming that the matchers are always specified in the same order
+            for (int i = 0; i < pd.getMatchers().size(); ++i) {
+                if (!pd.getMatchers().get(i).getField().equals(fields.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void addDefinition(PacketDefinition pd) {
+            List<Integer> key = new ArrayList<>(pd.getMatchers().size());
+            for (IdentFieldMatcher m : pd.getMatchers()) {
+                key.add(m.getValue());
+            }
+            this.id2packet.put(key, pd);
+        }
+
+        @Override
+        public int compareTo(Partition o) {
+            // Criteria to sort the partitions
+            if (fields.size() > o.fields.size()) {
+                return -1;
+            } else if (fields.size() < o.fields.size()) {
+                return +1;
+            } else {
+                if (id2packet.size() > o.id2packet.size()) {
+                    return -1;
+                } else if (id2packet.size() < o.id2packet.size()) {
+                    return +1;
+                } else {
+                    // Same number of fields, same number of packet discriminants, use hashcode
+                    return o.hashCode() - hashCode();
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Partition p = (Partition) o;
+            return Objects.equals(fields, p.fields) &&
+                    Objects.equals(id2packet, p.id2packet);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fields, id2packet);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure;
+
+import eu.dariolucia.ccsds.encdec.identifier.IPacketIdentifier;
+import eu.dariolucia.ccsds.encdec.identifier.PacketAmbiguityException;
+import eu.dariolucia.ccsds.encdec.identifier.PacketNotIdentifiedException;
+import eu.dariolucia.ccsds.encdec.time.IGenerationTimeProcessor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Implementation of the bulk decoding of {@link IPacketDecoder}: the packets are identified and decoded in parallel by
+ * the tasks of a {@link ForkJoinPool}, and the results are returned in input order.
+ */
+final class BulkDecoding {
+
+    private BulkDecoding() {
+        // Private constructor
+    }
+
+    static List<DecodingResult> decodeAll(IPacketDecoder decoder, List<byte[]> packets, IPacketIdentifier identifier, IGenerationTimeProcessor timeProcessor, ForkJoinPool pool) throws DecodingException {
+        int size = packets.size();
+        DecodingResult[] results = new DecodingResult[size];
+        Exception[] errors = new Exception[size];
+        try {
+            // A parallel stream started by a task of the pool is processed by the pool
+            pool.submit(() -> IntStream.range(0, size).parallel().forEach(i -> {
+                try {
+                    byte[] packet = packets.get(i);
+                    results[i] = decoder.decode(identifier.identify(packet), packet, 0, packet.length, timeProcessor);
+                } catch (DecodingException | PacketNotIdentifiedException | PacketAmbiguityException | RuntimeException e) {
+                    errors[i] = e;
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DecodingException("Interrupted while decoding packets", e);
+        } catch (ExecutionException e) {
+            throw new DecodingException("Cannot decode packets: " + e.getCause().getMessage(), e.getCause());
+        }
+        // Report the error of the first packet that could not be decoded
+        for (int i = 0; i < size; ++i) {
+            if (errors[i] != null) {
+                throw new DecodingException(String.format("Cannot decode packet at index %d: %s", i, errors[i].getMessage()), errors[i]);
+            }
+        }
+        return Arrays.asList(results);
+    }
+}
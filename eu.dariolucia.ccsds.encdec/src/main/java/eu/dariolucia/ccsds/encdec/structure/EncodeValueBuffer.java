@@ -0,0 +1,151 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure;
+
+import java.util.Arrays;
+
+/**
+ * A flat buffer of values to be encoded by a {@link PacketEncodePlan}, indexed by parameter slot (see
+ * {@link PacketEncodePlan#getSlot(PathLocation)}). Booleans, enumerations, integers and reals are stored in a
+ * primitive long[] (reals as raw bits of their double value), so that they can be set without boxing; the other values
+ * (bit strings, octet strings, character strings, absolute and relative times) are stored as objects.
+ *
+ * A buffer can be reused for any number of packets: values not set again keep their previous value. This class is not
+ * thread-safe.
+ */
+public final class EncodeValueBuffer {
+
+    private final long[] primitives;
+
+    private final Object[] objects;
+
+    /**
+     * Construct a value buffer with the provided number of slots.
+     *
+     * @param numSlots the number of slots
+     */
+    public EncodeValueBuffer(int numSlots) {
+        this.primitives = new long[numSlots];
+        this.objects = new Object[numSlots];
+    }
+
+    /**
+     * This method returns the number of slots of the buffer.
+     *
+     * @return the number of slots
+     */
+    public int getSize() {
+        return this.primitives.length;
+    }
+
+    /**
+     * Set a boolean value.
+     *
+     * @param slot the slot
+     * @param value the value
+     * @return this buffer
+     */
+    public EncodeValueBuffer setBoolean(int slot, boolean value) {
+        this.primitives[slot] = value ? 1 : 0;
+        return this;
+    }
+
+    /**
+     * Set an enumeration, unsigned integer or signed integer value.
+     *
+     * @param slot the slot
+     * @param value the value
+     * @return this buffer
+     */
+    public EncodeValueBuffer setLong(int slot, long value) {
+        this.primitives[slot] = value;
+        return this;
+    }
+
+    /**
+     * Set a real value.
+     *
+     * @param slot the slot
+     * @param value the value
+     * @return this buffer
+     */
+    public EncodeValueBuffer setDouble(int slot, double value) {
+        this.primitives[slot] = Double.doubleToRawLongBits(value);
+        return this;
+    }
+
+    /**
+     * Set a non-primitive value, i.e. a {@link eu.dariolucia.ccsds.encdec.value.BitString}, a byte[], a {@link String},
+     * an {@link java.time.Instant} or a {@link java.time.Duration}.
+     *
+     * @param slot the slot
+     * @param value the value
+     * @return this buffer
+     */
+    public EncodeValueBuffer setObject(int slot, Object value) {
+        this.objects[slot] = value;
+        return this;
+    }
+
+    /**
+     * This method returns the boolean value of the provided slot.
+     *
+     * @param slot the slot
+     * @return the value
+     */
+    public boolean getBoolean(int slot) {
+        return this.primitives[slot] != 0;
+    }
+
+    /**
+     * This method returns the enumeration or integer value of the provided slot.
+     *
+     * @param slot the slot
+     * @return the value
+     */
+    public long getLong(int slot) {
+        return this.primitives[slot];
+    }
+
+    /**
+     * This method returns the real value of the provided slot.
+     *
+     * @param slot the slot
+     * @return the value
+     */
+    public double getDouble(int slot) {
+        return Double.longBitsToDouble(this.primitives[slot]);
+    }
+
+    /**
+     * This method returns the non-primitive value of the provided slot.
+     *
+     * @param slot the slot
+     * @return the value, can be null
+     */
+    public Object getObject(int slot) {
+        return this.objects[slot];
+    }
+
+    /**
+     * Reset all the slots to 0 or null.
+     */
+    public void clear() {
+        Arrays.fill(this.primitives, 0);
+        Arrays.fill(this.objects, null);
+    }
+}
@@ -0,0 +1,518 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure;
+
+import eu.dariolucia.ccsds.encdec.bit.BitEncoderDecoder;
+import eu.dariolucia.ccsds.encdec.definition.*;
+import eu.dariolucia.ccsds.encdec.time.IGenerationTimeProcessor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A decoder specialised for a single fixed-layout {@link PacketDefinition}, i.e. a definition whose encoded items are
+ * only parameters and structures, located by {@link FixedAbsoluteLocation} or {@link LastRelativeLocation}, with a
+ * {@link FixedType} and no references to other encoded items. Such definitions are typical of housekeeping packets.
+ *
+ * The bit offset of each parameter is computed when the decoder is created. Booleans, enumerations, integers and
+ * IEEE reals are then read from the packet bytes with precomputed byte index, shift and mask, without going through a
+ * {@link BitEncoderDecoder}. The other types are read with the same {@link IValueReader} used by the other decoders.
+ *
+ * Besides the usual {@link DecodingResult}, the decoder can write the primitive parameters of a packet into a
+ * preallocated long[], allowing allocation-free processing of fixed-layout packets. Parameters are identified by their
+ * index, see {@link FixedLayoutDecoder#getFieldIndex(PathLocation)}.
+ */
+public final class FixedLayoutDecoder {
+
+    /**
+     * This method checks whether the provided packet definition has a fixed layout and can be compiled into a
+     * {@link FixedLayoutDecoder}.
+     *
+     * @param definition the packet definition
+     * @return true if the packet definition has a fixed layout, otherwise false
+     */
+    public static boolean isFixedLayout(PacketDefinition definition) {
+        return isFixedLayout(definition.getStructure().getEncodedItems());
+    }
+
+    private static boolean isFixedLayout(List<AbstractEncodedItem> items) {
+        for (AbstractEncodedItem ei : items) {
+            AbstractEncodedLocation location = ei.getLocation();
+            if (location != null && location.getClass() != FixedAbsoluteLocation.class && location.getClass() != LastRelativeLocation.class) {
+                return false;
+            }
+            if (ei instanceof EncodedParameter) {
+                EncodedParameter ep = (EncodedParameter) ei;
+                if (!(ep.getType() instanceof FixedType)
+                        || (ep.getLength() != null && !(ep.getLength() instanceof FixedLength))
+                        || ep.getLinkedParameter() instanceof ReferenceLinkedParameter
+                        || (ep.getTime() != null && (isReference(ep.getTime().getAbsoluteTimeReference()) || isReference(ep.getTime().getRelativeTimeReference())))) {
+                    return false;
+                }
+                FixedType type = (FixedType) ep.getType();
+                int length = ep.getLength() != null ? ((FixedLength) ep.getLength()).getLength() : type.getLength();
+                if (IValueReader.bitLength(type.getType(), length) < 0) {
+                    return false;
+                }
+            } else if (!(ei instanceof EncodedStructure) || !isFixedLayout(((EncodedStructure) ei).getEncodedItems())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isReference(String reference) {
+        return reference != null && !reference.isEmpty();
+    }
+
+    /**
+     * Compile the provided fixed-layout packet definition into a {@link FixedLayoutDecoder}.
+     *
+     * @param definition the packet definition
+     * @return the decoder
+     * @throws DecodingException if the packet definition does not have a fixed layout
+     */
+    public static FixedLayoutDecoder compile(PacketDefinition definition) throws DecodingException {
+        if (!isFixedLayout(definition)) {
+            throw new DecodingException(String.format("Packet definition %s does not have a fixed layout", definition.getId()));
+        }
+        return new FixedLayoutDecoder(definition);
+    }
+
+    private final PacketDefinition definition;
+
+    private final Node[] nodes;
+
+    private final Field[] fields;
+
+    private final int[] resultNodes;
+
+    // Number of bits needed by the packet
+    private final int bitSize;
+
+    private FixedLayoutDecoder(PacketDefinition definition) {
+        this.definition = definition;
+        List<Field> fieldList = new ArrayList<>();
+        List<AbstractEncodedItem> items = definition.getStructure().getEncodedItems();
+        PathLocation root = PathLocation.of(definition.getId());
+        int[] position = new int[] { 0, 0 }; // Current position, max position
+        this.nodes = new Node[items.size()];
+        for (int i = 0; i < this.nodes.length; ++i) {
+            this.nodes[i] = compile(items.get(i), root, position, fieldList);
+        }
+        this.fields = fieldList.toArray(new Field[0]);
+        this.bitSize = position[1];
+        // As per DecodeWalker, the result contains for each top level item the last decoded item with the same ID
+        this.resultNodes = new int[this.nodes.length];
+        for (int i = 0; i < this.nodes.length; ++i) {
+            this.resultNodes[i] = i;
+            for (int j = this.nodes.length - 1; j > i; --j) {
+                if (items.get(j).getId().equals(items.get(i).getId())) {
+                    this.resultNodes[i] = j;
+                    break;
+                }
+            }
+        }
+    }
+
+    private static Node compile(AbstractEncodedItem ei, PathLocation parent, int[] position, List<Field> fieldList) {
+        PathLocation location = parent.append(ei.getId());
+        if (ei.getLocation() instanceof FixedAbsoluteLocation) {
+            position[0] = ((FixedAbsoluteLocation) ei.getLocation()).getAbsoluteLocation();
+        } else if (ei.getLocation() instanceof LastRelativeLocation) {
+            LastRelativeLocation lrl = (LastRelativeLocation) ei.getLocation();
+            position[0] += lrl.getBitOffset();
+            if (lrl.getBitAlignment() > 1) {
+                int modRes = position[0] % lrl.getBitAlignment();
+                if (modRes != 0) {
+                    position[0] += (lrl.getBitAlignment() - modRes);
+                }
+            }
+        }
+        if (ei instanceof EncodedStructure) {
+            List<AbstractEncodedItem> items = ((EncodedStructure) ei).getEncodedItems();
+            Node[] children = new Node[items.size()];
+            for (int i = 0; i < children.length; ++i) {
+                children[i] = compile(items.get(i), location, position, fieldList);
+            }
+            return new StructureNode(location, children);
+        } else {
+            EncodedParameter ep = (EncodedParameter) ei;
+            FixedType type = (FixedType) ep.getType();
+            int length = ep.getLength() != null ? ((FixedLength) ep.getLength()).getLength() : type.getLength();
+            Field field = new Field(fieldList.size(), location, ep, type.getType(), length, position[0]);
+            fieldList.add(field);
+            // The reading position is after the value, the next position includes the padding
+            position[1] = Math.max(position[1], position[0] + field.bitLength);
+            position[0] += ep.getPaddedWidth() != null ? Math.max(field.bitLength, ep.getPaddedWidth()) : field.bitLength;
+            return field;
+        }
+    }
+
+    /**
+     * This method returns the packet definition of this decoder.
+     *
+     * @return the packet definition
+     */
+    public PacketDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * This method returns the number of bytes needed to decode a packet, i.e. the byte after the last bit of the last
+     * parameter.
+     *
+     * @return the minimum packet length in bytes
+     */
+    public int getMinimumLength() {
+        return (this.bitSize + Byte.SIZE - 1) / Byte.SIZE;
+    }
+
+    /**
+     * This method returns the number of parameters (fields) of the packet, in definition order.
+     *
+     * @return the number of fields
+     */
+    public int getFieldCount() {
+        return this.fields.length;
+    }
+
+    /**
+     * This method returns the index of the last field having the provided location.
+     *
+     * @param location the location of the parameter
+     * @return the field index, or -1 if there is no such field
+     */
+    public int getFieldIndex(PathLocation location) {
+        for (int i = this.fields.length - 1; i >= 0; --i) {
+            if (this.fields[i].location.equals(location)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * This method returns the location of the provided field.
+     *
+     * @param field the field index
+     * @return the location of the field
+     */
+    public PathLocation getFieldLocation(int field) {
+        return this.fields[field].location;
+    }
+
+    /**
+     * This method returns the data type of the provided field.
+     *
+     * @param field the field index
+     * @return the data type of the field
+     */
+    public DataTypeEnum getFieldType(int field) {
+        return this.fields[field].type;
+    }
+
+    /**
+     * This method returns whether the provided field is a primitive field, i.e. a boolean, enumeration, integer or
+     * IEEE real (single or double precision).
+     *
+     * @param field the field index
+     * @return true if the field is primitive, otherwise false
+     */
+    public boolean isPrimitive(int field) {
+        return this.fields[field].primitive;
+    }
+
+    /**
+     * Decode the primitive fields of the provided packet into the provided array, indexed by field index. Booleans are
+     * written as 0 or 1, enumerations and integers as their value, reals as the raw bits of their double value
+     * ({@link Double#doubleToRawLongBits(double)}). The entries of the non-primitive fields are not modified.
+     *
+     * @param data the data to decode
+     * @param offset the data offset
+     * @param length the length
+     * @param values the array to fill, having at least {@link FixedLayoutDecoder#getFieldCount()} entries
+     * @throws DecodingException if the packet is shorter than {@link FixedLayoutDecoder#getMinimumLength()}
+     */
+    public void decode(byte[] data, int offset, int length, long[] values) throws DecodingException {
+        checkLength(data, offset, length);
+        for (Field field : this.fields) {
+            if (field.primitive) {
+                values[field.index] = field.readPrimitive(data, offset);
+            }
+        }
+    }
+
+    /**
+     * Decode the provided packet into a {@link DecodingResult}, equal to the one produced by the {@link IPacketDecoder}
+     * implementations provided by the library.
+     *
+     * @param data the data to decode
+     * @param offset the data offset
+     * @param length the length
+     * @param agencyEpoch the agency epoch, can be null
+     * @param timeProcessor an optional {@link IGenerationTimeProcessor} to derive the generation time
+     * @return the result of the decoding as {@link DecodingResult}
+     * @throws DecodingException if the packet is shorter than {@link FixedLayoutDecoder#getMinimumLength()} or a value cannot be decoded
+     */
+    public DecodingResult decode(byte[] data, int offset, int length, Instant agencyEpoch, IGenerationTimeProcessor timeProcessor) throws DecodingException {
+        checkLength(data, offset, length);
+        Context ctx = new Context(data, offset, length, agencyEpoch, timeProcessor);
+        DecodingResult.Item[] items = new DecodingResult.Item[this.nodes.length];
+        for (int i = 0; i < this.nodes.length; ++i) {
+            items[i] = this.nodes[i].decode(ctx);
+        }
+        List<DecodingResult.Item> decodedItems = new ArrayList<>(this.resultNodes.length);
+        for (int idx : this.resultNodes) {
+            decodedItems.add(items[idx]);
+        }
+        return new DecodingResult(this.definition, decodedItems, ctx.parameters == null ? Collections.emptyList() : ctx.parameters);
+    }
+
+    /**
+     * Decode the provided packet and push the values of the parameters having a linked parameter to the provided
+     * sink, in definition order. No {@link DecodingResult} is built and, if no time processor is provided, the
+     * values of the primitive fields are reported without boxing.
+     *
+     * @param data the data to decode
+     * @param offset the data offset
+     * @param length the length
+     * @param agencyEpoch the agency epoch, can be null
+     * @param timeProcessor an optional {@link IGenerationTimeProcessor} to derive the generation time
+     * @param sink the sink receiving the decoded parameter values
+     * @throws DecodingException if the packet is shorter than {@link FixedLayoutDecoder#getMinimumLength()} or a value cannot be decoded
+     */
+    public void decode(byte[] data, int offset, int length, Instant agencyEpoch, IGenerationTimeProcessor timeProcessor, IDecodeSink sink) throws DecodingException {
+        checkLength(data, offset, length);
+        Context ctx = new Context(data, offset, length, agencyEpoch, timeProcessor);
+        sink.onPacketStart(this.definition);
+        for (Field field : this.fields) {
+            field.stream(ctx, sink);
+        }
+        sink.onPacketEnd(this.definition);
+    }
+
+    private void checkLength(byte[] data, int offset, int length) throws DecodingException {
+        if (offset + length > data.length || length < getMinimumLength()) {
+            throw new DecodingException(String.format("Packet definition %s requires %d bytes, but %d bytes are available", this.definition.getId(), getMinimumLength(), Math.min(length, data.length - offset)));
+        }
+    }
+
+    private static final class Context {
+        private final byte[] data;
+        private final int offset;
+        private final int length;
+        private final Instant agencyEpoch;
+        private final IGenerationTimeProcessor timeProcessor;
+        private BitEncoderDecoder decoder;
+        private List<ParameterValue> parameters;
+
+        private Context(byte[] data, int offset, int length, Instant agencyEpoch, IGenerationTimeProcessor timeProcessor) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+            this.agencyEpoch = agencyEpoch;
+            this.timeProcessor = timeProcessor;
+        }
+
+        private BitEncoderDecoder decoder(int bitIndex) {
+            if (this.decoder == null) {
+                this.decoder = new BitEncoderDecoder(this.data, this.offset, this.length);
+            }
+            this.decoder.setCurrentBitIndex(bitIndex);
+            return this.decoder;
+        }
+
+        private void addParameter(ParameterValue value) {
+            if (this.parameters == null) {
+                this.parameters = new ArrayList<>();
+            }
+            this.parameters.add(value);
+        }
+    }
+
+    private abstract static class Node {
+        protected final PathLocation location;
+
+        private Node(PathLocation location) {
+            this.location = location;
+        }
+
+        abstract DecodingResult.Item decode(Context ctx) throws DecodingException;
+    }
+
+    private static final class StructureNode extends Node {
+        private final Node[] children;
+
+        private StructureNode(PathLocation location, Node[] children) {
+            super(location);
+            this.children = children;
+        }
+
+        @Override
+        DecodingResult.Item decode(Context ctx) throws DecodingException {
+            List<DecodingResult.Item> properties = new ArrayList<>(this.children.length);
+            for (Node child : this.children) {
+                properties.add(child.decode(ctx));
+            }
+            return new DecodingResult.Structure(this.location, this.location.last(), properties);
+        }
+    }
+
+    private static final class Field extends Node {
+        private final int index;
+        private final EncodedParameter parameter;
+        private final DataTypeEnum type;
+        private final int bitOffset;
+        private final int bitLength;
+        private final IValueReader reader;
+        private final boolean primitive;
+        // Precomputed access: first byte, number of bytes (up to 9), right shift after reading 8 bytes and mask
+        private final int byteIndex;
+        private final int numBytes;
+        private final int shift;
+        private final long mask;
+
+        private Field(int index, PathLocation location, EncodedParameter parameter, DataTypeEnum type, int length, int bitOffset) {
+            super(location);
+            this.index = index;
+            this.parameter = parameter;
+            this.type = type;
+            this.bitOffset = bitOffset;
+            this.bitLength = IValueReader.bitLength(type, length);
+            this.reader = IValueReader.of(type, length, parameter.getId());
+            this.primitive = isPrimitive(type, length, this.bitLength);
+            this.byteIndex = bitOffset / Byte.SIZE;
+            this.numBytes = (bitOffset % Byte.SIZE + this.bitLength + Byte.SIZE - 1) / Byte.SIZE;
+            this.shift = Long.SIZE - bitOffset % Byte.SIZE - this.bitLength;
+            this.mask = this.bitLength == Long.SIZE ? -1L : (1L << this.bitLength) - 1;
+        }
+
+        private static boolean isPrimitive(DataTypeEnum type, int length, int bitLength) {
+            switch (type) {
+                case BOOLEAN:
+                case UNSIGNED_INTEGER:
+                case SIGNED_INTEGER:
+                    return bitLength > 0 && bitLength <= Long.SIZE;
+                case ENUMERATED:
+                    // Enumerated values are int: wider fields cannot be encoded by BitEncoderDecoder
+                    return bitLength > 0 && bitLength <= Integer.SIZE;
+                case REAL:
+                    return length == 1 || length == 2;
+                default:
+                    return false;
+            }
+        }
+
+        // Read the raw bits of the field, as unsigned value
+        private long readBits(byte[] data, int offset) {
+            int idx = offset + this.byteIndex;
+            long acc = 0;
+            int n = Math.min(this.numBytes, Long.BYTES);
+            for (int i = 0; i < n; ++i) {
+                acc = (acc << Byte.SIZE) | (data[idx + i] & 0xFF);
+            }
+            if (this.numBytes <= Long.BYTES) {
+                // Left-align the read bytes, then extract the field
+                acc <<= (Long.BYTES - n) * Byte.SIZE;
+                return (acc >>> this.shift) & this.mask;
+            } else {
+                // 9 bytes: the field spans beyond the 8 bytes read
+                int bitsInLast = -this.shift;
+                long last = (data[idx + Long.BYTES] & 0xFF) >>> (Byte.SIZE - bitsInLast);
+                return ((acc << bitsInLast) | last) & this.mask;
+            }
+        }
+
+        private long readPrimitive(byte[] data, int offset) {
+            long bits = readBits(data, offset);
+            switch (this.type) {
+                case SIGNED_INTEGER:
+                    return (bits << (Long.SIZE - this.bitLength)) >> (Long.SIZE - this.bitLength);
+                case ENUMERATED:
+                    return (int) bits;
+                case REAL:
+                    return Double.doubleToRawLongBits(this.bitLength == Float.SIZE ? (double) Float.intBitsToFloat((int) bits) : Double.longBitsToDouble(bits));
+                default:
+                    return bits;
+            }
+        }
+
+        private Object readValue(Context ctx) throws DecodingException {
+            if (!this.primitive) {
+                return this.reader.read(ctx.decoder(this.bitOffset), ctx.agencyEpoch);
+            }
+            long value = readPrimitive(ctx.data, ctx.offset);
+            switch (this.type) {
+                case BOOLEAN:
+                    return value == 1;
+                case ENUMERATED:
+                    return (int) value;
+                case REAL:
+                    return Double.longBitsToDouble(value);
+                default:
+                    return value;
+            }
+        }
+
+        @Override
+        DecodingResult.Item decode(Context ctx) throws DecodingException {
+            Object value = readValue(ctx);
+            Instant genTime = null;
+            if (ctx.timeProcessor != null) {
+                Integer offsetMs = this.parameter.getTime() != null ? this.parameter.getTime().getOffset() : null;
+                genTime = ctx.timeProcessor.computeGenerationTime(this.parameter, value, null, null, offsetMs);
+            }
+            if (this.parameter.getLinkedParameter() instanceof FixedLinkedParameter) {
+                ParameterDefinition pd = ((FixedLinkedParameter) this.parameter.getLinkedParameter()).getParameter();
+                ctx.addParameter(new ParameterValue(pd.getId(), pd.getExternalId(), value, genTime));
+            }
+            return new DecodingResult.Parameter(this.location, this.parameter.getId(), this.parameter, this.type, value, genTime);
+        }
+
+        private void stream(Context ctx, IDecodeSink sink) throws DecodingException {
+            if (!(this.parameter.getLinkedParameter() instanceof FixedLinkedParameter)) {
+                return;
+            }
+            ParameterDefinition pd = ((FixedLinkedParameter) this.parameter.getLinkedParameter()).getParameter();
+            if (this.primitive && ctx.timeProcessor == null) {
+                long value = readPrimitive(ctx.data, ctx.offset);
+                switch (this.type) {
+                    case BOOLEAN:
+                        sink.onBoolean(pd.getId(), pd.getExternalId(), value == 1, null);
+                        break;
+                    case REAL:
+                        sink.onDouble(pd.getId(), pd.getExternalId(), Double.longBitsToDouble(value), null);
+                        break;
+                    default:
+                        sink.onLong(pd.getId(), pd.getExternalId(), value, null);
+                        break;
+                }
+            } else {
+                Object value = readValue(ctx);
+                Instant genTime = null;
+                if (ctx.timeProcessor != null) {
+                    Integer offsetMs = this.parameter.getTime() != null ? this.parameter.getTime().getOffset() : null;
+                    genTime = ctx.timeProcessor.computeGenerationTime(this.parameter, value, null, null, offsetMs);
+                }
+                sink.onValue(pd.getId(), pd.getExternalId(), value, genTime);
+            }
+        }
+    }
+}
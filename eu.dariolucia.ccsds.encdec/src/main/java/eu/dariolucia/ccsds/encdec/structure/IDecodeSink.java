@@ -0,0 +1,143 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure;
+
+import eu.dariolucia.ccsds.encdec.definition.PacketDefinition;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A receiver of the parameter values decoded from a packet, for push-style decoding via
+ * {@link IPacketDecoder#decode(String, byte[], int, int, eu.dariolucia.ccsds.encdec.time.IGenerationTimeProcessor, IDecodeSink)}.
+ *
+ * The sink is informed about the values of the linked parameters, i.e. the same values that would be reported as
+ * {@link ParameterValue} objects by {@link DecodingResult#getDecodedParameters()}, in the same order. Booleans,
+ * integers (including enumerations) and reals are reported by means of primitive-typed callbacks, so that decoders
+ * supporting it can avoid allocating the boxed values and the {@link DecodingResult} tree. The callbacks are invoked
+ * by the decoding thread.
+ */
+public interface IDecodeSink {
+
+    /**
+     * Invoked when the decoding of a packet starts.
+     *
+     * @param definition the packet definition
+     */
+    default void onPacketStart(PacketDefinition definition) {
+        // Nothing to do by default
+    }
+
+    /**
+     * Invoked for a boolean parameter value.
+     *
+     * @param parameterId the parameter ID
+     * @param externalId the parameter external ID
+     * @param value the value
+     * @param generationTime the generation time, can be null
+     */
+    void onBoolean(String parameterId, long externalId, boolean value, Instant generationTime);
+
+    /**
+     * Invoked for an integer parameter value, i.e. signed and unsigned integers and enumerations.
+     *
+     * @param parameterId the parameter ID
+     * @param externalId the parameter external ID
+     * @param value the value
+     * @param generationTime the generation time, can be null
+     */
+    void onLong(String parameterId, long externalId, long value, Instant generationTime);
+
+    /**
+     * Invoked for a real parameter value.
+     *
+     * @param parameterId the parameter ID
+     * @param externalId the parameter external ID
+     * @param value the value
+     * @param generationTime the generation time, can be null
+     */
+    void onDouble(String parameterId, long externalId, double value, Instant generationTime);
+
+    /**
+     * Invoked for an absolute time parameter value. By default, it calls
+     * {@link IDecodeSink#onObject(String, long, Object, Instant)}.
+     *
+     * @param parameterId the parameter ID
+     * @param externalId the parameter external ID
+     * @param value the value
+     * @param generationTime the generation time, can be null
+     */
+    default void onInstant(String parameterId, long externalId, Instant value, Instant generationTime) {
+        onObject(parameterId, externalId, value, generationTime);
+    }
+
+    /**
+     * Invoked for a relative time parameter value. By default, it calls
+     * {@link IDecodeSink#onObject(String, long, Object, Instant)}.
+     *
+     * @param parameterId the parameter ID
+     * @param externalId the parameter external ID
+     * @param value the value
+     * @param generationTime the generation time, can be null
+     */
+    default void onDuration(String parameterId, long externalId, Duration value, Instant generationTime) {
+        onObject(parameterId, externalId, value, generationTime);
+    }
+
+    /**
+     * Invoked for any other parameter value, e.g. strings, octet strings, bit strings and values decoded by extensions.
+     *
+     * @param parameterId the parameter ID
+     * @param externalId the parameter external ID
+     * @param value the value, can be null
+     * @param generationTime the generation time, can be null
+     */
+    void onObject(String parameterId, long externalId, Object value, Instant generationTime);
+
+    /**
+     * Invoked when the decoding of a packet is completed. It is not invoked if the decoding fails.
+     *
+     * @param definition the packet definition
+     */
+    default void onPacketEnd(PacketDefinition definition) {
+        // Nothing to do by default
+    }
+
+    /**
+     * Report the provided boxed value to the callback matching its type.
+     *
+     * @param parameterId the parameter ID
+     * @param externalId the parameter external ID
+     * @param value the value, can be null
+     * @param generationTime the generation time, can be null
+     */
+    default void onValue(String parameterId, long externalId, Object value, Instant generationTime) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            onLong(parameterId, externalId, ((Number) value).longValue(), generationTime);
+        } else if (value instanceof Double || value instanceof Float) {
+            onDouble(parameterId, externalId, ((Number) value).doubleValue(), generationTime);
+        } else if (value instanceof Boolean) {
+            onBoolean(parameterId, externalId, (Boolean) value, generationTime);
+        } else if (value instanceof Instant) {
+            onInstant(parameterId, externalId, (Instant) value, generationTime);
+        } else if (value instanceof Duration) {
+            onDuration(parameterId, externalId, (Duration) value, generationTime);
+        } else {
+            onObject(parameterId, externalId, value, generationTime);
+        }
+    }
+}
@@ -16,8 +16,12 @@
 
 package eu.dariolucia.ccsds.encdec.structure;
 
+import eu.dariolucia.ccsds.encdec.identifier.IPacketIdentifier;
 import eu.dariolucia.ccsds.encdec.time.IGenerationTimeProcessor;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * An interface implemented by objects with packet decoding capabilities. The decoding is performed by providing a byte[],
  * an offset and a length, and optionally a {@link IGenerationTimeProcessor} used to derive the generation time.
@@ -49,4 +53,61 @@ public interface IPacketDecoder {
     default DecodingResult decode(String packetDefinitionId, byte[] data, IGenerationTimeProcessor timeProcessor) throws DecodingException {
         return decode(packetDefinitionId, data, 0, data.length, timeProcessor);
     }
+
+    /**
+     * Decode the provided byte[], from offset to offset + length, using the definition specified by the packetDefinitionId
+     * and using the provided timeProcessor to derive the generation time of each encoded parameter. The decoded parameter
+     * values are pushed to the provided sink, instead of being returned as {@link DecodingResult}.
+     *
+     * The default implementation decodes the packet into a {@link DecodingResult} and reports its parameter values to
+     * the sink. Implementations can override this method to avoid the construction of the {@link DecodingResult}.
+     *
+     * @param packetDefinitionId the packet definition to use
+     * @param data the data to decode
+     * @param offset the data offset
+     * @param length the length
+     * @param timeProcessor an optional {@link IGenerationTimeProcessor} to derive the generation time
+     * @param sink the sink receiving the decoded parameter values
+     * @throws DecodingException in case of problems when decoding the packet
+     */
+    default void decode(String packetDefinitionId, byte[] data, int offset, int length, IGenerationTimeProcessor timeProcessor, IDecodeSink sink) throws DecodingException {
+        DecodingResult result = decode(packetDefinitionId, data, offset, length, timeProcessor);
+        sink.onPacketStart(result.getDefinition());
+        for (ParameterValue pv : result.getDecodedParameters()) {
+            sink.onValue(pv.getId(), pv.getExternalId(), pv.getValue(), pv.getGenerationTime());
+        }
+        sink.onPacketEnd(result.getDefinition());
+    }
+
+    /**
+     * Identify and decode the provided packets in parallel, using the common {@link ForkJoinPool}. The implementation
+     * must be thread-safe.
+     *
+     * @param packets the packets to decode
+     * @param identifier the packet identifier, used to derive the packet definition of each packet
+     * @param timeProcessor an optional {@link IGenerationTimeProcessor} to derive the generation time
+     * @return the results of the decoding, in the same order of the provided packets
+     * @throws DecodingException if at least one packet cannot be identified or decoded
+     */
+    default List<DecodingResult> decodeAll(List<byte[]> packets, IPacketIdentifier identifier, IGenerationTimeProcessor timeProcessor) throws DecodingException {
+        return decodeAll(packets, identifier, timeProcessor, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Identify and decode the provided packets in parallel, using the provided {@link ForkJoinPool}. The implementation
+     * must be thread-safe.
+     *
+     * If some packets cannot be identified or decoded, the exception reports the first one in input order, while the
+     * other packets are still decoded.
+     *
+     * @param packets the packets to decode
+     * @param identifier the packet identifier, used to derive the packet definition of each packet
+     * @param timeProcessor an optional {@link IGenerationTimeProcessor} to derive the generation time
+     * @param pool the pool running the decoding tasks
+     * @return the results of the decoding, in the same order of the provided packets
+     * @throws DecodingException if at least one packet cannot be identified or decoded
+     */
+    default List<DecodingResult> decodeAll(List<byte[]> packets, IPacketIdentifier identifier, IGenerationTimeProcessor timeProcessor, ForkJoinPool pool) throws DecodingException {
+        return BulkDecoding.decodeAll(this, packets, identifier, timeProcessor, pool);
+    }
 }
@@ -0,0 +1,184 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure;
+
+import eu.dariolucia.ccsds.encdec.bit.BitEncoderDecoder;
+import eu.dariolucia.ccsds.encdec.definition.DataTypeEnum;
+import eu.dariolucia.ccsds.encdec.value.BitString;
+import eu.dariolucia.ccsds.encdec.value.TimeCodec;
+import eu.dariolucia.ccsds.encdec.value.TimeUtil;
+
+import java.time.Instant;
+
+/**
+ * A reader of a single value of a given type and length from a {@link BitEncoderDecoder}, at its current position.
+ *
+ * Readers are obtained by means of the {@link IValueReader#of(DataTypeEnum, int, String)} method, which performs the
+ * type and length dispatch once: the returned reader can be reused for all values having the same type and length.
+ */
+@FunctionalInterface
+public interface IValueReader {
+
+    /**
+     * Read the value from the current position of the provided decoder.
+     *
+     * @param decoder the decoder to read from
+     * @param agencyEpoch the agency epoch used for time values, can be null
+     * @return the decoded value
+     * @throws DecodingException in case the value cannot be decoded
+     */
+    Object read(BitEncoderDecoder decoder, Instant agencyEpoch) throws DecodingException;
+
+    /**
+     * Return the reader for values of the provided type and length (PTC and PFC). If the type and length combination
+     * is not valid, the returned reader raises a {@link DecodingException} when used.
+     *
+     * @param dataType the data type
+     * @param dataLength the data length, whose meaning depends on the data type
+     * @param parameterId the ID of the encoded parameter, used in error messages
+     * @return the value reader
+     */
+    static IValueReader of(DataTypeEnum dataType, int dataLength, String parameterId) {
+        switch (dataType) {
+            case BOOLEAN:
+                return (d, e) -> d.getNextBoolean();
+            case ENUMERATED:
+                return (d, e) -> d.getNextIntegerUnsigned(dataLength);
+            case UNSIGNED_INTEGER:
+                return (d, e) -> d.getNextLongUnsigned(dataLength);
+            case SIGNED_INTEGER:
+                return (d, e) -> d.getNextLongSigned(dataLength);
+            case REAL:
+                switch (dataLength) {
+                    case 1:
+                        return (d, e) -> (double) d.getNextFloat();
+                    case 2:
+                        return (d, e) -> d.getNextDouble();
+                    case 3:
+                        return (d, e) -> d.getNextMil32Real();
+                    case 4:
+                        return (d, e) -> d.getNextMil48Real();
+                    default:
+                        return failing(String.format("Length code %d for encoded parameter %s for real values not recognized", dataLength, parameterId));
+                }
+            case BIT_STRING:
+                return (d, e) -> new BitString(d.getNextByte(dataLength), dataLength);
+            case OCTET_STRING:
+                return (d, e) -> d.getNextByte(dataLength * Byte.SIZE);
+            case CHARACTER_STRING:
+                return (d, e) -> d.getNextString(dataLength * Byte.SIZE);
+            case ABSOLUTE_TIME:
+                if (dataLength == 0) {
+                    // Explicit definition of time format (CUC or CDS), i.e. including the Pfield
+                    return (d, e) -> {
+                        int currentBitIdx = d.getCurrentBitIndex();
+                        byte firstPfield = (byte) Integer.toUnsignedLong(d.getNextIntegerUnsigned(Byte.SIZE));
+                        d.setCurrentBitIndex(currentBitIdx);
+                        if (TimeUtil.isCDS(firstPfield)) {
+                            return TimeUtil.fromCDS(d, e);
+                        } else {
+                            return TimeUtil.fromCUC(d, e);
+                        }
+                    };
+                } else if (dataLength == 1) {
+                    return (d, e) -> TimeCodec.toInstant(TimeCodec.of(e).decodeCDS(d, true, 0));
+                } else if (dataLength == 2) {
+                    return (d, e) -> TimeCodec.toInstant(TimeCodec.of(e).decodeCDS(d, true, 1));
+                } else if (dataLength >= 3 && dataLength <= 18) {
+                    int coarse = (dataLength + 1) / 4;
+                    int fine = (dataLength + 1) % 4;
+                    return (d, e) -> TimeCodec.toInstant(TimeCodec.of(e).decodeCUC(d, coarse, fine));
+                } else {
+                    return failing(String.format("PFC value %d for PTC of type Absolute Time is not valid for encoded parameter %s", dataLength, parameterId));
+                }
+            case RELATIVE_TIME:
+                if (dataLength == 0) {
+                    // Explicit definition of time format (CUC), i.e. including the Pfield
+                    return (d, e) -> TimeUtil.fromCUCduration(d);
+                } else if (dataLength >= 1 && dataLength <= 16) {
+                    int coarse = (dataLength + 3) / 4;
+                    int fine = (dataLength + 3) % 4;
+                    return (d, e) -> TimeUtil.fromCUCduration(d.getNextByte(Byte.SIZE * (coarse + fine)), coarse, fine);
+                } else {
+                    return failing(String.format("PFC value %d for PTC of type Relative Time is not valid for encoded parameter %s", dataLength, parameterId));
+                }
+            case DEDUCED:
+                return failing(String.format("Deduced type for encoded parameter %s at this stage is not allowed", parameterId));
+            default:
+                return failing(String.format("Type %s not supported", dataType));
+        }
+    }
+
+    /**
+     * Return the number of bits read by the reader of the provided type and length, or -1 if the number of bits
+     * depends on the data, or if the type and length combination is not valid.
+     *
+     * @param dataType the data type
+     * @param dataLength the data length, whose meaning depends on the data type
+     * @return the number of bits, or -1 if not known in advance
+     */
+    static int bitLength(DataTypeEnum dataType, int dataLength) {
+        switch (dataType) {
+            case BOOLEAN:
+                return 1;
+            case ENUMERATED:
+            case UNSIGNED_INTEGER:
+            case SIGNED_INTEGER:
+            case BIT_STRING:
+                return dataLength;
+            case REAL:
+                switch (dataLength) {
+                    case 1:
+                    case 3:
+                        return 32;
+                    case 2:
+                        return 64;
+                    case 4:
+                        return 48;
+                    default:
+                        return -1;
+                }
+            case OCTET_STRING:
+            case CHARACTER_STRING:
+                return dataLength * Byte.SIZE;
+            case ABSOLUTE_TIME:
+                if (dataLength == 1) {
+                    return Byte.SIZE * 6;
+                } else if (dataLength == 2) {
+                    return Byte.SIZE * 8;
+                } else if (dataLength >= 3 && dataLength <= 18) {
+                    return Byte.SIZE * ((dataLength + 1) / 4 + (dataLength + 1) % 4);
+                } else {
+                    return -1;
+                }
+            case RELATIVE_TIME:
+                if (dataLength >= 1 && dataLength <= 16) {
+                    return Byte.SIZE * ((dataLength + 3) / 4 + (dataLength + 3) % 4);
+                } else {
+                    return -1;
+                }
+            default:
+                return -1;
+        }
+    }
+
+    private static IValueReader failing(String message) {
+        return (d, e) -> {
+            throw new DecodingException(message);
+        };
+    }
+}
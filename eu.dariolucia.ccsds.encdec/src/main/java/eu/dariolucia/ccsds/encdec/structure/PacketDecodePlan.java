@@ -0,0 +1,911 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure;
+
+import eu.dariolucia.ccsds.encdec.bit.BitEncoderDecoder;
+import eu.dariolucia.ccsds.encdec.definition.*;
+import eu.dariolucia.ccsds.encdec.extension.internal.ExtensionRegistry;
+import eu.dariolucia.ccsds.encdec.time.IGenerationTimeProcessor;
+import eu.dariolucia.ccsds.encdec.value.TimeCodec;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * A {@link PacketDefinition} compiled into a flat decode plan. The plan is computed once per definition and it can be
+ * executed on any number of packets, also concurrently, producing the same {@link DecodingResult} as the
+ * {@link StructureWalker}-based decoding.
+ *
+ * During the compilation, each encoded item is turned into an operation with pre-resolved path location, type, length
+ * and value reader. The bit position of each item is computed in advance when it does not depend on the packet
+ * contents, and only the encoded items actually referenced by other items (for location, type, length, array size,
+ * linked parameter or generation time) have their value and end position recorded during the decoding.
+ *
+ * A plan reflects the packet definition at compilation time: if the definition is modified, the plan must be compiled
+ * again.
+ */
+public final class PacketDecodePlan {
+
+    private static final int UNKNOWN_POSITION = Integer.MIN_VALUE;
+
+    private static final int NO_SLOT = -1;
+
+    private static final int NOT_PRIMITIVE = 0;
+    private static final int PRIMITIVE_BOOLEAN = 1;
+    private static final int PRIMITIVE_ENUMERATED = 2;
+    private static final int PRIMITIVE_UNSIGNED = 3;
+    private static final int PRIMITIVE_SIGNED = 4;
+    private static final int PRIMITIVE_REAL = 5;
+
+    /**
+     * Compile the provided packet definition into a decode plan.
+     *
+     * @param indexer the definition indexer, used to look up parameter definitions by external ID
+     * @param definition the packet definition to compile
+     * @return the decode plan
+     * @throws DecodingException if the packet definition contains unsupported elements
+     */
+    public static PacketDecodePlan compile(PacketDefinitionIndexer indexer, PacketDefinition definition) throws DecodingException {
+        return new Compiler(indexer, definition).compile();
+    }
+
+    private final PacketDefinition definition;
+
+    private final Operation[] operations;
+
+    private final int[] resultOperations;
+
+    private final int numSlots;
+
+    private PacketDecodePlan(PacketDefinition definition, Operation[] operations, int[] resultOperations, int numSlots) {
+        this.definition = definition;
+        this.operations = operations;
+        this.resultOperations = resultOperations;
+        this.numSlots = numSlots;
+    }
+
+    /**
+     * This method returns the packet definition of this plan.
+     *
+     * @return the packet definition
+     */
+    public PacketDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * Decode the provided byte[], from offset to offset + length, according to this plan.
+     *
+     * @param data the data to decode
+     * @param offset the data offset
+     * @param length the length
+     * @param agencyEpoch the agency epoch, can be null
+     * @param timeProcessor an optional {@link IGenerationTimeProcessor} to derive the generation time
+     * @return the result of the decoding as {@link DecodingResult}
+     * @throws DecodingException in case of problems when decoding the packet
+     */
+    public DecodingResult decode(byte[] data, int offset, int length, Instant agencyEpoch, IGenerationTimeProcessor timeProcessor) throws DecodingException {
+        Context ctx = new Context(new BitEncoderDecoder(data, offset, length), numSlots, agencyEpoch, timeProcessor, null);
+        DecodingResult.Item[] items = new DecodingResult.Item[operations.length];
+        for (int i = 0; i < operations.length; ++i) {
+            items[i] = operations[i].execute(ctx, null);
+        }
+        List<DecodingResult.Item> decodedItems = new ArrayList<>(resultOperations.length);
+        for (int idx : resultOperations) {
+            decodedItems.add(items[idx]);
+        }
+        return new DecodingResult(definition, decodedItems, ctx.parameters);
+    }
+
+    /**
+     * Decode the provided byte[], from offset to offset + length, according to this plan, and push the decoded
+     * parameter values to the provided sink. No {@link DecodingResult} tree is built, and the values of the booleans,
+     * integers and reals that are not referenced by other encoded items are not boxed, if no time processor is
+     * provided.
+     *
+     * @param data the data to decode
+     * @param offset the data offset
+     * @param length the length
+     * @param agencyEpoch the agency epoch, can be null
+     * @param timeProcessor an optional {@link IGenerationTimeProcessor} to derive the generation time
+     * @param sink the sink receiving the decoded parameter values
+     * @throws DecodingException in case of problems when decoding the packet
+     */
+    public void decode(byte[] data, int offset, int length, Instant agencyEpoch, IGenerationTimeProcessor timeProcessor, IDecodeSink sink) throws DecodingException {
+        Context ctx = new Context(new BitEncoderDecoder(data, offset, length), numSlots, agencyEpoch, timeProcessor, sink);
+        sink.onPacketStart(definition);
+        for (Operation operation : operations) {
+            operation.stream(ctx, null);
+        }
+        sink.onPacketEnd(definition);
+    }
+
+    private static ParameterDefinition retrieveParameterDefinitionByExternalId(PacketDefinitionIndexer indexer, int externalId) throws DecodingException {
+        ParameterDefinition pd = indexer.retrieveParameterByExternalId(externalId);
+        if (pd != null) {
+            return pd;
+        }
+        throw new DecodingException(String.format("Cannot map externalId %d to parameter definition", externalId));
+    }
+
+    private static int primitiveKind(DataTypeEnum dataType, int dataLength) {
+        switch (dataType) {
+            case BOOLEAN:
+                return PRIMITIVE_BOOLEAN;
+            case ENUMERATED:
+                return PRIMITIVE_ENUMERATED;
+            case UNSIGNED_INTEGER:
+                return PRIMITIVE_UNSIGNED;
+            case SIGNED_INTEGER:
+                return PRIMITIVE_SIGNED;
+            case REAL:
+                // Invalid lengths are reported by the value reader
+                return dataLength >= 1 && dataLength <= 4 ? PRIMITIVE_REAL : NOT_PRIMITIVE;
+            default:
+                return NOT_PRIMITIVE;
+        }
+    }
+
+    private static int align(int bitIndex, int bitAlignment) {
+        if (bitAlignment > 1) {
+            int modRes = bitIndex % bitAlignment;
+            if (modRes != 0) {
+                bitIndex += (bitAlignment - modRes);
+            }
+        }
+        return bitIndex;
+    }
+
+    // ---------------------------------------------------------------------------------------------------------
+    // Execution
+    // ---------------------------------------------------------------------------------------------------------
+
+    private static final class Context {
+        private final BitEncoderDecoder decoder;
+        private final Object[] values;
+        private final int[] endPositions;
+        private final Instant agencyEpoch;
+        private final IGenerationTimeProcessor timeProcessor;
+        // Exactly one of the two is not null
+        private final IDecodeSink sink;
+        private final List<ParameterValue> parameters;
+
+        private Context(BitEncoderDecoder decoder, int numSlots, Instant agencyEpoch, IGenerationTimeProcessor timeProcessor, IDecodeSink sink) {
+            this.decoder = decoder;
+            this.values = new Object[numSlots];
+            this.endPositions = new int[numSlots];
+            Arrays.fill(this.endPositions, UNKNOWN_POSITION);
+            this.agencyEpoch = agencyEpoch;
+            this.timeProcessor = timeProcessor;
+            this.sink = sink;
+            this.parameters = sink == null ? new ArrayList<>() : null;
+        }
+
+        private void addParameter(ParameterDefinition pd, Object value, Instant genTime) {
+            if (this.sink != null) {
+                this.sink.onValue(pd.getId(), pd.getExternalId(), value, genTime);
+            } else {
+                this.parameters.add(new ParameterValue(pd.getId(), pd.getExternalId(), value, genTime));
+            }
+        }
+
+        private Object value(int slot) {
+            return slot == NO_SLOT ? null : this.values[slot];
+        }
+
+        private void record(int slot, Object value) {
+            if (slot != NO_SLOT) {
+                this.values[slot] = value;
+                this.endPositions[slot] = this.decoder.getCurrentBitIndex();
+            }
+        }
+
+        private void recordEnd(int slot) {
+            if (slot != NO_SLOT) {
+                this.endPositions[slot] = this.decoder.getCurrentBitIndex();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Move {
+        void apply(Context ctx) throws DecodingException;
+    }
+
+    private abstract static class Operation {
+        protected final String id;
+        protected final int slot;
+        protected final PathLocation location; // Null if inside an array
+        protected final Move move; // Null if no move is needed
+        // True if the location is used to decode this item (by an extension or a mapper)
+        protected final boolean needsLocation;
+
+        private Operation(String id, int slot, PathLocation location, Move move, boolean needsLocation) {
+            this.id = id;
+            this.slot = slot;
+            this.location = location;
+            this.move = move;
+            this.needsLocation = needsLocation;
+        }
+
+        protected PathLocation locate(PathLocation parent) {
+            return this.location != null ? this.location : parent.append(this.id);
+        }
+
+        // When streaming, the locations inside arrays are computed only if needed
+        protected PathLocation locateIfNeeded(PathLocation parent) {
+            return this.location != null || this.needsLocation ? locate(parent) : null;
+        }
+
+        protected void moveToLocation(Context ctx) throws DecodingException {
+            if (this.move != null) {
+                this.move.apply(ctx);
+            }
+        }
+
+        abstract DecodingResult.Item execute(Context ctx, PathLocation parent) throws DecodingException;
+
+        abstract void stream(Context ctx, PathLocation parent) throws DecodingException;
+
+        static boolean needsLocation(Operation[] children) {
+            for (Operation child : children) {
+                if (child.needsLocation) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class StructureOperation extends Operation {
+        private final Operation[] children;
+
+        private StructureOperation(String id, int slot, PathLocation location, Move move, Operation[] children) {
+            super(id, slot, location, move, needsLocation(children));
+            this.children = children;
+        }
+
+        @Override
+        DecodingResult.Item execute(Context ctx, PathLocation parent) throws DecodingException {
+            PathLocation loc = locate(parent);
+            List<DecodingResult.Item> properties = new ArrayList<>(this.children.length);
+            DecodingResult.Structure struct = new DecodingResult.Structure(loc, loc.last(), properties);
+            moveToLocation(ctx);
+            for (Operation child : this.children) {
+                properties.add(child.execute(ctx, loc));
+            }
+            ctx.recordEnd(this.slot);
+            return struct;
+        }
+
+        @Override
+        void stream(Context ctx, PathLocation parent) throws DecodingException {
+            PathLocation loc = locateIfNeeded(parent);
+            moveToLocation(ctx);
+            for (Operation child : this.children) {
+                child.stream(ctx, loc);
+            }
+            ctx.recordEnd(this.slot);
+        }
+    }
+
+    private static final class ArrayOperation extends Operation {
+        private final Operation[] children;
+        private final int fixedSize;
+        private final int sizeSlot;
+        private final String sizeReference; // Null if fixed size
+
+        private ArrayOperation(String id, int slot, PathLocation location, Move move, Operation[] children, int fixedSize, int sizeSlot, String sizeReference) {
+            super(id, slot, location, move, needsLocation(children));
+            this.children = children;
+            this.fixedSize = fixedSize;
+            this.sizeSlot = sizeSlot;
+            this.sizeReference = sizeReference;
+        }
+
+        @Override
+        DecodingResult.Item execute(Context ctx, PathLocation parent) throws DecodingException {
+            PathLocation loc = locate(parent);
+            List<DecodingResult.ArrayItem> arrayItems = new ArrayList<>();
+            DecodingResult.Array arr = new DecodingResult.Array(loc, loc.last(), arrayItems);
+            moveToLocation(ctx);
+            int numElements = numElements(ctx);
+            for (int idx = 0; idx < numElements; ++idx) {
+                // As per StructureWalker, an array item is created for each encoded item of each array element
+                for (Operation child : this.children) {
+                    PathLocation itemLoc = loc.appendIndex(idx);
+                    List<DecodingResult.Item> elements = new ArrayList<>(1);
+                    arrayItems.add(new DecodingResult.ArrayItem(itemLoc, itemLoc.last(), elements));
+                    elements.add(child.execute(ctx, itemLoc));
+                }
+            }
+            ctx.recordEnd(this.slot);
+            return arr;
+        }
+
+        @Override
+        void stream(Context ctx, PathLocation parent) throws DecodingException {
+            PathLocation loc = locateIfNeeded(parent);
+            moveToLocation(ctx);
+            int numElements = numElements(ctx);
+            for (int idx = 0; idx < numElements; ++idx) {
+                for (Operation child : this.children) {
+                    child.stream(ctx, this.needsLocation ? loc.appendIndex(idx) : null);
+                }
+            }
+            ctx.recordEnd(this.slot);
+        }
+
+        private int numElements(Context ctx) throws DecodingException {
+            if (this.sizeReference == null) {
+                return this.fixedSize;
+            }
+            Object value = ctx.value(this.sizeSlot);
+            if (value instanceof Number) {
+                return ((Number) value).intValue();
+            } else {
+                throw new DecodingException(String.format("Cannot map value of encoded parameter %s to an integer for array size of %s", this.sizeReference, this.id));
+            }
+        }
+    }
+
+    private static final class ParameterOperation extends Operation {
+        private final PacketDefinitionIndexer indexer;
+        private final PacketDefinition definition;
+        private final EncodedParameter parameter;
+        // Static type: not null if type and length can be derived at compilation time
+        private final DataTypeEnum staticType;
+        private final IValueReader staticReader;
+        private final int staticLength;
+        // Primitive static type, read without boxing when streaming
+        private final int primitiveKind;
+        // Dynamic type
+        private final int typeSlot;
+        private final int lengthSlot;
+        // Padding
+        private final Integer paddedWidth;
+        // Generation time
+        private final boolean hasTime;
+        private final Integer timeOffset;
+        private final int absoluteTimeSlot;
+        private final int relativeTimeSlot;
+        // Linked parameter
+        private final int linkedParameterSlot;
+
+        private ParameterOperation(PacketDefinitionIndexer indexer, PacketDefinition definition, EncodedParameter parameter, int slot, PathLocation location, Move move,
+                                   DataTypeEnum staticType, int staticLength, int typeSlot, int lengthSlot, int absoluteTimeSlot, int relativeTimeSlot,
+                                   int linkedParameterSlot) {
+            super(parameter.getId(), slot, location, move, staticType == null);
+            this.indexer = indexer;
+            this.definition = definition;
+            this.parameter = parameter;
+            this.staticType = staticType;
+            this.staticReader = staticType != null ? IValueReader.of(staticType, staticLength, parameter.getId()) : null;
+            this.primitiveKind = staticType != null ? primitiveKind(staticType, staticLength) : NOT_PRIMITIVE;
+            this.staticLength = staticLength;
+            this.typeSlot = typeSlot;
+            this.lengthSlot = lengthSlot;
+            this.paddedWidth = parameter.getPaddedWidth();
+            this.hasTime = parameter.getTime() != null;
+            this.timeOffset = this.hasTime ? parameter.getTime().getOffset() : null;
+            this.absoluteTimeSlot = absoluteTimeSlot;
+            this.relativeTimeSlot = relativeTimeSlot;
+            this.linkedParameterSlot = linkedParameterSlot;
+        }
+
+        @Override
+        DecodingResult.Item execute(Context ctx, PathLocation parent) throws DecodingException {
+            PathLocation loc = locate(parent);
+            moveToLocation(ctx);
+            DataTypeEnum dataType;
+            Object value;
+            if (this.parameter.getType() instanceof ExtensionType) {
+                dataType = null;
+                value = ExtensionRegistry.extensionDecoder(((ExtensionType) this.parameter.getType()).getExternal()).decode(this.definition, this.parameter, loc, ctx.decoder);
+            } else if (this.staticReader != null) {
+                dataType = this.staticType;
+                value = read(ctx, this.staticReader);
+            } else {
+                FixedType effectiveType = deriveEffectiveType(ctx, loc);
+                dataType = effectiveType.getType();
+                value = read(ctx, IValueReader.of(dataType, effectiveType.getLength(), this.id));
+            }
+            Instant genTime = computeGenerationTime(ctx, value);
+            DecodingResult.Parameter result = new DecodingResult.Parameter(loc, this.id, this.parameter, dataType, value, genTime);
+            mapLinkedParameter(ctx, value, genTime);
+            ctx.record(this.slot, value);
+            return result;
+        }
+
+        @Override
+        void stream(Context ctx, PathLocation parent) throws DecodingException {
+            moveToLocation(ctx);
+            if (this.primitiveKind != NOT_PRIMITIVE && this.slot == NO_SLOT && ctx.timeProcessor == null) {
+                streamPrimitive(ctx);
+                return;
+            }
+            Object value;
+            if (this.parameter.getType() instanceof ExtensionType) {
+                value = ExtensionRegistry.extensionDecoder(((ExtensionType) this.parameter.getType()).getExternal()).decode(this.definition, this.parameter, locateIfNeeded(parent), ctx.decoder);
+            } else if (this.staticReader != null) {
+                value = read(ctx, this.staticReader);
+            } else {
+                PathLocation loc = locateIfNeeded(parent);
+                FixedType effectiveType = deriveEffectiveType(ctx, loc);
+                value = read(ctx, IValueReader.of(effectiveType.getType(), effectiveType.getLength(), this.id));
+            }
+            // The generation time is only reported for linked parameters
+            if (this.parameter.getLinkedParameter() != null) {
+                mapLinkedParameter(ctx, value, computeGenerationTime(ctx, value));
+            }
+            ctx.record(this.slot, value);
+        }
+
+        private void streamPrimitive(Context ctx) throws DecodingException {
+            int initialPosition = ctx.decoder.getCurrentBitIndex();
+            switch (this.primitiveKind) {
+                case PRIMITIVE_BOOLEAN: {
+                    boolean value = ctx.decoder.getNextBoolean();
+                    pad(ctx, initialPosition);
+                    ParameterDefinition pd = resolveLinkedParameter(ctx);
+                    if (pd != null) {
+                        ctx.sink.onBoolean(pd.getId(), pd.getExternalId(), value, null);
+                    }
+                }
+                break;
+                case PRIMITIVE_ENUMERATED:
+                case PRIMITIVE_UNSIGNED:
+                case PRIMITIVE_SIGNED: {
+                    long value;
+                    if (this.primitiveKind == PRIMITIVE_ENUMERATED) {
+                        value = ctx.decoder.getNextIntegerUnsigned(this.staticLength);
+                    } else if (this.primitiveKind == PRIMITIVE_UNSIGNED) {
+                        value = ctx.decoder.getNextLongUnsigned(this.staticLength);
+                    } else {
+                        value = ctx.decoder.getNextLongSigned(this.staticLength);
+                    }
+                    pad(ctx, initialPosition);
+                    ParameterDefinition pd = resolveLinkedParameter(ctx);
+                    if (pd != null) {
+                        ctx.sink.onLong(pd.getId(), pd.getExternalId(), value, null);
+                    }
+                }
+                break;
+                default: {
+                    double value;
+                    if (this.staticLength == 1) {
+                        value = ctx.decoder.getNextFloat();
+                    } else if (this.staticLength == 2) {
+                        value = ctx.decoder.getNextDouble();
+                    } else if (this.staticLength == 3) {
+                        value = ctx.decoder.getNextMil32Real();
+                    } else {
+                        value = ctx.decoder.getNextMil48Real();
+                    }
+                    pad(ctx, initialPosition);
+                    ParameterDefinition pd = resolveLinkedParameter(ctx);
+                    if (pd != null) {
+                        ctx.sink.onDouble(pd.getId(), pd.getExternalId(), value, null);
+                    }
+                }
+                break;
+            }
+        }
+
+        private Object read(Context ctx, IValueReader reader) throws DecodingException {
+            int initialPosition = ctx.decoder.getCurrentBitIndex();
+            Object value = reader.read(ctx.decoder, ctx.agencyEpoch);
+            pad(ctx, initialPosition);
+            return value;
+        }
+
+        private void pad(Context ctx, int initialPosition) {
+            if (this.paddedWidth != null) {
+                int readBits = ctx.decoder.getCurrentBitIndex() - initialPosition;
+                if (readBits < this.paddedWidth) {
+                    ctx.decoder.addCurrentBitIndex(this.paddedWidth - readBits);
+                }
+            }
+        }
+
+        private Instant computeGenerationTime(Context ctx, Object value) {
+            if (ctx.timeProcessor == null) {
+                return null;
+            }
+            Instant absTime = null;
+            Duration relDuration = null;
+            Integer offsetMs = null;
+            if (this.hasTime) {
+                offsetMs = this.timeOffset;
+                Object absTimeVal = ctx.value(this.absoluteTimeSlot);
+                if (absTimeVal instanceof Instant) {
+                    absTime = (Instant) absTimeVal;
+                }
+                Object relTimeVal = ctx.value(this.relativeTimeSlot);
+                if (relTimeVal instanceof Duration) {
+                    relDuration = (Duration) relTimeVal;
+                }
+            }
+            if (ctx.timeProcessor.isEpochNanosSupported()) {
+                try {
+                    long genTime = ctx.timeProcessor.computeGenerationTimeNanos(this.parameter, value,
+                            absTime == null ? IGenerationTimeProcessor.NO_TIME : TimeCodec.toEpochNanos(absTime),
+                            relDuration == null ? IGenerationTimeProcessor.NO_TIME : relDuration.toNanos(),
+                            offsetMs);
+                    return genTime == IGenerationTimeProcessor.NO_TIME ? null : TimeCodec.toInstant(genTime);
+                } catch (ArithmeticException e) {
+                    // Times not representable as nanoseconds since 1st Jan 1970: use the Instant based computation
+                }
+            }
+            return ctx.timeProcessor.computeGenerationTime(this.parameter, value, absTime, relDuration, offsetMs);
+        }
+
+        private void mapLinkedParameter(Context ctx, Object value, Instant genTime) throws DecodingException {
+            ParameterDefinition pd = resolveLinkedParameter(ctx);
+            if (pd != null) {
+                ctx.addParameter(pd, value, genTime);
+            }
+        }
+
+        private ParameterDefinition resolveLinkedParameter(Context ctx) throws DecodingException {
+            AbstractLinkedParameter linkedParameter = this.parameter.getLinkedParameter();
+            if (linkedParameter instanceof FixedLinkedParameter) {
+                return ((FixedLinkedParameter) linkedParameter).getParameter();
+            } else if (linkedParameter instanceof ReferenceLinkedParameter) {
+                String refItem = ((ReferenceLinkedParameter) linkedParameter).getReference();
+                Object linkedParamValue = ctx.value(this.linkedParameterSlot);
+                if (linkedParamValue == null) {
+                    throw new DecodingException(String.format("No encoded item %s used as reference for linked parameter for %s, null value", refItem, this.id));
+                }
+                if (!(linkedParamValue instanceof Number)) {
+                    throw new DecodingException(String.format("Encoded item %s value used as reference for linked parameter for %s, is not a number", refItem, this.id));
+                }
+                return retrieveParameterDefinitionByExternalId(this.indexer, ((Number) linkedParamValue).intValue());
+            } else {
+                return null;
+            }
+        }
+
+        private FixedType deriveEffectiveType(Context ctx, PathLocation loc) throws DecodingException {
+            AbstractEncodedType type = this.parameter.getType();
+            AbstractEncodedLength length = this.parameter.getLength();
+            DataTypeEnum dataTypeEnum;
+            int dataLength;
+            if (type instanceof FixedType) {
+                // Only a non-fixed length can get here
+                dataTypeEnum = ((FixedType) type).getType();
+                dataLength = deriveLength(ctx, loc, dataTypeEnum, length);
+            } else if (type instanceof ReferenceType) {
+                String refItem = ((ReferenceType) type).getReference();
+                Object value = ctx.value(this.typeSlot);
+                if (value == null) {
+                    throw new DecodingException(String.format("No encoded item %s used as reference for type of %s", refItem, this.id));
+                }
+                if (!(value instanceof Number)) {
+                    throw new DecodingException(String.format("Encoded item %s used as reference for type of %s is not a number", refItem, this.id));
+                }
+                dataTypeEnum = DataTypeEnum.fromCode(((Number) value).intValue());
+                if (length != null) {
+                    dataLength = deriveLength(ctx, loc, dataTypeEnum, length);
+                } else {
+                    throw new DecodingException(String.format("Encoded item %s use reference for type but there is no indication for length", this.id));
+                }
+            } else {
+                String refItem = ((ParameterType) type).getReference();
+                Object value = ctx.value(this.typeSlot);
+                if (value == null) {
+                    throw new DecodingException(String.format("No encoded item %s used as parameter reference for type of %s", refItem, this.id));
+                }
+                if (value instanceof Number) {
+                    ParameterDefinition pd = retrieveParameterDefinitionByExternalId(this.indexer, ((Number) value).intValue());
+                    dataTypeEnum = pd.getType().getType();
+                    // If there is a length, the PFC is overwritten
+                    if (length != null) {
+                        dataLength = deriveLength(ctx, loc, dataTypeEnum, length);
+                    } else {
+                        dataLength = pd.getType().getLength();
+                    }
+                } else {
+                    dataTypeEnum = ExtensionRegistry.typeMapper().mapType(this.parameter, loc, value);
+                    if (length != null) {
+                        dataLength = deriveLength(ctx, loc, dataTypeEnum, length);
+                    } else {
+                        throw new DecodingException(String.format("No length specified for encoded parameter %s even if type references a parameter, whose referenced value is not an external ID", this.id));
+                    }
+                }
+            }
+            return new FixedType(dataTypeEnum, dataLength);
+        }
+
+        private int deriveLength(Context ctx, PathLocation loc, DataTypeEnum dataType, AbstractEncodedLength length) throws DecodingException {
+            if (length instanceof FixedLength) {
+                return ((FixedLength) length).getLength();
+            } else if (length instanceof ReferenceLength) {
+                String refItem = ((ReferenceLength) length).getReference();
+                Object value = ctx.value(this.lengthSlot);
+                if (value == null) {
+                    throw new DecodingException(String.format("No encoded item %s used as reference for length, null value", refItem));
+                }
+                if (!(value instanceof Number)) {
+                    throw new DecodingException(String.format("Encoded item %s value used as reference for length is not a number", refItem));
+                }
+                return ((Number) value).intValue();
+            } else {
+                String refItem = ((ParameterLength) length).getReference();
+                Object value = ctx.value(this.lengthSlot);
+                if (value == null) {
+                    throw new DecodingException(String.format("No encoded item %s used as parameter reference for length, null value", refItem));
+                }
+                if (value instanceof Number) {
+                    return retrieveParameterDefinitionByExternalId(this.indexer, ((Number) value).intValue()).getType().getLength();
+                } else {
+                    return ExtensionRegistry.lengthMapper().mapLength(this.parameter, loc, dataType, value);
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------
+    // Compilation
+    // ---------------------------------------------------------------------------------------------------------
+
+    private static final class Compiler {
+
+        private final PacketDefinitionIndexer indexer;
+        private final PacketDefinition definition;
+        // Number of occurrences of each encoded item ID in the definition
+        private final Map<String, Integer> occurrences = new HashMap<>();
+        // Slot of each encoded item ID referenced by other encoded items
+        private final Map<String, Integer> slots = new HashMap<>();
+        // End position of the encoded items appearing once outside arrays, if it does not depend on the packet contents
+        private final Map<String, Integer> staticEndPositions = new HashMap<>();
+
+        private int arrayDepth = 0;
+        private int position = 0;
+
+        private Compiler(PacketDefinitionIndexer indexer, PacketDefinition definition) {
+            this.indexer = indexer;
+            this.definition = definition;
+        }
+
+        private PacketDecodePlan compile() throws DecodingException {
+            List<AbstractEncodedItem> items = this.definition.getStructure().getEncodedItems();
+            scan(items);
+            PathLocation root = PathLocation.of(this.definition.getId());
+            Operation[] operations = new Operation[items.size()];
+            for (int i = 0; i < operations.length; ++i) {
+                operations[i] = compileItem(items.get(i), root, "Structural type %s not supported");
+            }
+            // As per DecodeWalker, the result contains for each top level item the last decoded item with the same ID
+            int[] resultOperations = new int[operations.length];
+            for (int i = 0; i < operations.length; ++i) {
+                resultOperations[i] = i;
+                for (int j = operations.length - 1; j > i; --j) {
+                    if (operations[j].id.equals(operations[i].id)) {
+                        resultOperations[i] = j;
+                        break;
+                    }
+                }
+            }
+            return new PacketDecodePlan(this.definition, operations, resultOperations, this.slots.size());
+        }
+
+        // Collect the occurrences of the encoded items and assign a slot to each referenced encoded item
+        private void scan(List<AbstractEncodedItem> items) {
+            for (AbstractEncodedItem ei : items) {
+                this.occurrences.merge(ei.getId(), 1, Integer::sum);
+                if (ei.getLocation() instanceof EncodedItemRelativeLocation) {
+                    reference(((EncodedItemRelativeLocation) ei.getLocation()).getReference());
+                }
+                if (ei instanceof EncodedParameter) {
+                    EncodedParameter ep = (EncodedParameter) ei;
+                    if (ep.getType() instanceof ReferenceType) {
+                        reference(((ReferenceType) ep.getType()).getReference());
+                    } else if (ep.getType() instanceof ParameterType) {
+                        reference(((ParameterType) ep.getType()).getReference());
+                    }
+                    if (ep.getLength() instanceof ReferenceLength) {
+                        reference(((ReferenceLength) ep.getLength()).getReference());
+                    } else if (ep.getLength() instanceof ParameterLength) {
+                        reference(((ParameterLength) ep.getLength()).getReference());
+                    }
+                    if (ep.getLinkedParameter() instanceof ReferenceLinkedParameter) {
+                        reference(((ReferenceLinkedParameter) ep.getLinkedParameter()).getReference());
+                    }
+                    if (ep.getTime() != null) {
+                        reference(ep.getTime().getAbsoluteTimeReference());
+                        reference(ep.getTime().getRelativeTimeReference());
+                    }
+                } else if (ei instanceof EncodedArray) {
+                    if (((EncodedArray) ei).getSize() instanceof ReferenceArraySize) {
+                        reference(((ReferenceArraySize) ((EncodedArray) ei).getSize()).getReference());
+                    }
+                    scan(((EncodedArray) ei).getEncodedItems());
+                } else if (ei instanceof EncodedStructure) {
+                    scan(((EncodedStructure) ei).getEncodedItems());
+                }
+            }
+        }
+
+        private void reference(String id) {
+            if (id != null && !id.isEmpty()) {
+                this.slots.putIfAbsent(id, this.slots.size());
+            }
+        }
+
+        private int slotOf(String id) {
+            if (id == null || id.isEmpty()) {
+                return NO_SLOT;
+            }
+            return this.slots.getOrDefault(id, NO_SLOT);
+        }
+
+        private Operation compileItem(AbstractEncodedItem ei, PathLocation parent, String unsupportedMessage) throws DecodingException {
+            if (ei instanceof EncodedParameter) {
+                return compileParameter((EncodedParameter) ei, parent);
+            } else if (ei instanceof EncodedArray) {
+                return compileArray((EncodedArray) ei, parent);
+            } else if (ei instanceof EncodedStructure) {
+                return compileStructure((EncodedStructure) ei, parent);
+            } else {
+                throw new DecodingException(String.format(unsupportedMessage, ei.getClass().getSimpleName()));
+            }
+        }
+
+        private PathLocation location(AbstractEncodedItem ei, PathLocation parent) {
+            // Inside arrays, the location depends on the array index and it is computed during the decoding
+            return parent == null ? null : parent.append(ei.getId());
+        }
+
+        private StructureOperation compileStructure(EncodedStructure es, PathLocation parent) throws DecodingException {
+            PathLocation loc = location(es, parent);
+            Move move = compileMove(es.getLocation());
+            List<AbstractEncodedItem> items = es.getEncodedItems();
+            Operation[] children = new Operation[items.size()];
+            for (int i = 0; i < children.length; ++i) {
+                children[i] = compileItem(items.get(i), loc, "Inner structural type %s not supported");
+            }
+            recordStaticEnd(es.getId());
+            return new StructureOperation(es.getId(), slotOf(es.getId()), loc, move, children);
+        }
+
+        private ArrayOperation compileArray(EncodedArray ea, PathLocation parent) throws DecodingException {
+            PathLocation loc = location(ea, parent);
+            Move move = compileMove(ea.getLocation());
+            AbstractArraySize size = ea.getSize();
+            int fixedSize = 0;
+            String sizeReference = null;
+            if (size instanceof FixedArraySize) {
+                fixedSize = ((FixedArraySize) size).getLength();
+            } else if (size instanceof ReferenceArraySize) {
+                sizeReference = ((ReferenceArraySize) size).getReference();
+            } else {
+                throw new DecodingException(String.format("No array size type recognized for %s: %s", ea.getId(), size == null ? null : size.getClass().getSimpleName()));
+            }
+            // The position of the array items depends on the array index
+            ++this.arrayDepth;
+            this.position = UNKNOWN_POSITION;
+            List<AbstractEncodedItem> items = ea.getEncodedItems();
+            Operation[] children = new Operation[items.size()];
+            for (int i = 0; i < children.length; ++i) {
+                children[i] = compileItem(items.get(i), null, "Array inner type %s not supported");
+            }
+            --this.arrayDepth;
+            this.position = UNKNOWN_POSITION;
+            return new ArrayOperation(ea.getId(), slotOf(ea.getId()), loc, move, children, fixedSize, slotOf(sizeReference), sizeReference);
+        }
+
+        private ParameterOperation compileParameter(EncodedParameter ep, PathLocation parent) throws DecodingException {
+            PathLocation loc = location(ep, parent);
+            Move move = compileMove(ep.getLocation());
+            AbstractEncodedType type = ep.getType();
+            AbstractEncodedLength length = ep.getLength();
+            DataTypeEnum staticType = null;
+            int staticLength = 0;
+            int typeSlot = NO_SLOT;
+            if (type instanceof FixedType) {
+                if (length == null || length instanceof FixedLength) {
+                    staticType = ((FixedType) type).getType();
+                    staticLength = length == null ? ((FixedType) type).getLength() : ((FixedLength) length).getLength();
+                }
+            } else if (type instanceof ReferenceType) {
+                typeSlot = slotOf(((ReferenceType) type).getReference());
+            } else if (type instanceof ParameterType) {
+                typeSlot = slotOf(((ParameterType) type).getReference());
+            } else if (!(type instanceof ExtensionType)) {
+                throw new DecodingException(String.format("Type class of type %s not supported", type == null ? null : type.getClass().getSimpleName()));
+            }
+            int lengthSlot = NO_SLOT;
+            if (length instanceof ReferenceLength) {
+                lengthSlot = slotOf(((ReferenceLength) length).getReference());
+            } else if (length instanceof ParameterLength) {
+                lengthSlot = slotOf(((ParameterLength) length).getReference());
+            } else if (length != null && !(length instanceof FixedLength)) {
+                throw new DecodingException(String.format("Length class of type %s not supported", length.getClass().getSimpleName()));
+            }
+            int linkedParameterSlot = NO_SLOT;
+            if (ep.getLinkedParameter() instanceof ReferenceLinkedParameter) {
+                linkedParameterSlot = slotOf(((ReferenceLinkedParameter) ep.getLinkedParameter()).getReference());
+            }
+            int absoluteTimeSlot = NO_SLOT;
+            int relativeTimeSlot = NO_SLOT;
+            if (ep.getTime() != null) {
+                absoluteTimeSlot = slotOf(ep.getTime().getAbsoluteTimeReference());
+                relativeTimeSlot = slotOf(ep.getTime().getRelativeTimeReference());
+            }
+            // Track the position after the parameter
+            int bitLength = staticType != null ? IValueReader.bitLength(staticType, staticLength) : -1;
+            if (bitLength < 0 || this.position == UNKNOWN_POSITION) {
+                this.position = UNKNOWN_POSITION;
+            } else {
+                this.position += ep.getPaddedWidth() != null ? Math.max(bitLength, ep.getPaddedWidth()) : bitLength;
+            }
+            recordStaticEnd(ep.getId());
+            return new ParameterOperation(this.indexer, this.definition, ep, slotOf(ep.getId()), loc, move, staticType, staticLength,
+                    typeSlot, lengthSlot, absoluteTimeSlot, relativeTimeSlot, linkedParameterSlot);
+        }
+
+        private void recordStaticEnd(String id) {
+            if (this.arrayDepth == 0 && this.position != UNKNOWN_POSITION && this.occurrences.get(id) == 1) {
+                this.staticEndPositions.put(id, this.position);
+            }
+        }
+
+        private Move compileMove(AbstractEncodedLocation location) throws DecodingException {
+            if (location == null) {
+                return null;
+            }
+            if (location instanceof FixedAbsoluteLocation) {
+                return absoluteMove(((FixedAbsoluteLocation) location).getAbsoluteLocation());
+            } else if (location instanceof EncodedItemRelativeLocation) {
+                EncodedItemRelativeLocation eirl = (EncodedItemRelativeLocation) location;
+                String reference = eirl.getReference();
+                int bitOffset = eirl.getBitOffset();
+                int bitAlignment = eirl.getBitAlignment();
+                Integer referenceEnd = this.staticEndPositions.get(reference);
+                if (referenceEnd != null) {
+                    return absoluteMove(align(referenceEnd + bitOffset, bitAlignment));
+                }
+                this.position = UNKNOWN_POSITION;
+                int slot = slotOf(reference);
+                return ctx -> {
+                    int bitIndex = ctx.endPositions[slot];
+                    if (bitIndex == UNKNOWN_POSITION) {
+                        throw new DecodingException(String.format("No encoded item %s used as reference for location", reference));
+                    }
+                    ctx.decoder.setCurrentBitIndex(align(bitIndex + bitOffset, bitAlignment));
+                };
+            } else if (location instanceof LastRelativeLocation) {
+                LastRelativeLocation lrl = (LastRelativeLocation) location;
+                int bitOffset = lrl.getBitOffset();
+                int bitAlignment = lrl.getBitAlignment();
+                if (this.position != UNKNOWN_POSITION) {
+                    return absoluteMove(align(this.position + bitOffset, bitAlignment));
+                }
+                return ctx -> ctx.decoder.setCurrentBitIndex(align(ctx.decoder.getCurrentBitIndex() + bitOffset, bitAlignment));
+            } else {
+                throw new DecodingException(String.format("Location class of type %s not supported", location.getClass().getSimpleName()));
+            }
+        }
+
+        private Move absoluteMove(int bitIndex) {
+            this.position = bitIndex;
+            return ctx -> ctx.decoder.setCurrentBitIndex(bitIndex);
+        }
+    }
+}
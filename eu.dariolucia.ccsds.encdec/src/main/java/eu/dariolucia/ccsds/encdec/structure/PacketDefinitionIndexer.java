@@ -16,15 +16,23 @@
 
 package eu.dariolucia.ccsds.encdec.structure;
 
+import eu.dariolucia.ccsds.encdec.definition.DataTypeEnum;
 import eu.dariolucia.ccsds.encdec.definition.Definition;
+import eu.dariolucia.ccsds.encdec.definition.DefinitionSnapshot;
 import eu.dariolucia.ccsds.encdec.definition.PacketDefinition;
+import eu.dariolucia.ccsds.encdec.definition.ParameterDefinition;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.*;
 
 /**
- * This class is a simple indexer (map) for all {@link PacketDefinition} defined inside a {@link Definition} object.
+ * This class is an indexer for all {@link PacketDefinition} and {@link ParameterDefinition} defined inside a
+ * {@link Definition} object. The indexes (by packet ID, parameter ID, parameter external ID and type) are built once
+ * at construction time: changes to the {@link Definition} object performed afterwards are not reflected.
+ *
+ * An indexer can also be built from a {@link DefinitionSnapshot}: in this case, the packet definitions are looked up
+ * in the snapshot and materialised on first retrieval, instead of being indexed at construction time.
+ *
+ * An indexer can be shared by encoders and decoders, also concurrently.
  */
 public class PacketDefinitionIndexer {
 
@@ -32,22 +40,66 @@ public class PacketDefinitionIndexer {
 
     private final Definition definitions;
 
+    // Null if the indexer was not built from a snapshot
+    private final DefinitionSnapshot snapshot;
+
+    // Null if the indexer was built from a snapshot
     private final Map<String, PacketDefinition> index;
 
+    private final Map<String, ParameterDefinition> parameterIndex = new HashMap<>();
+
+    private final ExternalIdIndex externalIdIndex;
+
+    private final Map<String, List<PacketDefinition>> packetTypeIndex = new HashMap<>();
+
+    private final Map<DataTypeEnum, List<ParameterDefinition>> parameterTypeIndex = new EnumMap<>(DataTypeEnum.class);
+
     /**
      * Construct an index based on the provided {@link Definition} object.
      *
      * @param definitions the definitions to be indexed
      */
     public PacketDefinitionIndexer(Definition definitions) {
+        this(definitions, null);
+    }
+
+    /**
+     * Construct an index based on the provided {@link DefinitionSnapshot}. The packet definitions are retrieved from the
+     * snapshot, which materialises them on first access.
+     *
+     * @param snapshot the snapshot of the definitions to be indexed
+     */
+    public PacketDefinitionIndexer(DefinitionSnapshot snapshot) {
+        this(snapshot.getDefinition(), snapshot);
+    }
+
+    private PacketDefinitionIndexer(Definition definitions, DefinitionSnapshot snapshot) {
         this.definitions = definitions;
-        if(definitions.getPacketDefinitions().size() > TREE_MAP_THRESHOLD) {
-            index = new HashMap<>();
+        this.snapshot = snapshot;
+        if(snapshot != null) {
+            index = null;
         } else {
-            index = new TreeMap<>();
+            if(definitions.getPacketDefinitions().size() > TREE_MAP_THRESHOLD) {
+                index = new HashMap<>();
+            } else {
+                index = new TreeMap<>();
+            }
+            for(PacketDefinition pd : this.definitions.getPacketDefinitions()) {
+                index.put(pd.getId(), pd);
+                packetTypeIndex.computeIfAbsent(pd.getType(), k -> new ArrayList<>()).add(pd);
+            }
         }
-        for(PacketDefinition pd : this.definitions.getPacketDefinitions()) {
-            index.put(pd.getId(), pd);
+        List<ParameterDefinition> parameters = this.definitions.getParameters();
+        externalIdIndex = new ExternalIdIndex(parameters.size());
+        for(ParameterDefinition pd : parameters) {
+            // In case of duplicates, the first definition is indexed, as done by a sequential search
+            parameterIndex.putIfAbsent(pd.getId(), pd);
+            if(pd.getExternalId() != ParameterDefinition.EXTERNAL_ID_NOT_SET && pd.getExternalId() == (int) pd.getExternalId()) {
+                externalIdIndex.putIfAbsent((int) pd.getExternalId(), pd);
+            }
+            if(pd.getType() != null) {
+                parameterTypeIndex.computeIfAbsent(pd.getType().getType(), k -> new ArrayList<>()).add(pd);
+            }
         }
     }
 
@@ -68,6 +120,99 @@ public class PacketDefinitionIndexer {
      * @return the {@link PacketDefinition} by ID or null if not present
      */
     public PacketDefinition retrieveDefinition(String packetDefinitionId) {
+        if(this.snapshot != null) {
+            return this.snapshot.getPacketDefinition(packetDefinitionId);
+        }
         return this.index.get(packetDefinitionId);
     }
+
+    /**
+     * This method returns the {@link PacketDefinition} objects having the provided type.
+     *
+     * @param type the packet type, can be null
+     * @return the (unmodifiable) list of packet definitions having the provided type, in definition order
+     */
+    public List<PacketDefinition> retrieveDefinitionsByType(String type) {
+        if(this.snapshot != null) {
+            return this.snapshot.getPacketDefinitionsByType(type);
+        }
+        return Collections.unmodifiableList(this.packetTypeIndex.getOrDefault(type, Collections.emptyList()));
+    }
+
+    /**
+     * This method returns the {@link ParameterDefinition} having the provided ID.
+     *
+     * @param parameterId the parameter ID
+     * @return the {@link ParameterDefinition} by ID or null if not present
+     */
+    public ParameterDefinition retrieveParameter(String parameterId) {
+        return this.parameterIndex.get(parameterId);
+    }
+
+    /**
+     * This method returns the {@link ParameterDefinition} having the provided external ID.
+     *
+     * @param externalId the parameter external ID
+     * @return the {@link ParameterDefinition} by external ID or null if not present
+     */
+    public ParameterDefinition retrieveParameterByExternalId(int externalId) {
+        return this.externalIdIndex.get(externalId);
+    }
+
+    /**
+     * This method returns the {@link ParameterDefinition} objects having the provided data type.
+     *
+     * @param type the data type
+     * @return the (unmodifiable) list of parameter definitions having the provided data type, in definition order
+     */
+    public List<ParameterDefinition> retrieveParametersByType(DataTypeEnum type) {
+        return Collections.unmodifiableList(this.parameterTypeIndex.getOrDefault(type, Collections.emptyList()));
+    }
+
+    /**
+     * Open addressing hash table from int external ID to {@link ParameterDefinition}, with linear probing.
+     */
+    private static final class ExternalIdIndex {
+
+        private final int[] keys;
+        private final ParameterDefinition[] values;
+        private final int mask;
+
+        private ExternalIdIndex(int expectedSize) {
+            // Load factor not above 0.5
+            int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+            this.keys = new int[capacity];
+            this.values = new ParameterDefinition[capacity];
+            this.mask = capacity - 1;
+        }
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private void putIfAbsent(int key, ParameterDefinition value) {
+            int idx = hash(key) & this.mask;
+            while(this.values[idx] != null) {
+                if(this.keys[idx] == key) {
+                    return;
+                }
+                idx = (idx + 1) & this.mask;
+            }
+            this.keys[idx] = key;
+            this.values[idx] = value;
+        }
+
+        private ParameterDefinition get(int key) {
+            int idx = hash(key) & this.mask;
+            ParameterDefinition value;
+            while((value = this.values[idx]) != null) {
+                if(this.keys[idx] == key) {
+                    return value;
+                }
+                idx = (idx + 1) & this.mask;
+            }
+            return null;
+        }
+    }
 }
@@ -0,0 +1,618 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure;
+
+import eu.dariolucia.ccsds.encdec.bit.BitEncoderDecoder;
+import eu.dariolucia.ccsds.encdec.definition.*;
+import eu.dariolucia.ccsds.encdec.value.BitString;
+import eu.dariolucia.ccsds.encdec.value.MilUtil;
+import eu.dariolucia.ccsds.encdec.value.TimeUtil;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * A {@link PacketDefinition} compiled into a reusable encode plan, for definitions whose layout does not depend on the
+ * encoded values: encoded items are parameters, structures and arrays with {@link FixedArraySize}, parameters have a
+ * {@link FixedType} with a fixed bit length (no explicit time formats, no zero-length strings) and no extension type.
+ * All the location types are supported, since the position of each parameter can be computed at compilation time.
+ *
+ * Each encoded parameter (each element, for arrays) is assigned a slot, in encoding order. The values to encode are
+ * provided in an {@link EncodeValueBuffer}, and the packet is written directly into a caller-provided byte[] or
+ * {@link ByteBuffer}. Booleans, enumerations, integers and reals are written with precomputed byte index and shift,
+ * without allocations; the other values are written through a {@link BitEncoderDecoder} on the caller array.
+ *
+ * The encoded packet is byte-identical to the one produced by the {@link eu.dariolucia.ccsds.encdec.structure.impl.DefaultPacketEncoder}
+ * with the same values. A plan reflects the packet definition at compilation time: if the definition is modified, the
+ * plan must be compiled again. Plans are immutable and can be used concurrently, with different value buffers.
+ */
+public final class PacketEncodePlan {
+
+    private static final int NOT_PRIMITIVE = 0;
+    private static final int PRIMITIVE_BOOLEAN = 1;
+    private static final int PRIMITIVE_ENUMERATED = 2;
+    private static final int PRIMITIVE_UNSIGNED = 3;
+    private static final int PRIMITIVE_SIGNED = 4;
+    private static final int PRIMITIVE_REAL = 5;
+
+    /**
+     * This method checks whether the provided packet definition can be compiled into a {@link PacketEncodePlan}.
+     *
+     * @param definition the packet definition
+     * @return true if the packet definition can be compiled, otherwise false
+     */
+    public static boolean isCompilable(PacketDefinition definition) {
+        return unsupportedItem(definition.getStructure().getEncodedItems()) == null;
+    }
+
+    /**
+     * Compile the provided packet definition into an encode plan.
+     *
+     * @param definition the packet definition
+     * @return the encode plan
+     * @throws EncodingException if the packet definition cannot be compiled
+     */
+    public static PacketEncodePlan compile(PacketDefinition definition) throws EncodingException {
+        String unsupported = unsupportedItem(definition.getStructure().getEncodedItems());
+        if (unsupported != null) {
+            throw new EncodingException(String.format("Packet definition %s cannot be compiled into an encode plan: %s", definition.getId(), unsupported));
+        }
+        return new Compiler(definition).compile();
+    }
+
+    // Return a description of the first item preventing the compilation, or null if all the items are supported
+    private static String unsupportedItem(List<AbstractEncodedItem> items) {
+        for (AbstractEncodedItem ei : items) {
+            String unsupported;
+            if (ei instanceof EncodedParameter) {
+                unsupported = unsupportedParameter((EncodedParameter) ei);
+            } else if (ei instanceof EncodedArray) {
+                EncodedArray ea = (EncodedArray) ei;
+                unsupported = ea.getSize() instanceof FixedArraySize ? unsupportedItem(ea.getEncodedItems()) : String.format("array size of %s is not fixed", ea.getId());
+            } else if (ei instanceof EncodedStructure) {
+                unsupported = unsupportedItem(((EncodedStructure) ei).getEncodedItems());
+            } else {
+                unsupported = String.format("structural type %s not supported", ei.getClass().getSimpleName());
+            }
+            if (unsupported != null) {
+                return unsupported;
+            }
+        }
+        return null;
+    }
+
+    private static String unsupportedParameter(EncodedParameter ep) {
+        if (!(ep.getType() instanceof FixedType)) {
+            return String.format("type of %s is not fixed", ep.getId());
+        } else if (ep.getLength() != null && !(ep.getLength() instanceof FixedLength)) {
+            return String.format("length of %s is not fixed", ep.getId());
+        } else if (IValueReader.bitLength(((FixedType) ep.getType()).getType(), fixedLength(ep)) <= 0) {
+            return String.format("bit length of %s is not fixed", ep.getId());
+        } else {
+            return null;
+        }
+    }
+
+    private static int fixedLength(EncodedParameter ep) {
+        return ep.getLength() != null ? ((FixedLength) ep.getLength()).getLength() : ((FixedType) ep.getType()).getLength();
+    }
+
+    private static int align(int bitIndex, int bitAlignment) {
+        if (bitAlignment > 1) {
+            int modRes = bitIndex % bitAlignment;
+            if (modRes != 0) {
+                bitIndex += (bitAlignment - modRes);
+            }
+        }
+        return bitIndex;
+    }
+
+    private final PacketDefinition definition;
+
+    private final Field[] fields;
+
+    // Number of bytes of the encoded packet
+    private final int encodedLength;
+
+    private PacketEncodePlan(PacketDefinition definition, Field[] fields, int encodedLength) {
+        this.definition = definition;
+        this.fields = fields;
+        this.encodedLength = encodedLength;
+    }
+
+    /**
+     * This method returns the packet definition of this plan.
+     *
+     * @return the packet definition
+     */
+    public PacketDefinition getDefinition() {
+        return definition;
+    }
+
+    /**
+     * This method returns the length in bytes of the packets encoded by this plan.
+     *
+     * @return the encoded packet length in bytes
+     */
+    public int getEncodedLength() {
+        return encodedLength;
+    }
+
+    /**
+     * This method returns the number of slots (encoded parameters) of the plan, in encoding order.
+     *
+     * @return the number of slots
+     */
+    public int getSlotCount() {
+        return this.fields.length;
+    }
+
+    /**
+     * This method returns the last slot having the provided location.
+     *
+     * @param location the location of the encoded parameter
+     * @return the slot, or -1 if there is no such slot
+     */
+    public int getSlot(PathLocation location) {
+        for (int i = this.fields.length - 1; i >= 0; --i) {
+            if (this.fields[i].location.equals(location)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * This method returns the location of the provided slot.
+     *
+     * @param slot the slot
+     * @return the location of the encoded parameter
+     */
+    public PathLocation getSlotLocation(int slot) {
+        return this.fields[slot].location;
+    }
+
+    /**
+     * This method returns the encoded parameter of the provided slot.
+     *
+     * @param slot the slot
+     * @return the encoded parameter
+     */
+    public EncodedParameter getSlotParameter(int slot) {
+        return this.fields[slot].parameter;
+    }
+
+    /**
+     * This method returns the data type of the provided slot.
+     *
+     * @param slot the slot
+     * @return the data type
+     */
+    public DataTypeEnum getSlotType(int slot) {
+        return this.fields[slot].type;
+    }
+
+    /**
+     * This method creates a new value buffer, with one entry for each slot of this plan.
+     *
+     * @return the value buffer
+     */
+    public EncodeValueBuffer newValueBuffer() {
+        return new EncodeValueBuffer(this.fields.length);
+    }
+
+    /**
+     * Fill the provided value buffer with the values retrieved from the provided resolver, which is invoked as by the
+     * {@link eu.dariolucia.ccsds.encdec.structure.impl.DefaultPacketEncoder}. The resolver packet encoding start and
+     * end notifications are not invoked.
+     *
+     * @param resolver the resolver
+     * @param values the buffer to fill
+     * @throws EncodingException in case of problems when resolving the values
+     */
+    public void fill(IEncodeResolver resolver, EncodeValueBuffer values) throws EncodingException {
+        checkValues(values);
+        for (Field field : this.fields) {
+            field.resolve(resolver, values);
+        }
+    }
+
+    /**
+     * Encode the provided values into a new byte[].
+     *
+     * @param values the values to encode
+     * @param agencyEpoch the agency epoch, can be null
+     * @return the encoded packet
+     * @throws EncodingException in case of problems when encoding the packet
+     */
+    public byte[] encode(EncodeValueBuffer values, Instant agencyEpoch) throws EncodingException {
+        byte[] data = new byte[this.encodedLength];
+        encode(values, data, 0, agencyEpoch);
+        return data;
+    }
+
+    /**
+     * Encode the provided values into the provided byte[], starting at the provided offset. The bytes from offset to
+     * offset + {@link PacketEncodePlan#getEncodedLength()} are overwritten, the others are not modified.
+     *
+     * @param values the values to encode
+     * @param data the array to write
+     * @param offset the offset of the packet in the array
+     * @param agencyEpoch the agency epoch, can be null
+     * @return the number of written bytes, i.e. {@link PacketEncodePlan#getEncodedLength()}
+     * @throws EncodingException in case of problems when encoding the packet or if the array is too short
+     */
+    public int encode(EncodeValueBuffer values, byte[] data, int offset, Instant agencyEpoch) throws EncodingException {
+        checkValues(values);
+        if (offset < 0 || data.length - offset < this.encodedLength) {
+            throw new EncodingException(String.format("Packet definition %s requires %d bytes, but %d bytes are available", this.definition.getId(), this.encodedLength, data.length - offset));
+        }
+        // The fields are OR-ed, as by the BitEncoderDecoder on a new array
+        Arrays.fill(data, offset, offset + this.encodedLength, (byte) 0);
+        BitEncoderDecoder encoder = null;
+        for (Field field : this.fields) {
+            if (field.primitiveKind == NOT_PRIMITIVE || !field.writePrimitive(data, offset, values)) {
+                if (encoder == null) {
+                    encoder = new BitEncoderDecoder(data, offset, this.encodedLength);
+                }
+                encoder.setCurrentBitIndex(field.bitOffset);
+                field.write(encoder, values, agencyEpoch);
+            }
+        }
+        return this.encodedLength;
+    }
+
+    /**
+     * Encode the provided values into the provided buffer, at its current position. The position of the buffer is
+     * advanced by {@link PacketEncodePlan#getEncodedLength()}. If the buffer is not backed by an accessible array
+     * (e.g. direct buffers), the packet is encoded in a temporary array and then copied.
+     *
+     * @param values the values to encode
+     * @param buffer the buffer to write
+     * @param agencyEpoch the agency epoch, can be null
+     * @return the number of written bytes, i.e. {@link PacketEncodePlan#getEncodedLength()}
+     * @throws EncodingException in case of problems when encoding the packet or if the buffer is too short
+     */
+    public int encode(EncodeValueBuffer values, ByteBuffer buffer, Instant agencyEpoch) throws EncodingException {
+        if (buffer.remaining() < this.encodedLength) {
+            throw new EncodingException(String.format("Packet definition %s requires %d bytes, but %d bytes are available", this.definition.getId(), this.encodedLength, buffer.remaining()));
+        }
+        if (buffer.hasArray()) {
+            encode(values, buffer.array(), buffer.arrayOffset() + buffer.position(), agencyEpoch);
+            buffer.position(buffer.position() + this.encodedLength);
+        } else {
+            buffer.put(encode(values, agencyEpoch));
+        }
+        return this.encodedLength;
+    }
+
+    private void checkValues(EncodeValueBuffer values) throws EncodingException {
+        if (values.getSize() < this.fields.length) {
+            throw new EncodingException(String.format("Packet definition %s requires %d value slots, but the buffer has %d slots", this.definition.getId(), this.fields.length, values.getSize()));
+        }
+    }
+
+    private static final class Field {
+        private final int slot;
+        private final PathLocation location;
+        private final EncodedParameter parameter;
+        private final DataTypeEnum type;
+        private final int length;
+        private final int bitOffset;
+        private final int bitLength;
+        // Primitive write: kind, maximum value as per BitEncoderDecoder, first byte, offset of the last byte and bits in it
+        private final int primitiveKind;
+        private final long bitMax;
+        private final int byteIndex;
+        private final int lastByte;
+        private final int bitsInLast;
+
+        private Field(int slot, PathLocation location, EncodedParameter parameter, int bitOffset) {
+            this.slot = slot;
+            this.location = location;
+            this.parameter = parameter;
+            this.type = ((FixedType) parameter.getType()).getType();
+            this.length = fixedLength(parameter);
+            this.bitOffset = bitOffset;
+            this.bitLength = IValueReader.bitLength(this.type, this.length);
+            // Maximum number of bits of the value, as per the BitEncoderDecoder method used by EncodeWalker
+            int maxSize;
+            switch (this.type) {
+                case BOOLEAN:
+                    this.primitiveKind = PRIMITIVE_BOOLEAN;
+                    maxSize = Integer.SIZE - 1;
+                    break;
+                case ENUMERATED:
+                    this.primitiveKind = this.bitLength <= Integer.SIZE ? PRIMITIVE_ENUMERATED : NOT_PRIMITIVE;
+                    maxSize = Integer.SIZE - 1;
+                    break;
+                case UNSIGNED_INTEGER:
+                    this.primitiveKind = this.bitLength <= Long.SIZE ? PRIMITIVE_UNSIGNED : NOT_PRIMITIVE;
+                    maxSize = Long.SIZE - 1;
+                    break;
+                case SIGNED_INTEGER:
+                    this.primitiveKind = this.bitLength <= Long.SIZE ? PRIMITIVE_SIGNED : NOT_PRIMITIVE;
+                    maxSize = Long.SIZE;
+                    break;
+                case REAL:
+                    this.primitiveKind = PRIMITIVE_REAL;
+                    maxSize = this.length == 1 ? Integer.SIZE - 1 : Long.SIZE - 1;
+                    break;
+                default:
+                    this.primitiveKind = NOT_PRIMITIVE;
+                    maxSize = 0;
+                    break;
+            }
+            this.bitMax = (long) Math.pow(2, Math.min(this.bitLength, maxSize));
+            int mod = bitOffset % Byte.SIZE;
+            this.byteIndex = bitOffset / Byte.SIZE;
+            this.lastByte = (mod + this.bitLength - 1) / Byte.SIZE;
+            this.bitsInLast = (mod + this.bitLength) % Byte.SIZE == 0 ? Byte.SIZE : (mod + this.bitLength) % Byte.SIZE;
+        }
+
+        private void resolve(IEncodeResolver resolver, EncodeValueBuffer values) throws EncodingException {
+            switch (this.type) {
+                case BOOLEAN:
+                    values.setBoolean(this.slot, resolver.getBooleanValue(this.parameter, this.location));
+                    break;
+                case ENUMERATED:
+                    values.setLong(this.slot, resolver.getEnumerationValue(this.parameter, this.location));
+                    break;
+                case UNSIGNED_INTEGER:
+                    values.setLong(this.slot, resolver.getUnsignedIntegerValue(this.parameter, this.location));
+                    break;
+                case SIGNED_INTEGER:
+                    values.setLong(this.slot, resolver.getSignedIntegerValue(this.parameter, this.location));
+                    break;
+                case REAL:
+                    values.setDouble(this.slot, resolver.getRealValue(this.parameter, this.location));
+                    break;
+                case BIT_STRING:
+                    values.setObject(this.slot, resolver.getBitStringValue(this.parameter, this.location, this.length));
+                    break;
+                case OCTET_STRING:
+                    values.setObject(this.slot, resolver.getOctetStringValue(this.parameter, this.location, this.length));
+                    break;
+                case CHARACTER_STRING:
+                    values.setObject(this.slot, resolver.getCharacterStringValue(this.parameter, this.location, this.length));
+                    break;
+                case ABSOLUTE_TIME:
+                    values.setObject(this.slot, resolver.getAbsoluteTimeValue(this.parameter, this.location));
+                    break;
+                case RELATIVE_TIME:
+                    values.setObject(this.slot, resolver.getRelativeTimeValue(this.parameter, this.location));
+                    break;
+                default:
+                    throw new EncodingException(String.format("Type %s not supported", this.type));
+            }
+        }
+
+        // The value passed by EncodeWalker to the BitEncoderDecoder
+        private long primitiveValue(EncodeValueBuffer values) {
+            switch (this.primitiveKind) {
+                case PRIMITIVE_BOOLEAN:
+                    return values.getBoolean(this.slot) ? 1 : 0;
+                case PRIMITIVE_ENUMERATED:
+                    return (int) values.getLong(this.slot);
+                case PRIMITIVE_SIGNED:
+                    // As per BitEncoderDecoder.setNextLongSigned
+                    long value = values.getLong(this.slot);
+                    long mask = -1;
+                    mask <<= Long.SIZE - (this.bitLength - 1);
+                    mask >>>= Long.SIZE - (this.bitLength - 1);
+                    long newVal = value & mask;
+                    if (value < 0) {
+                        newVal |= 1L << (this.bitLength - 1);
+                    }
+                    return newVal;
+                case PRIMITIVE_REAL:
+                    double realValue = values.getDouble(this.slot);
+                    switch (this.length) {
+                        case 1:
+                            return Float.floatToIntBits((float) realValue);
+                        case 2:
+                            return Double.doubleToLongBits(realValue);
+                        case 3:
+                            return MilUtil.toMil32Real(realValue);
+                        default:
+                            return MilUtil.toMil48Real(realValue);
+                    }
+                default:
+                    return values.getLong(this.slot);
+            }
+        }
+
+        // Write the value as the word access of the BitEncoderDecoder: return false if the value needs the
+        // BitEncoderDecoder handling of values not fitting in the field
+        private boolean writePrimitive(byte[] data, int offset, EncodeValueBuffer values) {
+            long value = primitiveValue(values);
+            if (value > this.bitMax || (this.bitLength < Long.SIZE && this.bitOffset % Byte.SIZE != 0 && (value >>> this.bitLength) != 0)) {
+                return false;
+            }
+            long bits = this.bitLength == Long.SIZE ? value : value & ((1L << this.bitLength) - 1);
+            int first = offset + this.byteIndex;
+            int idx = first + this.lastByte;
+            data[idx] |= (byte) (bits << (Byte.SIZE - this.bitsInLast));
+            bits >>>= this.bitsInLast;
+            while (--idx >= first) {
+                data[idx] |= (byte) bits;
+                bits >>>= Byte.SIZE;
+            }
+            return true;
+        }
+
+        // Write the value as EncodeWalker
+        private void write(BitEncoderDecoder encoder, EncodeValueBuffer values, Instant agencyEpoch) throws EncodingException {
+            switch (this.type) {
+                case BOOLEAN:
+                    encoder.setNextBoolean(values.getBoolean(this.slot));
+                    break;
+                case ENUMERATED:
+                    encoder.setNextIntegerUnsigned((int) values.getLong(this.slot), this.length);
+                    break;
+                case UNSIGNED_INTEGER:
+                    encoder.setNextLongUnsigned(values.getLong(this.slot), this.length);
+                    break;
+                case SIGNED_INTEGER:
+                    encoder.setNextLongSigned(values.getLong(this.slot), this.length);
+                    break;
+                case REAL:
+                    switch (this.length) {
+                        case 1:
+                            encoder.setNextFloat((float) values.getDouble(this.slot));
+                            break;
+                        case 2:
+                            encoder.setNextDouble(values.getDouble(this.slot));
+                            break;
+                        case 3:
+                            encoder.setNextMil32Real(values.getDouble(this.slot));
+                            break;
+                        default:
+                            encoder.setNextMil48Real(values.getDouble(this.slot));
+                            break;
+                    }
+                    break;
+                case BIT_STRING:
+                    BitString bs = value(values, BitString.class);
+                    if (bs.getLength() != this.length) {
+                        throw new EncodingException(String.format("Resolved bitstring length value %d and PFC code %d for bit string do not match for encoded parameter %s, cannot encode", bs.getLength(), this.length, this.parameter.getId()));
+                    }
+                    encoder.setNextByte(bs.getData(), bs.getLength());
+                    break;
+                case OCTET_STRING:
+                    byte[] os = value(values, byte[].class);
+                    if (os.length != this.length) {
+                        throw new EncodingException(String.format("Resolved octet string length value %d and PFC code %d for octet string do not match for encoded parameter %s, cannot encode", os.length, this.length, this.parameter.getId()));
+                    }
+                    encoder.setNextByte(os, os.length * Byte.SIZE);
+                    break;
+                case CHARACTER_STRING:
+                    String cs = value(values, String.class);
+                    if (cs.length() != this.length) {
+                        throw new EncodingException(String.format("Resolved char string length value %d and PFC code %d for char string do not match for encoded parameter %s, cannot encode", cs.length(), this.length, this.parameter.getId()));
+                    }
+                    encoder.setNextString(cs, cs.length() * Byte.SIZE);
+                    break;
+                case ABSOLUTE_TIME:
+                    Instant t = value(values, Instant.class);
+                    byte[] encodedTime;
+                    if (this.length == 1) {
+                        encodedTime = TimeUtil.toCDS(t, agencyEpoch, true, 0, false);
+                    } else if (this.length == 2) {
+                        encodedTime = TimeUtil.toCDS(t, agencyEpoch, true, 1, false);
+                    } else {
+                        encodedTime = TimeUtil.toCUC(t, agencyEpoch, (this.length + 1) / 4, (this.length + 1) % 4, false);
+                    }
+                    encoder.setNextByte(encodedTime, encodedTime.length * Byte.SIZE);
+                    break;
+                case RELATIVE_TIME:
+                    Duration duration = value(values, Duration.class);
+                    byte[] encodedDuration = TimeUtil.toCUCduration(duration, (this.length + 3) / 4, (this.length + 3) % 4, false);
+                    encoder.setNextByte(encodedDuration, encodedDuration.length * Byte.SIZE);
+                    break;
+                default:
+                    throw new EncodingException(String.format("Type %s not supported", this.type));
+            }
+        }
+
+        private <T> T value(EncodeValueBuffer values, Class<T> clazz) throws EncodingException {
+            Object value = values.getObject(this.slot);
+            if (!clazz.isInstance(value)) {
+                throw new EncodingException(String.format("Value of encoded parameter %s in slot %d is not a %s: %s", this.parameter.getId(), this.slot, clazz.getSimpleName(), value));
+            }
+            return clazz.cast(value);
+        }
+    }
+
+    private static final class Compiler {
+
+        private final PacketDefinition definition;
+        private final List<Field> fields = new ArrayList<>();
+        // End position of the encoded items, as recorded by StructureWalker
+        private final Map<String, Integer> endPositions = new HashMap<>();
+
+        private int position = 0;
+        private int maxPosition = 0;
+
+        private Compiler(PacketDefinition definition) {
+            this.definition = definition;
+        }
+
+        private PacketEncodePlan compile() throws EncodingException {
+            PathLocation root = PathLocation.of(this.definition.getId());
+            for (AbstractEncodedItem ei : this.definition.getStructure().getEncodedItems()) {
+                compileItem(ei, root);
+            }
+            return new PacketEncodePlan(this.definition, this.fields.toArray(new Field[0]), (this.maxPosition + Byte.SIZE - 1) / Byte.SIZE);
+        }
+
+        private void compileItem(AbstractEncodedItem ei, PathLocation parent) throws EncodingException {
+            PathLocation loc = parent.append(ei.getId());
+            moveToLocation(ei.getLocation());
+            if (ei instanceof EncodedParameter) {
+                EncodedParameter ep = (EncodedParameter) ei;
+                Field field = new Field(this.fields.size(), loc, ep, this.position);
+                this.fields.add(field);
+                moveTo(this.position + field.bitLength);
+                if (ep.getPaddedWidth() != null && field.bitLength < ep.getPaddedWidth()) {
+                    moveTo(this.position + ep.getPaddedWidth() - field.bitLength);
+                }
+            } else if (ei instanceof EncodedArray) {
+                EncodedArray ea = (EncodedArray) ei;
+                int numElements = ((FixedArraySize) ea.getSize()).getLength();
+                for (int idx = 0; idx < numElements; ++idx) {
+                    for (AbstractEncodedItem item : ea.getEncodedItems()) {
+                        compileItem(item, loc.appendIndex(idx));
+                    }
+                }
+            } else {
+                for (AbstractEncodedItem item : ((EncodedStructure) ei).getEncodedItems()) {
+                    compileItem(item, loc);
+                }
+            }
+            this.endPositions.put(ei.getId(), this.position);
+        }
+
+        private void moveToLocation(AbstractEncodedLocation location) throws EncodingException {
+            if (location == null) {
+                return;
+            }
+            if (location instanceof FixedAbsoluteLocation) {
+                moveTo(((FixedAbsoluteLocation) location).getAbsoluteLocation());
+            } else if (location instanceof EncodedItemRelativeLocation) {
+                EncodedItemRelativeLocation eirl = (EncodedItemRelativeLocation) location;
+                Integer bitIndex = this.endPositions.get(eirl.getReference());
+                if (bitIndex == null) {
+                    throw new EncodingException(String.format("No encoded item %s used as reference for location", eirl.getReference()));
+                }
+                moveTo(align(bitIndex + eirl.getBitOffset(), eirl.getBitAlignment()));
+            } else if (location instanceof LastRelativeLocation) {
+                LastRelativeLocation lrl = (LastRelativeLocation) location;
+                moveTo(align(this.position + lrl.getBitOffset(), lrl.getBitAlignment()));
+            } else {
+                throw new EncodingException(String.format("Location class of type %s not supported", location.getClass().getSimpleName()));
+            }
+        }
+
+        private void moveTo(int bitIndex) {
+            this.position = bitIndex;
+            this.maxPosition = Math.max(this.maxPosition, bitIndex);
+        }
+    }
+}
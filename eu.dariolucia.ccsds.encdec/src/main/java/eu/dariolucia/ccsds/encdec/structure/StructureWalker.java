@@ -39,21 +39,46 @@ import java.util.function.Supplier;
  */
 public abstract class StructureWalker<T,K extends Exception> {
 
-    protected final PacketDefinition definition;
+    protected PacketDefinition definition;
 
     protected final Map<String, Object> encodedParameter2value = new TreeMap<>();
     protected final Map<String, Integer> encodedParameter2endPosition = new TreeMap<>();
     protected final Definition database;
+    // Null if the walker was constructed without indexer
+    protected final PacketDefinitionIndexer indexer;
 
     protected BitEncoderDecoder bitHandler;
     protected PathLocation currentLocation;
 
     public StructureWalker(Definition database, PacketDefinition definition, Supplier<BitEncoderDecoder> bitHandlerSupplier) {
         this.database = database;
+        this.indexer = null;
         this.definition = definition;
         this.bitHandler = bitHandlerSupplier.get();
     }
 
+    public StructureWalker(PacketDefinitionIndexer indexer, PacketDefinition definition, Supplier<BitEncoderDecoder> bitHandlerSupplier) {
+        this.database = indexer.getDefinitions();
+        this.indexer = indexer;
+        this.definition = definition;
+        this.bitHandler = bitHandlerSupplier.get();
+    }
+
+    /**
+     * Reset the state of the walker, so that the walker can be reused to walk the provided packet definition with the
+     * provided {@link BitEncoderDecoder}.
+     *
+     * @param definition the packet definition to walk
+     * @param bitHandler the bit handler to use
+     */
+    protected void reset(PacketDefinition definition, BitEncoderDecoder bitHandler) {
+        this.definition = definition;
+        this.bitHandler = bitHandler;
+        this.currentLocation = null;
+        this.encodedParameter2value.clear();
+        this.encodedParameter2endPosition.clear();
+    }
+
     public T walk() throws K {
         // Prepare the current location from the packet definition
         currentLocation = PathLocation.of(definition.getId());
@@ -234,11 +259,18 @@ public abstract class StructureWalker<T,K extends Exception> {
     protected abstract Object processValue(EncodedParameter ei) throws K;
 
     protected ParameterDefinition retrieveParameterDefinitionByExternalId(int externalId) throws K {
-        // Naive implementation
-        for (ParameterDefinition pd : this.database.getParameters()) {
-            if (pd.getExternalId() != ParameterDefinition.EXTERNAL_ID_NOT_SET && pd.getExternalId() == externalId) {
+        if (this.indexer != null) {
+            ParameterDefinition pd = this.indexer.retrieveParameterByExternalId(externalId);
+            if (pd != null) {
                 return pd;
             }
+        } else {
+            // Naive implementation
+            for (ParameterDefinition pd : this.database.getParameters()) {
+                if (pd.getExternalId() != ParameterDefinition.EXTERNAL_ID_NOT_SET && pd.getExternalId() == externalId) {
+                    return pd;
+                }
+            }
         }
         throw newException(String.format("Cannot map externalId %d to parameter definition", externalId));
     }
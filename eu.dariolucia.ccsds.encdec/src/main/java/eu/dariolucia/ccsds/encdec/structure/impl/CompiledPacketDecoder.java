@@ -0,0 +1,106 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure.impl;
+
+import eu.dariolucia.ccsds.encdec.definition.Definition;
+import eu.dariolucia.ccsds.encdec.definition.PacketDefinition;
+import eu.dariolucia.ccsds.encdec.structure.DecodingException;
+import eu.dariolucia.ccsds.encdec.structure.DecodingResult;
+import eu.dariolucia.ccsds.encdec.structure.IDecodeSink;
+import eu.dariolucia.ccsds.encdec.structure.IPacketDecoder;
+import eu.dariolucia.ccsds.encdec.structure.PacketDecodePlan;
+import eu.dariolucia.ccsds.encdec.structure.PacketDefinitionIndexer;
+import eu.dariolucia.ccsds.encdec.time.IGenerationTimeProcessor;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A packet decoder that compiles each packet definition into a {@link PacketDecodePlan} on first use, and then
+ * decodes the packets by executing the plan. The produced {@link DecodingResult} objects are the same as the ones
+ * produced by the {@link DefaultPacketDecoder}, but the structure of the definition is not walked again for each
+ * packet.
+ *
+ * The plans are cached, therefore the packet definitions shall not be modified after their first use. This class is
+ * thread-safe.
+ */
+public class CompiledPacketDecoder implements IPacketDecoder {
+
+    private final PacketDefinitionIndexer definitions;
+    private final Instant agencyEpoch;
+    private final Map<String, PacketDecodePlan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a compiled packet decoder with the provided definition indexer and agency epoch.
+     *
+     * @param definitions the definition indexer
+     * @param agencyEpoch the agency epoch, can be null
+     */
+    public CompiledPacketDecoder(PacketDefinitionIndexer definitions, Instant agencyEpoch) {
+        this.definitions = definitions;
+        this.agencyEpoch = agencyEpoch;
+    }
+
+    /**
+     * Construct a compiled packet decoder with the provided definition: a {@link PacketDefinitionIndexer} is
+     * constructed and the agency epoch is set to null.
+     *
+     * @param definitions the {@link Definition} object to be used
+     */
+    public CompiledPacketDecoder(Definition definitions) {
+        this(new PacketDefinitionIndexer(definitions), null);
+    }
+
+    /**
+     * Compile all the packet definitions in advance, so that no compilation takes place at decoding time.
+     *
+     * @throws DecodingException if a packet definition cannot be compiled
+     */
+    public void compileAll() throws DecodingException {
+        for (PacketDefinition pd : definitions.getDefinitions().getPacketDefinitions()) {
+            retrievePlan(pd.getId());
+        }
+    }
+
+    @Override
+    public DecodingResult decode(String packetDefinitionId, byte[] data, int offset, int length, IGenerationTimeProcessor timeProcessor) throws DecodingException {
+        return retrievePlan(packetDefinitionId).decode(data, offset, length, this.agencyEpoch, timeProcessor);
+    }
+
+    @Override
+    public void decode(String packetDefinitionId, byte[] data, int offset, int length, IGenerationTimeProcessor timeProcessor, IDecodeSink sink) throws DecodingException {
+        retrievePlan(packetDefinitionId).decode(data, offset, length, this.agencyEpoch, timeProcessor, sink);
+    }
+
+    private PacketDecodePlan retrievePlan(String packetDefinitionId) throws DecodingException {
+        PacketDecodePlan plan = plans.get(packetDefinitionId);
+        if(plan == null) {
+            PacketDefinition definition = definitions.retrieveDefinition(packetDefinitionId);
+            if(definition == null) {
+                throw new DecodingException("Packet definition " + packetDefinitionId + " unknown");
+            }
+            // Concurrent compilations of the same definition produce equivalent plans
+            plan = PacketDecodePlan.compile(definitions, definition);
+            PacketDecodePlan existing = plans.putIfAbsent(packetDefinitionId, plan);
+            if(existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+}
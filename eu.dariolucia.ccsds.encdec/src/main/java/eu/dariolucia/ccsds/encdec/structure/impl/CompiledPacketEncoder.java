@@ -0,0 +1,145 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure.impl;
+
+import eu.dariolucia.ccsds.encdec.definition.Definition;
+import eu.dariolucia.ccsds.encdec.definition.PacketDefinition;
+import eu.dariolucia.ccsds.encdec.structure.EncodeValueBuffer;
+import eu.dariolucia.ccsds.encdec.structure.EncodingException;
+import eu.dariolucia.ccsds.encdec.structure.IEncodeResolver;
+import eu.dariolucia.ccsds.encdec.structure.IPacketEncoder;
+import eu.dariolucia.ccsds.encdec.structure.PacketDefinitionIndexer;
+import eu.dariolucia.ccsds.encdec.structure.PacketEncodePlan;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A packet encoder that compiles each packet definition into a {@link PacketEncodePlan} on first use, and then
+ * encodes the packets by executing the plan. The definitions that cannot be compiled (see
+ * {@link PacketEncodePlan#isCompilable(PacketDefinition)}) are encoded as by the {@link DefaultPacketEncoder}. The
+ * produced packets are the same as the ones produced by the {@link DefaultPacketEncoder}.
+ *
+ * Besides the {@link IEncodeResolver} based encoding, this class allows to encode the values of an
+ * {@link EncodeValueBuffer} directly into a caller-provided array, see
+ * {@link CompiledPacketEncoder#encode(String, EncodeValueBuffer, byte[], int)}.
+ *
+ * The plans are cached, therefore the packet definitions shall not be modified after their first use. This class is
+ * thread-safe.
+ */
+public class CompiledPacketEncoder implements IPacketEncoder {
+
+    private final PacketDefinitionIndexer definitions;
+    private final int maxPacketSize;
+    private final Instant agencyEpoch;
+    // Empty if the definition cannot be compiled
+    private final Map<String, Optional<PacketEncodePlan>> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a compiled packet encoder from the provided packet definition indexer, using maxPacketSize as packet
+     * construction buffer for the definitions that cannot be compiled, and with the provided agency epoch.
+     *
+     * @param definitions the definitions to use
+     * @param maxPacketSize the maximum size of an encoded packet
+     * @param agencyEpoch the agency epoch, can be null
+     */
+    public CompiledPacketEncoder(PacketDefinitionIndexer definitions, int maxPacketSize, Instant agencyEpoch) {
+        this.definitions = definitions;
+        this.maxPacketSize = maxPacketSize;
+        this.agencyEpoch = agencyEpoch;
+    }
+
+    /**
+     * Construct a compiled packet encoder from the provided definition, using DEFAULT_MAX_PACKET_SIZE as packet
+     * construction buffer, and with a null agency epoch. A {@link PacketDefinitionIndexer} is constructed internally.
+     *
+     * @param definitions the definitions to use
+     */
+    public CompiledPacketEncoder(Definition definitions) {
+        this(new PacketDefinitionIndexer(definitions), DefaultPacketEncoder.DEFAULT_MAX_PACKET_SIZE, null);
+    }
+
+    /**
+     * This method returns the encode plan of the provided packet definition, compiling it if needed.
+     *
+     * @param packetDefinitionId the packet definition ID
+     * @return the encode plan
+     * @throws EncodingException if the packet definition is unknown or it cannot be compiled
+     */
+    public PacketEncodePlan getPlan(String packetDefinitionId) throws EncodingException {
+        Optional<PacketEncodePlan> plan = retrievePlan(packetDefinitionId);
+        if(plan.isEmpty()) {
+            throw new EncodingException("Packet definition " + packetDefinitionId + " cannot be compiled into an encode plan");
+        }
+        return plan.get();
+    }
+
+    /**
+     * Encode the provided values according to the plan of the provided packet definition, into the provided byte[]
+     * starting at the provided offset.
+     *
+     * @param packetDefinitionId the packet definition ID
+     * @param values the values to encode, see {@link PacketEncodePlan#newValueBuffer()}
+     * @param data the array to write
+     * @param offset the offset of the packet in the array
+     * @return the number of written bytes
+     * @throws EncodingException in case of problems when encoding the packet
+     */
+    public int encode(String packetDefinitionId, EncodeValueBuffer values, byte[] data, int offset) throws EncodingException {
+        return getPlan(packetDefinitionId).encode(values, data, offset, this.agencyEpoch);
+    }
+
+    @Override
+    public byte[] encode(String packetDefinitionId, IEncodeResolver resolver) throws EncodingException {
+        Optional<PacketEncodePlan> plan = retrievePlan(packetDefinitionId);
+        if(plan.isPresent()) {
+            PacketEncodePlan p = plan.get();
+            EncodeValueBuffer values = p.newValueBuffer();
+            resolver.startPacketEncoding(p.getDefinition());
+            p.fill(resolver, values);
+            byte[] data = p.encode(values, this.agencyEpoch);
+            resolver.endPacketEncoding();
+            return data;
+        } else {
+            PacketDefinition definition = this.definitions.retrieveDefinition(packetDefinitionId);
+            EncodeWalker w = new EncodeWalker(this.definitions, definition, this.maxPacketSize, this.agencyEpoch, resolver);
+            resolver.startPacketEncoding(definition);
+            byte[] data = w.walk();
+            resolver.endPacketEncoding();
+            return data;
+        }
+    }
+
+    private Optional<PacketEncodePlan> retrievePlan(String packetDefinitionId) throws EncodingException {
+        Optional<PacketEncodePlan> plan = plans.get(packetDefinitionId);
+        if(plan == null) {
+            PacketDefinition definition = definitions.retrieveDefinition(packetDefinitionId);
+            if(definition == null) {
+                throw new EncodingException("Packet definition " + packetDefinitionId + " unknown");
+            }
+            // Concurrent compilations of the same definition produce equivalent plans
+            plan = PacketEncodePlan.isCompilable(definition) ? Optional.of(PacketEncodePlan.compile(definition)) : Optional.empty();
+            Optional<PacketEncodePlan> existing = plans.putIfAbsent(packetDefinitionId, plan);
+            if(existing != null) {
+                plan = existing;
+            }
+        }
+        return plan;
+    }
+}
@@ -22,8 +22,7 @@ import eu.dariolucia.ccsds.encdec.extension.IDecoderExtension;
 import eu.dariolucia.ccsds.encdec.extension.internal.ExtensionRegistry;
 import eu.dariolucia.ccsds.encdec.structure.*;
 import eu.dariolucia.ccsds.encdec.time.IGenerationTimeProcessor;
-import eu.dariolucia.ccsds.encdec.value.BitString;
-import eu.dariolucia.ccsds.encdec.value.TimeUtil;
+import eu.dariolucia.ccsds.encdec.value.TimeCodec;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -40,7 +39,7 @@ public class DecodeWalker extends StructureWalker<DecodingResult, DecodingExcept
 
     private final Deque<DecodingResult.Item> stack = new LinkedList<>();
     private final Instant agencyEpoch;
-    private final IGenerationTimeProcessor generationTimeProcessor;
+    private IGenerationTimeProcessor generationTimeProcessor;
 
     public DecodeWalker(Definition database, PacketDefinition definition, byte[] data, int offset, int length, Instant agencyEpoch, IGenerationTimeProcessor timeProcessor) {
         super(database, definition, () -> new BitEncoderDecoder(data, offset, length));
@@ -48,6 +47,31 @@ public class DecodeWalker extends StructureWalker<DecodingResult, DecodingExcept
         this.generationTimeProcessor = timeProcessor;
     }
 
+    public DecodeWalker(PacketDefinitionIndexer indexer, PacketDefinition definition, byte[] data, int offset, int length, Instant agencyEpoch, IGenerationTimeProcessor timeProcessor) {
+        super(indexer, definition, () -> new BitEncoderDecoder(data, offset, length));
+        this.agencyEpoch = agencyEpoch;
+        this.generationTimeProcessor = timeProcessor;
+    }
+
+    /**
+     * Reset the state of the walker, so that the walker can be reused to decode the provided packet.
+     *
+     * @param definition the packet definition to use
+     * @param data the data to decode
+     * @param offset the data offset
+     * @param length the length
+     * @param timeProcessor an optional {@link IGenerationTimeProcessor} to derive the generation time
+     */
+    public void reset(PacketDefinition definition, byte[] data, int offset, int length, IGenerationTimeProcessor timeProcessor) {
+        super.reset(definition, new BitEncoderDecoder(data, offset, length));
+        this.generationTimeProcessor = timeProcessor;
+        // The lists are copied by the DecodingResult, so they can be cleared
+        this.location2item.clear();
+        this.decodedItems.clear();
+        this.decodedParameters.clear();
+        this.stack.clear();
+    }
+
     @Override
     protected DecodingResult finalizeResult() throws DecodingException {
         // Iterate once over the parameter structure definition and add in the decodedItems list the specified items
@@ -100,7 +124,7 @@ public class DecodeWalker extends StructureWalker<DecodingResult, DecodingExcept
                     }
                 }
             }
-            genTime = this.generationTimeProcessor.computeGenerationTime(ei, value, absTime, relDuration, offsetMs);
+            genTime = computeGenerationTime(ei, value, absTime, relDuration, offsetMs);
         }
         //
         DecodingResult.Parameter parameter = new DecodingResult.Parameter(currentLocation, ei.getId(), ei, dataType , value, genTime);
@@ -135,104 +159,31 @@ public class DecodeWalker extends StructureWalker<DecodingResult, DecodingExcept
         return value;
     }
 
+    private Instant computeGenerationTime(EncodedParameter ei, Object value, Instant absTime, Duration relDuration, Integer offsetMs) {
+        if(this.generationTimeProcessor.isEpochNanosSupported()) {
+            // Primitive form: a single Instant is built, for the result
+            try {
+                long genTime = this.generationTimeProcessor.computeGenerationTimeNanos(ei, value,
+                        absTime == null ? IGenerationTimeProcessor.NO_TIME : TimeCodec.toEpochNanos(absTime),
+                        relDuration == null ? IGenerationTimeProcessor.NO_TIME : relDuration.toNanos(),
+                        offsetMs);
+                return genTime == IGenerationTimeProcessor.NO_TIME ? null : TimeCodec.toInstant(genTime);
+            } catch (ArithmeticException e) {
+                // Times not representable as nanoseconds since 1st Jan 1970: use the Instant based computation
+            }
+        }
+        return this.generationTimeProcessor.computeGenerationTime(ei, value, absTime, relDuration, offsetMs);
+    }
+
     private Object decodeValue(EncodedParameter ei, IDecoderExtension extDec) throws DecodingException {
         return extDec.decode(super.definition, ei, currentLocation, bitHandler);
     }
 
     private Object decodeValue(EncodedParameter ei, DataTypeEnum dataType, int dataLength) throws DecodingException {
-        Object value;
         Integer paddedWidth = ei.getPaddedWidth();
         long initialPosition = this.bitHandler.getCurrentBitIndex();
         // Now that you have the final PTC and PFC codes, you can invoke the correct operation on the bit handler
-        switch (dataType) {
-            case BOOLEAN:
-                value = this.bitHandler.getNextBoolean();
-            break;
-            case ENUMERATED:
-                value = this.bitHandler.getNextIntegerUnsigned(dataLength);
-            break;
-            case UNSIGNED_INTEGER:
-                value = this.bitHandler.getNextLongUnsigned(dataLength);
-            break;
-            case SIGNED_INTEGER:
-                value = this.bitHandler.getNextLongSigned(dataLength);
-            break;
-            case REAL:
-                switch (dataLength) {
-                    case 1:
-                        value = (double) this.bitHandler.getNextFloat();
-                        break;
-                    case 2:
-                        value = this.bitHandler.getNextDouble();
-                        break;
-                    case 3:
-                        value = this.bitHandler.getNextMil32Real();
-                        break;
-                    case 4:
-                        value = this.bitHandler.getNextMil48Real();
-                        break;
-                    default:
-                        throw new DecodingException(String.format("Length code %d for encoded parameter %s for real values not recognized", dataLength, ei.getId()));
-                }
-            break;
-            case BIT_STRING:
-                byte[] val = this.bitHandler.getNextByte(dataLength);
-                value = new BitString(val, dataLength);
-            break;
-            case OCTET_STRING:
-                value = this.bitHandler.getNextByte(dataLength * Byte.SIZE);
-            break;
-            case CHARACTER_STRING:
-                value = this.bitHandler.getNextString(dataLength * Byte.SIZE);
-            break;
-            case ABSOLUTE_TIME:
-                Instant t;
-                if (dataLength == 0) {
-                    // Explicit definition of time format (CUC or CDS), i.e. including the Pfield
-                    int currentBitIdx = this.bitHandler.getCurrentBitIndex();
-                    byte firstPfield = (byte) Integer.toUnsignedLong(this.bitHandler.getNextIntegerUnsigned(Byte.SIZE));
-                    this.bitHandler.setCurrentBitIndex(currentBitIdx);
-                    if (TimeUtil.isCDS(firstPfield)) {
-                        t = TimeUtil.fromCDS(this.bitHandler, this.agencyEpoch);
-                    } else {
-                        t = TimeUtil.fromCUC(this.bitHandler, this.agencyEpoch);
-                    }
-                } else if (dataLength == 1) {
-                    byte[] tField = this.bitHandler.getNextByte(Byte.SIZE * 6);
-                    t = TimeUtil.fromCDS(tField, this.agencyEpoch, true, 0);
-                } else if (dataLength == 2) {
-                    byte[] tField = this.bitHandler.getNextByte(Byte.SIZE * 8);
-                    t = TimeUtil.fromCDS(tField, this.agencyEpoch, true, 1);
-                } else if (dataLength >= 3 && dataLength <= 18) {
-                    int coarse = (int) Math.floor((dataLength + 1) / 4.0);
-                    int fine = (dataLength + 1) % 4;
-                    byte[] tField = this.bitHandler.getNextByte(Byte.SIZE * (coarse + fine));
-                    t = TimeUtil.fromCUC(tField, this.agencyEpoch, coarse, fine);
-                } else {
-                    throw new DecodingException(String.format("PFC value %d for PTC of type Absolute Time is not valid for encoded parameter %s", dataLength, ei.getId()));
-                }
-                value = t;
-            break;
-            case RELATIVE_TIME:
-                Duration duration;
-                if (dataLength == 0) {
-                    // Explicit definition of time format (CUC), i.e. including the Pfield
-                    duration = TimeUtil.fromCUCduration(this.bitHandler);
-                } else if (dataLength >= 1 && dataLength <= 16) {
-                    int coarse = (int) Math.floor((dataLength + 3) / 4.0);
-                    int fine = (dataLength + 3) % 4;
-                    byte[] tField = this.bitHandler.getNextByte(Byte.SIZE * (coarse + fine));
-                    duration = TimeUtil.fromCUCduration(tField, coarse, fine);
-                } else {
-                    throw new DecodingException(String.format("PFC value %d for PTC of type Relative Time is not valid for encoded parameter %s", dataLength, ei.getId()));
-                }
-                value = duration;
-            break;
-            case DEDUCED:
-                throw new DecodingException(String.format("Deduced type for encoded parameter %s at this stage is not allowed", ei.getId()));
-            default:
-                throw new DecodingException(String.format("Type %s not supported", dataType));
-        }
+        Object value = IValueReader.of(dataType, dataLength, ei.getId()).read(this.bitHandler, this.agencyEpoch);
         // Check padding
         if(paddedWidth != null) {
             long readBits = this.bitHandler.getCurrentBitIndex() - initialPosition;
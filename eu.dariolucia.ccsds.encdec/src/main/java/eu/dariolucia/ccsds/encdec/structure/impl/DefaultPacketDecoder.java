@@ -20,29 +20,55 @@ import eu.dariolucia.ccsds.encdec.definition.Definition;
 import eu.dariolucia.ccsds.encdec.definition.PacketDefinition;
 import eu.dariolucia.ccsds.encdec.structure.DecodingException;
 import eu.dariolucia.ccsds.encdec.structure.DecodingResult;
+import eu.dariolucia.ccsds.encdec.structure.FixedLayoutDecoder;
+import eu.dariolucia.ccsds.encdec.structure.IDecodeSink;
 import eu.dariolucia.ccsds.encdec.structure.IPacketDecoder;
 import eu.dariolucia.ccsds.encdec.structure.PacketDefinitionIndexer;
 import eu.dariolucia.ccsds.encdec.time.IGenerationTimeProcessor;
 
 import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The default packet decoder provided by the library.
+ *
+ * If the fixed-layout decoding is enabled, the packet definitions having a fixed layout are decoded by a
+ * {@link FixedLayoutDecoder}, created on the first use of the definition. All the other packet definitions are decoded
+ * by walking their structure. The walkers are reused by the decoding thread for the subsequent packets.
  */
 public class DefaultPacketDecoder implements IPacketDecoder {
 
     private final PacketDefinitionIndexer definitions;
     private final Instant agencyEpoch;
+    private final boolean fixedLayoutDecoding;
+    private final Map<String, FixedLayoutDecoder> fixedLayoutDecoders = new ConcurrentHashMap<>();
+    private final Set<String> walkedDefinitions = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<DecodeWalker> walkers = new ThreadLocal<>();
 
     /**
      * Construct a default packet decoder with the provided definition indexer and agency epoch.
      *
      * @param definitions the definition indexer
      * @param agencyEpoch the agency epoch, can be null
+     * @param fixedLayoutDecoding true if the packet definitions having a fixed layout shall be decoded by a {@link FixedLayoutDecoder}
      */
-    public DefaultPacketDecoder(PacketDefinitionIndexer definitions, Instant agencyEpoch) {
+    public DefaultPacketDecoder(PacketDefinitionIndexer definitions, Instant agencyEpoch, boolean fixedLayoutDecoding) {
         this.definitions = definitions;
         this.agencyEpoch = agencyEpoch;
+        this.fixedLayoutDecoding = fixedLayoutDecoding;
+    }
+
+    /**
+     * Construct a default packet decoder with the provided definition indexer and agency epoch. The fixed-layout
+     * decoding is disabled.
+     *
+     * @param definitions the definition indexer
+     * @param agencyEpoch the agency epoch, can be null
+     */
+    public DefaultPacketDecoder(PacketDefinitionIndexer definitions, Instant agencyEpoch) {
+        this(definitions, agencyEpoch, false);
     }
 
     /**
@@ -62,9 +88,52 @@ public class DefaultPacketDecoder implements IPacketDecoder {
         if(definition == null) {
             throw new DecodingException("Packet definition " + packetDefinitionId + " unknown");
         }
-        // Create a definition walker
-        DecodeWalker w = new DecodeWalker(definitions.getDefinitions(), definition, data, offset, length, this.agencyEpoch, timeProcessor);
-        // Decode the packet
-        return w.walk();
+        if(this.fixedLayoutDecoding) {
+            FixedLayoutDecoder fixedLayoutDecoder = retrieveFixedLayoutDecoder(definition);
+            // Too short packets are left to the walker, to report the same errors
+            if(fixedLayoutDecoder != null && length >= fixedLayoutDecoder.getMinimumLength() && offset + length <= data.length) {
+                return fixedLayoutDecoder.decode(data, offset, length, this.agencyEpoch, timeProcessor);
+            }
+        }
+        // Reuse the walker of the thread, if not in use by an outer call
+        DecodeWalker w = this.walkers.get();
+        if(w == null) {
+            w = new DecodeWalker(definitions, definition, data, offset, length, this.agencyEpoch, timeProcessor);
+        } else {
+            this.walkers.set(null);
+            w.reset(definition, data, offset, length, timeProcessor);
+        }
+        try {
+            // Decode the packet
+            return w.walk();
+        } finally {
+            this.walkers.set(w);
+        }
+    }
+
+    @Override
+    public void decode(String packetDefinitionId, byte[] data, int offset, int length, IGenerationTimeProcessor timeProcessor, IDecodeSink sink) throws DecodingException {
+        if(this.fixedLayoutDecoding) {
+            PacketDefinition definition = definitions.retrieveDefinition(packetDefinitionId);
+            FixedLayoutDecoder fixedLayoutDecoder = definition != null ? retrieveFixedLayoutDecoder(definition) : null;
+            if(fixedLayoutDecoder != null && length >= fixedLayoutDecoder.getMinimumLength() && offset + length <= data.length) {
+                fixedLayoutDecoder.decode(data, offset, length, this.agencyEpoch, timeProcessor, sink);
+                return;
+            }
+        }
+        IPacketDecoder.super.decode(packetDefinitionId, data, offset, length, timeProcessor, sink);
+    }
+
+    private FixedLayoutDecoder retrieveFixedLayoutDecoder(PacketDefinition definition) throws DecodingException {
+        FixedLayoutDecoder decoder = this.fixedLayoutDecoders.get(definition.getId());
+        if(decoder == null && !this.walkedDefinitions.contains(definition.getId())) {
+            if(FixedLayoutDecoder.isFixedLayout(definition)) {
+                decoder = FixedLayoutDecoder.compile(definition);
+                this.fixedLayoutDecoders.put(definition.getId(), decoder);
+            } else {
+                this.walkedDefinitions.add(definition.getId());
+            }
+        }
+        return decoder;
     }
 }
@@ -81,7 +81,7 @@ public class DefaultPacketEncoder implements IPacketEncoder {
             throw new EncodingException("Packet definition " + packetDefinitionId + " unknown");
         }
         // Create a definition walker
-        EncodeWalker w = new EncodeWalker(definitions.getDefinitions(), definition, maxPacketSize, agencyEpoch, resolver);
+        EncodeWalker w = new EncodeWalker(definitions, definition, maxPacketSize, agencyEpoch, resolver);
         // Notify encoding start
         resolver.startPacketEncoding(definition);
         // Encode the definition
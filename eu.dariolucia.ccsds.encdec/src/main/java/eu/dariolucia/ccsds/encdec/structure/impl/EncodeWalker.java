@@ -20,6 +20,7 @@ import eu.dariolucia.ccsds.encdec.bit.BitEncoderDecoder;
 import eu.dariolucia.ccsds.encdec.definition.*;
 import eu.dariolucia.ccsds.encdec.structure.EncodingException;
 import eu.dariolucia.ccsds.encdec.structure.IEncodeResolver;
+import eu.dariolucia.ccsds.encdec.structure.PacketDefinitionIndexer;
 import eu.dariolucia.ccsds.encdec.extension.IEncoderExtension;
 import eu.dariolucia.ccsds.encdec.extension.internal.ExtensionRegistry;
 import eu.dariolucia.ccsds.encdec.structure.StructureWalker;
@@ -46,6 +47,12 @@ public class EncodeWalker extends StructureWalker<byte[], EncodingException> {
         this.resolver = resolver;
     }
 
+    public EncodeWalker(PacketDefinitionIndexer indexer, PacketDefinition definition, int maxPacketSize, Instant agencyEpoch, IEncodeResolver resolver) {
+        super(indexer, definition, () -> new BitEncoderDecoder(maxPacketSize));
+        this.agencyEpoch = agencyEpoch;
+        this.resolver = resolver;
+    }
+
     @Override
     protected byte[] finalizeResult() {
         // Get the data up to the last written bit index
@@ -17,6 +17,7 @@
 package eu.dariolucia.ccsds.encdec.time;
 
 import eu.dariolucia.ccsds.encdec.definition.EncodedParameter;
+import eu.dariolucia.ccsds.encdec.value.TimeCodec;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -26,6 +27,12 @@ import java.time.Instant;
  */
 public interface IGenerationTimeProcessor {
 
+    /**
+     * Value used to indicate a missing time or offset in
+     * {@link IGenerationTimeProcessor#computeGenerationTimeNanos(EncodedParameter, Object, long, long, Integer)}.
+     */
+    long NO_TIME = Long.MIN_VALUE;
+
     /**
      * Compute the generation time of the specified encoded parameter.
      *
@@ -38,4 +45,37 @@ public interface IGenerationTimeProcessor {
      */
     Instant computeGenerationTime(EncodedParameter ei, Object value, Instant derivedGenerationTime, Duration derivedOffset, Integer fixedOffsetMs);
 
+    /**
+     * Return whether this processor implements
+     * {@link IGenerationTimeProcessor#computeGenerationTimeNanos(EncodedParameter, Object, long, long, Integer)}
+     * natively, so that decoders should prefer it to the {@link Instant} based method.
+     *
+     * @return true if the primitive form is preferred, false otherwise (default)
+     */
+    default boolean isEpochNanosSupported() {
+        return false;
+    }
+
+    /**
+     * Compute the generation time of the specified encoded parameter, with times expressed as UTC nanoseconds since
+     * 1st Jan 1970 (see {@link TimeCodec}). By default, it converts the arguments and calls
+     * {@link IGenerationTimeProcessor#computeGenerationTime(EncodedParameter, Object, Instant, Duration, Integer)}.
+     *
+     * @param ei the {@link EncodedParameter} definition
+     * @param value the value of the encoded parameter
+     * @param derivedGenerationTime the generation time as derived by the encoded parameter definition, or {@link IGenerationTimeProcessor#NO_TIME}
+     * @param derivedOffset the offset in nanoseconds as derived by the encoded parameter definition, or {@link IGenerationTimeProcessor#NO_TIME}
+     * @param fixedOffsetMs the fixed offset in milliseconds
+     * @return the computed generation time, or {@link IGenerationTimeProcessor#NO_TIME}
+     * @throws ArithmeticException if the computed generation time cannot be represented as nanoseconds since 1st Jan 1970:
+     * decoders then use {@link IGenerationTimeProcessor#computeGenerationTime(EncodedParameter, Object, Instant, Duration, Integer)}
+     */
+    default long computeGenerationTimeNanos(EncodedParameter ei, Object value, long derivedGenerationTime, long derivedOffset, Integer fixedOffsetMs) {
+        Instant genTime = computeGenerationTime(ei, value,
+                derivedGenerationTime == NO_TIME ? null : TimeCodec.toInstant(derivedGenerationTime),
+                derivedOffset == NO_TIME ? null : Duration.ofNanos(derivedOffset),
+                fixedOffsetMs);
+        return genTime == null ? NO_TIME : TimeCodec.toEpochNanos(genTime);
+    }
+
 }
@@ -18,6 +18,7 @@ package eu.dariolucia.ccsds.encdec.time.impl;
 
 import eu.dariolucia.ccsds.encdec.definition.EncodedParameter;
 import eu.dariolucia.ccsds.encdec.time.IGenerationTimeProcessor;
+import eu.dariolucia.ccsds.encdec.value.TimeCodec;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -35,13 +36,32 @@ import java.time.Instant;
  *     <li>the fixed offset is applied</li>
  *     <li>the result is returned</li>
  * </ul>
+ *
+ * The computation in the primitive form is supported if the reference generation time, when set, can be represented
+ * as nanoseconds since 1st Jan 1970. If the result of the computation in the primitive form cannot be represented, an
+ * {@link ArithmeticException} is raised.
  */
 public class DefaultGenerationTimeProcessor implements IGenerationTimeProcessor {
 
     private final Instant referenceGenerationTime;
 
+    private final long referenceGenerationTimeNanos;
+
+    private final boolean epochNanosSupported;
+
     public DefaultGenerationTimeProcessor(Instant referenceGenerationTime) {
         this.referenceGenerationTime = referenceGenerationTime;
+        long referenceNanos = NO_TIME;
+        boolean supported = true;
+        if(referenceGenerationTime != null) {
+            try {
+                referenceNanos = TimeCodec.toEpochNanos(referenceGenerationTime);
+            } catch (ArithmeticException e) {
+                supported = false;
+            }
+        }
+        this.referenceGenerationTimeNanos = referenceNanos;
+        this.epochNanosSupported = supported;
     }
 
     @Override
@@ -59,4 +79,27 @@ public class DefaultGenerationTimeProcessor implements IGenerationTimeProcessor
         }
         return baseTime;
     }
+
+    @Override
+    public boolean isEpochNanosSupported() {
+        return epochNanosSupported;
+    }
+
+    @Override
+    public long computeGenerationTimeNanos(EncodedParameter ei, Object value, long derivedGenerationTime, long derivedOffset, Integer fixedOffsetMs) {
+        if(!epochNanosSupported) {
+            return IGenerationTimeProcessor.super.computeGenerationTimeNanos(ei, value, derivedGenerationTime, derivedOffset, fixedOffsetMs);
+        }
+        long baseTime = derivedGenerationTime == NO_TIME ? referenceGenerationTimeNanos : derivedGenerationTime;
+        if(baseTime == NO_TIME) {
+            throw new IllegalStateException("At least one between reference generation time and derived generation time must be set");
+        }
+        if(derivedOffset != NO_TIME) {
+            baseTime = Math.addExact(baseTime, derivedOffset);
+        }
+        if(fixedOffsetMs != null) {
+            baseTime = Math.addExact(baseTime, Math.multiplyExact(fixedOffsetMs.longValue(), 1000000L));
+        }
+        return baseTime;
+    }
 }
@@ -0,0 +1,347 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.value;
+
+import eu.dariolucia.ccsds.encdec.bit.BitEncoderDecoder;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decoder of CUC and CDS absolute times (CCSDS 301.0-B-4, 3.2 and 3.3) to UTC nanoseconds since 1st Jan 1970, as
+ * primitive long values. It is equivalent to the fromCUC and fromCDS methods of {@link TimeUtil}, but it reads the
+ * fields directly from a {@link BitEncoderDecoder} or from a byte array, without intermediate copies and without
+ * building {@link Instant} objects.
+ *
+ * A codec is bound to an agency epoch (or to the CCSDS epoch, for Level 1 Time Codes): the epoch offsets are computed
+ * once at construction time. Codecs are immutable and are obtained by means of {@link TimeCodec#of(Instant)}.
+ *
+ * The long representation covers the years from 1677 to 2262: if the decoded time is outside this range, an
+ * {@link ArithmeticException} is thrown.
+ */
+public final class TimeCodec {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private static final double[] CUC_FINE_QUANTUM = {
+            1000000000.0,
+            1000000000.0 / 256,
+            1000000000.0 / 65536,
+            1000000000.0 / 16777216
+    };
+
+    /**
+     * The codec for Level 1 Time Codes, i.e. using the CCSDS epoch (1st Jan 1958).
+     */
+    public static final TimeCodec LEVEL_1 = new TimeCodec(null);
+
+    private static final Map<Instant, TimeCodec> CODECS = new ConcurrentHashMap<>();
+
+    /**
+     * Return the codec for the provided agency epoch.
+     *
+     * @param agencyEpoch the agency epoch (Level 2 Time Codes), if null the codec for Level 1 Time Codes is returned
+     * @return the codec
+     */
+    public static TimeCodec of(Instant agencyEpoch) {
+        if(agencyEpoch == null) {
+            return LEVEL_1;
+        }
+        return CODECS.computeIfAbsent(agencyEpoch, TimeCodec::new);
+    }
+
+    private final Instant agencyEpoch;
+
+    // TAI seconds to add to the CUC basic time unit to obtain TAI seconds since 1st Jan 1970
+    private final long cucEpochOffset;
+
+    // Days and milliseconds to add to the CDS day and millisecond segments
+    private final int cdsDaysOffset;
+    private final long cdsMillisOffset;
+
+    private TimeCodec(Instant agencyEpoch) {
+        this.agencyEpoch = agencyEpoch;
+        if(agencyEpoch == null) {
+            this.cucEpochOffset = -TimeUtil.DIFFERENCE_1958_TO_1970_SECS;
+            this.cdsDaysOffset = -4383;
+            this.cdsMillisOffset = 0;
+        } else {
+            this.cucEpochOffset = TimeUtil.toTAI(agencyEpoch.getEpochSecond());
+            this.cdsDaysOffset = (int) (agencyEpoch.getEpochSecond() / 86400);
+            this.cdsMillisOffset = (agencyEpoch.getEpochSecond() % 86400) * 1000;
+        }
+    }
+
+    /**
+     * Return the agency epoch of this codec.
+     *
+     * @return the agency epoch, null for Level 1 Time Codes
+     */
+    public Instant getAgencyEpoch() {
+        return agencyEpoch;
+    }
+
+    /**
+     * Decode a CUC or CDS time including the P Field, depending on the P Field contents.
+     *
+     * @param decoder the decoder, positioned at the P Field
+     * @return the UTC time in nanoseconds since 1st Jan 1970
+     */
+    public long decodeAbsoluteTime(BitEncoderDecoder decoder) {
+        int currentBitIdx = decoder.getCurrentBitIndex();
+        byte firstPfield = (byte) decoder.getNextIntegerUnsigned(Byte.SIZE);
+        decoder.setCurrentBitIndex(currentBitIdx);
+        return TimeUtil.isCDS(firstPfield) ? decodeCDS(decoder) : decodeCUC(decoder);
+    }
+
+    /**
+     * Decode a CUC time including the P Field. If the P Field reports a Level 1 Time Code, the agency epoch is ignored.
+     * If the P Field reports a Level 2 Time Code and this codec has no agency epoch, an exception is thrown.
+     *
+     * @param decoder the decoder, positioned at the P Field
+     * @return the UTC time in nanoseconds since 1st Jan 1970
+     */
+    public long decodeCUC(BitEncoderDecoder decoder) {
+        int first = decoder.getNextIntegerUnsigned(Byte.SIZE);
+        int coarseOctets = ((first & 0x0C) >> 2) + 1;
+        int fineOctets = first & 0x03;
+        if((first & 0x80) != 0) {
+            int second = decoder.getNextIntegerUnsigned(Byte.SIZE);
+            coarseOctets += (second & 0x60) >> 5;
+            fineOctets += (second & 0x1C) >> 2;
+        }
+        return cucCodec(first).decodeCUC(decoder, coarseOctets, fineOctets);
+    }
+
+    /**
+     * Decode a CUC time without P Field.
+     *
+     * @param decoder the decoder, positioned at the T Field
+     * @param coarseOctets the number of octets used for basic time unit encoding (1 to 7)
+     * @param fineOctets the number of octets used for fractional time unit encoding (0 to 3)
+     * @return the UTC time in nanoseconds since 1st Jan 1970
+     */
+    public long decodeCUC(BitEncoderDecoder decoder, int coarseOctets, int fineOctets) {
+        checkCUC(coarseOctets, fineOctets);
+        long basicTimeUnit = decoder.getNextLongUnsigned(Byte.SIZE * coarseOctets);
+        long fractionalTimeUnit = fineOctets == 0 ? 0 : decoder.getNextLongUnsigned(Byte.SIZE * fineOctets);
+        return cucToNanos(basicTimeUnit, fractionalTimeUnit, fineOctets);
+    }
+
+    /**
+     * Decode a CUC time including the P Field. If the P Field reports a Level 1 Time Code, the agency epoch is ignored.
+     * If the P Field reports a Level 2 Time Code and this codec has no agency epoch, an exception is thrown.
+     *
+     * @param data the data
+     * @param offset the offset of the P Field
+     * @return the UTC time in nanoseconds since 1st Jan 1970
+     */
+    public long decodeCUC(byte[] data, int offset) {
+        int first = Byte.toUnsignedInt(data[offset++]);
+        int coarseOctets = ((first & 0x0C) >> 2) + 1;
+        int fineOctets = first & 0x03;
+        if((first & 0x80) != 0) {
+            int second = Byte.toUnsignedInt(data[offset++]);
+            coarseOctets += (second & 0x60) >> 5;
+            fineOctets += (second & 0x1C) >> 2;
+        }
+        return cucCodec(first).decodeCUC(data, offset, coarseOctets, fineOctets);
+    }
+
+    /**
+     * Decode a CUC time without P Field.
+     *
+     * @param data the data
+     * @param offset the offset of the T Field
+     * @param coarseOctets the number of octets used for basic time unit encoding (1 to 7)
+     * @param fineOctets the number of octets used for fractional time unit encoding (0 to 3)
+     * @return the UTC time in nanoseconds since 1st Jan 1970
+     */
+    public long decodeCUC(byte[] data, int offset, int coarseOctets, int fineOctets) {
+        checkCUC(coarseOctets, fineOctets);
+        long basicTimeUnit = readUnsigned(data, offset, coarseOctets);
+        long fractionalTimeUnit = readUnsigned(data, offset + coarseOctets, fineOctets);
+        return cucToNanos(basicTimeUnit, fractionalTimeUnit, fineOctets);
+    }
+
+    /**
+     * Decode a CDS time including the P Field. If the P Field reports a Level 1 Time Code, the agency epoch is ignored.
+     * If the P Field reports a Level 2 Time Code and this codec has no agency epoch, an exception is thrown.
+     *
+     * @param decoder the decoder, positioned at the P Field
+     * @return the UTC time in nanoseconds since 1st Jan 1970
+     */
+    public long decodeCDS(BitEncoderDecoder decoder) {
+        int pField = decoder.getNextIntegerUnsigned(Byte.SIZE);
+        boolean bit16daySegment = (pField & 0x04) == 0;
+        int subMilliSegmentLength = pField & 0x03;
+        TimeCodec codec = cdsCodec(pField);
+        long time = codec.decodeCDS(decoder, bit16daySegment, subMilliSegmentLength);
+        if(subMilliSegmentLength == 3) {
+            // Reserved value, the segment is skipped
+            decoder.addCurrentBitIndex(Byte.SIZE * 6);
+        }
+        return time;
+    }
+
+    /**
+     * Decode a CDS time without P Field.
+     *
+     * @param decoder the decoder, positioned at the T Field
+     * @param bit16daySegment true if 16 bits are used for the day field encoding, otherwise false (24 bits are used)
+     * @param subMilliSegmentLength possible values are 0 (not present), 1 (16 bits), 2 (32 bits)
+     * @return the UTC time in nanoseconds since 1st Jan 1970
+     */
+    public long decodeCDS(BitEncoderDecoder decoder, boolean bit16daySegment, int subMilliSegmentLength) {
+        int days = decoder.getNextIntegerUnsigned(bit16daySegment ? Short.SIZE : Short.SIZE + Byte.SIZE);
+        int millis = decoder.getNextIntegerSigned(Integer.SIZE);
+        int remaining;
+        if(subMilliSegmentLength == 1) {
+            remaining = decoder.getNextIntegerUnsigned(Short.SIZE) * 1000; // microsecs in millisec to nanosecs
+        } else if(subMilliSegmentLength == 2) {
+            remaining = decoder.getNextIntegerSigned(Integer.SIZE) / 1000; // picosecs in millisec to nanosecs
+        } else {
+            remaining = 0;
+        }
+        return cdsToNanos(days, millis, remaining);
+    }
+
+    /**
+     * Decode a CDS time including the P Field. If the P Field reports a Level 1 Time Code, the agency epoch is ignored.
+     * If the P Field reports a Level 2 Time Code and this codec has no agency epoch, an exception is thrown.
+     *
+     * @param data the data
+     * @param offset the offset of the P Field
+     * @return the UTC time in nanoseconds since 1st Jan 1970
+     */
+    public long decodeCDS(byte[] data, int offset) {
+        int pField = Byte.toUnsignedInt(data[offset]);
+        return cdsCodec(pField).decodeCDS(data, offset + 1, (pField & 0x04) == 0, pField & 0x03);
+    }
+
+    /**
+     * Decode a CDS time without P Field.
+     *
+     * @param data the data
+     * @param offset the offset of the T Field
+     * @param bit16daySegment true if 16 bits are used for the day field encoding, otherwise false (24 bits are used)
+     * @param subMilliSegmentLength possible values are 0 (not present), 1 (16 bits), 2 (32 bits)
+     * @return the UTC time in nanoseconds since 1st Jan 1970
+     */
+    public long decodeCDS(byte[] data, int offset, boolean bit16daySegment, int subMilliSegmentLength) {
+        int daysOctets = bit16daySegment ? 2 : 3;
+        int days = (int) readUnsigned(data, offset, daysOctets);
+        offset += daysOctets;
+        int millis = (int) readUnsigned(data, offset, 4);
+        offset += 4;
+        int remaining;
+        if(subMilliSegmentLength == 1) {
+            remaining = (int) readUnsigned(data, offset, 2) * 1000; // microsecs in millisec to nanosecs
+        } else if(subMilliSegmentLength == 2) {
+            remaining = (int) readUnsigned(data, offset, 4) / 1000; // picosecs in millisec to nanosecs
+        } else {
+            remaining = 0;
+        }
+        return cdsToNanos(days, millis, remaining);
+    }
+
+    private TimeCodec cucCodec(int firstPfield) {
+        int timeCodeLevel = (firstPfield & 0x70) >> 4;
+        if(timeCodeLevel == 1) {
+            return LEVEL_1;
+        } else if(this.agencyEpoch == null) {
+            throw new IllegalArgumentException("P Field reports Level 2 Time Code but no agency epoch supplied, cannot decode");
+        } else {
+            return this;
+        }
+    }
+
+    private TimeCodec cdsCodec(int pField) {
+        if((pField & 0x08) == 0) {
+            return LEVEL_1;
+        } else if(this.agencyEpoch == null) {
+            throw new IllegalArgumentException("P Field reports Level 2 Time Code but no agency epoch supplied, cannot decode");
+        } else {
+            return this;
+        }
+    }
+
+    private static void checkCUC(int coarseOctets, int fineOctets) {
+        if(coarseOctets < 1 || coarseOctets > 7) {
+            throw new IllegalArgumentException("Number of coarse octets " + coarseOctets + " not supported (values can be 1 to 7)");
+        }
+        if(fineOctets < 0 || fineOctets > 3) {
+            throw new IllegalArgumentException("Number of fine octets " + fineOctets + " not supported (values can be 0 to 3)");
+        }
+    }
+
+    private long cucToNanos(long basicTimeUnit, long fractionalTimeUnit, int fineOctets) {
+        // From TAI seconds since the epoch to UTC seconds since 1st Jan 1970
+        long seconds = TimeUtil.toUTC(basicTimeUnit + this.cucEpochOffset);
+        long nanos = (long) (fractionalTimeUnit * CUC_FINE_QUANTUM[fineOctets]);
+        return Math.addExact(Math.multiplyExact(seconds, NANOS_PER_SECOND), nanos);
+    }
+
+    private long cdsToNanos(int days, int millis, int remaining) {
+        days += this.cdsDaysOffset;
+        millis += this.cdsMillisOffset;
+        long seconds = days * 86400L + millis / 1000;
+        long nanos = (millis % 1000) * 1000000L + remaining;
+        return Math.addExact(Math.multiplyExact(seconds, NANOS_PER_SECOND), nanos);
+    }
+
+    private static long readUnsigned(byte[] data, int offset, int octets) {
+        long value = 0;
+        for(int i = 0; i < octets; ++i) {
+            value = (value << Byte.SIZE) | Byte.toUnsignedInt(data[offset + i]);
+        }
+        return value;
+    }
+
+    /**
+     * Convert the provided UTC nanoseconds since 1st Jan 1970 to an {@link Instant}.
+     *
+     * @param epochNanos the nanoseconds since 1st Jan 1970
+     * @return the corresponding {@link Instant}
+     */
+    public static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND), Math.floorMod(epochNanos, NANOS_PER_SECOND));
+    }
+
+    /**
+     * Convert the provided {@link Instant} to nanoseconds since 1st Jan 1970.
+     *
+     * @param time the time
+     * @return the nanoseconds since 1st Jan 1970
+     * @throws ArithmeticException if the time cannot be represented as a long number of nanoseconds
+     */
+    public static long toEpochNanos(Instant time) {
+        return Math.addExact(Math.multiplyExact(time.getEpochSecond(), NANOS_PER_SECOND), time.getNano());
+    }
+
+    /**
+     * Convert the provided nanoseconds since 1st Jan 1970 to microseconds since 1st Jan 1970, rounding towards the
+     * past.
+     *
+     * @param epochNanos the nanoseconds since 1st Jan 1970
+     * @return the microseconds since 1st Jan 1970
+     */
+    public static long toEpochMicros(long epochNanos) {
+        return Math.floorDiv(epochNanos, 1000L);
+    }
+}
@@ -21,6 +21,7 @@ import eu.dariolucia.ccsds.encdec.bit.BitEncoderDecoder;
 import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 
@@ -73,6 +74,23 @@ public class TimeUtil {
             {new GregorianCalendar(2017, Calendar.JANUARY, 1, 0, 0).getTimeInMillis()/1000 , 37}
     };
 
+    /**
+     * Leap second table boundaries in UTC seconds, for binary search
+     */
+    private static final long[] UTC_BOUNDARIES = new long[UTC_TO_LEAP.length];
+
+    /**
+     * Leap second table boundaries in TAI seconds, for binary search
+     */
+    private static final long[] TAI_BOUNDARIES = new long[UTC_TO_LEAP.length];
+
+    static {
+        for(int i = 0; i < UTC_TO_LEAP.length; ++i) {
+            UTC_BOUNDARIES[i] = UTC_TO_LEAP[i][0];
+            TAI_BOUNDARIES[i] = UTC_TO_LEAP[i][0] + UTC_TO_LEAP[i][1];
+        }
+    }
+
     public static boolean isCDS(byte firstBytePcode) {
         return (firstBytePcode & (byte) 0x40) != 0;
     }
@@ -548,17 +566,7 @@ public class TimeUtil {
      * @return the TAI time (seconds) since 1st Jan 1970
      */
     public static long toTAI(long utcTime) {
-        for(int i = 0; i < UTC_TO_LEAP.length; ++i) {
-            long[] t = UTC_TO_LEAP[i];
-            if(utcTime <= t[0]) {
-                if(i == 0) {
-                    return utcTime;
-                } else {
-                    return utcTime + UTC_TO_LEAP[i - 1][1];
-                }
-            }
-        }
-        return utcTime + UTC_TO_LEAP[UTC_TO_LEAP.length - 1][1];
+        return utcTime + leapSeconds(UTC_BOUNDARIES, utcTime);
     }
 
     /**
@@ -567,17 +575,20 @@ public class TimeUtil {
      * @return the UTC time (seconds) since 1st Jan 1970
      */
     public static long toUTC(long taiTime) {
-        for(int i = 0; i < UTC_TO_LEAP.length; ++i) {
-            long[] t = UTC_TO_LEAP[i];
-            if(taiTime <= t[0] + t[1]) {
-                if (i == 0) {
-                    return taiTime;
-                } else {
-                    return taiTime - UTC_TO_LEAP[i - 1][1];
-                }
-            }
+        return taiTime - leapSeconds(TAI_BOUNDARIES, taiTime);
+    }
+
+    private static long leapSeconds(long[] boundaries, long time) {
+        // Most of the times are after the last leap second: check this interval first
+        if(time > boundaries[boundaries.length - 1]) {
+            return UTC_TO_LEAP[UTC_TO_LEAP.length - 1][1];
+        }
+        // Index of the first boundary not before the time
+        int idx = Arrays.binarySearch(boundaries, time);
+        if(idx < 0) {
+            idx = -idx - 1;
         }
-        return taiTime - UTC_TO_LEAP[UTC_TO_LEAP.length - 1][1];
+        return idx == 0 ? 0 : UTC_TO_LEAP[idx - 1][1];
     }
 
     /**
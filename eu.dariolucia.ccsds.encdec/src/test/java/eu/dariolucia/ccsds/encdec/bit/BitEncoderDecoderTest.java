@@ -18,6 +18,9 @@ package eu.dariolucia.ccsds.encdec.bit;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class BitEncoderDecoderTest {
@@ -61,6 +64,81 @@ class BitEncoderDecoderTest {
         assertEquals(-3, n1);
     }
 
+    @Test
+    public void testAllPositionsAndLengths() {
+        Random r = new Random(7);
+        // Arrays shorter and longer than a 64 bits window, with and without offset
+        for (int size : new int[] { 5, 9, 24 }) {
+            byte[] data = new byte[size + 3];
+            r.nextBytes(data);
+            for (int offset = 0; offset <= 3; offset += 3) {
+                int available = Math.min(size, data.length - offset);
+                for (int pos = 0; pos < available * Byte.SIZE; ++pos) {
+                    for (int len = 1; len <= Long.SIZE && pos + len <= available * Byte.SIZE; ++len) {
+                        BitEncoderDecoder bed = new BitEncoderDecoder(data, offset, available);
+                        bed.setCurrentBitIndex(pos);
+                        long expected = readBitByBit(data, offset, pos, len);
+                        assertEquals(expected, bed.getNextLongUnsigned(len));
+                        assertEquals(pos + len, bed.getCurrentBitIndex());
+                        bed.setCurrentBitIndex(pos);
+                        assertEquals((expected << (Long.SIZE - len)) >> (Long.SIZE - len), bed.getNextLongSigned(len));
+                        // Write the value in a clean array and compare
+                        byte[] written = new byte[data.length];
+                        BitEncoderDecoder writer = new BitEncoderDecoder(written, offset, available);
+                        writer.setCurrentBitIndex(pos);
+                        writer.setNextLongUnsigned(expected, len);
+                        assertEquals(pos + len, writer.getCurrentBitIndex());
+                        for (int i = 0; i < written.length * Byte.SIZE; ++i) {
+                            boolean inField = i >= offset * Byte.SIZE + pos && i < offset * Byte.SIZE + pos + len;
+                            assertEquals(inField ? readBitByBit(data, 0, i, 1) : 0, readBitByBit(written, 0, i, 1), "size " + size + " offset " + offset + " pos " + pos + " len " + len + " bit " + i);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLongSigned64() {
+        BitEncoderDecoder bed = new BitEncoderDecoder(new byte[24]);
+        bed.setNextLongSigned(-5, 64);
+        bed.setNextLongSigned(-123456789012L, 40);
+        bed.setNextLongSigned(-2, 33);
+        bed.setCurrentBitIndex(0);
+        assertEquals(-5, bed.getNextLongSigned(64));
+        assertEquals(-123456789012L, bed.getNextLongSigned(40));
+        assertEquals(-2, bed.getNextLongSigned(33));
+    }
+
+    @Test
+    public void testByteBuffer() {
+        byte[] data = new byte[] { 0x00, 0x12, 0x34, 0x56, 0x78 };
+        ByteBuffer heap = ByteBuffer.wrap(data);
+        heap.position(1);
+        BitEncoderDecoder bed = new BitEncoderDecoder(heap);
+        assertSame(data, bed.getData());
+        assertEquals(1, bed.getOffset());
+        assertEquals(4, bed.getLength());
+        assertEquals(0x12345678, bed.getNextIntegerUnsigned(32));
+        assertEquals(1, heap.position());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(4);
+        direct.put(data, 1, 4);
+        direct.flip();
+        bed = new BitEncoderDecoder(direct);
+        assertEquals(0x1234, bed.getNextIntegerUnsigned(16));
+        assertEquals(0x5678, bed.getNextIntegerUnsigned(16));
+        assertEquals(0, direct.position());
+    }
+
+    private static long readBitByBit(byte[] data, int offset, int pos, int len) {
+        long value = 0;
+        for (int i = pos; i < pos + len; ++i) {
+            value = (value << 1) | ((data[offset + i / Byte.SIZE] >> (Byte.SIZE - 1 - i % Byte.SIZE)) & 1);
+        }
+        return value;
+    }
+
     @Test
     public void testIntegerEncoding() {
         BitEncoderDecoder bed = new BitEncoderDecoder(new byte[10]);
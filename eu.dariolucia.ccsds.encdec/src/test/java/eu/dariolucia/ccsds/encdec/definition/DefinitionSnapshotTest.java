@@ -0,0 +1,159 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.definition;
+
+import eu.dariolucia.ccsds.encdec.structure.DecodingResult;
+import eu.dariolucia.ccsds.encdec.structure.PacketDefinitionIndexer;
+import eu.dariolucia.ccsds.encdec.structure.impl.DefaultPacketDecoder;
+import eu.dariolucia.ccsds.encdec.structure.impl.DefaultPacketEncoder;
+import eu.dariolucia.ccsds.encdec.structure.resolvers.DefaultNullBasedResolver;
+import eu.dariolucia.ccsds.encdec.structure.resolvers.DefinitionValueBasedResolver;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DefinitionSnapshotTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (int i = 1; i <= 10; ++i) {
+            Definition d = load("definitions" + i + ".xml");
+            DefinitionSnapshot snapshot = DefinitionSnapshot.wrap(ByteBuffer.wrap(toSnapshot(d)));
+            Definition restored = snapshot.getDefinition();
+            assertSame(restored, snapshot.getDefinition());
+            assertEquals(d.getPacketDefinitions().size(), snapshot.getPacketDefinitionCount());
+            assertEquals(d, restored, "definitions" + i + ".xml");
+            // References are resolved to the shared objects
+            for (PacketDefinition pd : restored.getPacketDefinitions()) {
+                assertSame(pd, snapshot.getPacketDefinition(pd.getId()));
+                for (IdentFieldMatcher m : pd.getMatchers()) {
+                    assertTrue(restored.getIdentificationFields().stream().anyMatch(f -> f == m.getField()));
+                }
+                if (pd.getStructure() != null) {
+                    checkLinkedParameters(restored.getParameters(), pd.getStructure().getEncodedItems());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLazyIndexer() throws Exception {
+        Definition d = load("definitions6.xml");
+        DefinitionSnapshot snapshot = DefinitionSnapshot.wrap(ByteBuffer.wrap(toSnapshot(d)));
+        PacketDefinitionIndexer indexer = new PacketDefinitionIndexer(snapshot);
+        assertNull(indexer.retrieveDefinition("NOT_EXISTING"));
+        assertEquals(d.getPacketDefinitions().get(0), indexer.retrieveDefinition("DEF1"));
+        assertEquals(d.getPacketDefinitions().get(0).getType(), indexer.retrieveDefinitionsByType(d.getPacketDefinitions().get(0).getType()).get(0).getType());
+        assertSame(snapshot.getDefinition(), indexer.getDefinitions());
+
+        // Encoding and decoding with the snapshot give the same results as with the XML definition
+        DefinitionValueBasedResolver resolver = new DefinitionValueBasedResolver(new DefaultNullBasedResolver(), false);
+        byte[] encoded = new DefaultPacketEncoder(d).encode("DEF1", resolver);
+        assertArrayEquals(encoded, new DefaultPacketEncoder(indexer, DefaultPacketEncoder.DEFAULT_MAX_PACKET_SIZE, null).encode("DEF1", resolver));
+        DecodingResult expected = new DefaultPacketDecoder(d).decode("DEF1", encoded);
+        DecodingResult actual = new DefaultPacketDecoder(indexer, null).decode("DEF1", encoded);
+        Map<String, Object> expectedMap = expected.getDecodedItemsAsMap();
+        Map<String, Object> actualMap = actual.getDecodedItemsAsMap();
+        assertEquals(expectedMap.keySet(), actualMap.keySet());
+        for (String k : expectedMap.keySet()) {
+            assertTrue(Objects.deepEquals(expectedMap.get(k), actualMap.get(k)), k);
+        }
+    }
+
+    @Test
+    public void testOpenAndRegenerate() throws Exception {
+        Path dir = Files.createTempDirectory("snapshot");
+        try {
+            Path xml = dir.resolve("definitions.xml");
+            Path snapshotFile = dir.resolve("definitions.snapshot");
+            copy("definitions1.xml", xml);
+            Definition d1 = load("definitions1.xml");
+            // Snapshot generated
+            DefinitionSnapshot snapshot = DefinitionSnapshot.open(xml, snapshotFile);
+            assertTrue(Files.exists(snapshotFile));
+            assertEquals(d1, snapshot.getDefinition());
+            assertEquals(32, snapshot.getSourceDigest().length);
+            // Snapshot reused
+            byte[] contents = Files.readAllBytes(snapshotFile);
+            assertEquals(d1, DefinitionSnapshot.open(xml, snapshotFile).getDefinition());
+            assertEquals(d1, DefinitionSnapshot.open(snapshotFile).getDefinition());
+            assertArrayEquals(contents, Files.readAllBytes(snapshotFile));
+            // XML changed: snapshot regenerated
+            copy("definitions3.xml", xml);
+            assertEquals(load("definitions3.xml"), DefinitionSnapshot.open(xml, snapshotFile).getDefinition());
+            assertFalse(Arrays.equals(contents, Files.readAllBytes(snapshotFile)));
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) {
+                    Files.delete(p);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testInvalidSnapshot() {
+        assertThrows(IOException.class, () -> DefinitionSnapshot.wrap(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 })));
+        assertThrows(IOException.class, () -> DefinitionSnapshot.wrap(ByteBuffer.wrap(new byte[] { 0x45, 0x44, 0x44, 0x53, 0, 0, 0, 1, 0, 0 })));
+    }
+
+    private void checkLinkedParameters(List<ParameterDefinition> parameters, List<AbstractEncodedItem> items) {
+        for (AbstractEncodedItem ei : items) {
+            if (ei instanceof EncodedParameter && ((EncodedParameter) ei).getLinkedParameter() instanceof FixedLinkedParameter) {
+                ParameterDefinition pd = ((FixedLinkedParameter) ((EncodedParameter) ei).getLinkedParameter()).getParameter();
+                assertTrue(parameters.stream().anyMatch(p -> p == pd));
+            } else if (ei instanceof EncodedArray) {
+                checkLinkedParameters(parameters, ((EncodedArray) ei).getEncodedItems());
+            } else if (ei instanceof EncodedStructure) {
+                checkLinkedParameters(parameters, ((EncodedStructure) ei).getEncodedItems());
+            }
+        }
+    }
+
+    private static byte[] toSnapshot(Definition d) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DefinitionSnapshot.write(d, null, bos);
+        return bos.toByteArray();
+    }
+
+    private Definition load(String resource) throws IOException {
+        try (InputStream in = this.getClass().getClassLoader().getResourceAsStream(resource)) {
+            assertNotNull(in);
+            return Definition.load(in);
+        }
+    }
+
+    private void copy(String resource, Path target) throws IOException {
+        try (InputStream in = this.getClass().getClassLoader().getResourceAsStream(resource)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.identifier.impl;
+
+import eu.dariolucia.ccsds.encdec.definition.Definition;
+import eu.dariolucia.ccsds.encdec.definition.IdentField;
+import eu.dariolucia.ccsds.encdec.definition.IdentFieldMatcher;
+import eu.dariolucia.ccsds.encdec.definition.PacketDefinition;
+import eu.dariolucia.ccsds.encdec.identifier.IPacketIdentifier;
+import eu.dariolucia.ccsds.encdec.identifier.PacketAmbiguityException;
+import eu.dariolucia.ccsds.encdec.identifier.PacketNotIdentifiedException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionTreePacketIdentifierTest {
+
+    @Test
+    public void testSameResultsAsFieldGroupBased() {
+        Definition d = new Definition();
+
+        final IdentField apid = new IdentField("APID", 0, 2, 0b0000011111111111, 0, 0, 0);
+        final IdentField t = new IdentField("PUS Type", 7, 1);
+        final IdentField s = new IdentField("PUS Subtype", 8, 1);
+        final IdentField p1 = new IdentField("P1", 10, 1);
+        final IdentField p3 = new IdentField("P3", 14, 3);
+
+        d.getIdentificationFields().add(apid);
+        d.getIdentificationFields().add(t);
+        d.getIdentificationFields().add(s);
+        d.getIdentificationFields().add(p1);
+        d.getIdentificationFields().add(p3);
+
+        // Overlapping partitions, to check the ranking and the ambiguity
+        for (int i = 100; i <= 110; ++i) {
+            for (int j = 3; j <= 4; ++j) {
+                for (int k = 1; k <= 5; ++k) {
+                    d.getPacketDefinitions().add(new PacketDefinition("A" + i + "T" + j + "S" + k,
+                            new IdentFieldMatcher(apid, i), new IdentFieldMatcher(t, j), new IdentFieldMatcher(s, k)));
+                    d.getPacketDefinitions().add(new PacketDefinition("A" + i + "T" + j + "S" + k + "P1",
+                            new IdentFieldMatcher(apid, i), new IdentFieldMatcher(t, j), new IdentFieldMatcher(s, k), new IdentFieldMatcher(p1, 1)));
+                }
+            }
+        }
+        for (int j = 3; j <= 5; ++j) {
+            for (int k = 1; k <= 5; ++k) {
+                d.getPacketDefinitions().add(new PacketDefinition("T" + j + "S" + k,
+                        new IdentFieldMatcher(t, j), new IdentFieldMatcher(s, k)));
+            }
+        }
+        d.getPacketDefinitions().add(new PacketDefinition("A105", new IdentFieldMatcher(apid, 105)));
+        // Sparse values
+        for (int k = 0; k < 50; ++k) {
+            d.getPacketDefinitions().add(new PacketDefinition("P3" + k, new IdentFieldMatcher(p3, k * 1000)));
+        }
+
+        Random r = new Random(42);
+        for (boolean ambiguity : new boolean[] {false, true}) {
+            IPacketIdentifier expected = new FieldGroupBasedPacketIdentifier(d, ambiguity);
+            IPacketIdentifier actual = new DecisionTreePacketIdentifier(d, ambiguity);
+            for (int i = 0; i < 20000; ++i) {
+                byte[] packet = new byte[r.nextInt(10) == 0 ? r.nextInt(20) : 20];
+                if (packet.length > 1) {
+                    int a = 98 + r.nextInt(15);
+                    packet[0] = (byte) (a >> 8);
+                    packet[1] = (byte) a;
+                }
+                if (packet.length > 8) {
+                    packet[7] = (byte) (2 + r.nextInt(4));
+                    packet[8] = (byte) r.nextInt(7);
+                }
+                if (packet.length > 10) {
+                    packet[10] = (byte) r.nextInt(3);
+                }
+                if (packet.length > 16) {
+                    int p = r.nextInt(4) == 0 ? r.nextInt(60) * 1000 : r.nextInt(60000);
+                    packet[14] = (byte) (p >> 16);
+                    packet[15] = (byte) (p >> 8);
+                    packet[16] = (byte) p;
+                }
+                assertEquals(identify(expected, packet), identify(actual, packet));
+            }
+        }
+    }
+
+    @Test
+    public void testRecognitionBehaviour() throws PacketNotIdentifiedException, PacketAmbiguityException, IOException {
+        Definition d = load("definitions1.xml");
+        IPacketIdentifier identifier = new DecisionTreePacketIdentifier(d);
+
+        assertEquals("DEF4", identifier.identify(createPacket(303, 3, 25, 0)));
+        assertEquals("DEF2", identifier.identify(createPacket(301, 3, 25, 0)));
+        PacketNotIdentifiedException e = assertThrows(PacketNotIdentifiedException.class, () -> identifier.identify(createPacket(304, 3, 25, 0)));
+        assertArrayEquals(createPacket(304, 3, 25, 0), e.getPacket());
+        assertEquals("DEF6", identifier.identify(createPacket(304, 3, 25, 2)));
+        assertEquals("DEF5", identifier.identify(createPacket(304, 3, 25, 1)));
+        assertThrows(PacketNotIdentifiedException.class, () -> identifier.identify(new byte[3]));
+    }
+
+    @Test
+    public void testRecognitionAmbiguityBehaviour() throws PacketNotIdentifiedException, PacketAmbiguityException, IOException {
+        Definition d = load("definitions3.xml");
+
+        IPacketIdentifier identifier = new DecisionTreePacketIdentifier(d);
+        assertEquals("DEF2", identifier.identify(createPacket(301, 3, 25, 0)));
+        assertEquals("DEF3", identifier.identify(createPacket(300, 3, 25, 2)));
+        assertEquals("DEF1", identifier.identify(createPacket(300, 3, 25, 0)));
+
+        IPacketIdentifier ambiguityIdentifier = new DecisionTreePacketIdentifier(d, true);
+        assertEquals("DEF2", ambiguityIdentifier.identify(createPacket(301, 3, 25, 0)));
+        assertThrows(PacketAmbiguityException.class, () -> ambiguityIdentifier.identify(createPacket(300, 3, 25, 2)));
+        assertEquals("DEF1", ambiguityIdentifier.identify(createPacket(300, 3, 25, 0)));
+    }
+
+    private String identify(IPacketIdentifier identifier, byte[] packet) {
+        try {
+            return identifier.identify(packet);
+        } catch (PacketNotIdentifiedException | PacketAmbiguityException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private Definition load(String resource) throws IOException {
+        InputStream defStr = this.getClass().getClassLoader().getResourceAsStream(resource);
+        assertNotNull(defStr);
+        return Definition.load(defStr);
+    }
+
+    private byte[] createPacket(int a, int t, int s, int p1) {
+        byte[] packet = new byte[20];
+        packet[0] = (byte) ((a >> 8) & 0x07);
+        packet[1] = (byte) a;
+        packet[6] = 0x01;
+        packet[7] = (byte) t;
+        packet[8] = (byte) s;
+        packet[10] = (byte) p1;
+        return packet;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure;
+
+import eu.dariolucia.ccsds.encdec.definition.*;
+import eu.dariolucia.ccsds.encdec.structure.impl.DefaultPacketDecoder;
+import eu.dariolucia.ccsds.encdec.structure.impl.DefaultPacketEncoder;
+import eu.dariolucia.ccsds.encdec.structure.resolvers.PathLocationBasedResolver;
+import eu.dariolucia.ccsds.encdec.value.BitString;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedLayoutDecoderTest {
+
+    @Test
+    void testFixedLayoutDetection() throws IOException {
+        Definition d = load("definitions2.xml");
+        PacketDefinitionIndexer indexer = new PacketDefinitionIndexer(d);
+        assertTrue(FixedLayoutDecoder.isFixedLayout(indexer.retrieveDefinition("DEF1")));
+        assertTrue(FixedLayoutDecoder.isFixedLayout(indexer.retrieveDefinition("DEF2")));
+        assertTrue(FixedLayoutDecoder.isFixedLayout(indexer.retrieveDefinition("DEF4")));
+        // Arrays
+        assertFalse(FixedLayoutDecoder.isFixedLayout(indexer.retrieveDefinition("DEF3")));
+        // References
+        assertFalse(FixedLayoutDecoder.isFixedLayout(indexer.retrieveDefinition("DEF7")));
+        assertThrows(DecodingException.class, () -> FixedLayoutDecoder.compile(indexer.retrieveDefinition("DEF7")));
+    }
+
+    @Test
+    void testDecodeAsWalker() throws IOException, EncodingException, DecodingException {
+        Definition d = load("definitions2.xml");
+        Map<String, Object> map = new TreeMap<>();
+        map.put("DEF1.PARAM1", 2);
+        map.put("DEF1.PARAM2", 124.25f);
+        map.put("DEF1.PARAM3", 61);
+        map.put("DEF1.PARAM4", true);
+        map.put("DEF1.PARAM5", false);
+        map.put("DEF1.PARAM6", new BitString(new byte[]{0x05, 0x50}, 13));
+        map.put("DEF1.PARAM7", new byte[]{0x23, 0x12, (byte) 0x92});
+        map.put("DEF1.PARAM8", "Hello01");
+        map.put("DEF1.PARAM9", true);
+        map.put("DEF1.PARAM10", Instant.ofEpochSecond(123456789, 0));
+        map.put("DEF1.PARAM11", Duration.ofSeconds(127, 0));
+        map.put("DEF1.PARAM12", 7);
+        encodeAndCompare(d, "DEF1", map);
+
+        map.clear();
+        map.put("DEF2.PARAM1", 1);
+        map.put("DEF2.PARAM2", 3);
+        map.put("DEF2.PARAM3", 7);
+        map.put("DEF2.PARAM4", 432.345633);
+        map.put("DEF2.PARAM5", 1.234);
+        map.put("DEF2.PARAM6", 432.345633);
+        map.put("DEF2.PARAM7", Instant.ofEpochSecond(123456789, 123456000));
+        map.put("DEF2.PARAM8", Instant.ofEpochSecond(123456789, 123000000));
+        encodeAndCompare(d, "DEF2", map);
+
+        map.clear();
+        map.put("DEF4.PARAM1", -3);
+        map.put("DEF4.STRUCT1.PARAM_A1", 1);
+        map.put("DEF4.STRUCT1.PARAM_A2", -2);
+        map.put("DEF4.STRUCT1.PARAM_A3", true);
+        map.put("DEF4.PARAM2", 1);
+        encodeAndCompare(d, "DEF4", map);
+    }
+
+    @Test
+    void testPrimitiveDecoding() throws EncodingException, DecodingException {
+        // Unaligned fields, including a 64 bits field spanning 9 bytes, locations and padding
+        EncodedParameter p1 = new EncodedParameter("P1", new FixedType(DataTypeEnum.UNSIGNED_INTEGER, 5), null);
+        EncodedParameter p2 = new EncodedParameter("P2", new FixedType(DataTypeEnum.UNSIGNED_INTEGER, 64), null);
+        EncodedParameter p3 = new EncodedParameter("P3", new FixedType(DataTypeEnum.SIGNED_INTEGER, 32), null);
+        p3.setLocation(new LastRelativeLocation(3, 0));
+        EncodedParameter p4 = new EncodedParameter("P4", new FixedType(DataTypeEnum.ENUMERATED, 7), null);
+        p4.setPaddedWidth(16);
+        EncodedParameter p5 = new EncodedParameter("P5", new FixedType(DataTypeEnum.REAL, 1), null);
+        EncodedParameter p6 = new EncodedParameter("P6", new FixedType(DataTypeEnum.REAL, 2), null);
+        p6.setLocation(new FixedAbsoluteLocation(160));
+        EncodedParameter p7 = new EncodedParameter("P7", new FixedType(DataTypeEnum.BOOLEAN, 0), null);
+        EncodedParameter p8 = new EncodedParameter("P8", new FixedType(DataTypeEnum.CHARACTER_STRING, 2), null);
+        Definition d = new Definition();
+        d.getPacketDefinitions().add(new PacketDefinition("TEST", new PacketStructure(p1, p2, p3, p4, p5, p6, p7, p8)));
+
+        Map<String, Object> map = new TreeMap<>();
+        map.put("TEST.P1", 21);
+        map.put("TEST.P2", 0x0123456789ABCDEFL);
+        map.put("TEST.P3", -123456);
+        map.put("TEST.P4", 100);
+        map.put("TEST.P5", -3.5f);
+        map.put("TEST.P6", 1234.5678);
+        map.put("TEST.P7", true);
+        map.put("TEST.P8", "AB");
+        byte[] encoded = encodeAndCompare(d, "TEST", map);
+
+        FixedLayoutDecoder decoder = FixedLayoutDecoder.compile(d.getPacketDefinitions().get(0));
+        assertEquals(8, decoder.getFieldCount());
+        assertEquals(encoded.length, decoder.getMinimumLength());
+        long[] values = new long[decoder.getFieldCount()];
+        values[7] = -1;
+        decoder.decode(encoded, 0, encoded.length, values);
+        assertEquals(21, values[decoder.getFieldIndex(PathLocation.of("TEST", "P1"))]);
+        assertEquals(0x0123456789ABCDEFL, values[1]);
+        assertEquals(-123456, values[2]);
+        assertEquals(100, values[3]);
+        assertEquals(-3.5, Double.longBitsToDouble(values[4]));
+        assertEquals(1234.5678, Double.longBitsToDouble(values[5]));
+        assertEquals(1, values[6]);
+        // Not primitive, not modified
+        assertFalse(decoder.isPrimitive(7));
+        assertEquals(-1, values[7]);
+        assertEquals(DataTypeEnum.CHARACTER_STRING, decoder.getFieldType(7));
+        assertEquals(PathLocation.of("TEST", "P8"), decoder.getFieldLocation(7));
+        assertEquals(-1, decoder.getFieldIndex(PathLocation.of("TEST", "P9")));
+
+        // Packet too short
+        assertThrows(DecodingException.class, () -> decoder.decode(encoded, 0, encoded.length - 1, values));
+        assertThrows(DecodingException.class, () -> decoder.decode(encoded, 1, encoded.length, null, null));
+    }
+
+    @Test
+    void testWideSignedDecoding() throws EncodingException, DecodingException {
+        // Signed integers wider than 32 bits, unaligned, are decoded as primitives
+        EncodedParameter p1 = new EncodedParameter("P1", new FixedType(DataTypeEnum.UNSIGNED_INTEGER, 3), null);
+        EncodedParameter p2 = new EncodedParameter("P2", new FixedType(DataTypeEnum.SIGNED_INTEGER, 48), null);
+        EncodedParameter p3 = new EncodedParameter("P3", new FixedType(DataTypeEnum.SIGNED_INTEGER, 64), null);
+        EncodedParameter p4 = new EncodedParameter("P4", new FixedType(DataTypeEnum.ENUMERATED, 32), null);
+        Definition d = new Definition();
+        d.getPacketDefinitions().add(new PacketDefinition("TEST", new PacketStructure(p1, p2, p3, p4)));
+
+        Map<String, Object> map = new TreeMap<>();
+        map.put("TEST.P1", 5);
+        map.put("TEST.P2", -123456789012L);
+        map.put("TEST.P3", Long.MIN_VALUE + 17);
+        map.put("TEST.P4", 0x7BCDEF01);
+        byte[] encoded = encodeAndCompare(d, "TEST", map);
+
+        FixedLayoutDecoder decoder = FixedLayoutDecoder.compile(d.getPacketDefinitions().get(0));
+        long[] values = new long[decoder.getFieldCount()];
+        decoder.decode(encoded, 0, encoded.length, values);
+        for(int i = 0; i < decoder.getFieldCount(); ++i) {
+            assertTrue(decoder.isPrimitive(i));
+        }
+        assertEquals(5, values[0]);
+        assertEquals(-123456789012L, values[1]);
+        assertEquals(Long.MIN_VALUE + 17, values[2]);
+        assertEquals(0x7BCDEF01, values[3]);
+    }
+
+    private Definition load(String resource) throws IOException {
+        InputStream defStr = this.getClass().getClassLoader().getResourceAsStream(resource);
+        assertNotNull(defStr);
+        return Definition.load(defStr);
+    }
+
+    private byte[] encodeAndCompare(Definition d, String packetDefinition, Map<String, Object> map) throws EncodingException, DecodingException {
+        byte[] encoded = new DefaultPacketEncoder(d).encode(packetDefinition, new PathLocationBasedResolver(map));
+        DecodingResult expected = new DefaultPacketDecoder(d).decode(packetDefinition, encoded);
+        DecodingResult actual = new DefaultPacketDecoder(new PacketDefinitionIndexer(d), null, true).decode(packetDefinition, encoded);
+        assertEquals(map.size(), actual.getDecodedItemsAsMap().size());
+        compareItems(expected.getDecodedItems(), actual.getDecodedItems());
+        // Same result at offset
+        byte[] shifted = new byte[encoded.length + 3];
+        System.arraycopy(encoded, 0, shifted, 3, encoded.length);
+        DecodingResult atOffset = FixedLayoutDecoder.compile(expected.getDefinition()).decode(shifted, 3, encoded.length, null, null);
+        compareItems(expected.getDecodedItems(), atOffset.getDecodedItems());
+        return encoded;
+    }
+
+    private void compareItems(List<? extends DecodingResult.Item> expected, List<? extends DecodingResult.Item> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            DecodingResult.Item e = expected.get(i);
+            DecodingResult.Item a = actual.get(i);
+            assertEquals(e.getClass(), a.getClass());
+            assertEquals(e.location, a.location);
+            assertEquals(e.name, a.name);
+            if (e instanceof DecodingResult.Parameter) {
+                DecodingResult.Parameter ep = (DecodingResult.Parameter) e;
+                DecodingResult.Parameter ap = (DecodingResult.Parameter) a;
+                assertEquals(ep.actualType, ap.actualType);
+                if (ep.value instanceof byte[]) {
+                    assertArrayEquals((byte[]) ep.value, (byte[]) ap.value);
+                } else {
+                    assertEquals(ep.value, ap.value);
+                }
+            } else {
+                compareItems(((DecodingResult.Structure) e).properties, ((DecodingResult.Structure) a).properties);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure;
+
+import eu.dariolucia.ccsds.encdec.definition.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PacketDefinitionIndexerTest {
+
+    @Test
+    void testIndexes() {
+        Definition d = new Definition();
+        for (int i = 0; i < 5000; ++i) {
+            d.getParameters().add(new ParameterDefinition("PARAM" + i, i * 7L - 2000, "", new FixedType(i % 2 == 0 ? DataTypeEnum.UNSIGNED_INTEGER : DataTypeEnum.REAL, 2)));
+        }
+        // Duplicated external ID and ID: the first one is indexed
+        d.getParameters().add(new ParameterDefinition("PARAM0", -2000, "Duplicated", new FixedType(DataTypeEnum.BOOLEAN, 0)));
+        // Not set and out of int range: not indexed by external ID
+        d.getParameters().add(new ParameterDefinition("NOT_SET", ParameterDefinition.EXTERNAL_ID_NOT_SET, "", new FixedType(DataTypeEnum.BOOLEAN, 0)));
+        d.getParameters().add(new ParameterDefinition("LONG", 1L << 32, "", new FixedType(DataTypeEnum.BOOLEAN, 0)));
+        PacketDefinition tm1 = new PacketDefinition("TM1");
+        tm1.setType("TM");
+        PacketDefinition tc1 = new PacketDefinition("TC1");
+        tc1.setType("TC");
+        PacketDefinition tm2 = new PacketDefinition("TM2");
+        tm2.setType("TM");
+        d.getPacketDefinitions().add(tm1);
+        d.getPacketDefinitions().add(tc1);
+        d.getPacketDefinitions().add(tm2);
+
+        PacketDefinitionIndexer indexer = new PacketDefinitionIndexer(d);
+        assertSame(d, indexer.getDefinitions());
+        for (int i = 0; i < 5000; ++i) {
+            ParameterDefinition pd = indexer.retrieveParameterByExternalId(i * 7 - 2000);
+            assertNotNull(pd);
+            assertEquals("PARAM" + i, pd.getId());
+            assertSame(pd, indexer.retrieveParameter("PARAM" + i));
+            assertNull(indexer.retrieveParameterByExternalId(i * 7 - 1999));
+        }
+        assertEquals("", indexer.retrieveParameterByExternalId(-2000).getDescription());
+        assertEquals("", indexer.retrieveParameter("PARAM0").getDescription());
+        assertNull(indexer.retrieveParameterByExternalId(ParameterDefinition.EXTERNAL_ID_NOT_SET));
+        assertNull(indexer.retrieveParameterByExternalId(0));
+        assertNotNull(indexer.retrieveParameter("NOT_SET"));
+        assertNotNull(indexer.retrieveParameter("LONG"));
+        assertNull(indexer.retrieveParameter("NOT_THERE"));
+
+        assertEquals(2500, indexer.retrieveParametersByType(DataTypeEnum.UNSIGNED_INTEGER).size());
+        assertEquals(2500, indexer.retrieveParametersByType(DataTypeEnum.REAL).size());
+        assertEquals(3, indexer.retrieveParametersByType(DataTypeEnum.BOOLEAN).size());
+        assertTrue(indexer.retrieveParametersByType(DataTypeEnum.OCTET_STRING).isEmpty());
+
+        List<PacketDefinition> tms = indexer.retrieveDefinitionsByType("TM");
+        assertEquals(2, tms.size());
+        assertSame(tm1, tms.get(0));
+        assertSame(tm2, tms.get(1));
+        assertEquals(1, indexer.retrieveDefinitionsByType("TC").size());
+        assertTrue(indexer.retrieveDefinitionsByType("Other").isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> tms.add(tc1));
+        assertSame(tc1, indexer.retrieveDefinition("TC1"));
+    }
+
+    @Test
+    void testEmptyDefinition() {
+        PacketDefinitionIndexer indexer = new PacketDefinitionIndexer(new Definition());
+        assertNull(indexer.retrieveParameterByExternalId(0));
+        assertNull(indexer.retrieveParameter("PARAM"));
+        assertNull(indexer.retrieveDefinition("DEF"));
+        assertTrue(indexer.retrieveDefinitionsByType(null).isEmpty());
+    }
+}
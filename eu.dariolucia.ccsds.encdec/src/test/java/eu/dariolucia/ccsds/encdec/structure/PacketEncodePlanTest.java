@@ -0,0 +1,233 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure;
+
+import eu.dariolucia.ccsds.encdec.definition.*;
+import eu.dariolucia.ccsds.encdec.structure.impl.CompiledPacketEncoder;
+import eu.dariolucia.ccsds.encdec.structure.impl.DefaultPacketEncoder;
+import eu.dariolucia.ccsds.encdec.structure.resolvers.PathLocationBasedResolver;
+import eu.dariolucia.ccsds.encdec.value.BitString;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PacketEncodePlanTest {
+
+    @Test
+    void testCompilableDetection() throws IOException {
+        Definition d = load("definitions2.xml");
+        PacketDefinitionIndexer indexer = new PacketDefinitionIndexer(d);
+        assertTrue(PacketEncodePlan.isCompilable(indexer.retrieveDefinition("DEF1")));
+        assertTrue(PacketEncodePlan.isCompilable(indexer.retrieveDefinition("DEF2")));
+        // Fixed size array
+        assertTrue(PacketEncodePlan.isCompilable(indexer.retrieveDefinition("DEF3")));
+        assertTrue(PacketEncodePlan.isCompilable(indexer.retrieveDefinition("DEF4")));
+        // References
+        assertFalse(PacketEncodePlan.isCompilable(indexer.retrieveDefinition("DEF7")));
+        assertThrows(EncodingException.class, () -> PacketEncodePlan.compile(indexer.retrieveDefinition("DEF7")));
+    }
+
+    @Test
+    void testEncodeAsWalker() throws IOException, EncodingException {
+        Definition d = load("definitions2.xml");
+        Map<String, Object> map = new TreeMap<>();
+        map.put("DEF1.PARAM1", 2);
+        map.put("DEF1.PARAM2", 124.25f);
+        map.put("DEF1.PARAM3", 61);
+        map.put("DEF1.PARAM4", true);
+        map.put("DEF1.PARAM5", false);
+        map.put("DEF1.PARAM6", new BitString(new byte[]{0x05, 0x50}, 13));
+        map.put("DEF1.PARAM7", new byte[]{0x23, 0x12, (byte) 0x92});
+        map.put("DEF1.PARAM8", "Hello01");
+        map.put("DEF1.PARAM9", true);
+        map.put("DEF1.PARAM10", Instant.ofEpochSecond(123456789, 0));
+        map.put("DEF1.PARAM11", Duration.ofSeconds(127, 0));
+        map.put("DEF1.PARAM12", 7);
+        encodeAndCompare(d, "DEF1", map);
+
+        map.clear();
+        map.put("DEF2.PARAM1", 1);
+        map.put("DEF2.PARAM2", 3);
+        map.put("DEF2.PARAM3", 7);
+        map.put("DEF2.PARAM4", 432.345633);
+        map.put("DEF2.PARAM5", 1.234);
+        map.put("DEF2.PARAM6", 432.345633);
+        map.put("DEF2.PARAM7", Instant.ofEpochSecond(123456789, 123456000));
+        map.put("DEF2.PARAM8", Instant.ofEpochSecond(123456789, 123000000));
+        encodeAndCompare(d, "DEF2", map);
+
+        map.clear();
+        map.put("DEF3.PARAM1", 3);
+        for (int i = 0; i < 3; ++i) {
+            map.put("DEF3.ARRAY1#" + i + ".PARAM_A1", -i);
+            map.put("DEF3.ARRAY1#" + i + ".PARAM_A2", i + 4);
+            map.put("DEF3.ARRAY1#" + i + ".PARAM_A3", i % 2 == 0);
+        }
+        map.put("DEF3.PARAM2", -5);
+        PacketEncodePlan plan = encodeAndCompare(d, "DEF3", map);
+        assertEquals(11, plan.getSlotCount());
+        assertEquals(4, plan.getSlot(PathLocation.of("DEF3", "ARRAY1").appendIndex(1).append("PARAM_A1")));
+
+        map.clear();
+        map.put("DEF4.PARAM1", -3);
+        map.put("DEF4.STRUCT1.PARAM_A1", 1);
+        map.put("DEF4.STRUCT1.PARAM_A2", -2);
+        map.put("DEF4.STRUCT1.PARAM_A3", true);
+        map.put("DEF4.PARAM2", 1);
+        encodeAndCompare(d, "DEF4", map);
+    }
+
+    @Test
+    void testPrimitiveEncoding() throws EncodingException {
+        // Unaligned fields, including a 64 bits field spanning 9 bytes, locations, padding and out of range values
+        EncodedParameter p1 = new EncodedParameter("P1", new FixedType(DataTypeEnum.UNSIGNED_INTEGER, 5), null);
+        EncodedParameter p2 = new EncodedParameter("P2", new FixedType(DataTypeEnum.UNSIGNED_INTEGER, 64), null);
+        EncodedParameter p3 = new EncodedParameter("P3", new FixedType(DataTypeEnum.SIGNED_INTEGER, 32), null);
+        p3.setLocation(new LastRelativeLocation(3, 0));
+        EncodedParameter p4 = new EncodedParameter("P4", new FixedType(DataTypeEnum.ENUMERATED, 7), null);
+        p4.setPaddedWidth(16);
+        EncodedParameter p5 = new EncodedParameter("P5", new FixedType(DataTypeEnum.REAL, 1), null);
+        EncodedParameter p6 = new EncodedParameter("P6", new FixedType(DataTypeEnum.REAL, 2), null);
+        p6.setLocation(new FixedAbsoluteLocation(160));
+        EncodedParameter p7 = new EncodedParameter("P7", new FixedType(DataTypeEnum.BOOLEAN, 0), null);
+        EncodedParameter p8 = new EncodedParameter("P8", new FixedType(DataTypeEnum.CHARACTER_STRING, 2), null);
+        EncodedParameter p9 = new EncodedParameter("P9", new FixedType(DataTypeEnum.UNSIGNED_INTEGER, 6), null);
+        p9.setLocation(new EncodedItemRelativeLocation(1, 4, "P4"));
+        EncodedParameter p10 = new EncodedParameter("P10", new FixedType(DataTypeEnum.REAL, 3), null);
+        p10.setLocation(new FixedAbsoluteLocation(300));
+        Definition d = new Definition();
+        d.getPacketDefinitions().add(new PacketDefinition("TEST", new PacketStructure(p1, p2, p3, p4, p5, p6, p7, p8, p9, p10)));
+
+        Map<String, Object> map = new TreeMap<>();
+        map.put("TEST.P1", 21);
+        map.put("TEST.P2", 0xF123456789ABCDEFL);
+        map.put("TEST.P3", -123456);
+        map.put("TEST.P4", 100);
+        map.put("TEST.P5", -3.5f);
+        map.put("TEST.P6", 1234.5678);
+        map.put("TEST.P7", true);
+        map.put("TEST.P8", "AB");
+        map.put("TEST.P9", 12);
+        map.put("TEST.P10", -0.75);
+        encodeAndCompare(d, "TEST", map);
+
+        // Values not fitting in their fields are encoded as by the BitEncoderDecoder
+        map.put("TEST.P1", 45);
+        map.put("TEST.P4", -1);
+        map.put("TEST.P9", 64);
+        encodeAndCompare(d, "TEST", map);
+    }
+
+    @Test
+    void testValueBufferEncoding() throws EncodingException {
+        EncodedParameter p1 = new EncodedParameter("P1", new FixedType(DataTypeEnum.UNSIGNED_INTEGER, 12), null);
+        EncodedParameter p2 = new EncodedParameter("P2", new FixedType(DataTypeEnum.REAL, 2), null);
+        EncodedParameter p3 = new EncodedParameter("P3", new FixedType(DataTypeEnum.OCTET_STRING, 2), null);
+        Definition d = new Definition();
+        d.getPacketDefinitions().add(new PacketDefinition("TEST", new PacketStructure(p1, p2, p3)));
+        PacketEncodePlan plan = PacketEncodePlan.compile(d.getPacketDefinitions().get(0));
+        assertEquals(12, plan.getEncodedLength());
+        assertEquals(DataTypeEnum.REAL, plan.getSlotType(1));
+        assertEquals(PathLocation.of("TEST", "P3"), plan.getSlotLocation(2));
+        assertSame(p3, plan.getSlotParameter(2));
+        assertEquals(-1, plan.getSlot(PathLocation.of("TEST", "P4")));
+
+        Map<String, Object> map = new TreeMap<>();
+        map.put("TEST.P1", 0xABC);
+        map.put("TEST.P2", -2.5);
+        map.put("TEST.P3", new byte[]{0x11, 0x22});
+        byte[] expected = new DefaultPacketEncoder(d).encode("TEST", new PathLocationBasedResolver(map));
+
+        EncodeValueBuffer values = plan.newValueBuffer();
+        values.setLong(0, 0xABC).setDouble(1, -2.5).setObject(2, new byte[]{0x11, 0x22});
+        // Old contents overwritten, surrounding bytes not modified
+        byte[] data = new byte[expected.length + 4];
+        Arrays.fill(data, (byte) 0x5A);
+        assertEquals(expected.length, plan.encode(values, data, 2, null));
+        assertArrayEquals(expected, Arrays.copyOfRange(data, 2, 2 + expected.length));
+        assertEquals(0x5A, data[1]);
+        assertEquals(0x5A, data[data.length - 2]);
+
+        ByteBuffer heap = ByteBuffer.allocate(20);
+        heap.position(3);
+        plan.encode(values, heap, null);
+        assertEquals(3 + expected.length, heap.position());
+        assertArrayEquals(expected, Arrays.copyOfRange(heap.array(), 3, 3 + expected.length));
+        ByteBuffer direct = ByteBuffer.allocateDirect(20);
+        plan.encode(values, direct, null);
+        assertEquals(expected.length, direct.position());
+        byte[] fromDirect = new byte[expected.length];
+        direct.flip();
+        direct.get(fromDirect);
+        assertArrayEquals(expected, fromDirect);
+
+        // Errors
+        assertThrows(EncodingException.class, () -> plan.encode(values, new byte[expected.length], 1, null));
+        assertThrows(EncodingException.class, () -> plan.encode(values, ByteBuffer.allocate(5), null));
+        assertThrows(EncodingException.class, () -> plan.encode(new EncodeValueBuffer(2), null));
+        values.setObject(2, new byte[]{0x11});
+        assertThrows(EncodingException.class, () -> plan.encode(values, null));
+        values.setObject(2, "AB");
+        assertThrows(EncodingException.class, () -> plan.encode(values, null));
+    }
+
+    @Test
+    void testCompiledPacketEncoder() throws IOException, EncodingException {
+        Definition d = load("definitions2.xml");
+        CompiledPacketEncoder encoder = new CompiledPacketEncoder(d);
+        Map<String, Object> map = new TreeMap<>();
+        map.put("DEF4.PARAM1", -3);
+        map.put("DEF4.STRUCT1.PARAM_A1", 1);
+        map.put("DEF4.STRUCT1.PARAM_A2", -2);
+        map.put("DEF4.STRUCT1.PARAM_A3", true);
+        map.put("DEF4.PARAM2", 1);
+        byte[] expected = new DefaultPacketEncoder(d).encode("DEF4", new PathLocationBasedResolver(map));
+        assertArrayEquals(expected, encoder.encode("DEF4", new PathLocationBasedResolver(map)));
+        assertSame(encoder.getPlan("DEF4"), encoder.getPlan("DEF4"));
+        // Not compilable: encoded as by the default encoder
+        assertThrows(EncodingException.class, () -> encoder.getPlan("DEF7"));
+        assertThrows(EncodingException.class, () -> encoder.getPlan("DEF_UNKNOWN"));
+    }
+
+    private Definition load(String resource) throws IOException {
+        InputStream defStr = this.getClass().getClassLoader().getResourceAsStream(resource);
+        assertNotNull(defStr);
+        return Definition.load(defStr);
+    }
+
+    private PacketEncodePlan encodeAndCompare(Definition d, String packetDefinition, Map<String, Object> map) throws EncodingException {
+        byte[] expected = new DefaultPacketEncoder(d).encode(packetDefinition, new PathLocationBasedResolver(map));
+        PacketEncodePlan plan = PacketEncodePlan.compile(new PacketDefinitionIndexer(d).retrieveDefinition(packetDefinition));
+        assertEquals(expected.length, plan.getEncodedLength());
+        EncodeValueBuffer values = plan.newValueBuffer();
+        plan.fill(new PathLocationBasedResolver(map), values);
+        assertArrayEquals(expected, plan.encode(values, null));
+        // Same result at offset, on a dirty array
+        byte[] data = new byte[expected.length + 5];
+        Arrays.fill(data, (byte) 0xFF);
+        plan.encode(values, data, 5, null);
+        assertArrayEquals(expected, Arrays.copyOfRange(data, 5, data.length));
+        return plan;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure.impl;
+
+import eu.dariolucia.ccsds.encdec.definition.Definition;
+import eu.dariolucia.ccsds.encdec.structure.DecodingException;
+import eu.dariolucia.ccsds.encdec.structure.DecodingResult;
+import eu.dariolucia.ccsds.encdec.structure.EncodingException;
+import eu.dariolucia.ccsds.encdec.structure.PacketDefinitionIndexer;
+import eu.dariolucia.ccsds.encdec.structure.ParameterValue;
+import eu.dariolucia.ccsds.encdec.structure.resolvers.PathLocationBasedResolver;
+import eu.dariolucia.ccsds.encdec.time.IGenerationTimeProcessor;
+import eu.dariolucia.ccsds.encdec.time.impl.DefaultGenerationTimeProcessor;
+import eu.dariolucia.ccsds.encdec.value.BitString;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledPacketDecoderTest {
+
+    @Test
+    void testFixedLayout() throws IOException, EncodingException, DecodingException {
+        Definition d = load("definitions2.xml");
+        Map<String, Object> map = new TreeMap<>();
+        map.put("DEF1.PARAM1", 2);
+        map.put("DEF1.PARAM2", 124.25f);
+        map.put("DEF1.PARAM3", 61);
+        map.put("DEF1.PARAM4", true);
+        map.put("DEF1.PARAM5", false);
+        map.put("DEF1.PARAM6", new BitString(new byte[]{0x05, 0x50}, 13));
+        map.put("DEF1.PARAM7", new byte[]{0x23, 0x12, (byte) 0x92});
+        map.put("DEF1.PARAM8", "Hello01");
+        map.put("DEF1.PARAM9", true);
+        map.put("DEF1.PARAM10", Instant.ofEpochSecond(123456789, 0));
+        map.put("DEF1.PARAM11", Duration.ofSeconds(127, 0));
+        map.put("DEF1.PARAM12", 7);
+        encodeAndCompare(d, "DEF1", map, null);
+
+        map.clear();
+        map.put("DEF2.PARAM1", 1);
+        map.put("DEF2.PARAM2", 3);
+        map.put("DEF2.PARAM3", 7);
+        map.put("DEF2.PARAM4", 432.345633);
+        map.put("DEF2.PARAM5", 1.234);
+        map.put("DEF2.PARAM6", 432.345633);
+        map.put("DEF2.PARAM7", Instant.ofEpochSecond(123456789, 123456000));
+        map.put("DEF2.PARAM8", Instant.ofEpochSecond(123456789, 123000000));
+        encodeAndCompare(d, "DEF2", map, null);
+
+        map.clear();
+        map.put("DEF11.PARAM1", Instant.ofEpochSecond(123456789, 12332789));
+        map.put("DEF11.PARAM2", Duration.ofSeconds(1234, 9115695));
+        encodeAndCompare(d, "DEF11", map, null);
+    }
+
+    @Test
+    void testArraysAndStructures() throws IOException, EncodingException, DecodingException {
+        Definition d = load("definitions2.xml");
+        Map<String, Object> map = new TreeMap<>();
+        map.put("DEF3.PARAM1", 3);
+        map.put("DEF3.ARRAY1#0.PARAM_A1", 1);
+        map.put("DEF3.ARRAY1#0.PARAM_A2", 2);
+        map.put("DEF3.ARRAY1#0.PARAM_A3", true);
+        map.put("DEF3.ARRAY1#1.PARAM_A1", 3);
+        map.put("DEF3.ARRAY1#1.PARAM_A2", 4);
+        map.put("DEF3.ARRAY1#1.PARAM_A3", false);
+        map.put("DEF3.ARRAY1#2.PARAM_A1", 5);
+        map.put("DEF3.ARRAY1#2.PARAM_A2", -3);
+        map.put("DEF3.ARRAY1#2.PARAM_A3", true);
+        map.put("DEF3.PARAM2", 7);
+        encodeAndCompare(d, "DEF3", map, null);
+
+        map.clear();
+        map.put("DEF4.PARAM1", 3);
+        map.put("DEF4.STRUCT1.PARAM_A1", 1);
+        map.put("DEF4.STRUCT1.PARAM_A2", 2);
+        map.put("DEF4.STRUCT1.PARAM_A3", true);
+        map.put("DEF4.PARAM2", 1);
+        encodeAndCompare(d, "DEF4", map, null);
+
+        map.clear();
+        map.put("DEF5.PARAM1", 2);
+        map.put("DEF5.ARRAY1#0.PARAM_A1", 2);
+        map.put("DEF5.ARRAY1#0.ARRAY2#0.PARAM_AA1", 2);
+        map.put("DEF5.ARRAY1#0.ARRAY2#0.PARAM_AA2", 3);
+        map.put("DEF5.ARRAY1#0.ARRAY2#1.PARAM_AA1", 5);
+        map.put("DEF5.ARRAY1#0.ARRAY2#1.PARAM_AA2", 6);
+        map.put("DEF5.ARRAY1#1.PARAM_A1", 3);
+        map.put("DEF5.ARRAY1#1.ARRAY2#0.PARAM_AA1", 2);
+        map.put("DEF5.ARRAY1#1.ARRAY2#0.PARAM_AA2", 3);
+        map.put("DEF5.ARRAY1#1.ARRAY2#1.PARAM_AA1", 5);
+        map.put("DEF5.ARRAY1#1.ARRAY2#1.PARAM_AA2", 6);
+        map.put("DEF5.ARRAY1#1.ARRAY2#2.PARAM_AA1", 5);
+        map.put("DEF5.ARRAY1#1.ARRAY2#2.PARAM_AA2", 6);
+        map.put("DEF5.PARAM2", 7);
+        map.put("DEF5.PARAM3", true);
+        map.put("DEF5.PARAM4", false);
+        encodeAndCompare(d, "DEF5", map, null);
+
+        map.clear();
+        map.put("DEF6.ARRAY1#0.STRUCT1.ARRAY2#0.PARAM_AA1", 2);
+        map.put("DEF6.ARRAY1#0.STRUCT1.ARRAY2#1.PARAM_AA1", 2);
+        map.put("DEF6.ARRAY1#0.STRUCT1.STRUCT2.PARAM_S2", 4);
+        map.put("DEF6.ARRAY1#1.STRUCT1.ARRAY2#0.PARAM_AA1", 3);
+        map.put("DEF6.ARRAY1#1.STRUCT1.ARRAY2#1.PARAM_AA1", 3);
+        map.put("DEF6.ARRAY1#1.STRUCT1.STRUCT2.PARAM_S2", 6);
+        encodeAndCompare(d, "DEF6", map, null);
+    }
+
+    @Test
+    void testReferences() throws IOException, EncodingException, DecodingException {
+        Definition d = load("definitions2.xml");
+        char[] tmpArr = new char[59];
+        Arrays.fill(tmpArr, ' ');
+        Map<String, Object> map = new TreeMap<>();
+        map.put("DEF7.PARAM1", 8);
+        map.put("DEF7.PARAM2", 59);
+        map.put("DEF7.PARAM3", new String(tmpArr));
+        encodeAndCompare(d, "DEF7", map, null);
+
+        map.clear();
+        map.put("DEF8.PARAM1", 3);
+        map.put("DEF8.PARAM2", 1);
+        encodeAndCompare(d, "DEF8", map, null);
+
+        map.clear();
+        map.put("DEF9.PARAM1", 3);
+        map.put("DEF9.PARAM2", 1);
+        map.put("DEF9.PARAM3", 4);
+        map.put("DEF9.PARAM4", 7);
+        map.put("DEF9.PARAM5", 5);
+        encodeAndCompare(d, "DEF9", map, null);
+
+        map.clear();
+        map.put("DEF10.PARAM1", 3);
+        map.put("DEF10.ARRAY1#0.PARAM_A1", 1234);
+        map.put("DEF10.ARRAY1#0.PARAM_A2", 73);
+        map.put("DEF10.ARRAY1#0.PARAM_A3", 74);
+        map.put("DEF10.ARRAY1#1.PARAM_A1", 1235);
+        map.put("DEF10.ARRAY1#1.PARAM_A2", 1);
+        map.put("DEF10.ARRAY1#1.PARAM_A3", 2);
+        map.put("DEF10.ARRAY1#2.PARAM_A1", 1236);
+        map.put("DEF10.ARRAY1#2.PARAM_A2", 78.4f);
+        map.put("DEF10.ARRAY1#2.PARAM_A3", 123.232);
+        encodeAndCompare(d, "DEF10", map, null);
+
+        map.clear();
+        map.put("DEF12.PARAM1", 2);
+        map.put("DEF12.PARAM2", 124.25f);
+        map.put("DEF12.PARAM3", true);
+        map.put("DEF12.PARAM4", -4);
+        encodeAndCompare(d, "DEF12", map, null);
+    }
+
+    @Test
+    void testLinkedParametersAndTime() throws IOException, EncodingException, DecodingException {
+        Definition d = load("definitions4.xml");
+        Map<String, Object> map = new TreeMap<>();
+        map.put("DEF1.PARAM1", Instant.ofEpochSecond(123456789, 0));
+        map.put("DEF1.PARAM2", 2);
+        map.put("DEF1.PARAM3", 124.25f);
+        map.put("DEF1.PARAM4", 61);
+        map.put("DEF1.PARAM5", 30);
+        map.put("DEF1.PARAM6", Duration.ofSeconds(127, 700000000));
+        map.put("DEF1.PARAM7", true);
+        map.put("DEF1.PARAM8", false);
+        map.put("DEF1.PARAM9", false);
+        encodeAndCompare(d, "DEF1", map, new DefaultGenerationTimeProcessor(Instant.ofEpochSecond(0)));
+
+        d = load("definitions9.xml");
+        map.clear();
+        map.put("DEF1.PARAM1", 4);
+        map.put("DEF1.ARRAY1#0.PARAM_A1", 4);
+        map.put("DEF1.ARRAY1#0.PARAM_A2", true);
+        map.put("DEF1.ARRAY1#1.PARAM_A1", 2);
+        map.put("DEF1.ARRAY1#1.PARAM_A2", 27.65);
+        map.put("DEF1.ARRAY1#2.PARAM_A1", 8);
+        map.put("DEF1.ARRAY1#2.PARAM_A2", "0123456");
+        map.put("DEF1.ARRAY1#3.PARAM_A1", 7);
+        map.put("DEF1.ARRAY1#3.PARAM_A2", new byte[] {0x11, 0x22, 0x33});
+        map.put("DEF1.PARAM3", 12);
+        map.put("DEF1.PARAM4", 10);
+        DecodingResult result = encodeAndCompare(d, "DEF1", map, null);
+        assertEquals(4, result.getDecodedParameters().size());
+    }
+
+    @Test
+    void testCompileAll() throws IOException, DecodingException {
+        CompiledPacketDecoder decoder = new CompiledPacketDecoder(new PacketDefinitionIndexer(load("definitions2.xml")), Instant.ofEpochSecond(0));
+        decoder.compileAll();
+    }
+
+    @Test
+    void testDefinitionUnknown() throws IOException {
+        CompiledPacketDecoder decoder = new CompiledPacketDecoder(load("definitions8.xml"));
+        assertThrows(DecodingException.class, () -> decoder.decode("Not there", new byte[0]));
+    }
+
+    private Definition load(String resource) throws IOException {
+        InputStream defStr = this.getClass().getClassLoader().getResourceAsStream(resource);
+        assertNotNull(defStr);
+        return Definition.load(defStr);
+    }
+
+    private DecodingResult encodeAndCompare(Definition d, String packetDefinition, Map<String, Object> map, IGenerationTimeProcessor timeProcessor) throws EncodingException, DecodingException {
+        byte[] encoded = new DefaultPacketEncoder(d).encode(packetDefinition, new PathLocationBasedResolver(map));
+        DecodingResult expected = new DefaultPacketDecoder(d).decode(packetDefinition, encoded, timeProcessor);
+        CompiledPacketDecoder decoder = new CompiledPacketDecoder(d);
+        // Decode twice, to check that the plan can be reused
+        for (int i = 0; i < 2; ++i) {
+            DecodingResult actual = decoder.decode(packetDefinition, encoded, timeProcessor);
+            assertSame(expected.getDefinition(), actual.getDefinition());
+            assertEquals(map.size(), actual.getDecodedItemsAsMap().size());
+            compareItems(expected.getDecodedItems(), actual.getDecodedItems());
+            List<ParameterValue> expectedParams = expected.getDecodedParameters();
+            List<ParameterValue> actualParams = actual.getDecodedParameters();
+            assertEquals(expectedParams.size(), actualParams.size());
+            for (int j = 0; j < expectedParams.size(); ++j) {
+                assertEquals(expectedParams.get(j).getId(), actualParams.get(j).getId());
+                assertEquals(expectedParams.get(j).getExternalId(), actualParams.get(j).getExternalId());
+                assertEquals(expectedParams.get(j).getGenerationTime(), actualParams.get(j).getGenerationTime());
+                compareValue(expectedParams.get(j).getValue(), actualParams.get(j).getValue());
+            }
+        }
+        return expected;
+    }
+
+    private void compareItems(List<? extends DecodingResult.Item> expected, List<? extends DecodingResult.Item> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            DecodingResult.Item e = expected.get(i);
+            DecodingResult.Item a = actual.get(i);
+            assertEquals(e.getClass(), a.getClass());
+            assertEquals(e.location, a.location);
+            assertEquals(e.name, a.name);
+            if (e instanceof DecodingResult.Parameter) {
+                DecodingResult.Parameter ep = (DecodingResult.Parameter) e;
+                DecodingResult.Parameter ap = (DecodingResult.Parameter) a;
+                assertSame(ep.parameterItem, ap.parameterItem);
+                assertEquals(ep.actualType, ap.actualType);
+                assertEquals(ep.generationTime, ap.generationTime);
+                compareValue(ep.value, ap.value);
+            } else if (e instanceof DecodingResult.Structure) {
+                compareItems(((DecodingResult.Structure) e).properties, ((DecodingResult.Structure) a).properties);
+            } else if (e instanceof DecodingResult.Array) {
+                compareItems(((DecodingResult.Array) e).arrayItems, ((DecodingResult.Array) a).arrayItems);
+            } else {
+                compareItems(((DecodingResult.ArrayItem) e).array, ((DecodingResult.ArrayItem) a).array);
+            }
+        }
+    }
+
+    private void compareValue(Object expected, Object actual) {
+        if (expected instanceof byte[]) {
+            assertArrayEquals((byte[]) expected, (byte[]) actual);
+        } else {
+            assertEquals(expected, actual);
+        }
+    }
+}
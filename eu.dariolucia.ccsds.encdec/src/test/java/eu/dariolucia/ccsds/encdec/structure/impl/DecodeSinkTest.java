@@ -0,0 +1,187 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.structure.impl;
+
+import eu.dariolucia.ccsds.encdec.definition.Definition;
+import eu.dariolucia.ccsds.encdec.definition.PacketDefinition;
+import eu.dariolucia.ccsds.encdec.structure.DecodingException;
+import eu.dariolucia.ccsds.encdec.structure.DecodingResult;
+import eu.dariolucia.ccsds.encdec.structure.EncodingException;
+import eu.dariolucia.ccsds.encdec.structure.IDecodeSink;
+import eu.dariolucia.ccsds.encdec.structure.IPacketDecoder;
+import eu.dariolucia.ccsds.encdec.structure.PacketDefinitionIndexer;
+import eu.dariolucia.ccsds.encdec.structure.ParameterValue;
+import eu.dariolucia.ccsds.encdec.structure.resolvers.PathLocationBasedResolver;
+import eu.dariolucia.ccsds.encdec.time.IGenerationTimeProcessor;
+import eu.dariolucia.ccsds.encdec.time.impl.DefaultGenerationTimeProcessor;
+import eu.dariolucia.ccsds.encdec.value.BitString;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecodeSinkTest {
+
+    @Test
+    void testFixedLinkedParameters() throws IOException, EncodingException, DecodingException {
+        Definition d = load("definitions8.xml");
+        Map<String, Object> map = new TreeMap<>();
+        map.put("DEF1.PARAM1", -2);
+        map.put("DEF1.PARAM2", 124.25f);
+        map.put("DEF1.PARAM3", 61);
+        map.put("DEF1.PARAM4", true);
+        map.put("DEF1.PARAM5", false);
+        map.put("DEF1.PARAM6", new BitString(new byte[]{0x05, 0x50}, 13));
+        map.put("DEF1.PARAM7", new byte[]{0x23, 0x12, (byte) 0x92});
+        map.put("DEF1.PARAM8", "Hello01");
+        map.put("DEF1.PARAM9", true);
+        map.put("DEF1.PARAM10", Instant.ofEpochSecond(123456789, 0));
+        map.put("DEF1.PARAM11", Duration.ofSeconds(127, 0));
+        map.put("DEF1.PARAM12", 3);
+        List<Object[]> values = encodeAndCompare(d, "DEF1", map, null);
+        assertEquals(11, values.size());
+        assertEquals(11, encodeAndCompare(d, "DEF1", map, new DefaultGenerationTimeProcessor(Instant.ofEpochSecond(0))).size());
+    }
+
+    @Test
+    void testReferenceLinkedParameters() throws IOException, EncodingException, DecodingException {
+        Definition d = load("definitions9.xml");
+        Map<String, Object> map = new TreeMap<>();
+        map.put("DEF1.PARAM1", 4);
+        map.put("DEF1.ARRAY1#0.PARAM_A1", 4);
+        map.put("DEF1.ARRAY1#0.PARAM_A2", true);
+        map.put("DEF1.ARRAY1#1.PARAM_A1", 2);
+        map.put("DEF1.ARRAY1#1.PARAM_A2", 27.65);
+        map.put("DEF1.ARRAY1#2.PARAM_A1", 8);
+        map.put("DEF1.ARRAY1#2.PARAM_A2", "0123456");
+        map.put("DEF1.ARRAY1#3.PARAM_A1", 7);
+        map.put("DEF1.ARRAY1#3.PARAM_A2", new byte[] {0x11, 0x22, 0x33});
+        map.put("DEF1.PARAM3", 12);
+        map.put("DEF1.PARAM4", 10);
+        assertEquals(4, encodeAndCompare(d, "DEF1", map, null).size());
+    }
+
+    @Test
+    void testNoLinkedParameters() throws IOException, EncodingException, DecodingException {
+        Definition d = load("definitions4.xml");
+        Map<String, Object> map = new TreeMap<>();
+        map.put("DEF1.PARAM1", Instant.ofEpochSecond(123456789, 0));
+        map.put("DEF1.PARAM2", 2);
+        map.put("DEF1.PARAM3", 124.25f);
+        map.put("DEF1.PARAM4", 61);
+        map.put("DEF1.PARAM5", 30);
+        map.put("DEF1.PARAM6", Duration.ofSeconds(127, 700000000));
+        map.put("DEF1.PARAM7", true);
+        map.put("DEF1.PARAM8", false);
+        map.put("DEF1.PARAM9", false);
+        assertEquals(0, encodeAndCompare(d, "DEF1", map, new DefaultGenerationTimeProcessor(Instant.ofEpochSecond(0))).size());
+    }
+
+    private Definition load(String resource) throws IOException {
+        InputStream defStr = this.getClass().getClassLoader().getResourceAsStream(resource);
+        assertNotNull(defStr);
+        return Definition.load(defStr);
+    }
+
+    private List<Object[]> encodeAndCompare(Definition d, String packetDefinition, Map<String, Object> map, IGenerationTimeProcessor timeProcessor) throws EncodingException, DecodingException {
+        byte[] encoded = new DefaultPacketEncoder(d).encode(packetDefinition, new PathLocationBasedResolver(map));
+        DecodingResult expected = new DefaultPacketDecoder(d).decode(packetDefinition, encoded, timeProcessor);
+        List<Object[]> expectedValues = new ArrayList<>();
+        for (ParameterValue pv : expected.getDecodedParameters()) {
+            expectedValues.add(new Object[] {pv.getId(), pv.getExternalId(), normalise(pv.getValue()), pv.getGenerationTime()});
+        }
+        IPacketDecoder[] decoders = new IPacketDecoder[] {
+                new DefaultPacketDecoder(d),
+                new DefaultPacketDecoder(new PacketDefinitionIndexer(d), null, true),
+                new CompiledPacketDecoder(d)
+        };
+        for (IPacketDecoder decoder : decoders) {
+            // Decode twice, to check that the decoders can be reused
+            for (int i = 0; i < 2; ++i) {
+                RecordingSink sink = new RecordingSink();
+                decoder.decode(packetDefinition, encoded, 0, encoded.length, timeProcessor, sink);
+                assertSame(expected.getDefinition(), sink.started);
+                assertSame(expected.getDefinition(), sink.ended);
+                assertEquals(expectedValues.size(), sink.values.size());
+                for (int j = 0; j < expectedValues.size(); ++j) {
+                    assertArrayEquals(expectedValues.get(j), sink.values.get(j));
+                }
+            }
+        }
+        return expectedValues;
+    }
+
+    private static Object normalise(Object value) {
+        if (value instanceof Integer) {
+            return ((Integer) value).longValue();
+        } else if (value instanceof Float) {
+            return ((Float) value).doubleValue();
+        } else if (value instanceof byte[]) {
+            return Arrays.toString((byte[]) value);
+        } else {
+            return value;
+        }
+    }
+
+    private static class RecordingSink implements IDecodeSink {
+
+        private PacketDefinition started;
+        private PacketDefinition ended;
+        private final List<Object[]> values = new ArrayList<>();
+
+        @Override
+        public void onPacketStart(PacketDefinition definition) {
+            assertNull(started);
+            started = definition;
+        }
+
+        @Override
+        public void onBoolean(String parameterId, long externalId, boolean value, Instant generationTime) {
+            values.add(new Object[] {parameterId, externalId, value, generationTime});
+        }
+
+        @Override
+        public void onLong(String parameterId, long externalId, long value, Instant generationTime) {
+            values.add(new Object[] {parameterId, externalId, value, generationTime});
+        }
+
+        @Override
+        public void onDouble(String parameterId, long externalId, double value, Instant generationTime) {
+            values.add(new Object[] {parameterId, externalId, value, generationTime});
+        }
+
+        @Override
+        public void onObject(String parameterId, long externalId, Object value, Instant generationTime) {
+            values.add(new Object[] {parameterId, externalId, normalise(value), generationTime});
+        }
+
+        @Override
+        public void onPacketEnd(PacketDefinition definition) {
+            assertNotNull(started);
+            ended = definition;
+        }
+    }
+}
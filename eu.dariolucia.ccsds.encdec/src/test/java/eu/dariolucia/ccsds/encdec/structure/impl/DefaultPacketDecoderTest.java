@@ -17,9 +17,11 @@
 package eu.dariolucia.ccsds.encdec.structure.impl;
 
 import eu.dariolucia.ccsds.encdec.definition.Definition;
+import eu.dariolucia.ccsds.encdec.identifier.PacketNotIdentifiedException;
 import eu.dariolucia.ccsds.encdec.structure.DecodingException;
 import eu.dariolucia.ccsds.encdec.structure.DecodingResult;
 import eu.dariolucia.ccsds.encdec.structure.EncodingException;
+import eu.dariolucia.ccsds.encdec.structure.IPacketDecoder;
 import eu.dariolucia.ccsds.encdec.structure.ParameterValue;
 import eu.dariolucia.ccsds.encdec.structure.resolvers.PathLocationBasedResolver;
 import eu.dariolucia.ccsds.encdec.time.impl.DefaultGenerationTimeProcessor;
@@ -31,6 +33,7 @@ import java.io.InputStream;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -104,6 +107,74 @@ class DefaultPacketDecoderTest {
 
     }
 
+    @Test
+    void testDecodeAll() throws IOException, EncodingException, DecodingException {
+        InputStream defStr = this.getClass().getClassLoader().getResourceAsStream("definitions2.xml");
+        assertNotNull(defStr);
+        Definition d = Definition.load(defStr);
+
+        DefaultPacketEncoder encoder = new DefaultPacketEncoder(d);
+        Map<String, Object> map = new TreeMap<>();
+        map.put("DEF2.PARAM1", 1);
+        map.put("DEF2.PARAM2", 3);
+        map.put("DEF2.PARAM3", 7);
+        map.put("DEF2.PARAM4", 432.345633);
+        map.put("DEF2.PARAM5", 1.234);
+        map.put("DEF2.PARAM6", 432.345633);
+        map.put("DEF2.PARAM7", Instant.ofEpochSecond(123456789, 123456000));
+        map.put("DEF2.PARAM8", Instant.ofEpochSecond(123456789, 123000000));
+        byte[] def2 = encoder.encode("DEF2", new PathLocationBasedResolver(map));
+        // Packets of different definitions and values, identified by reference
+        Map<byte[], String> packet2definition = new IdentityHashMap<>();
+        List<byte[]> packets = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            byte[] packet;
+            if (i % 2 == 0) {
+                map.clear();
+                map.put("DEF3.PARAM1", i % 4);
+                for (int j = 0; j < 3; ++j) {
+                    map.put("DEF3.ARRAY1#" + j + ".PARAM_A1", (i + j) % 16);
+                    map.put("DEF3.ARRAY1#" + j + ".PARAM_A2", -((i - j) % 16));
+                    map.put("DEF3.ARRAY1#" + j + ".PARAM_A3", (i + j) % 3 == 0);
+                }
+                map.put("DEF3.PARAM2", i % 8);
+                packet = encoder.encode("DEF3", new PathLocationBasedResolver(map));
+                packet2definition.put(packet, "DEF3");
+            } else {
+                packet = def2;
+                packet2definition.put(packet, "DEF2");
+            }
+            packets.add(packet);
+        }
+
+        DefaultPacketDecoder decoder = new DefaultPacketDecoder(d);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<DecodingResult> results = decoder.decodeAll(packets, packet2definition::get, null, pool);
+            assertEquals(packets.size(), results.size());
+            DefaultPacketDecoder sequentialDecoder = new DefaultPacketDecoder(d);
+            for (int i = 0; i < packets.size(); ++i) {
+                DecodingResult expected = sequentialDecoder.decode(packet2definition.get(packets.get(i)), packets.get(i));
+                assertSame(expected.getDefinition(), results.get(i).getDefinition());
+                assertEquals(expected.getDecodedItemsAsMap().keySet(), results.get(i).getDecodedItemsAsMap().keySet());
+                for (Map.Entry<String, Object> e : expected.getDecodedItemsAsMap().entrySet()) {
+                    compareEqual(results.get(i).getDecodedItemsAsMap().get(e.getKey()), e.getValue());
+                }
+            }
+            // Failure of the identification
+            DecodingException e = assertThrows(DecodingException.class, () -> decoder.decodeAll(packets, packet -> {
+                if (packet == packets.get(8)) {
+                    throw new PacketNotIdentifiedException(packet);
+                }
+                return packet2definition.get(packet);
+            }, null, pool));
+            assertTrue(e.getMessage().contains("index 8"));
+            assertTrue(e.getCause() instanceof PacketNotIdentifiedException);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     @Test
     void testDefinition1() throws IOException, EncodingException, DecodingException {
         InputStream defStr = this.getClass().getClassLoader().getResourceAsStream("definitions2.xml");
@@ -197,6 +268,40 @@ class DefaultPacketDecoderTest {
         }
     }
 
+    @Test
+    void testDefinitionTimeOutsideNanosRange() throws IOException, EncodingException, DecodingException {
+        InputStream defStr = this.getClass().getClassLoader().getResourceAsStream("definitions4.xml");
+        assertNotNull(defStr);
+        Definition d = Definition.load(defStr);
+
+        Map<String, Object> map = new TreeMap<>();
+        map.put("DEF1.PARAM1", Instant.ofEpochSecond(123456789, 0));
+        map.put("DEF1.PARAM2", 2);
+        map.put("DEF1.PARAM3", 124.25f);
+        map.put("DEF1.PARAM4", 61);
+        map.put("DEF1.PARAM5", 30);
+        map.put("DEF1.PARAM6", Duration.ofSeconds(127, 700000000));
+        map.put("DEF1.PARAM7", true);
+        map.put("DEF1.PARAM8", false);
+        map.put("DEF1.PARAM9", false);
+        byte[] encoded = new DefaultPacketEncoder(d).encode("DEF1", new PathLocationBasedResolver(map));
+
+        // The reference time can be represented as nanoseconds, but adding the offset of PARAM9 overflows
+        Instant reference = Instant.ofEpochSecond(Long.MAX_VALUE / 1000000000L - 60);
+        for(IPacketDecoder decoder : Arrays.asList(new DefaultPacketDecoder(d), new CompiledPacketDecoder(d))) {
+            DecodingResult dr = decoder.decode("DEF1", encoded, new DefaultGenerationTimeProcessor(reference));
+            for(DecodingResult.Item i : dr.getDecodedItems()) {
+                DecodingResult.Parameter ei = (DecodingResult.Parameter) i;
+                if(ei.name.equals("PARAM9")) {
+                    assertEquals(reference.plusSeconds(127).getEpochSecond(), ei.generationTime.getEpochSecond());
+                    assertEquals(700000000, ei.generationTime.getNano(), 1000000);
+                } else if(ei.name.equals("PARAM1")) {
+                    assertEquals(reference, ei.generationTime);
+                }
+            }
+        }
+    }
+
     @Test
     void testDefinition2() throws IOException, EncodingException, DecodingException {
         InputStream defStr = this.getClass().getClassLoader().getResourceAsStream("definitions2.xml");
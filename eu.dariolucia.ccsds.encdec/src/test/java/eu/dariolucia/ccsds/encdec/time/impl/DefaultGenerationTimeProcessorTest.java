@@ -16,8 +16,13 @@
 
 package eu.dariolucia.ccsds.encdec.time.impl;
 
+import eu.dariolucia.ccsds.encdec.time.IGenerationTimeProcessor;
+import eu.dariolucia.ccsds.encdec.value.TimeCodec;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.Instant;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class DefaultGenerationTimeProcessorTest {
@@ -32,4 +37,33 @@ class DefaultGenerationTimeProcessorTest {
             // Good
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void computeGenerationTimeNanosTest() {
+        Instant reference = Instant.parse("2019-06-01T10:00:00.123456789Z");
+        Instant derived = Instant.parse("2019-06-01T11:00:00.5Z");
+        Duration offset = Duration.ofMillis(1500).plusNanos(7);
+        DefaultGenerationTimeProcessor timeProc = new DefaultGenerationTimeProcessor(reference);
+        assertTrue(timeProc.isEpochNanosSupported());
+        assertEquals(TimeCodec.toEpochNanos(timeProc.computeGenerationTime(null, null, null, offset, 25)),
+                timeProc.computeGenerationTimeNanos(null, null, IGenerationTimeProcessor.NO_TIME, offset.toNanos(), 25));
+        assertEquals(TimeCodec.toEpochNanos(timeProc.computeGenerationTime(null, null, derived, null, null)),
+                timeProc.computeGenerationTimeNanos(null, null, TimeCodec.toEpochNanos(derived), IGenerationTimeProcessor.NO_TIME, null));
+        // Reference time not representable as nanoseconds: the Instant based computation is used
+        timeProc = new DefaultGenerationTimeProcessor(Instant.parse("2500-01-01T00:00:00Z"));
+        assertFalse(timeProc.isEpochNanosSupported());
+        assertEquals(TimeCodec.toEpochNanos(derived.plusMillis(25)),
+                timeProc.computeGenerationTimeNanos(null, null, TimeCodec.toEpochNanos(derived), IGenerationTimeProcessor.NO_TIME, 25));
+        assertThrows(IllegalStateException.class, () -> new DefaultGenerationTimeProcessor(null).computeGenerationTimeNanos(null, null, IGenerationTimeProcessor.NO_TIME, IGenerationTimeProcessor.NO_TIME, 0));
+    }
+
+    @Test
+    void computeGenerationTimeNanosOverflowTest() {
+        DefaultGenerationTimeProcessor timeProc = new DefaultGenerationTimeProcessor(Instant.ofEpochSecond(0));
+        // Results not representable as nanoseconds are reported, not wrapped around
+        assertThrows(ArithmeticException.class, () -> timeProc.computeGenerationTimeNanos(null, null, Long.MAX_VALUE - 10, 11, null));
+        assertThrows(ArithmeticException.class, () -> timeProc.computeGenerationTimeNanos(null, null, Long.MAX_VALUE - 10, IGenerationTimeProcessor.NO_TIME, 1));
+        assertThrows(ArithmeticException.class, () -> timeProc.computeGenerationTimeNanos(null, null, Long.MIN_VALUE + 10, IGenerationTimeProcessor.NO_TIME, -1));
+        assertEquals(Long.MAX_VALUE, timeProc.computeGenerationTimeNanos(null, null, Long.MAX_VALUE - 1000011, 11, 1));
+    }
+}
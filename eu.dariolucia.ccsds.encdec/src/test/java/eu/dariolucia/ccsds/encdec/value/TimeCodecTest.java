@@ -0,0 +1,119 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.encdec.value;
+
+import eu.dariolucia.ccsds.encdec.bit.BitEncoderDecoder;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeCodecTest {
+
+    private static final Instant AGENCY_EPOCH = Instant.parse("2000-01-01T00:00:00Z");
+
+    @Test
+    public void testCUCtime() {
+        Random r = new Random(42);
+        for(int i = 0; i < 2000; ++i) {
+            boolean useAgency = r.nextBoolean();
+            Instant epoch = useAgency ? AGENCY_EPOCH : null;
+            Instant t = Instant.ofEpochSecond((useAgency ? 946684800L : 0L) + r.nextInt(Integer.MAX_VALUE), r.nextInt(1000000000));
+            int coarse = 4;
+            int fine = r.nextInt(4);
+            TimeCodec codec = TimeCodec.of(epoch);
+            // With P Field
+            byte[] cuc = TimeUtil.toCUC(t, epoch, coarse, fine, true);
+            long expected = TimeCodec.toEpochNanos(TimeUtil.fromCUC(cuc, epoch));
+            assertEquals(expected, codec.decodeCUC(cuc, 0));
+            assertEquals(expected, codec.decodeCUC(new BitEncoderDecoder(cuc)));
+            assertEquals(expected, codec.decodeAbsoluteTime(new BitEncoderDecoder(cuc)));
+            // Without P Field, at an unaligned position
+            cuc = TimeUtil.toCUC(t, epoch, coarse, fine, false);
+            expected = TimeCodec.toEpochNanos(TimeUtil.fromCUC(cuc, epoch, coarse, fine));
+            assertEquals(expected, codec.decodeCUC(cuc, 0, coarse, fine));
+            BitEncoderDecoder decoder = new BitEncoderDecoder(shift(cuc, 3));
+            decoder.setCurrentBitIndex(3);
+            assertEquals(expected, codec.decodeCUC(decoder, coarse, fine));
+            assertEquals(3 + Byte.SIZE * cuc.length, decoder.getCurrentBitIndex());
+        }
+    }
+
+    @Test
+    public void testCDStime() {
+        Random r = new Random(42);
+        for(int i = 0; i < 2000; ++i) {
+            boolean useAgency = r.nextBoolean();
+            Instant epoch = useAgency ? AGENCY_EPOCH : null;
+            boolean bit16 = r.nextBoolean();
+            int subMs = r.nextInt(3);
+            Instant t = Instant.ofEpochSecond((useAgency ? 946684800L : 0L) + r.nextInt(Integer.MAX_VALUE), r.nextInt(1000000000));
+            TimeCodec codec = TimeCodec.of(epoch);
+            // With P Field
+            byte[] cds = TimeUtil.toCDS(t, epoch, bit16, subMs, true);
+            long expected = TimeCodec.toEpochNanos(TimeUtil.fromCDS(cds, epoch));
+            assertEquals(expected, codec.decodeCDS(cds, 0));
+            assertEquals(expected, codec.decodeCDS(new BitEncoderDecoder(cds)));
+            assertEquals(expected, codec.decodeAbsoluteTime(new BitEncoderDecoder(cds)));
+            // Without P Field, at an unaligned position
+            cds = TimeUtil.toCDS(t, epoch, bit16, subMs, false);
+            expected = TimeCodec.toEpochNanos(TimeUtil.fromCDS(cds, epoch, bit16, subMs));
+            assertEquals(expected, codec.decodeCDS(cds, 0, bit16, subMs));
+            BitEncoderDecoder decoder = new BitEncoderDecoder(shift(cds, 5));
+            decoder.setCurrentBitIndex(5);
+            assertEquals(expected, codec.decodeCDS(decoder, bit16, subMs));
+            assertEquals(5 + Byte.SIZE * cds.length, decoder.getCurrentBitIndex());
+        }
+    }
+
+    @Test
+    public void testLevel2WithoutAgencyEpoch() {
+        Instant t = Instant.parse("2019-06-01T10:00:00Z");
+        byte[] cuc = TimeUtil.toCUC(t, AGENCY_EPOCH, 4, 2, true);
+        assertThrows(IllegalArgumentException.class, () -> TimeCodec.LEVEL_1.decodeCUC(cuc, 0));
+        byte[] cds = TimeUtil.toCDS(t, AGENCY_EPOCH, true, 0, true);
+        assertThrows(IllegalArgumentException.class, () -> TimeCodec.LEVEL_1.decodeCDS(cds, 0));
+        // Level 1 P Field with an agency codec: the agency epoch is ignored
+        byte[] level1 = TimeUtil.toCUC(t, null, 4, 2, true);
+        assertEquals(TimeCodec.toEpochNanos(t), TimeCodec.of(AGENCY_EPOCH).decodeCUC(level1, 0));
+        assertSame(TimeCodec.of(AGENCY_EPOCH), TimeCodec.of(Instant.parse("2000-01-01T00:00:00Z")));
+    }
+
+    @Test
+    public void testConversions() {
+        Instant t = Instant.parse("1969-12-31T23:59:59.999999999Z");
+        long nanos = TimeCodec.toEpochNanos(t);
+        assertEquals(-1L, nanos);
+        assertEquals(t, TimeCodec.toInstant(nanos));
+        assertEquals(-1L, TimeCodec.toEpochMicros(nanos));
+        t = Instant.parse("2019-06-01T10:00:00.123456789Z");
+        assertEquals(t, TimeCodec.toInstant(TimeCodec.toEpochNanos(t)));
+        assertEquals(t.toEpochMilli() * 1000 + 456, TimeCodec.toEpochMicros(TimeCodec.toEpochNanos(t)));
+        assertThrows(ArithmeticException.class, () -> TimeCodec.toEpochNanos(Instant.parse("2300-01-01T00:00:00Z")));
+    }
+
+    private static byte[] shift(byte[] data, int bits) {
+        BitEncoderDecoder encoder = new BitEncoderDecoder(Byte.SIZE * (data.length + 1));
+        encoder.setCurrentBitIndex(bits);
+        for(byte b : data) {
+            encoder.setNextIntegerUnsigned(Byte.toUnsignedInt(b), Byte.SIZE);
+        }
+        return encoder.getData();
+    }
+}
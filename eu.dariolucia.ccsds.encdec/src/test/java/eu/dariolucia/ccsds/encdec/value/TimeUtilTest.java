@@ -54,6 +54,29 @@ class TimeUtilTest {
         assertEquals(taiSecs, utcSecs);
     }
 
+    @Test
+    public void testLeapSecondBoundaries() {
+        // Before the table
+        long t = Instant.parse("1971-06-01T00:00:00Z").getEpochSecond();
+        assertEquals(t, TimeUtil.toTAI(t));
+        assertEquals(t, TimeUtil.toUTC(t));
+        // First entry
+        t = Instant.parse("1972-01-01T00:00:00Z").getEpochSecond();
+        assertEquals(t, TimeUtil.toTAI(t));
+        assertEquals(t + 1 + 10, TimeUtil.toTAI(t + 1));
+        // Last entry
+        t = Instant.parse("2017-01-01T00:00:00Z").getEpochSecond();
+        assertEquals(t + 36, TimeUtil.toTAI(t));
+        assertEquals(t + 1 + 37, TimeUtil.toTAI(t + 1));
+        assertEquals(t, TimeUtil.toUTC(t + 36));
+        assertEquals(t + 1, TimeUtil.toUTC(t + 38));
+        assertEquals(t + 1, TimeUtil.toUTC(t + 37 + 1));
+        // Round trip over the whole table
+        for(long utc = Instant.parse("1970-01-01T00:00:00Z").getEpochSecond(); utc < Instant.parse("2020-01-01T00:00:00Z").getEpochSecond(); utc += 86399) {
+            assertEquals(utc, TimeUtil.toUTC(TimeUtil.toTAI(utc)));
+        }
+    }
+
     @Test
     public void testCUCtime() {
         GregorianCalendar gc = new GregorianCalendar(1983, 3, 12, 12,14,15);
@@ -16,11 +16,38 @@
 
 package eu.dariolucia.ccsds.tmtc.algorithm;
 
+import java.nio.ByteBuffer;
+
 /**
  * This class contains the algorithm to compute CRCs using different algorithms.
+ *
+ * The CRC16 is computed by means of lookup tables, processing 8 bytes per iteration (slice-by-8). The tables are
+ * derived at class initialisation from the bitwise shift register implementation described in CCSDS 132.0-B-2,
+ * 4.1.6.2. For incremental computations, see {@link Crc16Checksum}.
  */
 public class Crc16Algorithm {
 
+	/**
+	 * Initial value of the shift register, as per CCSDS 132.0-B-2, 4.1.6.2.
+	 */
+	static final int CRC16_INITIAL_VALUE = 0x0000FFFF;
+
+	// CRC_TABLES[k][b] is the shift register state after ingesting the value b followed by k zero bytes, starting
+	// from a zeroed shift register
+	private static final int[][] CRC_TABLES = new int[8][256];
+
+	static {
+		for(int b = 0; b < 256; ++b) {
+			CRC_TABLES[0][b] = ingestValue(0, (short) b);
+		}
+		for(int k = 1; k < CRC_TABLES.length; ++k) {
+			for(int b = 0; b < 256; ++b) {
+				int previous = CRC_TABLES[k - 1][b];
+				CRC_TABLES[k][b] = ((previous << 8) & 0xFFFF) ^ CRC_TABLES[0][previous >>> 8];
+			}
+		}
+	}
+
 	private Crc16Algorithm() {
 		// Private constructor
 	}
@@ -35,17 +62,73 @@ public class Crc16Algorithm {
 	 * @return the 2 bytes CRC of the provided byte array, from offset (incl.) to offset + length (excl.)
 	 */
 	public static short getCrc16(byte[] frame, int offset, int length) {
-		int shiftRegister = 0x0000FFFF;
+		return (short) update(CRC16_INITIAL_VALUE, frame, offset, length);
+	}
+
+	/**
+	 * This method computes the CRC16 of the provided buffer, as {@link Crc16Algorithm#getCrc16(byte[], int, int)}.
+	 * The offset is an absolute index in the buffer: the position and limit of the buffer are not used nor affected.
+	 *
+	 * @param buffer the buffer
+	 * @param offset the offset
+	 * @param length the length
+	 * @return the 2 bytes CRC of the provided buffer, from offset (incl.) to offset + length (excl.)
+	 */
+	public static short getCrc16(ByteBuffer buffer, int offset, int length) {
+		if(buffer.hasArray()) {
+			return getCrc16(buffer.array(), buffer.arrayOffset() + offset, length);
+		}
+		int shiftRegister = CRC16_INITIAL_VALUE;
 		for(int i = 0; i < length; ++i) {
-			shiftRegister = ingestValue(shiftRegister, (short) Byte.toUnsignedInt(frame[offset + i]));
+			shiftRegister = update(shiftRegister, buffer.get(offset + i));
 		}
 		return (short) shiftRegister;
 	}
 
 	/**
-	 * This method is used to compute the state of shift register upon ingestion of a new value: for the state of the
-	 * shift register and the ingested value, the int and short data type are respectively used to avoid playing with
-	 * negative byte values.
+	 * This method updates the state of the shift register with the provided byte.
+	 *
+	 * @param shiftRegister the current state of the shift register: the 16 LSB are significant
+	 * @param value the byte to ingest
+	 * @return the new state of the shift register
+	 */
+	static int update(int shiftRegister, byte value) {
+		return ((shiftRegister << 8) & 0xFFFF) ^ CRC_TABLES[0][((shiftRegister >>> 8) ^ value) & 0xFF];
+	}
+
+	/**
+	 * This method updates the state of the shift register with the provided bytes.
+	 *
+	 * @param shiftRegister the current state of the shift register: the 16 LSB are significant
+	 * @param data the data
+	 * @param offset the offset
+	 * @param length the length
+	 * @return the new state of the shift register
+	 */
+	static int update(int shiftRegister, byte[] data, int offset, int length) {
+		int i = offset;
+		int end = offset + length;
+		// The shift register state only affects the first two bytes of each 8-bytes block
+		for(; i <= end - 8; i += 8) {
+			shiftRegister = CRC_TABLES[7][((shiftRegister >>> 8) ^ data[i]) & 0xFF] ^
+					CRC_TABLES[6][(shiftRegister ^ data[i + 1]) & 0xFF] ^
+					CRC_TABLES[5][data[i + 2] & 0xFF] ^
+					CRC_TABLES[4][data[i + 3] & 0xFF] ^
+					CRC_TABLES[3][data[i + 4] & 0xFF] ^
+					CRC_TABLES[2][data[i + 5] & 0xFF] ^
+					CRC_TABLES[1][data[i + 6] & 0xFF] ^
+					CRC_TABLES[0][data[i + 7] & 0xFF];
+		}
+		for(; i < end; ++i) {
+			shiftRegister = update(shiftRegister, data[i]);
+		}
+		return shiftRegister;
+	}
+
+	/**
+	 * This method is used to compute the state of shift register upon ingestion of a new value, bit by bit, and it is
+	 * used to derive the lookup tables: for the state of the shift register and the ingested value, the int and short
+	 * data type are respectively used to avoid playing with negative byte values.
 	 *
 	 * The approach is very simple and follows the block diagram defined in CCSDS 132.0-B-2, 4.1.6.2:
 	 * - the shift register has 16 bits, whose current state is provided by the shiftRegister parameter;
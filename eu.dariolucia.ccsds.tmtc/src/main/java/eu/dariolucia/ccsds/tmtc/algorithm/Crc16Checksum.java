@@ -0,0 +1,97 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.algorithm;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * This class allows to compute the CRC16 defined in CCSDS 132.0-B-2, 4.1.6.2 incrementally, e.g. while a frame is
+ * being assembled. The result of the computation over a sequence of updates is the same as the result of
+ * {@link Crc16Algorithm#getCrc16(byte[], int, int)} over the concatenation of the provided data.
+ *
+ * This class is not thread-safe.
+ */
+public class Crc16Checksum implements Checksum {
+
+    private int shiftRegister;
+
+    /**
+     * Create a new checksum, initialised to the CRC16 initial value.
+     */
+    public Crc16Checksum() {
+        this.shiftRegister = Crc16Algorithm.CRC16_INITIAL_VALUE;
+    }
+
+    @Override
+    public void update(int b) {
+        this.shiftRegister = Crc16Algorithm.update(this.shiftRegister, (byte) b);
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        if(off < 0 || len < 0 || off > b.length - len) {
+            throw new ArrayIndexOutOfBoundsException("Range [" + off + ", " + (off + len) + ") out of bounds for length " + b.length);
+        }
+        this.shiftRegister = Crc16Algorithm.update(this.shiftRegister, b, off, len);
+    }
+
+    /**
+     * This method updates the checksum with the remaining bytes of the provided buffer. Upon return, the buffer
+     * position is equal to its limit.
+     *
+     * @param buffer the buffer
+     */
+    @Override
+    public void update(ByteBuffer buffer) {
+        int pos = buffer.position();
+        int rem = buffer.remaining();
+        if(buffer.hasArray()) {
+            this.shiftRegister = Crc16Algorithm.update(this.shiftRegister, buffer.array(), buffer.arrayOffset() + pos, rem);
+        } else {
+            for(int i = 0; i < rem; ++i) {
+                this.shiftRegister = Crc16Algorithm.update(this.shiftRegister, buffer.get(pos + i));
+            }
+        }
+        buffer.position(pos + rem);
+    }
+
+    /**
+     * This method returns the current value of the CRC16, as unsigned value.
+     *
+     * @return the CRC16 value, between 0 and 65535
+     */
+    @Override
+    public long getValue() {
+        return this.shiftRegister;
+    }
+
+    /**
+     * This method returns the current value of the CRC16 as short, as returned by
+     * {@link Crc16Algorithm#getCrc16(byte[], int, int)}.
+     *
+     * @return the CRC16 value as short
+     */
+    public short getCrc16() {
+        return (short) this.shiftRegister;
+    }
+
+    @Override
+    public void reset() {
+        this.shiftRegister = Crc16Algorithm.CRC16_INITIAL_VALUE;
+    }
+}
@@ -16,8 +16,18 @@
 
 package eu.dariolucia.ccsds.tmtc.algorithm;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
 /**
  * This class contains the algorithm to compute randomization using different algorithms.
+ *
+ * Both pseudo random sequences are generated by 8-bit shift registers and have a period of 255 bits: since 255 and 8
+ * are coprime, the byte sequence has a period of 255 bytes. Therefore, only one period of each pattern is stored and
+ * data of any length can be randomized. Randomization is performed 8 bytes at a time.
  */
 public class RandomizerAlgorithm {
 
@@ -26,16 +36,29 @@ public class RandomizerAlgorithm {
     }
 
     /**
-     * Definition of the CLTU pseudo random pattern, up to 65536 bytes, which is good enough for TC frames (max 1024),
-     * Proximity-1 (max 2048), USLP (max 65536) and for AOS frames with reasonable size.
+     * Period of the pseudo random patterns in bytes.
+     */
+    private static final int PATTERN_PERIOD = 255;
+
+    /**
+     * Access to 8 bytes at a time in byte arrays, at any offset. Since randomization is a bitwise XOR, the byte order
+     * is irrelevant, as long as data and pattern are read with the same byte order.
+     */
+    private static final VarHandle LONG_BIG_ENDIAN = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final VarHandle LONG_LITTLE_ENDIAN = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Definition of the CLTU pseudo random pattern: one period, followed by the first 8 bytes of the next period, so
+     * that 8 bytes can be read from any position in the period.
      */
-    private static final byte[] CLTU_PSEUDO_RANDOM_PATTERN = generateCltuPseudoRandomPattern(65536);
+    private static final byte[] CLTU_PSEUDO_RANDOM_PATTERN = generateCltuPseudoRandomPattern(PATTERN_PERIOD + Long.BYTES);
 
     /**
-     * Definition of the TM pseudo random pattern, up to 65536 bytes, which is good enough for TM frames (max 1024),
-     * Proximity-1 (max 2048), USLP (max 65536) and for AOS frames with reasonable size.
+     * Definition of the TM pseudo random pattern: one period, followed by the first 8 bytes of the next period, so
+     * that 8 bytes can be read from any position in the period.
      */
-    private static final byte[] TM_PSEUDO_RANDOM_PATTERN = generateTmPseudoRandomPattern(65536);
+    private static final byte[] TM_PSEUDO_RANDOM_PATTERN = generateTmPseudoRandomPattern(PATTERN_PERIOD + Long.BYTES);
 
     /**
      * This method generates the CLTU pseudo random pattern of the given length. The generator polynomial is the one
@@ -94,9 +117,47 @@ public class RandomizerAlgorithm {
      * @param frame the frame to randomize
      */
     public static void randomizeFrameCltu(byte[] frame) {
-        for (int i = 0; i < frame.length; ++i) {
-            frame[i] = (byte) (frame[i] ^ CLTU_PSEUDO_RANDOM_PATTERN[i]);
-        }
+        randomize(CLTU_PSEUDO_RANDOM_PATTERN, frame, 0, frame, 0, frame.length);
+    }
+
+    /**
+     * This method randomizes in-place the specified range of the provided array using the pseudo-random polynomial as
+     * defined in CCSDS 231.0-B-3, 6.2. The first byte of the range is combined with the first byte of the pattern.
+     *
+     * @param data the array containing the frame to randomize
+     * @param offset the index of the first byte of the frame
+     * @param length the length of the frame
+     */
+    public static void randomizeFrameCltu(byte[] data, int offset, int length) {
+        randomize(CLTU_PSEUDO_RANDOM_PATTERN, data, offset, data, offset, length);
+    }
+
+    /**
+     * This method randomizes the specified range of the source array using the pseudo-random polynomial as defined in
+     * CCSDS 231.0-B-3, 6.2, and writes the result into the destination array. The source and destination ranges can
+     * be the same, but shall not partially overlap.
+     *
+     * @param src the array containing the frame to randomize
+     * @param srcOffset the index of the first byte of the frame
+     * @param dst the destination array
+     * @param dstOffset the index of the destination array where the first randomized byte is written
+     * @param length the length of the frame
+     */
+    public static void randomizeFrameCltu(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        randomize(CLTU_PSEUDO_RANDOM_PATTERN, src, srcOffset, dst, dstOffset, length);
+    }
+
+    /**
+     * This method randomizes in-place the specified range of the provided buffer using the pseudo-random polynomial as
+     * defined in CCSDS 231.0-B-3, 6.2. The offset is an absolute index in the buffer: the position and limit of the
+     * buffer are not used nor affected.
+     *
+     * @param data the buffer containing the frame to randomize
+     * @param offset the index of the first byte of the frame
+     * @param length the length of the frame
+     */
+    public static void randomizeFrameCltu(ByteBuffer data, int offset, int length) {
+        randomize(CLTU_PSEUDO_RANDOM_PATTERN, data, offset, length);
     }
 
     /**
@@ -154,8 +215,94 @@ public class RandomizerAlgorithm {
      * @param frame the frame to randomize
      */
     public static void randomizeFrameTm(byte[] frame) {
-        for (int i = 0; i < frame.length; ++i) {
-            frame[i] = (byte) (frame[i] ^ TM_PSEUDO_RANDOM_PATTERN[i]);
+        randomize(TM_PSEUDO_RANDOM_PATTERN, frame, 0, frame, 0, frame.length);
+    }
+
+    /**
+     * This method randomizes in-place the specified range of the provided array using the pseudo-random polynom as
+     * defined in CCSDS 131.0-B-3, 10.4. The first byte of the range is combined with the first byte of the pattern.
+     *
+     * @param data the array containing the frame to randomize
+     * @param offset the index of the first byte of the frame
+     * @param length the length of the frame
+     */
+    public static void randomizeFrameTm(byte[] data, int offset, int length) {
+        randomize(TM_PSEUDO_RANDOM_PATTERN, data, offset, data, offset, length);
+    }
+
+    /**
+     * This method randomizes the specified range of the source array using the pseudo-random polynom as defined in
+     * CCSDS 131.0-B-3, 10.4, and writes the result into the destination array. This allows to combine randomization
+     * with a copy of the frame, e.g. when the sync marker is removed. The source and destination ranges can be the
+     * same, but shall not partially overlap.
+     *
+     * @param src the array containing the frame to randomize
+     * @param srcOffset the index of the first byte of the frame
+     * @param dst the destination array
+     * @param dstOffset the index of the destination array where the first randomized byte is written
+     * @param length the length of the frame
+     */
+    public static void randomizeFrameTm(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        randomize(TM_PSEUDO_RANDOM_PATTERN, src, srcOffset, dst, dstOffset, length);
+    }
+
+    /**
+     * This method randomizes in-place the specified range of the provided buffer using the pseudo-random polynom as
+     * defined in CCSDS 131.0-B-3, 10.4. The offset is an absolute index in the buffer: the position and limit of the
+     * buffer are not used nor affected.
+     *
+     * @param data the buffer containing the frame to randomize
+     * @param offset the index of the first byte of the frame
+     * @param length the length of the frame
+     */
+    public static void randomizeFrameTm(ByteBuffer data, int offset, int length) {
+        randomize(TM_PSEUDO_RANDOM_PATTERN, data, offset, length);
+    }
+
+    private static void randomize(byte[] pattern, byte[] src, int srcOffset, byte[] dst, int dstOffset, int length) {
+        Objects.checkFromIndexSize(srcOffset, length, src.length);
+        Objects.checkFromIndexSize(dstOffset, length, dst.length);
+        int patternIdx = 0;
+        int i = 0;
+        for(; i <= length - Long.BYTES; i += Long.BYTES) {
+            long value = (long) LONG_BIG_ENDIAN.get(src, srcOffset + i) ^ (long) LONG_BIG_ENDIAN.get(pattern, patternIdx);
+            LONG_BIG_ENDIAN.set(dst, dstOffset + i, value);
+            patternIdx += Long.BYTES;
+            if(patternIdx >= PATTERN_PERIOD) {
+                patternIdx -= PATTERN_PERIOD;
+            }
+        }
+        for(; i < length; ++i) {
+            dst[dstOffset + i] = (byte) (src[srcOffset + i] ^ pattern[patternIdx]);
+            if(++patternIdx == PATTERN_PERIOD) {
+                patternIdx = 0;
+            }
+        }
+    }
+
+    private static void randomize(byte[] pattern, ByteBuffer data, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, data.capacity());
+        if(data.hasArray()) {
+            int arrayOffset = data.arrayOffset() + offset;
+            randomize(pattern, data.array(), arrayOffset, data.array(), arrayOffset, length);
+            return;
+        }
+        // Pattern and buffer must be read using the same byte order
+        VarHandle patternHandle = data.order() == ByteOrder.BIG_ENDIAN ? LONG_BIG_ENDIAN : LONG_LITTLE_ENDIAN;
+        int patternIdx = 0;
+        int i = 0;
+        for(; i <= length - Long.BYTES; i += Long.BYTES) {
+            data.putLong(offset + i, data.getLong(offset + i) ^ (long) patternHandle.get(pattern, patternIdx));
+            patternIdx += Long.BYTES;
+            if(patternIdx >= PATTERN_PERIOD) {
+                patternIdx -= PATTERN_PERIOD;
+            }
+        }
+        for(; i < length; ++i) {
+            data.put(offset + i, (byte) (data.get(offset + i) ^ pattern[patternIdx]));
+            if(++patternIdx == PATTERN_PERIOD) {
+                patternIdx = 0;
+            }
         }
     }
 }
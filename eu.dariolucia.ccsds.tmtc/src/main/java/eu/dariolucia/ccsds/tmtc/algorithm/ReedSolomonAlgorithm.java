@@ -16,15 +16,26 @@
 
 package eu.dariolucia.ccsds.tmtc.algorithm;
 
-import eu.dariolucia.ccsds.tmtc.algorithm.rs.ReedSolomon;
-import eu.dariolucia.ccsds.tmtc.algorithm.rs.RsDecoder;
-import eu.dariolucia.ccsds.tmtc.algorithm.rs.RsEncoder;
+import eu.dariolucia.ccsds.tmtc.algorithm.rs.RsCodec;
 
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntUnaryOperator;
 
 /**
- * Class implementing the Reed-Solomon encoding/checking utility functions, as specified in CCSDS 131.0-B-3, 4.3.
+ * Class implementing the Reed-Solomon encoding/checking/correction utility functions, as specified in CCSDS 131.0-B-3, 4.3.
+ *
+ * The processing is delegated to a table-driven {@link RsCodec}, which works directly on the interleaved frame. The
+ * original {@link eu.dariolucia.ccsds.tmtc.algorithm.rs.ReedSolomon} implementation, together with
+ * {@link eu.dariolucia.ccsds.tmtc.algorithm.rs.RsEncoder} and {@link eu.dariolucia.ccsds.tmtc.algorithm.rs.RsDecoder},
+ * is kept as reference implementation.
+ *
+ * The codewords of an interleaved frame are independent from each other: the frame-level methods accept an optional
+ * {@link Executor}, which is used to process the codewords in parallel.
  */
 public class ReedSolomonAlgorithm {
 
@@ -68,9 +79,8 @@ public class ReedSolomonAlgorithm {
 
     private final int messageLength;
     private final int codewordLength;
-    private final boolean dualbasis;
     private final int eccLength;
-    private final ReedSolomon reedSolomon;
+    private final RsCodec codec;
 
     /**
      * Create a Reed-Solomon algorithm executor based on the provided characteristics.
@@ -86,8 +96,25 @@ public class ReedSolomonAlgorithm {
         this.messageLength = messageLength;
         this.codewordLength = codewordLength;
         this.eccLength = this.codewordLength - this.messageLength;
-        this.dualbasis = dualbasis;
-        this.reedSolomon = new ReedSolomon(galoisFieldModulus, generator, messageLength, eccLength, initialRoot);
+        this.codec = new RsCodec(galoisFieldModulus, generator, messageLength, eccLength, initialRoot, dualbasis);
+    }
+
+    /**
+     * This method returns the length of the message (data part of the codeword) in bytes.
+     *
+     * @return the message length in bytes
+     */
+    public int getMessageLength() {
+        return messageLength;
+    }
+
+    /**
+     * This method returns the length of the codeword (message followed by the RS symbols) in bytes.
+     *
+     * @return the codeword length in bytes
+     */
+    public int getCodewordLength() {
+        return codewordLength;
     }
 
     /**
@@ -104,6 +131,21 @@ public class ReedSolomonAlgorithm {
      * @throws IllegalArgumentException if frame has an unexpected length, or if the interleaving is not supported
      */
     public byte[] encodeFrame(byte[] frame, int interleavingDepth) {
+        return encodeFrame(frame, interleavingDepth, null);
+    }
+
+    /**
+     * This method encodes the provided frame as {@link ReedSolomonAlgorithm#encodeFrame(byte[], int)}, using the provided
+     * executor to compute the RS symbols of the interleaved codewords in parallel. One codeword is always encoded by the
+     * calling thread, which waits for the completion of the others.
+     *
+     * @param frame the frame to be encoded
+     * @param interleavingDepth the interleaving depth, allowed values are I=1, 2, 3, 4, 5, and 8
+     * @param executor the executor used to encode the codewords, if null the codewords are encoded by the calling thread
+     * @return the frame followed by the Reed Solomon blocks
+     * @throws IllegalArgumentException if frame has an unexpected length, or if the interleaving is not supported
+     */
+    public byte[] encodeFrame(byte[] frame, int interleavingDepth, Executor executor) {
         if(frame.length % messageLength != 0) {
             throw new IllegalArgumentException("Frame length (" + frame.length + " bytes) is not a multiple of " + messageLength);
         }
@@ -111,32 +153,18 @@ public class ReedSolomonAlgorithm {
             throw new IllegalArgumentException("Unsupported interleaving depth");
         }
 
-        // Instantiate the sink
-        ByteBuffer sink = ByteBuffer.allocate(computeFinalMessageLength(frame.length));
-        // Instantiate interleavingDepth encoders
-        RsEncoder[] encs = new RsEncoder[interleavingDepth];
-        for(int i = 0; i < encs.length; ++i) {
-            encs[i] = new RsEncoder(reedSolomon, dualbasis, sink);
-        }
-        // Encode
-        for(int i = 0; i < frame.length; ++i) {
-            encs[i % interleavingDepth].pushMessage(frame[i]);
+        if(frame.length != messageLength * interleavingDepth) {
+            throw new IllegalArgumentException("Frame length (" + frame.length + " bytes) does not match the interleaving depth " + interleavingDepth);
         }
-        // Verify completion
-        for(RsEncoder e : encs) {
-            if(!e.ready()) {
-                throw new IllegalStateException("One encoder is not ready to output the RS block");
-            }
-        }
-        // Output RS block
-        int blockSize = encs[0].blockSize();
-        for(int i = 0; i < blockSize; ++i) {
-            for(int j = 0;j < encs.length; ++j) {
-                encs[j].pull();
-            }
-        }
-        // Return
-        return sink.array();
+        // Allocate the output and copy the frame
+        byte[] encoded = new byte[computeFinalMessageLength(frame.length)];
+        System.arraycopy(frame, 0, encoded, 0, frame.length);
+        // Encode each codeword in place: codeword i is made by the symbols at position i + k * interleavingDepth
+        forEachCodeword(interleavingDepth, executor, i -> {
+            codec.encode(frame, i, interleavingDepth, encoded, frame.length + i, interleavingDepth);
+            return 0;
+        });
+        return encoded;
     }
 
     private int computeFinalMessageLength(int length) {
@@ -154,6 +182,20 @@ public class ReedSolomonAlgorithm {
      * @return the frame or null if error detection is requested and errors are found
      */
     public byte[] decodeFrame(byte[] encodedFrame, int interleavingDepth, boolean errorChecking) {
+        return decodeFrame(encodedFrame, interleavingDepth, errorChecking, null);
+    }
+
+    /**
+     * This method decodes the provided frame as {@link ReedSolomonAlgorithm#decodeFrame(byte[], int, boolean)}, using
+     * the provided executor to check the interleaved codewords in parallel.
+     *
+     * @param encodedFrame the RS encoded frame, with the RS block at the end
+     * @param interleavingDepth interleaving depth, only required if error checking is enabled, otherwise ignored
+     * @param errorChecking if true, error detection is enabled
+     * @param executor the executor used to check the codewords, if null the codewords are checked by the calling thread
+     * @return the frame or null if error detection is requested and errors are found
+     */
+    public byte[] decodeFrame(byte[] encodedFrame, int interleavingDepth, boolean errorChecking, Executor executor) {
         // Sanity check
         if(encodedFrame.length % codewordLength != 0) {
             throw new IllegalArgumentException("Expected frame length to be a multiple of " + codewordLength + ", got " + encodedFrame.length);
@@ -161,33 +203,148 @@ public class ReedSolomonAlgorithm {
         // Depending on the algorithm configuration, compute the number of bytes to discard from the end of the provided codeblock
         int numRsBlocks = encodedFrame.length / codewordLength;
         int numBytesToDiscard = numRsBlocks * eccLength;
-        byte[] decoded = Arrays.copyOfRange(encodedFrame, 0, encodedFrame.length - numBytesToDiscard);
         // If error detection is requested, we need to take into account the interleaving depth
         if(errorChecking) {
-            if(encodedFrame.length / codewordLength != interleavingDepth) {
+            if(numRsBlocks != interleavingDepth) {
                 throw new IllegalArgumentException("The provided frame length does not correspond with the provided interleaving depth");
             }
-            // Instantiate interleavingDepth buffers
-            ByteBuffer[] decs = new ByteBuffer[interleavingDepth];
-            for(int i = 0; i < decs.length; ++i) {
-                decs[i] = ByteBuffer.allocate(codewordLength);
+            if(forEachCodeword(interleavingDepth, executor, i -> codec.check(encodedFrame, i, interleavingDepth) ? 0 : -1) < 0) {
+                return null;
             }
-            // Fill the buffers
-            for(int i = 0; i < encodedFrame.length; ++i) {
-                decs[i % interleavingDepth].put(encodedFrame[i]);
+        }
+        return Arrays.copyOfRange(encodedFrame, 0, encodedFrame.length - numBytesToDiscard);
+    }
+
+    /**
+     * This method removes the Reed Solomon symbols and returns a copy of the frame contents, after having corrected
+     * the errors, if any. If the frame has errors that cannot be corrected, then it returns null.
+     *
+     * @param encodedFrame the RS encoded frame, with the RS block at the end
+     * @param interleavingDepth interleaving depth
+     * @return the corrected frame or null if the frame has errors that cannot be corrected
+     */
+    public byte[] correctFrame(byte[] encodedFrame, int interleavingDepth) {
+        return correctFrame(encodedFrame, interleavingDepth, null);
+    }
+
+    /**
+     * This method corrects the provided frame as {@link ReedSolomonAlgorithm#correctFrame(byte[], int)}, using the
+     * provided executor to correct the interleaved codewords in parallel.
+     *
+     * @param encodedFrame the RS encoded frame, with the RS block at the end
+     * @param interleavingDepth interleaving depth
+     * @param executor the executor used to correct the codewords, if null the codewords are corrected by the calling thread
+     * @return the corrected frame or null if the frame has errors that cannot be corrected
+     */
+    public byte[] correctFrame(byte[] encodedFrame, int interleavingDepth, Executor executor) {
+        if(encodedFrame.length != codewordLength * interleavingDepth) {
+            throw new IllegalArgumentException("The provided frame length does not correspond with the provided interleaving depth");
+        }
+        byte[] decoded = new byte[messageLength * interleavingDepth];
+        if(decodeFrame(encodedFrame, 0, encodedFrame.length, interleavingDepth, true, decoded, 0, executor) < 0) {
+            return null;
+        }
+        return decoded;
+    }
+
+    /**
+     * This method removes the Reed Solomon symbols from the encoded frame and writes the frame contents into the
+     * provided output buffer, which must have at least interleavingDepth * messageLength bytes available from outputOffset.
+     * The encoded frame is not modified. If error correction is enabled, the errors are corrected in the output buffer,
+     * otherwise only error detection is performed.
+     *
+     * This method does not allocate any memory.
+     *
+     * @param encodedFrame the array containing the RS encoded frame, with the RS block at the end
+     * @param offset the offset of the RS encoded frame in the array
+     * @param length the length of the RS encoded frame
+     * @param interleavingDepth the interleaving depth
+     * @param errorCorrection if true, error correction is performed, otherwise only error detection is performed
+     * @param output the output buffer
+     * @param outputOffset the offset in the output buffer, where the frame contents will be written
+     * @return the number of corrected symbols, or -1 if the frame has errors that were not corrected (in that case the
+     * output buffer contents are not reliable)
+     * @throws IllegalArgumentException if the length does not match the interleaving depth
+     */
+    public int decodeFrame(byte[] encodedFrame, int offset, int length, int interleavingDepth, boolean errorCorrection, byte[] output, int outputOffset) {
+        return decodeFrame(encodedFrame, offset, length, interleavingDepth, errorCorrection, output, outputOffset, null);
+    }
+
+    /**
+     * This method decodes the provided frame as {@link ReedSolomonAlgorithm#decodeFrame(byte[], int, int, int, boolean, byte[], int)},
+     * using the provided executor to decode the interleaved codewords in parallel. Each codeword writes to different
+     * positions of the output buffer, therefore no synchronisation is needed.
+     *
+     * @param encodedFrame the array containing the RS encoded frame, with the RS block at the end
+     * @param offset the offset of the RS encoded frame in the array
+     * @param length the length of the RS encoded frame
+     * @param interleavingDepth the interleaving depth
+     * @param errorCorrection if true, error correction is performed, otherwise only error detection is performed
+     * @param output the output buffer
+     * @param outputOffset the offset in the output buffer, where the frame contents will be written
+     * @param executor the executor used to decode the codewords, if null the codewords are decoded by the calling thread
+     * @return the number of corrected symbols, or -1 if the frame has errors that were not corrected (in that case the
+     * output buffer contents are not reliable)
+     * @throws IllegalArgumentException if the length does not match the interleaving depth
+     */
+    public int decodeFrame(byte[] encodedFrame, int offset, int length, int interleavingDepth, boolean errorCorrection, byte[] output, int outputOffset, Executor executor) {
+        if(length != codewordLength * interleavingDepth) {
+            throw new IllegalArgumentException("Expected frame length to be " + (codewordLength * interleavingDepth) + " for interleaving depth " + interleavingDepth + ", got " + length);
+        }
+        return forEachCodeword(interleavingDepth, executor,
+                i -> codec.decode(encodedFrame, offset + i, interleavingDepth, output, outputOffset + i, interleavingDepth, errorCorrection));
+    }
+
+    /**
+     * This method applies the provided task to each codeword index, from 0 to interleavingDepth - 1, and sums up the
+     * returned values. If a task returns a negative value, the result is -1. If the executor is provided, the codewords
+     * from 1 to interleavingDepth - 1 are submitted to the executor and codeword 0 is processed by the calling thread.
+     *
+     * @param interleavingDepth the number of codewords
+     * @param executor the executor, can be null
+     * @param task the task to apply to each codeword index
+     * @return the sum of the values returned by the task, or -1 if at least one task returned a negative value
+     */
+    private static int forEachCodeword(int interleavingDepth, Executor executor, IntUnaryOperator task) {
+        int result = 0;
+        if(executor == null || interleavingDepth == 1) {
+            for(int i = 0; i < interleavingDepth; ++i) {
+                int r = task.applyAsInt(i);
+                if(r < 0) {
+                    return -1;
+                }
+                result += r;
             }
-            // Instantiate the decoder
-            RsDecoder decoder = new RsDecoder(reedSolomon, dualbasis);
-
-            for(ByteBuffer bb : decs) {
-                bb.flip();
-                byte[] result = decoder.decode(bb.array(), true);
-                if(result == null) {
-                    return null;
+            return result;
+        }
+        List<CompletableFuture<Integer>> futures = new ArrayList<>(interleavingDepth - 1);
+        for(int i = 1; i < interleavingDepth; ++i) {
+            final int codewordIdx = i;
+            futures.add(CompletableFuture.supplyAsync(() -> task.applyAsInt(codewordIdx), executor));
+        }
+        boolean failed = false;
+        int r = task.applyAsInt(0);
+        if(r < 0) {
+            failed = true;
+        } else {
+            result += r;
+        }
+        for(CompletableFuture<Integer> f : futures) {
+            try {
+                r = f.join();
+            } catch (CompletionException e) {
+                if(e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
                 }
+                throw e;
+            }
+            if(r < 0) {
+                failed = true;
+            } else {
+                result += r;
             }
         }
-        return decoded;
+        return failed ? -1 : result;
     }
 
     /**
@@ -202,20 +359,9 @@ public class ReedSolomonAlgorithm {
         if(message.length != messageLength) {
             throw new IllegalArgumentException("Message length " + message.length + " does not match the configured message length for this encoder: " + messageLength);
         }
-        // Instantiate the sink
-        ByteBuffer sink = ByteBuffer.allocate(codewordLength);
-        // Instantiate the encoder
-        RsEncoder encs = new RsEncoder(reedSolomon, dualbasis, sink);
-        // Encode
-        encs.pushMessage(message);
-        // Verify completion
-        if(!encs.ready()) {
-            throw new IllegalStateException("One encoder is not ready to output the RS block");
-        }
-        // Output RS block
-        encs.pullAll();
-        // Return
-        return sink.array();
+        byte[] codeword = Arrays.copyOf(message, codewordLength);
+        codec.encode(message, 0, 1, codeword, messageLength, 1);
+        return codeword;
     }
 
     /**
@@ -229,9 +375,24 @@ public class ReedSolomonAlgorithm {
         if(codeword.length != codewordLength) {
             throw new IllegalArgumentException("Codeword length " + codeword.length + " does not match the configured codeword length for this encoder: " + codewordLength);
         }
-        // Instantiate the decoder
-        RsDecoder decs = new RsDecoder(reedSolomon, dualbasis);
-        // Decode
-        return decs.decode(codeword, errorChecking);
+        byte[] decoded = Arrays.copyOf(codeword, messageLength);
+        if(errorChecking && !codec.check(codeword, 0, 1)) {
+            return null;
+        }
+        return decoded;
+    }
+
+    /**
+     * The input must be the message plus the RS block at the end. The codeword is corrected in place, including the
+     * RS block. If the errors cannot be corrected, the codeword is not modified.
+     *
+     * @param codeword the encoded codeword (input + RS block)
+     * @return the number of corrected symbols, or -1 if the errors cannot be corrected
+     */
+    public int correctCodeword(byte[] codeword) {
+        if(codeword.length != codewordLength) {
+            throw new IllegalArgumentException("Codeword length " + codeword.length + " does not match the configured codeword length for this encoder: " + codewordLength);
+        }
+        return codec.correct(codeword, 0, 1);
     }
 }
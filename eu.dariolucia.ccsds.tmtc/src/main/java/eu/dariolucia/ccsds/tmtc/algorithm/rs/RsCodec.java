@@ -0,0 +1,436 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.algorithm.rs;
+
+import java.util.Arrays;
+
+/**
+ * A table-driven Reed-Solomon encoder/decoder over GF(2^m), with m up to 8, supporting the dual basis representation
+ * defined by CCSDS 131.0-B-3, Annex F (only for GF(2^8)). Each symbol is stored in one byte: if m is less than 8, the
+ * most significant bits of each byte are ignored. Differently from {@link ReedSolomon}, which is kept as reference implementation, this
+ * codec:
+ * <ul>
+ *     <li>performs all field arithmetic by means of log/antilog tables;</li>
+ *     <li>applies the dual basis transformation by means of lookup tables, fused with the read of each input symbol
+ *     and with the write of each output symbol;</li>
+ *     <li>corrects up to eccLen/2 symbol errors per codeword, using the Berlekamp-Massey algorithm, Chien search and
+ *     Forney algorithm;</li>
+ *     <li>reads and writes the codeword symbols using an offset and a stride, so that interleaved codewords can be
+ *     processed directly inside the frame, without any de-interleaving copy and without allocating memory.</li>
+ * </ul>
+ *
+ * The symbol order is the same used by {@link RsEncoder} and {@link RsDecoder}: the message symbols come first, followed
+ * by the RS symbols.
+ *
+ * <p>This class is immutable and thread-safe: the working memory needed by the decoding algorithm is kept per thread.</p>
+ */
+public final class RsCodec {
+
+    private static final int MAX_SYMBOL_SIZE = 8;
+
+    // The number of non-zero elements of the field, i.e. 2^m - 1
+    private final int nonZeroElements;
+
+    /** The number of symbols in each message. */
+    public final int messageLen;
+
+    /** The number of RS symbols that are added to each message. */
+    public final int eccLen;
+
+    /** The number of symbols in each codeword, equal to messageLen + eccLen. */
+    public final int codewordLen;
+
+    private final int initialRoot;
+
+    // Logarithm of the roots of the generator polynomial: logRoots[i] = initialRoot + i
+    private final int[] logRoots;
+
+    // expTable[i] = generator^i, size doubled to avoid the modulo operation when adding two logarithms
+    private final int[] expTable;
+
+    // logTable[generator^i] = i, logTable[0] is not defined
+    private final int[] logTable;
+
+    // Logarithm of the coefficients of the generator polynomial (lowest power first, highest power omitted), -1 if zero
+    private final int[] logGenPoly;
+
+    // Fused dual basis transformations, indexed by byte value: identity if the conventional representation is used
+    private final int[] toConventional = new int[256];
+    private final int[] fromConventional = new int[256];
+
+    private final ThreadLocal<Workspace> workspace;
+
+    /**
+     * Constructs a Reed-Solomon codec with the specified field, lengths and other parameters.
+     *
+     * @param fieldMod the field modulus, which must have degree m, with m between 2 and 8
+     * @param gen a primitive element of the field
+     * @param msgLen the length of the message, which must be positive
+     * @param eccLen the number of RS symbols, which must be positive
+     * @param initialRoot the initial root of the code generator polynomial, as power of gen
+     * @param dualBasis true if the symbols are in dual basis representation (GF(2^8) only), false otherwise
+     * @throws IllegalArgumentException if the field is not supported, if gen is not a primitive element, or if the lengths
+     * are not compatible with the field size
+     */
+    public RsCodec(int fieldMod, int gen, int msgLen, int eccLen, int initialRoot, boolean dualBasis) {
+        int symbolSize = 31 - Integer.numberOfLeadingZeros(fieldMod);
+        if (symbolSize < 2 || symbolSize > MAX_SYMBOL_SIZE) {
+            throw new IllegalArgumentException("Field modulus " + fieldMod + " does not define GF(2^m) with m between 2 and " + MAX_SYMBOL_SIZE);
+        }
+        if (dualBasis && symbolSize != MAX_SYMBOL_SIZE) {
+            throw new IllegalArgumentException("Dual basis representation is supported only for GF(2^8)");
+        }
+        this.nonZeroElements = (1 << symbolSize) - 1;
+        if (gen <= 1 || gen > this.nonZeroElements) {
+            throw new IllegalArgumentException("Element " + gen + " is not a primitive element of the field");
+        }
+        if (msgLen <= 0 || eccLen <= 0 || msgLen + eccLen > this.nonZeroElements) {
+            throw new IllegalArgumentException("Invalid message or ECC length");
+        }
+        if (initialRoot < 0) {
+            throw new IllegalArgumentException("Initial root " + initialRoot + " is negative");
+        }
+        this.messageLen = msgLen;
+        this.eccLen = eccLen;
+        this.codewordLen = msgLen + eccLen;
+        this.initialRoot = initialRoot % nonZeroElements;
+        // Compute the log/antilog tables
+        this.expTable = new int[2 * this.nonZeroElements];
+        this.logTable = new int[this.nonZeroElements + 1];
+        Arrays.fill(this.logTable, -1);
+        int value = 1;
+        for (int i = 0; i < nonZeroElements; ++i) {
+            if (value == 0 || this.logTable[value] != -1) {
+                throw new IllegalArgumentException("Element " + gen + " is not a primitive element of the field");
+            }
+            this.expTable[i] = value;
+            this.expTable[i + nonZeroElements] = value;
+            this.logTable[value] = i;
+            value = multiply(value, gen, fieldMod, this.nonZeroElements);
+        }
+        // Compute the dual basis transformation tables
+        for (int i = 0; i < this.toConventional.length; ++i) {
+            this.toConventional[i] = dualBasis ? RsCcsdsUtil.multiplyInverted(i) : i & this.nonZeroElements;
+            this.fromConventional[i] = dualBasis ? RsCcsdsUtil.multiplyStraight(i) : i & this.nonZeroElements;
+        }
+        // Compute the generator polynomial: (x - gen^initialRoot) * ... * (x - gen^(initialRoot + eccLen - 1))
+        this.logRoots = new int[eccLen];
+        int[] genPoly = new int[eccLen];
+        genPoly[0] = 1;
+        for (int i = 0; i < eccLen; ++i) {
+            this.logRoots[i] = (this.initialRoot + i) % nonZeroElements;
+            for (int j = eccLen - 1; j >= 0; --j) {
+                genPoly[j] = mul(genPoly[j], this.logRoots[i]);
+                if (j >= 1) {
+                    genPoly[j] ^= genPoly[j - 1];
+                }
+            }
+        }
+        this.logGenPoly = new int[eccLen];
+        for (int i = 0; i < eccLen; ++i) {
+            this.logGenPoly[i] = genPoly[i] == 0 ? -1 : this.logTable[genPoly[i]];
+        }
+        this.workspace = ThreadLocal.withInitial(() -> new Workspace(eccLen));
+    }
+
+    /**
+     * This method computes the RS symbols of the provided message. The message symbol k is read from
+     * message[messageOffset + k * messageStride], the RS symbol p is written to parity[parityOffset + p * parityStride].
+     *
+     * @param message the array containing the message
+     * @param messageOffset the position of the first message symbol
+     * @param messageStride the distance between two consecutive message symbols (the interleaving depth)
+     * @param parity the array that receives the RS symbols (it can be the message array)
+     * @param parityOffset the position of the first RS symbol
+     * @param parityStride the distance between two consecutive RS symbols (the interleaving depth)
+     */
+    public void encode(byte[] message, int messageOffset, int messageStride, byte[] parity, int parityOffset, int parityStride) {
+        int[] reg = workspace.get().parity;
+        Arrays.fill(reg, 0);
+        // Polynomial division, from the highest monomial power (last message symbol) to the lowest
+        for (int k = messageLen - 1; k >= 0; --k) {
+            int factor = toConventional[message[messageOffset + k * messageStride] & 0xFF] ^ reg[eccLen - 1];
+            if (factor == 0) {
+                System.arraycopy(reg, 0, reg, 1, eccLen - 1);
+                reg[0] = 0;
+            } else {
+                int logFactor = logTable[factor];
+                for (int j = eccLen - 1; j >= 1; --j) {
+                    reg[j] = reg[j - 1] ^ (logGenPoly[j] < 0 ? 0 : expTable[logGenPoly[j] + logFactor]);
+                }
+                reg[0] = logGenPoly[0] < 0 ? 0 : expTable[logGenPoly[0] + logFactor];
+            }
+        }
+        for (int p = 0; p < eccLen; ++p) {
+            parity[parityOffset + p * parityStride] = (byte) fromConventional[reg[p]];
+        }
+    }
+
+    /**
+     * This method checks whether the provided codeword contains errors. The codeword symbol k (message symbols first,
+     * then RS symbols) is read from codeword[offset + k * stride].
+     *
+     * @param codeword the array containing the codeword
+     * @param offset the position of the first symbol
+     * @param stride the distance between two consecutive symbols (the interleaving depth)
+     * @return true if the codeword has no errors, false otherwise
+     */
+    public boolean check(byte[] codeword, int offset, int stride) {
+        return computeSyndromes(codeword, offset, stride, workspace.get().syndromes);
+    }
+
+    /**
+     * This method corrects the provided codeword in place. The codeword symbol k (message symbols first, then RS
+     * symbols) is read from codeword[offset + k * stride]. If the codeword cannot be corrected, it is left untouched.
+     *
+     * @param codeword the array containing the codeword
+     * @param offset the position of the first symbol
+     * @param stride the distance between two consecutive symbols (the interleaving depth)
+     * @return the number of corrected symbols, or -1 if the codeword cannot be corrected
+     */
+    public int correct(byte[] codeword, int offset, int stride) {
+        return decode(codeword, offset, stride, codeword, offset, stride, true, true);
+    }
+
+    /**
+     * This method extracts the message symbols from the provided codeword into the output array, optionally correcting
+     * them. The codeword symbol k (message symbols first, then RS symbols) is read from codeword[offset + k * stride], the
+     * message symbol k is written to output[outputOffset + k * outputStride]. The codeword is not modified, unless it is
+     * the output array.
+     *
+     * @param codeword the array containing the codeword
+     * @param offset the position of the first symbol
+     * @param stride the distance between two consecutive symbols (the interleaving depth)
+     * @param output the array that receives the message
+     * @param outputOffset the position of the first message symbol in the output array
+     * @param outputStride the distance between two consecutive message symbols in the output array
+     * @param errorCorrection true if the message symbols shall be corrected, false for error detection only
+     * @return the number of corrected symbols (including RS symbols), or -1 if errors are detected and they cannot be
+     * (or shall not be) corrected
+     */
+    public int decode(byte[] codeword, int offset, int stride, byte[] output, int outputOffset, int outputStride, boolean errorCorrection) {
+        if (output != codeword || outputOffset != offset || outputStride != stride) {
+            for (int k = 0; k < messageLen; ++k) {
+                output[outputOffset + k * outputStride] = codeword[offset + k * stride];
+            }
+        }
+        return decode(codeword, offset, stride, output, outputOffset, outputStride, errorCorrection, false);
+    }
+
+    private int decode(byte[] codeword, int offset, int stride, byte[] output, int outputOffset, int outputStride, boolean errorCorrection, boolean correctParity) {
+        Workspace ws = workspace.get();
+        if (computeSyndromes(codeword, offset, stride, ws.syndromes)) {
+            return 0;
+        }
+        if (!errorCorrection) {
+            return -1;
+        }
+        int numErrors = computeErrorLocator(ws);
+        if (numErrors < 0 || !findErrorPositions(ws, numErrors) || !computeErrorMagnitudes(ws, numErrors)) {
+            return -1;
+        }
+        // Apply the corrections: the dual basis transformation is linear, so the error can be transformed separately
+        for (int e = 0; e < numErrors; ++e) {
+            int pos = ws.errorPositions[e];
+            int error = fromConventional[ws.errorMagnitudes[e]];
+            if (pos >= eccLen) {
+                // Message symbol
+                int idx = outputOffset + (pos - eccLen) * outputStride;
+                output[idx] = (byte) (output[idx] ^ error);
+            } else if (correctParity) {
+                // RS symbol
+                int idx = offset + (messageLen + pos) * stride;
+                codeword[idx] = (byte) (codeword[idx] ^ error);
+            }
+        }
+        return numErrors;
+    }
+
+    // The codeword polynomial has the RS symbols as lowest powers and the message symbols as highest powers (see RsEncoder).
+    // syndromes[i] = codeword(gen^(initialRoot + i)), computed with the Horner method. Returns true if all syndromes are zero.
+    private boolean computeSyndromes(byte[] codeword, int offset, int stride, int[] syndromes) {
+        Arrays.fill(syndromes, 0);
+        for (int k = codewordLen - 1; k >= 0; --k) {
+            // From the last message symbol to the first, then from the last RS symbol to the first
+            int sym = k >= eccLen ? k - eccLen : messageLen + k;
+            int value = toConventional[codeword[offset + sym * stride] & 0xFF];
+            for (int i = 0; i < eccLen; ++i) {
+                int s = syndromes[i];
+                syndromes[i] = (s == 0 ? 0 : expTable[logTable[s] + logRoots[i]]) ^ value;
+            }
+        }
+        for (int s : syndromes) {
+            if (s != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Berlekamp-Massey algorithm: computes the error locator polynomial in ws.lambda and returns its degree, or -1 if
+    // the number of errors exceeds the correction capability
+    private int computeErrorLocator(Workspace ws) {
+        int[] s = ws.syndromes;
+        int[] lambda = ws.lambda;
+        int[] prev = ws.prevLambda;
+        int[] tmp = ws.tmp;
+        Arrays.fill(lambda, 0);
+        Arrays.fill(prev, 0);
+        lambda[0] = 1;
+        prev[0] = 1;
+        int degree = 0;
+        int shift = 1;
+        int prevDiscrepancy = 1;
+        for (int n = 0; n < eccLen; ++n) {
+            int d = s[n];
+            for (int i = 1; i <= degree; ++i) {
+                d ^= mulFull(lambda[i], s[n - i]);
+            }
+            if (d == 0) {
+                ++shift;
+                continue;
+            }
+            int logCoef = (logTable[d] - logTable[prevDiscrepancy] + nonZeroElements) % nonZeroElements;
+            boolean lengthChange = 2 * degree <= n;
+            if (lengthChange) {
+                System.arraycopy(lambda, 0, tmp, 0, lambda.length);
+            }
+            for (int i = 0; i + shift <= eccLen; ++i) {
+                lambda[i + shift] ^= mul(prev[i], logCoef);
+            }
+            if (lengthChange) {
+                degree = n + 1 - degree;
+                System.arraycopy(tmp, 0, prev, 0, prev.length);
+                prevDiscrepancy = d;
+                shift = 1;
+            } else {
+                ++shift;
+            }
+        }
+        return 2 * degree > eccLen ? -1 : degree;
+    }
+
+    // Chien search: the error positions are the positions pos such that lambda(gen^-pos) == 0
+    private boolean findErrorPositions(Workspace ws, int numErrors) {
+        int[] lambda = ws.lambda;
+        int[] reg = ws.tmp;
+        for (int j = 1; j <= numErrors; ++j) {
+            reg[j] = lambda[j] == 0 ? -1 : logTable[lambda[j]];
+        }
+        int found = 0;
+        for (int pos = 0; pos < codewordLen; ++pos) {
+            int sum = 1;
+            for (int j = 1; j <= numErrors; ++j) {
+                if (reg[j] >= 0) {
+                    sum ^= expTable[reg[j]];
+                    // Multiply by gen^-j for the next position
+                    reg[j] = (reg[j] + nonZeroElements - j) % nonZeroElements;
+                }
+            }
+            if (sum == 0) {
+                if (found == numErrors) {
+                    return false;
+                }
+                ws.errorPositions[found++] = pos;
+            }
+        }
+        return found == numErrors;
+    }
+
+    // Forney algorithm: error(pos) = X^(1 - initialRoot) * omega(X^-1) / lambda'(X^-1), with X = gen^pos
+    private boolean computeErrorMagnitudes(Workspace ws, int numErrors) {
+        int[] s = ws.syndromes;
+        int[] lambda = ws.lambda;
+        int[] omega = ws.omega;
+        // omega(x) = s(x) * lambda(x) mod x^eccLen
+        for (int i = 0; i < eccLen; ++i) {
+            int value = 0;
+            for (int j = 0; j <= Math.min(i, numErrors); ++j) {
+                value ^= mulFull(s[i - j], lambda[j]);
+            }
+            omega[i] = value;
+        }
+        for (int e = 0; e < numErrors; ++e) {
+            int pos = ws.errorPositions[e];
+            int logXinv = (nonZeroElements - pos) % nonZeroElements;
+            int omegaValue = 0;
+            for (int i = 0; i < eccLen; ++i) {
+                omegaValue ^= mul(omega[i], (logXinv * i) % nonZeroElements);
+            }
+            int derivativeValue = 0;
+            for (int j = 1; j <= numErrors; j += 2) {
+                derivativeValue ^= mul(lambda[j], (logXinv * (j - 1)) % nonZeroElements);
+            }
+            if (omegaValue == 0 || derivativeValue == 0) {
+                return false;
+            }
+            int logX = Math.floorMod(pos * (1 - initialRoot), nonZeroElements);
+            ws.errorMagnitudes[e] = expTable[(logX + logTable[omegaValue] + nonZeroElements - logTable[derivativeValue]) % nonZeroElements];
+        }
+        return true;
+    }
+
+    // Multiply a field element by gen^logFactor
+    private int mul(int value, int logFactor) {
+        return value == 0 ? 0 : expTable[logTable[value] + logFactor];
+    }
+
+    // Multiply two field elements
+    private int mulFull(int a, int b) {
+        return a == 0 || b == 0 ? 0 : expTable[logTable[a] + logTable[b]];
+    }
+
+    // Carry-less multiplication modulo the field polynomial, used only to build the tables
+    private static int multiply(int x, int y, int modulus, int mask) {
+        int result = 0;
+        for (; y != 0; y >>>= 1) {
+            if ((y & 1) != 0) {
+                result ^= x;
+            }
+            x <<= 1;
+            if (x > mask) {
+                x ^= modulus;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Per-thread working memory of the codec.
+     */
+    private static final class Workspace {
+        private final int[] parity;
+        private final int[] syndromes;
+        private final int[] lambda;
+        private final int[] prevLambda;
+        private final int[] tmp;
+        private final int[] omega;
+        private final int[] errorPositions;
+        private final int[] errorMagnitudes;
+
+        private Workspace(int eccLen) {
+            this.parity = new int[eccLen];
+            this.syndromes = new int[eccLen];
+            this.lambda = new int[eccLen + 1];
+            this.prevLambda = new int[eccLen + 1];
+            this.tmp = new int[eccLen + 1];
+            this.omega = new int[eccLen];
+            this.errorPositions = new int[eccLen];
+            this.errorMagnitudes = new int[eccLen];
+        }
+    }
+}
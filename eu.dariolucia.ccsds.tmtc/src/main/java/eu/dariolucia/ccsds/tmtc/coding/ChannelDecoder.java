@@ -18,6 +18,7 @@ package eu.dariolucia.ccsds.tmtc.coding;
 
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.AbstractTransferFrame;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.function.Function;
@@ -43,6 +44,13 @@ import java.util.function.UnaryOperator;
  * If configure is invoked and a new encoder is added, an exception is thrown.
  * If the channel encoder is attempted to be used without invoking the configure method, an exception is thrown.
  *
+ * Decoding functions that also implement {@link IBufferDecodingFunction} are invoked through that interface: their
+ * output is written into scratch buffers, allocated once per thread and reused across frames, and the provided byte[]
+ * is not modified by them. Only the final result is copied into a new byte[], which is passed to the
+ * {@link IDecodingFunction}. The other decoding functions are applied on a byte[] of the exact length, as expected by
+ * the {@link UnaryOperator} contract. If a decoding function discards the frame (i.e. it returns null or a negative
+ * length), the decoding chain is interrupted and apply() returns null.
+ *
  * @param <T> subclass of the {@link AbstractTransferFrame} class
  */
 public class ChannelDecoder<T extends AbstractTransferFrame> implements Function<byte[], T> {
@@ -64,6 +72,8 @@ public class ChannelDecoder<T extends AbstractTransferFrame> implements Function
 
     private final List<UnaryOperator<byte[]>> sequentialDecoders = new LinkedList<>();
 
+    private final ThreadLocal<byte[][]> scratchBuffers = ThreadLocal.withInitial(() -> new byte[2][0]);
+
     private boolean configured = false;
 
     private ChannelDecoder(IDecodingFunction<T> frameDecoder) {
@@ -111,10 +121,40 @@ public class ChannelDecoder<T extends AbstractTransferFrame> implements Function
         if(!this.configured) {
             throw new IllegalStateException("Channel decoder not configured yet");
         }
-        byte[] toDecode = item;
+        if(sequentialDecoders.isEmpty()) {
+            return this.frameDecoder.apply(item);
+        }
+        if(item == null) {
+            throw new NullPointerException("Input cannot be null");
+        }
+        byte[][] scratch = this.scratchBuffers.get();
+        // Current data: the first length bytes of the buffer
+        byte[] buffer = item;
+        int length = item.length;
         for(UnaryOperator<byte[]> f : sequentialDecoders) {
-            toDecode = f.apply(toDecode);
+            boolean inScratch = buffer == scratch[0] || buffer == scratch[1];
+            if(f instanceof IBufferDecodingFunction) {
+                IBufferDecodingFunction bf = (IBufferDecodingFunction) f;
+                // Use the scratch buffer not containing the current data
+                int target = buffer == scratch[0] ? 1 : 0;
+                int required = bf.getMaxOutputLength(length);
+                if(scratch[target].length < required) {
+                    scratch[target] = new byte[required];
+                }
+                length = bf.apply(buffer, 0, length, scratch[target], 0);
+                buffer = scratch[target];
+            } else {
+                buffer = f.apply(inScratch ? Arrays.copyOf(buffer, length) : buffer);
+                length = buffer != null ? buffer.length : -1;
+            }
+            if(length < 0) {
+                // Frame discarded
+                return null;
+            }
+        }
+        if(buffer == scratch[0] || buffer == scratch[1]) {
+            buffer = Arrays.copyOf(buffer, length);
         }
-        return this.frameDecoder.apply(toDecode);
+        return this.frameDecoder.apply(buffer);
     }
 }
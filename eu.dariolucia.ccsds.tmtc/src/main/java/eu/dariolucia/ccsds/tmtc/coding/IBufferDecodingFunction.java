@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.coding;
+
+/**
+ * This interface embodies the concept of a decoding function working on buffers: the function reads the input from a
+ * range of a byte array and writes its output into another byte array, provided by the caller, without allocating
+ * memory. It is the buffer-based counterpart of the {@link java.util.function.UnaryOperator} byte[] to byte[] functions
+ * used in the {@link ChannelDecoder} decoding chain: a {@link ChannelDecoder} uses this interface, if implemented by
+ * an added decoding function, to pass the data across the chain using reusable buffers.
+ *
+ * Implementations must not modify the input range and must not retain references to the provided arrays.
+ */
+@FunctionalInterface
+public interface IBufferDecodingFunction {
+
+    /**
+     * This method decodes the input data, writing the result into the output array.
+     *
+     * @param input the array containing the data to decode
+     * @param offset the index of the first byte of the data to decode
+     * @param length the length of the data to decode
+     * @param output the output array: at least getMaxOutputLength(length) bytes are available from outputOffset
+     * @param outputOffset the index of the output array where the first decoded byte shall be written
+     * @return the number of bytes written into the output array, or -1 if the data is discarded (e.g. because of
+     * uncorrectable errors)
+     */
+    int apply(byte[] input, int offset, int length, byte[] output, int outputOffset);
+
+    /**
+     * This method returns the maximum number of bytes written by {@link IBufferDecodingFunction#apply(byte[], int, int, byte[], int)}
+     * for the provided input length. By default, the output is assumed to be not longer than the input.
+     *
+     * @param inputLength the length of the input
+     * @return the maximum length of the output
+     */
+    default int getMaxOutputLength(int inputLength) {
+        return inputLength;
+    }
+}
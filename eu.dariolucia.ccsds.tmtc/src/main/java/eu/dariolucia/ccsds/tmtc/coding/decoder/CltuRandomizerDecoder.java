@@ -17,16 +17,18 @@
 package eu.dariolucia.ccsds.tmtc.coding.decoder;
 
 import eu.dariolucia.ccsds.tmtc.algorithm.RandomizerAlgorithm;
+import eu.dariolucia.ccsds.tmtc.coding.IBufferDecodingFunction;
 
 import java.util.function.UnaryOperator;
 
 /**
  * This functional class allows the usage of the {@link RandomizerAlgorithm}.randomizeFrameCltu in expression using {@link java.util.stream.Stream}
- * objects or in {@link eu.dariolucia.ccsds.tmtc.coding.ChannelEncoder} instances. Randomization is performed in-place.
+ * objects or in {@link eu.dariolucia.ccsds.tmtc.coding.ChannelDecoder} instances. Randomization is performed in-place,
+ * unless the class is used as {@link IBufferDecodingFunction}.
  *
  * XXX: It could be considered redundant, since the randomizeFrameCltu method can be addressed by using method references.
  */
-public class CltuRandomizerDecoder implements UnaryOperator<byte[]> {
+public class CltuRandomizerDecoder implements UnaryOperator<byte[]>, IBufferDecodingFunction {
 
     @Override
     public byte[] apply(byte[] input) {
@@ -37,4 +39,10 @@ public class CltuRandomizerDecoder implements UnaryOperator<byte[]> {
 
         return input;
     }
+
+    @Override
+    public int apply(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        RandomizerAlgorithm.randomizeFrameCltu(input, offset, output, outputOffset, length);
+        return length;
+    }
 }
@@ -17,35 +17,77 @@
 package eu.dariolucia.ccsds.tmtc.coding.decoder;
 
 import eu.dariolucia.ccsds.tmtc.algorithm.ReedSolomonAlgorithm;
+import eu.dariolucia.ccsds.tmtc.coding.IBufferDecodingFunction;
+import eu.dariolucia.ccsds.tmtc.util.StreamUtil;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 /**
- * This functional class wraps a {@link ReedSolomonAlgorithm}, including the specification of the interleaving depth and
- * the error checking (set to 0 and false by default), to allow its usage in expression using {@link java.util.stream.Stream}
+ * This functional class wraps a {@link ReedSolomonAlgorithm}, including the specification of the interleaving depth,
+ * the error checking and the error correction (set to 0, false and false by default), to allow its usage in expression using {@link java.util.stream.Stream}
  * objects or in {@link eu.dariolucia.ccsds.tmtc.coding.ChannelDecoder} instances.
+ *
+ * If an {@link Executor} is provided, the interleaved codewords of each frame are checked/corrected in parallel. Sequences
+ * of frames can be decoded in parallel, preserving their order, by means of {@link ReedSolomonDecoder#applyAll(Stream, int)}.
+ *
+ * When used as {@link IBufferDecodingFunction}, the RS symbols are removed (and the errors corrected, if requested)
+ * while copying the frame into the output buffer, without allocating memory.
  */
-public class ReedSolomonDecoder implements UnaryOperator<byte[]> {
+public class ReedSolomonDecoder implements UnaryOperator<byte[]>, IBufferDecodingFunction {
 
     private final ReedSolomonAlgorithm algorithm;
     private final int interleavingDepth;
     private final boolean errorChecking;
+    private final boolean errorCorrection;
+    private final Executor executor;
 
     /**
-     * Construct a function that decodes a Reed-Solomon encoded frame, with the provided interleaving depth and error
-     * detection capability.
+     * Construct a function that decodes a Reed-Solomon encoded frame, with the provided interleaving depth, error
+     * detection and error correction capability. If error correction is enabled, error checking is implicitly enabled.
      *
      * @param rs the Reed-Solomon algorithm to use for decoding
-     * @param interleavingDepth the interleaving depth (meaningful only if errorChecking is true)
+     * @param interleavingDepth the interleaving depth (meaningful only if errorChecking or errorCorrection is true)
      * @param errorChecking true if error detection shall be enabled (in that case apply returns null if the frame has errors), false otherwise
+     * @param errorCorrection true if error correction shall be enabled (in that case apply returns null if the frame has uncorrectable errors), false otherwise
+     * @param executor the executor used to process the interleaved codewords in parallel, can be null (sequential processing)
      */
-    public ReedSolomonDecoder(ReedSolomonAlgorithm rs, int interleavingDepth, boolean errorChecking) {
+    public ReedSolomonDecoder(ReedSolomonAlgorithm rs, int interleavingDepth, boolean errorChecking, boolean errorCorrection, Executor executor) {
         if(rs == null) {
             throw new NullPointerException("Reed-Solomon algorithm cannot be null");
         }
         this.algorithm = rs;
         this.errorChecking = errorChecking;
+        this.errorCorrection = errorCorrection;
         this.interleavingDepth = interleavingDepth;
+        this.executor = executor;
+    }
+
+    /**
+     * Construct a function that decodes a Reed-Solomon encoded frame, with the provided interleaving depth, error
+     * detection and error correction capability. If error correction is enabled, error checking is implicitly enabled.
+     *
+     * @param rs the Reed-Solomon algorithm to use for decoding
+     * @param interleavingDepth the interleaving depth (meaningful only if errorChecking or errorCorrection is true)
+     * @param errorChecking true if error detection shall be enabled (in that case apply returns null if the frame has errors), false otherwise
+     * @param errorCorrection true if error correction shall be enabled (in that case apply returns null if the frame has uncorrectable errors), false otherwise
+     */
+    public ReedSolomonDecoder(ReedSolomonAlgorithm rs, int interleavingDepth, boolean errorChecking, boolean errorCorrection) {
+        this(rs, interleavingDepth, errorChecking, errorCorrection, null);
+    }
+
+    /**
+     * Construct a function that decodes a Reed-Solomon encoded frame, with the provided interleaving depth and error
+     * detection capability.
+     *
+     * @param rs the Reed-Solomon algorithm to use for decoding
+     * @param interleavingDepth the interleaving depth (meaningful only if errorChecking is true)
+     * @param errorChecking true if error detection shall be enabled (in that case apply returns null if the frame has errors), false otherwise
+     */
+    public ReedSolomonDecoder(ReedSolomonAlgorithm rs, int interleavingDepth, boolean errorChecking) {
+        this(rs, interleavingDepth, errorChecking, false);
     }
 
     /**
@@ -62,6 +104,55 @@ public class ReedSolomonDecoder implements UnaryOperator<byte[]> {
         if(input == null) {
             throw new NullPointerException("Input cannot be null");
         }
-        return this.algorithm.decodeFrame(input, interleavingDepth, errorChecking);
+        return decode(input, this.executor);
+    }
+
+    @Override
+    public int apply(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        if(input == null) {
+            throw new NullPointerException("Input cannot be null");
+        }
+        if(errorChecking || errorCorrection) {
+            if(this.algorithm.decodeFrame(input, offset, length, interleavingDepth, errorCorrection, output, outputOffset, this.executor) < 0) {
+                return -1;
+            }
+            return this.algorithm.getMessageLength() * interleavingDepth;
+        }
+        // Quick-look: discard the RS symbols at the end of the frame
+        if(length % this.algorithm.getCodewordLength() != 0) {
+            throw new IllegalArgumentException("Expected frame length to be a multiple of " + this.algorithm.getCodewordLength() + ", got " + length);
+        }
+        int decodedLength = length - (length / this.algorithm.getCodewordLength()) * (this.algorithm.getCodewordLength() - this.algorithm.getMessageLength());
+        System.arraycopy(input, offset, output, outputOffset, decodedLength);
+        return decodedLength;
+    }
+
+    /**
+     * This method decodes the provided sequence of frames in parallel, using the executor provided at construction time
+     * or the common {@link ForkJoinPool}, if no executor was provided. The returned stream contains the decoded frames in
+     * the same order of the input stream (a null item for each frame that {@link ReedSolomonDecoder#apply(byte[])} would
+     * discard). Each frame is decoded by a single task, so that the codewords of the frame are processed sequentially.
+     *
+     * @param input the stream of RS encoded frames
+     * @param window the maximum number of frames decoded at the same time and waiting to be delivered in order
+     * @return the stream of decoded frames
+     */
+    public Stream<byte[]> applyAll(Stream<byte[]> input, int window) {
+        if(input == null) {
+            throw new NullPointerException("Input cannot be null");
+        }
+        return StreamUtil.mapOrdered(input, frame -> {
+            if(frame == null) {
+                throw new NullPointerException("Input cannot be null");
+            }
+            return decode(frame, null);
+        }, this.executor != null ? this.executor : ForkJoinPool.commonPool(), window);
+    }
+
+    private byte[] decode(byte[] input, Executor codewordExecutor) {
+        if(errorCorrection) {
+            return this.algorithm.correctFrame(input, interleavingDepth, codewordExecutor);
+        }
+        return this.algorithm.decodeFrame(input, interleavingDepth, errorChecking, codewordExecutor);
     }
 }
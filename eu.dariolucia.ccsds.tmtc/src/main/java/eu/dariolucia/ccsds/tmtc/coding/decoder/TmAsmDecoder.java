@@ -16,6 +16,7 @@
 
 package eu.dariolucia.ccsds.tmtc.coding.decoder;
 
+import eu.dariolucia.ccsds.tmtc.coding.IBufferDecodingFunction;
 import eu.dariolucia.ccsds.tmtc.coding.encoder.TmAsmEncoder;
 
 import java.util.Arrays;
@@ -27,7 +28,7 @@ import java.util.function.UnaryOperator;
  * This class actually checks whether the sync marker is present. If it is not detected, the apply method throws an
  * {@link IllegalArgumentException}.
  */
-public class TmAsmDecoder implements UnaryOperator<byte[]> {
+public class TmAsmDecoder implements UnaryOperator<byte[]>, IBufferDecodingFunction {
 
     public static final byte[] DEFAULT_ATTACHED_SYNC_MARKER = TmAsmEncoder.DEFAULT_ATTACHED_SYNC_MARKER;
 
@@ -68,4 +69,25 @@ public class TmAsmDecoder implements UnaryOperator<byte[]> {
 
         return Arrays.copyOfRange(input, synchMarker.length, input.length);
     }
+
+    /**
+     * This method checks the sync marker at the beginning of the provided input and copies the rest of the input into
+     * the output array.
+     *
+     * @param input the array containing the data from which the sync marker shall be removed
+     * @param offset the index of the first byte of the data
+     * @param length the length of the data
+     * @param output the output array
+     * @param outputOffset the index of the output array where the first byte after the sync marker is written
+     * @return the length of the data without the sync marker
+     * @throws IllegalArgumentException if the sync marker cannot be detected in the provided input
+     */
+    @Override
+    public int apply(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        if(length < synchMarker.length || !Arrays.equals(input, offset, offset + synchMarker.length, synchMarker, 0, synchMarker.length)) {
+            throw new IllegalArgumentException("Configured ASM cannot be detected: " + Arrays.toString(synchMarker));
+        }
+        System.arraycopy(input, offset + synchMarker.length, output, outputOffset, length - synchMarker.length);
+        return length - synchMarker.length;
+    }
 }
@@ -17,24 +17,75 @@
 package eu.dariolucia.ccsds.tmtc.coding.decoder;
 
 import eu.dariolucia.ccsds.tmtc.algorithm.RandomizerAlgorithm;
+import eu.dariolucia.ccsds.tmtc.coding.IBufferDecodingFunction;
 
+import java.util.Arrays;
 import java.util.function.UnaryOperator;
 
 /**
  * This functional class allows the usage of the {@link RandomizerAlgorithm}.randomizeFrameTm in expression using {@link java.util.stream.Stream}
  * objects or in {@link eu.dariolucia.ccsds.tmtc.coding.ChannelDecoder} instances.
  *
- * XXX: It could be considered redundant, since the randomizeFrameTm method can be addressed by using method references.
+ * If a sync marker is specified, this class replaces the combination of a {@link TmAsmDecoder} followed by a
+ * {@link TmRandomizerDecoder}: the sync marker is checked and removed, and the rest of the input is de-randomized
+ * while being copied, so that the data is processed in a single pass. If the sync marker is not detected, the apply
+ * method throws an {@link IllegalArgumentException}.
+ *
+ * If no sync marker is specified, the input is de-randomized in place, unless the class is used as
+ * {@link IBufferDecodingFunction}.
  */
-public class TmRandomizerDecoder implements UnaryOperator<byte[]> {
+public class TmRandomizerDecoder implements UnaryOperator<byte[]>, IBufferDecodingFunction {
+
+    private final byte[] synchMarker;
+
+    /**
+     * Construct an instance that de-randomizes the input in place.
+     */
+    public TmRandomizerDecoder() {
+        this.synchMarker = null;
+    }
+
+    /**
+     * Construct an instance that removes the provided sync marker and de-randomizes the rest of the input.
+     *
+     * @param synchMarker the sync marker to be removed
+     */
+    public TmRandomizerDecoder(byte[] synchMarker) {
+        if(synchMarker == null) {
+            throw new NullPointerException("Sync marker cannot be null");
+        }
+        this.synchMarker = synchMarker;
+    }
 
     @Override
     public byte[] apply(byte[] input) {
         if(input == null) {
             throw new NullPointerException("Input cannot be null");
         }
-        RandomizerAlgorithm.randomizeFrameTm(input);
+        if(synchMarker == null) {
+            RandomizerAlgorithm.randomizeFrameTm(input);
+            return input;
+        }
+        checkSynchMarker(input, 0, input.length);
+        byte[] output = new byte[input.length - synchMarker.length];
+        RandomizerAlgorithm.randomizeFrameTm(input, synchMarker.length, output, 0, output.length);
+        return output;
+    }
 
-        return input;
+    @Override
+    public int apply(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+        int markerLength = 0;
+        if(synchMarker != null) {
+            checkSynchMarker(input, offset, length);
+            markerLength = synchMarker.length;
+        }
+        RandomizerAlgorithm.randomizeFrameTm(input, offset + markerLength, output, outputOffset, length - markerLength);
+        return length - markerLength;
+    }
+
+    private void checkSynchMarker(byte[] input, int offset, int length) {
+        if(length < synchMarker.length || !Arrays.equals(input, offset, offset + synchMarker.length, synchMarker, 0, synchMarker.length)) {
+            throw new IllegalArgumentException("Configured ASM cannot be detected: " + Arrays.toString(synchMarker));
+        }
     }
 }
@@ -20,9 +20,12 @@ import eu.dariolucia.ccsds.tmtc.algorithm.ReedSolomonAlgorithm;
 import eu.dariolucia.ccsds.tmtc.coding.IEncodingFunction;
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.AbstractTransferFrame;
 
+import java.util.concurrent.Executor;
+
 /**
  * This functional class wraps a {@link ReedSolomonAlgorithm}, including the specification of the interleaving depth
  * to allow its usage in expression using {@link java.util.stream.Stream} objects or in {@link eu.dariolucia.ccsds.tmtc.coding.ChannelEncoder} instances.
+ * If an {@link Executor} is provided, the RS symbols of the interleaved codewords of each frame are computed in parallel.
  *
  * @param <T> subtype of {@link AbstractTransferFrame}, typically {@link eu.dariolucia.ccsds.tmtc.datalink.pdu.TmTransferFrame} or {@link eu.dariolucia.ccsds.tmtc.datalink.pdu.AosTransferFrame}
  */
@@ -32,12 +35,27 @@ public class ReedSolomonEncoder<T extends AbstractTransferFrame> implements IEnc
 
     private final int interleavingDepth;
 
-    public ReedSolomonEncoder(ReedSolomonAlgorithm rs, int interleavingDepth) {
+    private final Executor executor;
+
+    /**
+     * Construct a function that encodes a frame with the provided interleaving depth, using the provided executor to
+     * encode the interleaved codewords in parallel.
+     *
+     * @param rs the Reed-Solomon algorithm to use for encoding
+     * @param interleavingDepth the interleaving depth
+     * @param executor the executor used to encode the interleaved codewords in parallel, can be null (sequential processing)
+     */
+    public ReedSolomonEncoder(ReedSolomonAlgorithm rs, int interleavingDepth, Executor executor) {
         if(rs == null) {
             throw new NullPointerException("Reed-Solomon algorithm cannot be null");
         }
         this.algorithm = rs;
         this.interleavingDepth = interleavingDepth;
+        this.executor = executor;
+    }
+
+    public ReedSolomonEncoder(ReedSolomonAlgorithm rs, int interleavingDepth) {
+        this(rs, interleavingDepth, null);
     }
 
     @Override
@@ -45,6 +63,6 @@ public class ReedSolomonEncoder<T extends AbstractTransferFrame> implements IEnc
         if(input == null) {
             throw new NullPointerException("Input cannot be null");
         }
-        return this.algorithm.encodeFrame(input, interleavingDepth);
+        return this.algorithm.encodeFrame(input, interleavingDepth, executor);
     }
 }
@@ -18,6 +18,7 @@ package eu.dariolucia.ccsds.tmtc.coding.processor;
 
 import eu.dariolucia.ccsds.tmtc.coding.ChannelDecoder;
 import eu.dariolucia.ccsds.tmtc.util.internal.TransformationProcessor;
+import eu.dariolucia.ccsds.tmtc.util.processor.OverflowPolicy;
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.AbstractTransferFrame;
 
 import java.util.concurrent.ExecutorService;
@@ -33,6 +34,10 @@ import java.util.concurrent.ExecutorService;
  */
 public class ChannelDecoderProcessor<T extends AbstractTransferFrame> extends TransformationProcessor<byte[], T> {
 
+    public ChannelDecoderProcessor(ChannelDecoder<T> decoder, ExecutorService executor, boolean timely, int bufferCapacity, OverflowPolicy overflowPolicy) {
+        super(decoder, executor, timely, bufferCapacity, overflowPolicy);
+    }
+
     public ChannelDecoderProcessor(ChannelDecoder<T> decoder, ExecutorService executor, boolean timely) {
         super(decoder, executor, timely);
     }
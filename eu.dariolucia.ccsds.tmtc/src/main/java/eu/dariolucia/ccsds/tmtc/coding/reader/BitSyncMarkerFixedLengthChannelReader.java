@@ -0,0 +1,415 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.coding.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This class is an implementation of the {@link IChannelReader} capable to read transfer units of fixed lengths,
+ * preceded by a synchronisation marker (up to 64 bits), which is not necessarily aligned to the byte boundaries of the
+ * underlying stream. Differently from {@link SyncMarkerFixedLengthChannelReader}, this implementation works at bit level:
+ * <ul>
+ *     <li>the synchronisation marker is searched by means of a 64-bit shift register correlator, which accepts a
+ *     configurable number of bit errors (Hamming distance) and, optionally, the inverted synchronisation marker (in which
+ *     case the transfer unit is inverted as well);</li>
+ *     <li>the synchronisation follows the search/check/lock/flywheel strategy: once a marker is found in SEARCH state,
+ *     the reader moves to CHECK state and expects the next markers at the position following each transfer unit. After
+ *     checkThreshold further markers are verified, the reader moves to LOCK state. In LOCK state, a missing marker moves
+ *     the reader to FLYWHEEL state: transfer units are still delivered at the expected position, until flywheelThreshold
+ *     consecutive markers are missing, in which case the reader goes back to SEARCH state;</li>
+ *     <li>in CHECK, LOCK and FLYWHEEL states, the marker is also looked for in a window of +/- bitSlip bits around the
+ *     expected position, to follow bit slips;</li>
+ *     <li>the underlying stream is read in bulk into an internal buffer, instead of one byte at a time.</li>
+ * </ul>
+ *
+ * If includeStartMarker is true, the nominal synchronisation marker is written at the beginning of each transfer unit.
+ */
+public class BitSyncMarkerFixedLengthChannelReader extends AbstractChannelReader {
+
+    /**
+     * The states of the frame synchroniser.
+     */
+    public enum State {
+        /**
+         * The synchronisation marker is searched bit by bit.
+         */
+        SEARCH,
+        /**
+         * A synchronisation marker was found, the following ones are being verified.
+         */
+        CHECK,
+        /**
+         * The synchronisation was confirmed.
+         */
+        LOCK,
+        /**
+         * The synchronisation was confirmed, but one or more of the last expected synchronisation markers were missing.
+         */
+        FLYWHEEL
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    private final int fixedLength;
+
+    private final byte[] syncMarker;
+
+    private final boolean includeStartMarker;
+
+    private final boolean throwExceptionOnSyncLoss;
+
+    private final int searchTolerance;
+
+    private final int lockTolerance;
+
+    private final int checkThreshold;
+
+    private final int flywheelThreshold;
+
+    private final int bitSlip;
+
+    private final boolean acceptInverted;
+
+    private final long asmPattern;
+
+    private final long asmMask;
+
+    private final int asmBits;
+
+    private final byte[] buffer;
+
+    // Number of valid bytes in the buffer
+    private int bufferLength = 0;
+
+    // Position of the next bit to be processed, in the buffer
+    private int bitPosition = 0;
+
+    private boolean endOfStream = false;
+
+    private State state = State.SEARCH;
+
+    private boolean inverted = false;
+
+    // Number of verified markers in CHECK state, or number of missing markers in FLYWHEEL state
+    private int stateCounter = 0;
+
+    /**
+     * Construct a reader with default synchronisation parameters: 1 bit error tolerated in SEARCH state, 4 bit errors
+     * tolerated in the other states, 1 marker to be verified in CHECK state, 3 missing markers tolerated in FLYWHEEL
+     * state, no bit slip and inverted synchronisation marker accepted.
+     *
+     * @param stream the stream to read from
+     * @param syncMarker the synchronisation marker, from 1 to 8 bytes
+     * @param fixedLength the length of the transfer unit, excluding the synchronisation marker
+     */
+    public BitSyncMarkerFixedLengthChannelReader(InputStream stream, byte[] syncMarker, int fixedLength) {
+        this(stream, syncMarker, fixedLength, true, false, 1, 4, 1, 3, 0, true);
+    }
+
+    /**
+     * Construct a reader with the provided synchronisation parameters.
+     *
+     * @param stream the stream to read from
+     * @param syncMarker the synchronisation marker, from 1 to 8 bytes
+     * @param fixedLength the length of the transfer unit, excluding the synchronisation marker
+     * @param includeStartMarker true if the synchronisation marker shall be included in the returned transfer unit
+     * @param throwExceptionOnSyncLoss true if a {@link SynchronizationLostException} shall be thrown when the reader goes
+     *                                 from LOCK or FLYWHEEL state back to SEARCH state
+     * @param searchTolerance the number of bit errors accepted in the synchronisation marker, in SEARCH state
+     * @param lockTolerance the number of bit errors accepted in the synchronisation marker, in CHECK, LOCK and FLYWHEEL states
+     * @param checkThreshold the number of synchronisation markers to verify in CHECK state before moving to LOCK state
+     * @param flywheelThreshold the number of consecutive missing synchronisation markers tolerated in LOCK/FLYWHEEL state
+     * @param bitSlip the maximum bit slip, in bits (from 0 to 7), accepted in CHECK, LOCK and FLYWHEEL states
+     * @param acceptInverted true if the inverted synchronisation marker shall be recognised in SEARCH state
+     */
+    public BitSyncMarkerFixedLengthChannelReader(InputStream stream, byte[] syncMarker, int fixedLength, boolean includeStartMarker, boolean throwExceptionOnSyncLoss,
+                                                 int searchTolerance, int lockTolerance, int checkThreshold, int flywheelThreshold, int bitSlip, boolean acceptInverted) {
+        super(stream);
+        if(syncMarker.length == 0 || syncMarker.length > Long.BYTES) {
+            throw new IllegalArgumentException("Synchronisation marker length must be between 1 and " + Long.BYTES + " bytes, got " + syncMarker.length);
+        }
+        if(fixedLength <= 0) {
+            throw new IllegalArgumentException("Fixed length must be positive, got " + fixedLength);
+        }
+        if(searchTolerance < 0 || lockTolerance < 0 || checkThreshold < 0 || flywheelThreshold < 0) {
+            throw new IllegalArgumentException("Tolerances and thresholds cannot be negative");
+        }
+        if(bitSlip < 0 || bitSlip >= Byte.SIZE) {
+            throw new IllegalArgumentException("Bit slip must be between 0 and " + (Byte.SIZE - 1) + ", got " + bitSlip);
+        }
+        this.syncMarker = syncMarker.clone();
+        this.fixedLength = fixedLength;
+        this.includeStartMarker = includeStartMarker;
+        this.throwExceptionOnSyncLoss = throwExceptionOnSyncLoss;
+        this.searchTolerance = searchTolerance;
+        this.lockTolerance = lockTolerance;
+        this.checkThreshold = checkThreshold;
+        this.flywheelThreshold = flywheelThreshold;
+        this.bitSlip = bitSlip;
+        this.acceptInverted = acceptInverted;
+        this.asmBits = syncMarker.length * Byte.SIZE;
+        this.asmMask = this.asmBits == Long.SIZE ? -1L : (1L << this.asmBits) - 1;
+        long pattern = 0;
+        for(byte b : syncMarker) {
+            pattern = (pattern << Byte.SIZE) | (b & 0xFF);
+        }
+        this.asmPattern = pattern;
+        // The buffer must contain at least a full transfer unit plus a marker and the bit slip window
+        this.buffer = new byte[Math.max(DEFAULT_BUFFER_SIZE, 2 * (fixedLength + syncMarker.length + 2))];
+    }
+
+    @Override
+    public int readNext(byte[] b, int offset, int maxLength) throws IOException {
+        int totalLength = fixedLength + (includeStartMarker ? syncMarker.length : 0);
+        if(maxLength < totalLength) {
+            throw new IOException("Provided buffer free space " + maxLength + " bytes is less than required " + totalLength + " bytes");
+        }
+        if(state == State.SEARCH) {
+            if(!search()) {
+                // No more data
+                return -1;
+            }
+        } else if(!verifyNextMarker()) {
+            return -1;
+        }
+        // At this stage, bitPosition points to the first bit of the transfer unit
+        if(!ensureAvailable(fixedLength * Byte.SIZE)) {
+            throw new IOException("Stream unexpectedly closed: " + availableBits() + " bits available, " + (fixedLength * Byte.SIZE) + " bits expected");
+        }
+        int read = 0;
+        // Copy the sync marker if required
+        if(includeStartMarker) {
+            System.arraycopy(syncMarker, 0, b, offset, syncMarker.length);
+            read += syncMarker.length;
+        }
+        copyBits(b, offset + read);
+        read += fixedLength;
+        bitPosition += fixedLength * Byte.SIZE;
+        // Return the buffer
+        return read;
+    }
+
+    @Override
+    public byte[] readNext() throws IOException {
+        byte[] b = new byte[fixedLength + (includeStartMarker ? syncMarker.length : 0)];
+        int read = readNext(b, 0, b.length);
+        if(read > 0) {
+            return b;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * This method returns the current state of the frame synchroniser.
+     *
+     * @return the current state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * This method returns whether the synchronisation was acquired on the inverted synchronisation marker, i.e. whether
+     * the returned transfer units are inverted with respect to the underlying stream.
+     *
+     * @return true if the stream is inverted, false otherwise
+     */
+    public boolean isInverted() {
+        return inverted;
+    }
+
+    /**
+     * Search the synchronisation marker bit by bit, using a shift register correlator. When this method returns true,
+     * bitPosition points to the first bit after the marker and the state is CHECK.
+     *
+     * @return true if the marker was found, false if the end of stream was reached
+     * @throws IOException in case of error while reading the stream
+     */
+    private boolean search() throws IOException {
+        long register = 0;
+        int shifted = 0;
+        while(true) {
+            if(bitPosition >= bufferLength * Byte.SIZE && !ensureAvailable(1)) {
+                return false;
+            }
+            int bit = (buffer[bitPosition >>> 3] >>> (7 - (bitPosition & 0x07))) & 0x01;
+            ++bitPosition;
+            register = (register << 1) | bit;
+            if(++shifted >= asmBits) {
+                long diff = (register ^ asmPattern) & asmMask;
+                if(Long.bitCount(diff) <= searchTolerance) {
+                    enterState(State.CHECK, false);
+                    return true;
+                } else if(acceptInverted && Long.bitCount(~diff & asmMask) <= searchTolerance) {
+                    enterState(State.CHECK, true);
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Verify the synchronisation marker at the expected position (plus/minus the bit slip window) and update the state.
+     * When this method returns true, bitPosition points to the first bit of the next transfer unit.
+     *
+     * @return true if a transfer unit follows, false if the end of stream was reached
+     * @throws IOException in case of error while reading the stream, or if the synchronisation is lost and the reader
+     * is configured to throw an exception
+     */
+    private boolean verifyNextMarker() throws IOException {
+        if(!ensureAvailable(asmBits + bitSlip) && !ensureAvailable(asmBits)) {
+            // Not enough data for a synchronisation marker: end of stream
+            return false;
+        }
+        // Look for the marker in the bit slip window, starting from the expected position
+        long expected = inverted ? ~asmPattern & asmMask : asmPattern;
+        int bestSlip = 0;
+        int bestErrors = Integer.MAX_VALUE;
+        for(int i = 0; i <= 2 * bitSlip; ++i) {
+            // Sequence: 0, -1, +1, -2, +2, ...
+            int slip = (i % 2 == 0 ? 1 : -1) * ((i + 1) / 2);
+            int position = bitPosition + slip;
+            if(position < 0 || position + asmBits > bufferLength * Byte.SIZE) {
+                continue;
+            }
+            int errors = Long.bitCount(peekBits(position, asmBits) ^ expected);
+            if(errors < bestErrors) {
+                bestErrors = errors;
+                bestSlip = slip;
+            }
+        }
+        boolean found = bestErrors <= lockTolerance;
+        switch (state) {
+            case CHECK:
+                if(!found) {
+                    // Go back to search, starting from the expected position
+                    enterState(State.SEARCH, inverted);
+                    return search();
+                }
+                if(++stateCounter >= checkThreshold) {
+                    enterState(State.LOCK, inverted);
+                }
+                break;
+            case LOCK:
+                if(!found) {
+                    enterState(State.FLYWHEEL, inverted);
+                    stateCounter = 1;
+                    if(stateCounter > flywheelThreshold) {
+                        return loseSynchronisation();
+                    }
+                }
+                break;
+            case FLYWHEEL:
+                if(found) {
+                    enterState(State.LOCK, inverted);
+                } else if(++stateCounter > flywheelThreshold) {
+                    return loseSynchronisation();
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unexpected state " + state);
+        }
+        bitPosition += (found ? bestSlip : 0) + asmBits;
+        return true;
+    }
+
+    private boolean loseSynchronisation() throws IOException {
+        enterState(State.SEARCH, inverted);
+        if(throwExceptionOnSyncLoss) {
+            throw new SynchronizationLostException("Synchronization lost: " + flywheelThreshold + " consecutive synchronisation markers missing");
+        }
+        return search();
+    }
+
+    private void enterState(State newState, boolean newInverted) {
+        if(newState == State.CHECK && checkThreshold == 0) {
+            newState = State.LOCK;
+        }
+        this.state = newState;
+        this.inverted = newInverted;
+        this.stateCounter = 0;
+    }
+
+    private int availableBits() {
+        return bufferLength * Byte.SIZE - bitPosition;
+    }
+
+    /**
+     * Make sure that the buffer contains at least the specified number of bits after bitPosition, reading from the
+     * stream in bulk if needed. The bytes preceding bitPosition are discarded, except those needed for the bit slip
+     * window.
+     *
+     * @param bits the number of bits
+     * @return true if the bits are available, false if the end of stream was reached before
+     * @throws IOException in case of error while reading the stream
+     */
+    private boolean ensureAvailable(int bits) throws IOException {
+        while(availableBits() < bits) {
+            if(endOfStream) {
+                return false;
+            }
+            // Compact the buffer
+            int keepFrom = Math.max(0, bitPosition - bitSlip) >>> 3;
+            if(keepFrom > 0) {
+                System.arraycopy(buffer, keepFrom, buffer, 0, bufferLength - keepFrom);
+                bufferLength -= keepFrom;
+                bitPosition -= keepFrom * Byte.SIZE;
+            }
+            int read = stream.read(buffer, bufferLength, buffer.length - bufferLength);
+            if(read < 0) {
+                endOfStream = true;
+            } else {
+                bufferLength += read;
+            }
+        }
+        return true;
+    }
+
+    private long peekBits(int position, int numBits) {
+        long value = 0;
+        int remaining = numBits;
+        while(remaining > 0) {
+            int available = Byte.SIZE - (position & 0x07);
+            int take = Math.min(available, remaining);
+            int bits = ((buffer[position >>> 3] & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+            value = (value << take) | bits;
+            position += take;
+            remaining -= take;
+        }
+        return value;
+    }
+
+    private void copyBits(byte[] b, int offset) {
+        int startByte = bitPosition >>> 3;
+        int shift = bitPosition & 0x07;
+        if(shift == 0) {
+            System.arraycopy(buffer, startByte, b, offset, fixedLength);
+        } else {
+            for(int i = 0; i < fixedLength; ++i) {
+                int idx = startByte + i;
+                b[offset + i] = (byte) ((buffer[idx] << shift) | ((buffer[idx + 1] & 0xFF) >>> (Byte.SIZE - shift)));
+            }
+        }
+        if(inverted) {
+            for(int i = 0; i < fixedLength; ++i) {
+                b[offset + i] = (byte) ~b[offset + i];
+            }
+        }
+    }
+}
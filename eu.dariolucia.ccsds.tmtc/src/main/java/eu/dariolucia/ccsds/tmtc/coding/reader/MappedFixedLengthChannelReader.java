@@ -0,0 +1,244 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.coding.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class is an implementation of the {@link IChannelReader} capable to read transfer units of the same length from
+ * a file, by means of memory mapping. The file can be larger than 2 GB: it is mapped in regions, each containing an
+ * integer number of transfer units. Optionally, the file can start with a header, which is skipped, and the presence
+ * of a synchronisation marker at the beginning of each transfer unit can be verified.
+ *
+ * In addition to the {@link IChannelReader} methods, which copy each transfer unit into a byte array, this class allows:
+ * <ul>
+ *     <li>to access each transfer unit as read-only {@link ByteBuffer} view of the mapped file, without copying it;</li>
+ *     <li>to access the transfer units randomly, by index, or to move the read position to a given transfer unit.</li>
+ * </ul>
+ *
+ * Instances of this class are not thread-safe for sequential reading, while random access via
+ * {@link MappedFixedLengthChannelReader#getSlice(long)} can be performed concurrently.
+ */
+public class MappedFixedLengthChannelReader implements IChannelReader {
+
+    private final FileChannel channel;
+
+    private final int fixedLength;
+
+    private final long fileOffset;
+
+    private final byte[] syncMarker;
+
+    private final long numberOfUnits;
+
+    private final int unitsPerRegion;
+
+    private final AtomicReferenceArray<MappedByteBuffer> regions;
+
+    private long currentIndex = 0;
+
+    /**
+     * Construct a reader for the provided file, containing transfer units of the specified length.
+     *
+     * @param file the file to read
+     * @param fixedLength the length of each transfer unit
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedFixedLengthChannelReader(Path file, int fixedLength) throws IOException {
+        this(file, fixedLength, 0, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Construct a reader for the provided file, containing transfer units of the specified length, starting from
+     * fileOffset. If the file length, excluding the header, is not a multiple of fixedLength, the trailing bytes are
+     * ignored.
+     *
+     * @param file the file to read
+     * @param fixedLength the length of each transfer unit
+     * @param fileOffset the number of bytes to skip at the beginning of the file
+     * @param syncMarker the synchronisation marker expected at the beginning of each transfer unit, null if no check
+     *                   shall be performed
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedFixedLengthChannelReader(Path file, int fixedLength, long fileOffset, byte[] syncMarker) throws IOException {
+        this(file, fixedLength, fileOffset, syncMarker, Integer.MAX_VALUE);
+    }
+
+    // The maximum region size can be changed for testing purposes
+    MappedFixedLengthChannelReader(Path file, int fixedLength, long fileOffset, byte[] syncMarker, int maxRegionSize) throws IOException {
+        if(file == null) {
+            throw new NullPointerException("Null file provided");
+        }
+        if(fixedLength <= 0 || fixedLength > maxRegionSize) {
+            throw new IllegalArgumentException("Fixed length must be between 1 and " + maxRegionSize + ", got " + fixedLength);
+        }
+        if(fileOffset < 0) {
+            throw new IllegalArgumentException("File offset cannot be negative, got " + fileOffset);
+        }
+        if(syncMarker != null && syncMarker.length > fixedLength) {
+            throw new IllegalArgumentException("Synchronisation marker longer than the transfer unit");
+        }
+        this.fixedLength = fixedLength;
+        this.fileOffset = fileOffset;
+        this.syncMarker = syncMarker != null ? syncMarker.clone() : null;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.numberOfUnits = Math.max(0, (this.channel.size() - fileOffset) / fixedLength);
+            this.unitsPerRegion = maxRegionSize / fixedLength;
+            int numRegions = (int) ((this.numberOfUnits + this.unitsPerRegion - 1) / this.unitsPerRegion);
+            this.regions = new AtomicReferenceArray<>(numRegions);
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * This method returns the number of transfer units in the file.
+     *
+     * @return the number of transfer units
+     */
+    public long getNumberOfUnits() {
+        return numberOfUnits;
+    }
+
+    /**
+     * This method returns the index of the transfer unit that will be returned by the next read operation.
+     *
+     * @return the current index
+     */
+    public long getCurrentIndex() {
+        return currentIndex;
+    }
+
+    /**
+     * This method moves the read position to the transfer unit with the provided index.
+     *
+     * @param index the index of the next transfer unit to read, from 0 to the number of transfer units (end of file)
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public void seek(long index) {
+        if(index < 0 || index > numberOfUnits) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds, number of transfer units: " + numberOfUnits);
+        }
+        this.currentIndex = index;
+    }
+
+    /**
+     * This method returns a read-only view of the transfer unit with the provided index. The position of the returned
+     * buffer is 0 and its limit is the transfer unit length. The contents are not copied. The read position is not
+     * affected.
+     *
+     * @param index the index of the transfer unit
+     * @return the transfer unit view
+     * @throws IOException if the file region cannot be mapped, or if the synchronisation marker is not found
+     * @throws IndexOutOfBoundsException if the index is out of bounds
+     */
+    public ByteBuffer getSlice(long index) throws IOException {
+        if(index < 0 || index >= numberOfUnits) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds, number of transfer units: " + numberOfUnits);
+        }
+        MappedByteBuffer region = region((int) (index / unitsPerRegion));
+        int position = (int) (index % unitsPerRegion) * fixedLength;
+        ByteBuffer slice = region.duplicate();
+        slice.position(position).limit(position + fixedLength);
+        slice = slice.slice();
+        if(syncMarker != null) {
+            for(int i = 0; i < syncMarker.length; ++i) {
+                if(slice.get(i) != syncMarker[i]) {
+                    throw new SynchronizationLostException("Synchronization marker not found at transfer unit " + index + ": expected " + syncMarker[i] + ", got " + slice.get(i) + " at position " + i);
+                }
+            }
+        }
+        return slice;
+    }
+
+    /**
+     * This method returns a read-only view of the next transfer unit, as {@link MappedFixedLengthChannelReader#getSlice(long)},
+     * and advances the read position.
+     *
+     * @return the transfer unit view, or null if no more transfer units are available
+     * @throws IOException if the file region cannot be mapped, or if the synchronisation marker is not found
+     */
+    public ByteBuffer readNextSlice() throws IOException {
+        if(currentIndex >= numberOfUnits) {
+            return null;
+        }
+        ByteBuffer slice = getSlice(currentIndex);
+        ++currentIndex;
+        return slice;
+    }
+
+    @Override
+    public int readNext(byte[] b, int offset, int maxLength) throws IOException {
+        if(maxLength < fixedLength) {
+            throw new IOException("Provided buffer free space " + maxLength + " bytes is less than required " + fixedLength + " bytes");
+        }
+        ByteBuffer slice = readNextSlice();
+        if(slice == null) {
+            return -1;
+        }
+        slice.get(b, offset, fixedLength);
+        return fixedLength;
+    }
+
+    @Override
+    public byte[] readNext() throws IOException {
+        byte[] b = new byte[fixedLength];
+        int read = readNext(b, 0, b.length);
+        if(read > 0) {
+            return b;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * This method is used to close the underlying {@link FileChannel} and to drop the references to the mapped regions.
+     * Closing the channel does not unmap the regions: a region stays mapped, and the slices obtained from it stay
+     * readable, until the region and all its slices are no longer referenced and the JVM reclaims them.
+     *
+     * @throws IOException in case the channel raises an exception on close
+     */
+    @Override
+    public void close() throws IOException {
+        for(int i = 0; i < this.regions.length(); ++i) {
+            this.regions.set(i, null);
+        }
+        this.channel.close();
+    }
+
+    private MappedByteBuffer region(int regionIdx) throws IOException {
+        MappedByteBuffer region = regions.get(regionIdx);
+        if(region == null) {
+            long firstUnit = (long) regionIdx * unitsPerRegion;
+            long unitsInRegion = Math.min(unitsPerRegion, numberOfUnits - firstUnit);
+            region = channel.map(FileChannel.MapMode.READ_ONLY, fileOffset + firstUnit * fixedLength, unitsInRegion * fixedLength);
+            // If two threads map the same region at the same time, the first mapping wins
+            if(!regions.compareAndSet(regionIdx, null, region)) {
+                region = regions.get(regionIdx);
+            }
+        }
+        return region;
+    }
+}
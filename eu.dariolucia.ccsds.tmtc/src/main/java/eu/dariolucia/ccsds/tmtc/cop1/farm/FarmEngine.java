@@ -19,6 +19,8 @@ package eu.dariolucia.ccsds.tmtc.cop1.farm;
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.TcTransferFrame;
 import eu.dariolucia.ccsds.tmtc.ocf.builder.ClcwBuilder;
 import eu.dariolucia.ccsds.tmtc.ocf.pdu.Clcw;
+import eu.dariolucia.ccsds.tmtc.util.TaskScheduler;
+import eu.dariolucia.ccsds.tmtc.util.internal.SerialExecutor;
 
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -29,6 +31,9 @@ import java.util.function.Supplier;
 /**
  * This class implements the FARM side of the COP-1 protocol, as defined by CCSDS 232.1-B-2 Cor. 1.
  *
+ * By default, each FARM engine uses two dedicated threads. If a {@link TaskScheduler} is provided at construction time,
+ * the engine uses the threads of the scheduler instead.
+ *
  * This class is thread-safe.
  */
 public class FarmEngine implements Supplier<Clcw> {
@@ -37,11 +42,9 @@ public class FarmEngine implements Supplier<Clcw> {
 
     private final Consumer<TcTransferFrame> output;
 
-    private final ExecutorService farmExecutor;
-
-    private final ExecutorService highLevelExecutor;
+    private final SerialExecutor farmExecutor;
 
-    private volatile Thread confinementThread; // NOSONAR only used for thread equality
+    private final SerialExecutor highLevelExecutor;
 
     private final BlockingQueue<TcTransferFrame> framesToDeliver;
 
@@ -104,6 +107,22 @@ public class FarmEngine implements Supplier<Clcw> {
      * @param initialReceiverFrameSequenceNumber the initial V(R), typically 0
      */
     public FarmEngine(int virtualChannelId, Consumer<TcTransferFrame> output, boolean retransmissionAllowed, int bufferSize, int farmSlidingWindowWidth, FarmState initialState, int initialReceiverFrameSequenceNumber) {
+        this(virtualChannelId, output, retransmissionAllowed, bufferSize, farmSlidingWindowWidth, initialState, initialReceiverFrameSequenceNumber, null);
+    }
+
+    /**
+     * Constructor of the FARM engine, driven by the provided {@link TaskScheduler}.
+     *
+     * @param virtualChannelId the TC virtual channel ID controlled by this FARM entity
+     * @param output the {@link Consumer} to which accepted TC frames shall be forwarded
+     * @param retransmissionAllowed true if retransmission is allowed (ref. 6.1.8.2)
+     * @param bufferSize number of TC frames that can be accomodated in the buffer for forwarding to higher procedure
+     * @param farmSlidingWindowWidth width of the FARM sliding window
+     * @param initialState the initial state of the FARM, can be null. In such case, the FARM starts in LOCKOUT (S3)
+     * @param initialReceiverFrameSequenceNumber the initial V(R), typically 0
+     * @param scheduler the scheduler providing threads to the engine: if null, dedicated threads are used
+     */
+    public FarmEngine(int virtualChannelId, Consumer<TcTransferFrame> output, boolean retransmissionAllowed, int bufferSize, int farmSlidingWindowWidth, FarmState initialState, int initialReceiverFrameSequenceNumber, TaskScheduler scheduler) {
         if(retransmissionAllowed && (farmSlidingWindowWidth < 2 || farmSlidingWindowWidth > 254)) { // 6.1.8.2
             throw new IllegalArgumentException("If retransmission is allowed, farmSlidingWindowWidth must be within 2 and 254 (included)");
         }
@@ -117,21 +136,24 @@ public class FarmEngine implements Supplier<Clcw> {
         this.virtualChannelId = virtualChannelId;
         this.retransmissionAllowed = retransmissionAllowed;
         this.farmSlidingWindowWidth = farmSlidingWindowWidth;
-        this.farmExecutor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r);
-            t.setDaemon(true);
-            t.setName("FARM Entity Processor for TC VC " + virtualChannelId);
-            FarmEngine.this.confinementThread = t;
-            return t;
-        });
+        if(scheduler != null) {
+            this.farmExecutor = new SerialExecutor(scheduler.getExecutor());
+            this.highLevelExecutor = new SerialExecutor(scheduler.getExecutor());
+        } else {
+            this.farmExecutor = new SerialExecutor(Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("FARM Entity Processor for TC VC " + virtualChannelId);
+                return t;
+            }), true);
+            this.highLevelExecutor = new SerialExecutor(Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("FARM Entity High Level for TC VC " + virtualChannelId);
+                return t;
+            }), true);
+        }
         this.framesToDeliver = new ArrayBlockingQueue<>(bufferSize);
-        this.highLevelExecutor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r);
-            t.setDaemon(true);
-            t.setName("FARM Entity High Level for TC VC " + virtualChannelId);
-            return t;
-        });
-        this.highLevelExecutor.execute(this::deliverFrames);
         //
         switch (initialState) {
             case S1:
@@ -179,20 +201,19 @@ public class FarmEngine implements Supplier<Clcw> {
         this.observers.remove(observer);
     }
 
-    private void deliverFrames() {
-        while(!highLevelExecutor.isShutdown()) {
-            try {
-                TcTransferFrame frameToDeliver = this.framesToDeliver.take();
-                farmExecutor.execute(this::processBufferRelease);
-                if(!highLevelExecutor.isShutdown()) {
-                    this.output.accept(frameToDeliver);
-                }
-            } catch(InterruptedException e) {
-                // Nothing, about to be disposed
-                Thread.currentThread().interrupt();
-                return;
-            }
+    private void deliverNextFrame() {
+        // One delivery task is submitted for each frame put in the buffer
+        TcTransferFrame frameToDeliver = this.framesToDeliver.poll();
+        if(frameToDeliver == null || highLevelExecutor.isShutdown()) {
+            return;
+        }
+        try {
+            farmExecutor.execute(this::processBufferRelease);
+        } catch (RejectedExecutionException e) {
+            // Nothing, about to be disposed
+            return;
         }
+        this.output.accept(frameToDeliver);
     }
 
     // ---------------------------------------------------------------------------------------------------------
@@ -279,6 +300,7 @@ public class FarmEngine implements Supplier<Clcw> {
             // State machine problem
             throw new IllegalStateException("FARM buffer full but frame nevertheless accepted");
         }
+        highLevelExecutor.execute(this::deliverNextFrame);
     }
 
     void discard(TcTransferFrame frame) { // NOSONAR part of the standard
@@ -411,8 +433,8 @@ public class FarmEngine implements Supplier<Clcw> {
     // ---------------------------------------------------------------------------------------------------------
 
     private void checkThreadAccess() {
-        if(Thread.currentThread() != this.confinementThread) {
-            throw new IllegalAccessError("Violation on thread confinement for class FarmEngine: method can only be accessed by thread " + this.confinementThread.getName());
+        if(!this.farmExecutor.isCurrentThread()) {
+            throw new IllegalAccessError("Violation on thread confinement for class FarmEngine: method can only be accessed by the FARM engine task queue, accessed by thread " + Thread.currentThread().getName());
         }
     }
 
@@ -18,10 +18,11 @@ package eu.dariolucia.ccsds.tmtc.cop1.fop;
 
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.TcTransferFrame;
 import eu.dariolucia.ccsds.tmtc.ocf.pdu.Clcw;
+import eu.dariolucia.ccsds.tmtc.util.TaskScheduler;
+import eu.dariolucia.ccsds.tmtc.util.internal.SerialExecutor;
 
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -33,6 +34,9 @@ import java.util.function.Supplier;
 /**
  * This class implements the FOP side of the COP-1 protocol, as defined by CCSDS 232.1-B-2 Cor. 1.
  *
+ * By default, each FOP engine uses two dedicated threads and a timer thread. If a {@link TaskScheduler} is provided at
+ * construction time, the engine uses the threads and the timing wheel of the scheduler instead.
+ *
  * This class is thread-safe.
  */
 @SuppressWarnings("StatementWithEmptyBody")
@@ -46,11 +50,9 @@ public class FopEngine {
     private final Supplier<TcTransferFrame> bcFrameUnlockFactory;
     private final IntFunction<TcTransferFrame> bcFrameSetVrFactory;
 
-    private final ExecutorService fopExecutor;
-
-    private volatile Thread confinementThread; // NOSONAR only used for reference equality comparison
+    private final SerialExecutor fopExecutor;
 
-    private final ExecutorService lowLevelExecutor;
+    private final SerialExecutor lowLevelExecutor;
 
     private final List<IFopObserver> observers = new CopyOnWriteArrayList<>();
 
@@ -67,9 +69,15 @@ public class FopEngine {
      */
     private final Function<TcTransferFrame, Boolean> output;
 
-    private final Timer fopTimer;
+    private final TaskScheduler scheduler;
+
+    private final Timer fopTimer; // Used only if no scheduler is provided
+
+    private final Object timerLock = new Object();
 
-    private TimerTask currentTimer;
+    private TaskScheduler.Timeout currentTimer;
+
+    private long currentTimerId;
 
 
     // ---------------------------------------------------------------------------------------------------------
@@ -176,29 +184,49 @@ public class FopEngine {
      * @param output a {@link Consumer} function to forward {@link TcTransferFrame} as output of the FOP engine
      */
     public FopEngine(int virtualChannelId, Supplier<Integer> nextVirtualChannelFrameCounterGetter, Consumer<Integer> nextVirtualChannelFrameCounterSetter, Supplier<TcTransferFrame> bcFrameUnlockFactory, IntFunction<TcTransferFrame> bcFrameSetVrFactory, Function<TcTransferFrame, Boolean> output) {
+        this(virtualChannelId, nextVirtualChannelFrameCounterGetter, nextVirtualChannelFrameCounterSetter, bcFrameUnlockFactory, bcFrameSetVrFactory, output, null);
+    }
+
+    /**
+     * Constructor of the FOP engine, driven by the provided {@link TaskScheduler}.
+     *
+     * @param virtualChannelId the TC virtual channel ID controlled by this FOP entity
+     * @param nextVirtualChannelFrameCounterGetter a {@link Supplier} function to retrieve the next virtual channel frame counter
+     * @param nextVirtualChannelFrameCounterSetter a {@link Consumer} function to set the next virtual channel frame counter
+     * @param bcFrameUnlockFactory a {@link Function} to build a BC frame for FARM unlock
+     * @param bcFrameSetVrFactory a {@link Function} to build a BC frame for FARM Set_V(R)
+     * @param output a {@link Consumer} function to forward {@link TcTransferFrame} as output of the FOP engine
+     * @param scheduler the scheduler providing threads and timers to the engine: if null, dedicated threads and timer are used
+     */
+    public FopEngine(int virtualChannelId, Supplier<Integer> nextVirtualChannelFrameCounterGetter, Consumer<Integer> nextVirtualChannelFrameCounterSetter, Supplier<TcTransferFrame> bcFrameUnlockFactory, IntFunction<TcTransferFrame> bcFrameSetVrFactory, Function<TcTransferFrame, Boolean> output, TaskScheduler scheduler) {
         this.virtualChannelId = virtualChannelId;
         this.nextVirtualChannelFrameCounterGetter = nextVirtualChannelFrameCounterGetter;
         this.nextVirtualChannelFrameCounterSetter = nextVirtualChannelFrameCounterSetter;
         this.bcFrameUnlockFactory = bcFrameUnlockFactory;
         this.bcFrameSetVrFactory = bcFrameSetVrFactory;
         this.output = output;
-        this.fopExecutor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r);
-            t.setDaemon(true);
-            t.setName("FOP Entity Processor for TC VC " + virtualChannelId);
-            FopEngine.this.confinementThread = t;
-            return t;
-        });
-        this.lowLevelExecutor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r);
-            t.setDaemon(true);
-            t.setName("FOP Entity Low Level for TC VC " + virtualChannelId);
-            return t;
-        });
+        this.scheduler = scheduler;
+        if(scheduler != null) {
+            this.fopExecutor = new SerialExecutor(scheduler.getExecutor());
+            this.lowLevelExecutor = new SerialExecutor(scheduler.getExecutor());
+            this.fopTimer = null;
+        } else {
+            this.fopExecutor = new SerialExecutor(Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("FOP Entity Processor for TC VC " + virtualChannelId);
+                return t;
+            }), true);
+            this.lowLevelExecutor = new SerialExecutor(Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("FOP Entity Low Level for TC VC " + virtualChannelId);
+                return t;
+            }), true);
+            this.fopTimer = new Timer("FOP TC VC " + virtualChannelId + " Timer");
+        }
         //
         this.state = new S6FopState(this); // In principle, the ‘Initial’ State is the first state entered by the state machine for a particular Virtual Channel.
-        //
-        this.fopTimer = new Timer("FOP TC VC " + virtualChannelId + " Timer");
     }
 
     /**
@@ -382,6 +410,9 @@ public class FopEngine {
             Thread.currentThread().interrupt();
         }
         this.lowLevelExecutor.shutdownNow();
+        if(this.fopTimer != null) {
+            this.fopTimer.cancel();
+        }
     }
 
     // ---------------------------------------------------------------------------------------------------------
@@ -722,24 +753,30 @@ public class FopEngine {
 
     void restartTimer() {
         checkThreadAccess();
-        synchronized (fopTimer) {
+        synchronized (timerLock) {
             if(currentTimer != null) {
                 currentTimer.cancel();
-                currentTimer = null;
             }
-            currentTimer = new TimerTask() {
-                @Override
-                public void run() {
-                    timerExpired(this);
-                }
-            };
-            fopTimer.schedule(currentTimer, this.timerInitialValue * 1000L);
+            long timerId = ++currentTimerId;
+            Runnable expiration = () -> timerExpired(timerId);
+            if(scheduler != null) {
+                currentTimer = scheduler.schedule(expiration, this.timerInitialValue * 1000L);
+            } else {
+                TimerTask task = new TimerTask() {
+                    @Override
+                    public void run() {
+                        expiration.run();
+                    }
+                };
+                fopTimer.schedule(task, this.timerInitialValue * 1000L);
+                currentTimer = task::cancel;
+            }
         }
     }
 
     void cancelTimer() {
         checkThreadAccess();
-        synchronized (fopTimer) {
+        synchronized (timerLock) {
             if(currentTimer != null) {
                 currentTimer.cancel();
                 currentTimer = null;
@@ -1121,14 +1158,14 @@ public class FopEngine {
     // ---------------------------------------------------------------------------------------------------------
 
     private void checkThreadAccess() {
-        if(Thread.currentThread() != this.confinementThread) {
-            throw new IllegalAccessError("Violation on thread confinement for class FopEngine: method can only be accessed by thread " + this.confinementThread.getName());
+        if(!this.fopExecutor.isCurrentThread()) {
+            throw new IllegalAccessError("Violation on thread confinement for class FopEngine: method can only be accessed by the FOP engine task queue, accessed by thread " + Thread.currentThread().getName());
         }
     }
 
-    private void timerExpired(TimerTask expiredTask) {
-        synchronized (fopTimer) {
-            if(currentTimer == expiredTask) {
+    private void timerExpired(long timerId) {
+        synchronized (timerLock) {
+            if(currentTimer != null && currentTimerId == timerId && !fopExecutor.isShutdown()) {
                 fopExecutor.execute(this::processTimerExpired);
             }
         }
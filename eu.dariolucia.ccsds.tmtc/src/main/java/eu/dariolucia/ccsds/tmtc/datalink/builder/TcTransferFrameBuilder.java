@@ -17,7 +17,8 @@
 package eu.dariolucia.ccsds.tmtc.datalink.builder;
 
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.TcTransferFrame;
-import eu.dariolucia.ccsds.tmtc.algorithm.Crc16Algorithm;
+import eu.dariolucia.ccsds.tmtc.algorithm.Crc16Checksum;
+import eu.dariolucia.ccsds.tmtc.util.internal.TransferFrameAccess;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
@@ -241,32 +242,35 @@ public class TcTransferFrameBuilder implements ITransferFrameBuilder<TcTransferF
             bb.put(securityHeader);
         }
 
+        // The FECF (if present) is computed while the frame is written, starting from the header fields written so far
+        Crc16Checksum crc = this.fecfPresent ? new Crc16Checksum() : null;
+        if(crc != null) {
+            crc.update(bb.array(), 0, bb.position());
+        }
+
         // Write the user data
         for(byte[] pu : this.payloadUnits) {
             bb.put(pu);
+            if(crc != null) {
+                crc.update(pu);
+            }
         }
 
         // If security trailer, write it
         if(securityTrailer != null) {
             bb.put(securityTrailer);
+            if(crc != null) {
+                crc.update(securityTrailer);
+            }
         }
 
-        byte[] encodedFrame;
-
-        // Compute and write the FECF (if present, 2 bytes)
-        if(this.fecfPresent) {
-            bb.put((byte) 0x00);
-            bb.put((byte) 0x00);
-            encodedFrame = bb.array();
-            short crc = Crc16Algorithm.getCrc16(encodedFrame, 0, encodedFrame.length - 2);
-            encodedFrame[encodedFrame.length - 2] = (byte) (crc >> 8);
-            encodedFrame[encodedFrame.length - 1] = (byte) (crc);
-        } else {
-            encodedFrame = bb.array();
+        // Write the FECF (if present, 2 bytes)
+        if(crc != null) {
+            bb.putShort(crc.getCrc16());
         }
 
-        // Return the frame
-        return new TcTransferFrame(encodedFrame, vc -> segmented, fecfPresent,
+        // Return the frame: its FECF, if present, is correct by construction
+        return TransferFrameAccess.getAccessor().newTcTransferFrame(bb.array(), vc -> segmented, fecfPresent,
                 (securityHeader != null ? securityHeader.length : 0), (securityTrailer != null ? securityTrailer.length : 0));
     }
 }
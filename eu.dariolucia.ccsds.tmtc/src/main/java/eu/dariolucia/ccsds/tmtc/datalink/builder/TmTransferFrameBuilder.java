@@ -16,8 +16,9 @@
 
 package eu.dariolucia.ccsds.tmtc.datalink.builder;
 
-import eu.dariolucia.ccsds.tmtc.algorithm.Crc16Algorithm;
+import eu.dariolucia.ccsds.tmtc.algorithm.Crc16Checksum;
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.TmTransferFrame;
+import eu.dariolucia.ccsds.tmtc.util.internal.TransferFrameAccess;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
@@ -305,37 +306,43 @@ public class TmTransferFrameBuilder implements ITransferFrameBuilder<TmTransferF
             bb.put(this.securityHeader);
         }
 
+        // The FECF (if present) is computed while the frame is written, starting from the header fields written so far
+        Crc16Checksum crc = this.fecfPresent ? new Crc16Checksum() : null;
+        if(crc != null) {
+            crc.update(bb.array(), 0, bb.position());
+        }
+
         // Write the user data
         for(PayloadUnit pu : this.payloadUnits) {
             bb.put(pu.data);
+            if(crc != null) {
+                crc.update(pu.data);
+            }
         }
 
         // Write security trailer if present
         if(this.securityTrailer != null && this.securityTrailer.length > 0) {
             bb.put(this.securityTrailer);
+            if(crc != null) {
+                crc.update(this.securityTrailer);
+            }
         }
 
         // Write the OCF (if present, 4 bytes)
         if(this.ocfPresent && this.ocf != null) {
             bb.put(this.ocf);
+            if(crc != null) {
+                crc.update(this.ocf);
+            }
         }
 
-        byte[] encodedFrame = null;
-
-        // Compute and write the FECF (if present, 2 bytes)
-        if(this.fecfPresent) {
-            bb.put((byte) 0x00);
-            bb.put((byte) 0x00);
-            encodedFrame = bb.array();
-            short crc = Crc16Algorithm.getCrc16(encodedFrame, 0, encodedFrame.length - 2);
-            encodedFrame[encodedFrame.length - 2] = (byte) (crc >> 8);
-            encodedFrame[encodedFrame.length - 1] = (byte) (crc);
-        } else {
-            encodedFrame = bb.array();
+        // Write the FECF (if present, 2 bytes)
+        if(crc != null) {
+            bb.putShort(crc.getCrc16());
         }
 
-        // Return the frame
-        return new TmTransferFrame(encodedFrame, fecfPresent, securityHeader != null ? securityHeader.length : 0, securityTrailer != null ? securityTrailer.length : 0);
+        // Return the frame: its FECF, if present, is correct by construction
+        return TransferFrameAccess.getAccessor().newTmTransferFrame(bb.array(), fecfPresent, securityHeader != null ? securityHeader.length : 0, securityTrailer != null ? securityTrailer.length : 0);
     }
 
     private short computeFirstHeaderPointer() {
@@ -19,6 +19,7 @@ package eu.dariolucia.ccsds.tmtc.datalink.channel.receiver.processor;
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.AbstractTransferFrame;
 import eu.dariolucia.ccsds.tmtc.transport.pdu.SpacePacket;
 import eu.dariolucia.ccsds.tmtc.util.internal.TransformationListProcessor;
+import eu.dariolucia.ccsds.tmtc.util.processor.OverflowPolicy;
 
 import java.util.Collection;
 import java.util.concurrent.ExecutorService;
@@ -36,4 +37,17 @@ public class VirtualChannelReceiverSpacePacketProcessor<T extends AbstractTransf
     public VirtualChannelReceiverSpacePacketProcessor(Function<T, ? extends Collection<SpacePacket>> mapper, ExecutorService executor, boolean timely) {
         super(mapper, executor, timely);
     }
+
+    /**
+     * Construct a processor to extract {@link SpacePacket}.
+     *
+     * @param mapper the function mapper, from {@link AbstractTransferFrame} to the collection of space packets, it cannot be null
+     * @param executor the {@link ExecutorService} used to perform the function: if null, the same thread used to inject the frame will be used to extract the packets
+     * @param timely if true, data is allowed to be discarded in case of backpressure. If no data should be discarded, set it to false
+     * @param bufferCapacity the maximum number of items buffered for each subscription, it must be positive
+     * @param overflowPolicy the behaviour when a subscription buffer is full, it cannot be null. Ignored in timely mode
+     */
+    public VirtualChannelReceiverSpacePacketProcessor(Function<T, ? extends Collection<SpacePacket>> mapper, ExecutorService executor, boolean timely, int bufferCapacity, OverflowPolicy overflowPolicy) {
+        super(mapper, executor, timely, bufferCapacity, overflowPolicy);
+    }
 }
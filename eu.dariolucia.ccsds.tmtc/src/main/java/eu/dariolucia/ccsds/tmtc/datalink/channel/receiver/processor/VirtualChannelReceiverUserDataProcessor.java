@@ -18,6 +18,7 @@ package eu.dariolucia.ccsds.tmtc.datalink.channel.receiver.processor;
 
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.AbstractTransferFrame;
 import eu.dariolucia.ccsds.tmtc.util.internal.TransformationProcessor;
+import eu.dariolucia.ccsds.tmtc.util.processor.OverflowPolicy;
 
 import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
@@ -34,4 +35,17 @@ public class VirtualChannelReceiverUserDataProcessor extends TransformationProce
     public VirtualChannelReceiverUserDataProcessor(Function<AbstractTransferFrame, byte[]> mapper, ExecutorService executor, boolean timely) {
         super(mapper, executor, timely);
     }
+
+    /**
+     * Construct a processor to extract user data.
+     *
+     * @param mapper the function mapper, from {@link AbstractTransferFrame} to the user data byte array, it cannot be null
+     * @param executor the {@link ExecutorService} used to perform the function: if null, the same thread used to inject the frame will be used to extract the data
+     * @param timely if true, data is allowed to be discarded in case of backpressure. If no data should be discarded, set it to false
+     * @param bufferCapacity the maximum number of items buffered for each subscription, it must be positive
+     * @param overflowPolicy the behaviour when a subscription buffer is full, it cannot be null. Ignored in timely mode
+     */
+    public VirtualChannelReceiverUserDataProcessor(Function<AbstractTransferFrame, byte[]> mapper, ExecutorService executor, boolean timely, int bufferCapacity, OverflowPolicy overflowPolicy) {
+        super(mapper, executor, timely, bufferCapacity, overflowPolicy);
+    }
 }
@@ -17,9 +17,11 @@
 package eu.dariolucia.ccsds.tmtc.datalink.pdu;
 
 import eu.dariolucia.ccsds.tmtc.util.AnnotatedObject;
+import eu.dariolucia.ccsds.tmtc.util.internal.TransferFrameAccess;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.function.IntFunction;
 
 /**
  * This class represents an abstraction of a transfer frame. As such, it contains the information and properties
@@ -34,6 +36,26 @@ import java.util.Arrays;
  */
 public abstract class AbstractTransferFrame extends AnnotatedObject {
 
+    static {
+        // Give the frame builders access to the constructors of frames whose FECF is computed while building them
+        TransferFrameAccess.setAccessor(new TransferFrameAccess.Accessor() {
+            @Override
+            public TmTransferFrame newTmTransferFrame(byte[] frame, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength) {
+                return new TmTransferFrame(frame, fecfPresent, securityHeaderLength, securityTrailerLength, true);
+            }
+
+            @Override
+            public AosTransferFrame newAosTransferFrame(byte[] frame, boolean frameHeaderErrorControlPresent, int transferFrameInsertZoneLength, AosTransferFrame.UserDataType userDataType, boolean ocfPresent, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength) {
+                return new AosTransferFrame(frame, frameHeaderErrorControlPresent, transferFrameInsertZoneLength, userDataType, ocfPresent, fecfPresent, securityHeaderLength, securityTrailerLength, true);
+            }
+
+            @Override
+            public TcTransferFrame newTcTransferFrame(byte[] frame, IntFunction<Boolean> segmented, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength) {
+                return new TcTransferFrame(frame, segmented, fecfPresent, securityHeaderLength, securityTrailerLength, true);
+            }
+        });
+    }
+
     /**
      * The decoded transfer frame.
      */
@@ -0,0 +1,297 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.datalink.pdu;
+
+import eu.dariolucia.ccsds.tmtc.algorithm.Crc16Algorithm;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class represents an abstraction of a flyweight, read-only view on a transfer frame stored in a byte array or in
+ * a {@link ByteBuffer}, at a given offset. Differently from the {@link AbstractTransferFrame} subclasses, a view does
+ * not copy nor decode the frame when it is wrapped: each field is decoded from the backing storage when the related
+ * getter is invoked, and the FECF is verified each time {@link AbstractTransferFrameView#isValid()} is invoked. A view
+ * instance can be reused for any number of frames, by wrapping a different backing storage or offset, without
+ * allocating memory.
+ *
+ * Since no check is performed when a frame is wrapped, the values returned by the getters of a view wrapping a frame,
+ * which cannot be decoded by the corresponding {@link AbstractTransferFrame} subclass, are unspecified. The full frame
+ * object can be created from a view with the toFrame() method of the subclasses.
+ *
+ * Changes to the backing storage are immediately reflected by the view. This class is not thread-safe.
+ */
+public abstract class AbstractTransferFrameView {
+
+    /**
+     * Frame error control field presence flag.
+     */
+    protected final boolean fecfPresent;
+
+    private byte[] array;
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+
+    /**
+     * Constructor of the transfer frame view.
+     *
+     * @param fecfPresent true if the FECF is present, false otherwise
+     */
+    protected AbstractTransferFrameView(boolean fecfPresent) {
+        this.fecfPresent = fecfPresent;
+    }
+
+    /**
+     * This method sets the backing storage of the view to the provided byte array.
+     *
+     * @param data the byte array containing the frame
+     * @param offset the index of the first byte of the frame
+     * @param length the length of the frame
+     * @throws IndexOutOfBoundsException if the frame exceeds the bounds of the byte array
+     */
+    protected final void setStorage(byte[] data, int offset, int length) {
+        if(offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("Frame of length " + length + " at offset " + offset + " exceeds array of length " + data.length);
+        }
+        this.array = data;
+        this.buffer = null;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * This method sets the backing storage of the view to the provided buffer. The offset is an absolute index in the
+     * buffer: the position and limit of the buffer are not used nor affected.
+     *
+     * @param data the buffer containing the frame
+     * @param offset the index of the first byte of the frame
+     * @param length the length of the frame
+     * @throws IndexOutOfBoundsException if the frame exceeds the capacity of the buffer
+     */
+    protected final void setStorage(ByteBuffer data, int offset, int length) {
+        if(offset < 0 || length < 0 || offset > data.capacity() - length) {
+            throw new IndexOutOfBoundsException("Frame of length " + length + " at offset " + offset + " exceeds buffer of capacity " + data.capacity());
+        }
+        this.array = null;
+        this.buffer = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * This method returns whether the view is wrapping a frame.
+     *
+     * @return true if a frame is wrapped, false otherwise
+     */
+    public boolean isWrapped() {
+        return this.array != null || this.buffer != null;
+    }
+
+    /**
+     * This method returns the length of the wrapped frame.
+     *
+     * @return the length of the transfer frame in bytes
+     */
+    public int getLength() {
+        return this.length;
+    }
+
+    /**
+     * This method returns the byte at the provided index of the frame, as unsigned value.
+     *
+     * @param idx the index of the byte, from the beginning of the frame
+     * @return the unsigned value of the byte
+     */
+    public int getUnsignedByte(int idx) {
+        if(this.array != null) {
+            return Byte.toUnsignedInt(this.array[this.offset + idx]);
+        } else if(this.buffer != null) {
+            return Byte.toUnsignedInt(this.buffer.get(this.offset + idx));
+        } else {
+            throw new IllegalStateException("No frame wrapped");
+        }
+    }
+
+    /**
+     * This method returns the two bytes at the provided index of the frame, as unsigned big endian value.
+     *
+     * @param idx the index of the first byte, from the beginning of the frame
+     * @return the unsigned value of the two bytes
+     */
+    public int getUnsignedShort(int idx) {
+        return (getUnsignedByte(idx) << 8) | getUnsignedByte(idx + 1);
+    }
+
+    /**
+     * This method copies a portion of the wrapped frame into the provided byte array.
+     *
+     * @param from the index of the first byte to copy, from the beginning of the frame
+     * @param dest the destination array
+     * @param destOffset the index of the destination array where the first byte is written
+     * @param len the number of bytes to copy
+     */
+    public void copyTo(int from, byte[] dest, int destOffset, int len) {
+        if(from < 0 || len < 0 || from > this.length - len) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + (from + len) + ") exceeds frame of length " + this.length);
+        }
+        if(this.array != null) {
+            System.arraycopy(this.array, this.offset + from, dest, destOffset, len);
+        } else if(this.buffer != null) {
+            for(int i = 0; i < len; ++i) {
+                dest[destOffset + i] = this.buffer.get(this.offset + from + i);
+            }
+        } else {
+            throw new IllegalStateException("No frame wrapped");
+        }
+    }
+
+    /**
+     * Utility method that provides a copy of the frame.
+     *
+     * @return the frame byte array (copy)
+     */
+    public byte[] getFrameCopy() {
+        byte[] copy = new byte[this.length];
+        copyTo(0, copy, 0, this.length);
+        return copy;
+    }
+
+    /**
+     * This method returns whether the FECF is present or not.
+     *
+     * @return true if the FECF is present, otherwise false
+     */
+    public boolean isFecfPresent() {
+        return this.fecfPresent;
+    }
+
+    /**
+     * This method returns the value of the FECF as short.
+     *
+     * @return the FECF value as short
+     * @throws IllegalStateException if the FECF is not present
+     */
+    public short getFecf() {
+        if (fecfPresent) {
+            return (short) getUnsignedShort(this.length - 2);
+        } else {
+            throw new IllegalStateException("FECF not present");
+        }
+    }
+
+    /**
+     * This method returns the validity of the frame: if the FECF is present, then a frame is valid if the FECF is OK.
+     * If the FECF is not present, then this method always returns true. The FECF is verified at each invocation of
+     * this method, so that changes to the backing storage are taken into account.
+     *
+     * @return true if the frame is correct, otherwise false
+     */
+    public boolean isValid() {
+        if(!fecfPresent) {
+            return true;
+        }
+        short crc16;
+        if(this.array != null) {
+            crc16 = Crc16Algorithm.getCrc16(this.array, this.offset, this.length - 2);
+        } else if(this.buffer != null) {
+            crc16 = Crc16Algorithm.getCrc16(this.buffer, this.offset, this.length - 2);
+        } else {
+            throw new IllegalStateException("No frame wrapped");
+        }
+        return crc16 == getFecf();
+    }
+
+    /**
+     * This method returns the index of the byte from which the OCF starts, computed from the beginning of the frame,
+     * or -1 if the OCF is not present.
+     *
+     * @return the start index of the OCF
+     */
+    public short getOcfStart() {
+        if(isOcfPresent()) {
+            return (short) (this.length - 4 - (fecfPresent ? 2 : 0));
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * This method returns the transfer frame version number.
+     *
+     * @return the transfer frame version number
+     */
+    public abstract short getTransferFrameVersionNumber();
+
+    /**
+     * This method returns the spacecraft id.
+     *
+     * @return the spacecraft id
+     */
+    public abstract short getSpacecraftId();
+
+    /**
+     * This method returns the virtual channel id.
+     *
+     * @return the virtual channel id
+     */
+    public abstract short getVirtualChannelId();
+
+    /**
+     * This method returns the virtual channel frame count.
+     *
+     * @return the virtual channel frame count
+     */
+    public abstract int getVirtualChannelFrameCount();
+
+    /**
+     * This method returns the presence of the OCF.
+     *
+     * @return true if the OCF is present, otherwise false
+     */
+    public abstract boolean isOcfPresent();
+
+    /**
+     * This method returns the index of the byte from which the transfer frame data field starts. The offset
+     * is computed from the beginning of the frame.
+     *
+     * @return the start index of the frame data field
+     */
+    public abstract short getDataFieldStart();
+
+    /**
+     * This method returns the length of the data field, i.e. excluding FECF, OCF and security fields, if present.
+     *
+     * @return the length of the data field
+     */
+    public abstract int getDataFieldLength();
+
+    /**
+     * This method returns true if the frame is an idle frame, false otherwise.
+     *
+     * @return true if the frame is an idle frame, false otherwise
+     */
+    public abstract boolean isIdleFrame();
+
+    /**
+     * This method decodes the wrapped frame into a new {@link AbstractTransferFrame} object, working on a copy of
+     * the frame.
+     *
+     * @return the decoded transfer frame
+     * @throws IllegalArgumentException if the frame cannot be decoded
+     */
+    public abstract AbstractTransferFrame toFrame();
+}
@@ -152,6 +152,14 @@ public class AosTransferFrame extends AbstractTransferFrame {
      * @param securityTrailerLength size of the security trailer length in bytes, 0 if not present
      */
     public AosTransferFrame(byte[] frame, boolean frameHeaderErrorControlPresent, int transferFrameInsertZoneLength, UserDataType userDataType, boolean ocfPresent, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength) {
+        this(frame, frameHeaderErrorControlPresent, transferFrameInsertZoneLength, userDataType, ocfPresent, fecfPresent, securityHeaderLength, securityTrailerLength, false);
+    }
+
+    /**
+     * Constructor used by the frame builders, which compute the FECF while assembling the frame: if fecfVerified is
+     * true, the FECF is not verified again and the frame is marked as valid.
+     */
+    AosTransferFrame(byte[] frame, boolean frameHeaderErrorControlPresent, int transferFrameInsertZoneLength, UserDataType userDataType, boolean ocfPresent, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength, boolean fecfVerified) {
         super(frame, fecfPresent);
 
         // Frame header error control field is only assumed as an additional 2 bytes: no R-S error correction on the protected header fields is performed, only error control
@@ -244,7 +252,7 @@ public class AosTransferFrame extends AbstractTransferFrame {
 
         // FECF
         if(fecfPresent) {
-            valid = checkValidity();
+            valid = fecfVerified || checkValidity();
         } else {
             // With no FECF it is assumed that the frame is valid
             valid = true;
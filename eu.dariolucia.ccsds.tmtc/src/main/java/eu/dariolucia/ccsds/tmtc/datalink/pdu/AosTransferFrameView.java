@@ -0,0 +1,320 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.datalink.pdu;
+
+import java.nio.ByteBuffer;
+
+import static eu.dariolucia.ccsds.tmtc.datalink.pdu.AosTransferFrame.*;
+
+/**
+ * This class is a flyweight, read-only view on an AOS transfer frame as per CCSDS 732.0-B-3, with the security
+ * extensions as per CCSDS 355.0-B-1. See {@link AbstractTransferFrameView} for the general contract.
+ *
+ * Since the length of an AOS frame is not encoded in the frame itself, the length is a property of the view.
+ */
+public class AosTransferFrameView extends AbstractTransferFrameView {
+
+    private final int frameLength;
+
+    private final boolean frameHeaderErrorControlPresent;
+    private final int transferFrameInsertZoneLength;
+    private final UserDataType userDataType;
+    private final boolean ocfPresent;
+
+    private final int securityHeaderLength;
+    private final int securityTrailerLength;
+
+    /**
+     * Constructor of an AOS transfer frame view, assuming no security protocol used.
+     *
+     * @param frameLength the length of the AOS frames in bytes
+     * @param frameHeaderErrorControlPresent true if the FHEC is present, false otherwise
+     * @param transferFrameInsertZoneLength size of the insert zone field in bytes, 0 if not present
+     * @param userDataType user data type, depending on the channel access service: M_PDU, B_PDU, VCA or IDLE for VC 63 frames
+     * @param ocfPresent true if the OCF is present, false otherwise
+     * @param fecfPresent true if the FECF is present, false otherwise
+     */
+    public AosTransferFrameView(int frameLength, boolean frameHeaderErrorControlPresent, int transferFrameInsertZoneLength, UserDataType userDataType, boolean ocfPresent, boolean fecfPresent) {
+        this(frameLength, frameHeaderErrorControlPresent, transferFrameInsertZoneLength, userDataType, ocfPresent, fecfPresent, 0, 0);
+    }
+
+    /**
+     * Constructor of an AOS transfer frame view.
+     *
+     * @param frameLength the length of the AOS frames in bytes
+     * @param frameHeaderErrorControlPresent true if the FHEC is present, false otherwise
+     * @param transferFrameInsertZoneLength size of the insert zone field in bytes, 0 if not present
+     * @param userDataType user data type, depending on the channel access service: M_PDU, B_PDU, VCA or IDLE for VC 63 frames
+     * @param ocfPresent true if the OCF is present, false otherwise
+     * @param fecfPresent true if the FECF is present, false otherwise
+     * @param securityHeaderLength size of the security header length in bytes, 0 if not present
+     * @param securityTrailerLength size of the security trailer length in bytes, 0 if not present
+     */
+    public AosTransferFrameView(int frameLength, boolean frameHeaderErrorControlPresent, int transferFrameInsertZoneLength, UserDataType userDataType, boolean ocfPresent, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength) {
+        super(fecfPresent);
+        if(frameLength < AOS_PRIMARY_HEADER_LENGTH) {
+            throw new IllegalArgumentException("Frame length must be at least " + AOS_PRIMARY_HEADER_LENGTH + ", got " + frameLength);
+        }
+        this.frameLength = frameLength;
+        this.frameHeaderErrorControlPresent = frameHeaderErrorControlPresent;
+        this.transferFrameInsertZoneLength = transferFrameInsertZoneLength;
+        this.userDataType = userDataType;
+        this.ocfPresent = ocfPresent;
+        this.securityHeaderLength = securityHeaderLength;
+        this.securityTrailerLength = securityTrailerLength;
+    }
+
+    /**
+     * This method sets the view on the AOS frame contained in the provided byte array, at the provided offset.
+     *
+     * @param data the byte array containing the frame
+     * @param offset the index of the first byte of the frame
+     * @return this view
+     * @throws IndexOutOfBoundsException if the frame exceeds the bounds of the byte array
+     */
+    public AosTransferFrameView wrap(byte[] data, int offset) {
+        setStorage(data, offset, frameLength);
+        return this;
+    }
+
+    /**
+     * This method sets the view on the AOS frame contained in the provided buffer, at the provided absolute offset.
+     *
+     * @param data the buffer containing the frame
+     * @param offset the index of the first byte of the frame
+     * @return this view
+     * @throws IndexOutOfBoundsException if the frame exceeds the capacity of the buffer
+     */
+    public AosTransferFrameView wrap(ByteBuffer data, int offset) {
+        setStorage(data, offset, frameLength);
+        return this;
+    }
+
+    @Override
+    public short getTransferFrameVersionNumber() {
+        return (short) (getUnsignedByte(0) >>> 6);
+    }
+
+    @Override
+    public short getSpacecraftId() {
+        return (short) ((getUnsignedShort(0) & 0x3FC0) >>> 6);
+    }
+
+    @Override
+    public short getVirtualChannelId() {
+        return (short) (getUnsignedByte(1) & 0x3F);
+    }
+
+    @Override
+    public int getVirtualChannelFrameCount() {
+        return (getUnsignedByte(2) << 16) | getUnsignedShort(3);
+    }
+
+    /**
+     * This metod returns the value of the replay flag.
+     *
+     * @return true if the replay flag is set (1), false otherwise (0)
+     */
+    public boolean isReplayFlag() {
+        return (getUnsignedByte(5) & 0x80) != 0;
+    }
+
+    /**
+     * This method returns the value of the VC frame count usage flag.
+     *
+     * @return true if the flag is set (1), false otherwise (0)
+     */
+    public boolean isVirtualChannelFrameCountUsageFlag() {
+        return (getUnsignedByte(5) & 0x40) != 0;
+    }
+
+    /**
+     * This method returns the value of the VC frame count cycle.
+     *
+     * @return the value of the VC frame count cycle
+     */
+    public byte getVirtualChannelFrameCountCycle() {
+        return (byte) (getUnsignedByte(5) & 0x0F);
+    }
+
+    @Override
+    public boolean isOcfPresent() {
+        return ocfPresent;
+    }
+
+    /**
+     * This method returns whether the FHEC field is present.
+     *
+     * @return true if the FHEC is present, false otherwise.
+     */
+    public boolean isFrameHeaderErrorControlPresent() {
+        return frameHeaderErrorControlPresent;
+    }
+
+    /**
+     * This method returns the value as short of the FHEC field.
+     *
+     * @return the value of the FHEC as short
+     * @throws IllegalStateException if there is no FHEC defined on the AOS frame
+     */
+    public short getFhec() {
+        if(frameHeaderErrorControlPresent) {
+            return (short) getUnsignedShort(AOS_PRIMARY_HEADER_LENGTH);
+        } else {
+            throw new IllegalStateException("FHEC not present");
+        }
+    }
+
+    /**
+     * If the FHEC field is present, this method returns whether the header fields protected by the FHEC present no
+     * modifications. If the FHEC is not present, this method returns always true. The check is performed at each
+     * invocation.
+     *
+     * @return the validity status of the header field according to the evaluation of the FHEC, if present
+     */
+    public boolean isValidHeader() {
+        if(!frameHeaderErrorControlPresent) {
+            return true;
+        }
+        // Convert octets 0, 1 and 5, 6 and 7 into an array of 10 integers, J=4 bits
+        byte[] codeword = new byte[10];
+        int[] octetsIdx = new int[] { 0, 1, 5, 6, 7 };
+        for(int i = 0; i < octetsIdx.length; ++i) {
+            int b = getUnsignedByte(octetsIdx[i]);
+            codeword[i*2] = (byte) (b >>> 4);
+            codeword[i*2 + 1] = (byte) (b & 0x0F);
+        }
+        return AOS_FRAME_HEADER_ERROR_CONTROL_RS_UTIL.decodeCodeword(codeword, true) != null;
+    }
+
+    /**
+     * This method returns the length in bytes of the Transfer Frame Insert Zone field.
+     *
+     * @return the length of the Transfer Frame Insert Zone field
+     */
+    public int getInsertZoneLength() {
+        return transferFrameInsertZoneLength;
+    }
+
+    /**
+     * This method returns the user data type handled by this view.
+     *
+     * @return the user data type
+     */
+    public UserDataType getUserDataType() {
+        return userDataType;
+    }
+
+    @Override
+    public short getDataFieldStart() {
+        return (short) (AOS_PRIMARY_HEADER_LENGTH + (frameHeaderErrorControlPresent ? AOS_PRIMARY_HEADER_FHEC_LENGTH : 0) + transferFrameInsertZoneLength + securityHeaderLength);
+    }
+
+    @Override
+    public int getDataFieldLength() {
+        return getLength() - getDataFieldStart() - securityTrailerLength - (ocfPresent ? 4 : 0) - (fecfPresent ? 2 : 0);
+    }
+
+    /**
+     * This method returns the first header pointer value, in case of M_PDU type, 0 otherwise.
+     *
+     * @return the first header pointer value
+     */
+    public short getFirstHeaderPointer() {
+        return userDataType == UserDataType.M_PDU ? (short) (getUnsignedShort(getDataFieldStart()) & 0x07FF) : 0;
+    }
+
+    /**
+     * This method returns whether the frame contains no start of a packet, in case of M_PDU type.
+     *
+     * @return true if the frame contains no start of a packet
+     */
+    public boolean isNoStartPacket() {
+        return userDataType == UserDataType.M_PDU && getFirstHeaderPointer() == AOS_M_PDU_FIRST_HEADER_POINTER_NO_PACKET;
+    }
+
+    /**
+     * This method returns the index of the first byte of the packet zone for M_PDU frame types, 0 otherwise.
+     *
+     * @return the index of the first byte of the packet zone
+     */
+    public short getPacketZoneStart() {
+        return userDataType == UserDataType.M_PDU ? (short) (getDataFieldStart() + 2) : 0;
+    }
+
+    /**
+     * This method returns the value of the bitstream pointer, in case of B_PDU type, 0 otherwise.
+     *
+     * @return the bitstream data pointer
+     */
+    public short getBitstreamDataPointer() {
+        return userDataType == UserDataType.B_PDU ? (short) (getUnsignedShort(getDataFieldStart()) & 0x3FFF) : 0;
+    }
+
+    /**
+     * This method returns the index of the first byte of the bitstream zone for B_PDU frame types, 0 otherwise.
+     *
+     * @return the index of the first byte of the bitstream zone
+     */
+    public short getBitstreamDataZoneStart() {
+        return userDataType == UserDataType.B_PDU ? (short) (getDataFieldStart() + 2) : 0;
+    }
+
+    /**
+     * This method returns whether all the bitstream data zone contains valid data, in case of B_PDU type.
+     *
+     * @return true if all the bitstream data zone contains valid data, false otherwise
+     */
+    public boolean isBitstreamAllValid() {
+        return userDataType == UserDataType.B_PDU && getBitstreamDataPointer() == AOS_B_PDU_FIRST_HEADER_POINTER_ALL_DATA;
+    }
+
+    @Override
+    public boolean isIdleFrame() {
+        switch(userDataType) {
+            case M_PDU:
+                return getFirstHeaderPointer() == AOS_M_PDU_FIRST_HEADER_POINTER_IDLE;
+            case B_PDU:
+                return getBitstreamDataPointer() == AOS_B_PDU_FIRST_HEADER_POINTER_IDLE;
+            default:
+                return getVirtualChannelId() == 63;
+        }
+    }
+
+    /**
+     * This method returns the length of the security header field in bytes.
+     *
+     * @return the length of the security header field in bytes
+     */
+    public int getSecurityHeaderLength() {
+        return securityHeaderLength;
+    }
+
+    /**
+     * This method returns the length of the security trailer field in bytes.
+     *
+     * @return the length of the security trailer field in bytes
+     */
+    public int getSecurityTrailerLength() {
+        return securityTrailerLength;
+    }
+
+    @Override
+    public AosTransferFrame toFrame() {
+        return new AosTransferFrame(getFrameCopy(), frameHeaderErrorControlPresent, transferFrameInsertZoneLength, userDataType, ocfPresent, fecfPresent, securityHeaderLength, securityTrailerLength);
+    }
+}
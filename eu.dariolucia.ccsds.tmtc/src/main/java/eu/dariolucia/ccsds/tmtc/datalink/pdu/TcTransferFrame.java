@@ -188,6 +188,14 @@ public class TcTransferFrame extends AbstractTransferFrame {
      * @throws IllegalArgumentException if wrong TFVN or length is detected
      */
     public TcTransferFrame(byte[] frame, IntFunction<Boolean> segmented, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength) {
+        this(frame, segmented, fecfPresent, securityHeaderLength, securityTrailerLength, false);
+    }
+
+    /**
+     * Constructor used by the frame builders, which compute the FECF while assembling the frame: if fecfVerified is
+     * true, the FECF is not verified again and the frame is marked as valid.
+     */
+    TcTransferFrame(byte[] frame, IntFunction<Boolean> segmented, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength, boolean fecfVerified) {
         super(frame, fecfPresent);
 
         this.securityHeaderLength = securityHeaderLength;
@@ -263,7 +271,7 @@ public class TcTransferFrame extends AbstractTransferFrame {
 
         // FECF
         if(fecfPresent) {
-            valid = checkValidity();
+            valid = fecfVerified || checkValidity();
         } else {
             // With no FECF it is assumed that the frame is valid
             valid = true;
@@ -0,0 +1,269 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.datalink.pdu;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntFunction;
+
+import static eu.dariolucia.ccsds.tmtc.datalink.pdu.TcTransferFrame.*;
+
+/**
+ * This class is a flyweight, read-only view on a TC transfer frame as per CCSDS 232.0-B-3, with the security
+ * extensions as per CCSDS 355.0-B-1. See {@link AbstractTransferFrameView} for the general contract.
+ *
+ * The length of the wrapped frame is derived from the frame length field of the TC frame header.
+ */
+public class TcTransferFrameView extends AbstractTransferFrameView {
+
+    private final IntFunction<Boolean> segmented;
+
+    private final int securityHeaderLength;
+    private final int securityTrailerLength;
+
+    /**
+     * Constructor of a TC transfer frame view, assuming no security fields.
+     *
+     * @param segmented function that returns true if TC segmentation is used, it depends on the VC ID (CCSDS 232.0-B-3, 4.1.3.2.2.1.2)
+     * @param fecfPresent true if the FECF is present, false otherwise
+     */
+    public TcTransferFrameView(IntFunction<Boolean> segmented, boolean fecfPresent) {
+        this(segmented, fecfPresent, 0, 0);
+    }
+
+    /**
+     * Constructor of a TC transfer frame view.
+     *
+     * @param segmented function that returns true if TC segmentation is used, it depends on the VC ID (CCSDS 232.0-B-3, 4.1.3.2.2.1.2)
+     * @param fecfPresent true if the FECF is present, false otherwise
+     * @param securityHeaderLength length of the security header, 0 to disable
+     * @param securityTrailerLength length of the security trailer, 0 to disable
+     */
+    public TcTransferFrameView(IntFunction<Boolean> segmented, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength) {
+        super(fecfPresent);
+        this.segmented = segmented;
+        this.securityHeaderLength = securityHeaderLength;
+        this.securityTrailerLength = securityTrailerLength;
+    }
+
+    /**
+     * This method sets the view on the TC frame contained in the provided byte array, at the provided offset. The
+     * length of the frame is read from the frame header.
+     *
+     * @param data the byte array containing the frame
+     * @param offset the index of the first byte of the frame
+     * @return this view
+     * @throws IndexOutOfBoundsException if the frame exceeds the bounds of the byte array
+     */
+    public TcTransferFrameView wrap(byte[] data, int offset) {
+        setStorage(data, offset, TC_PRIMARY_HEADER_LENGTH);
+        setStorage(data, offset, getFrameLength());
+        return this;
+    }
+
+    /**
+     * This method sets the view on the TC frame contained in the provided buffer, at the provided absolute offset. The
+     * length of the frame is read from the frame header.
+     *
+     * @param data the buffer containing the frame
+     * @param offset the index of the first byte of the frame
+     * @return this view
+     * @throws IndexOutOfBoundsException if the frame exceeds the capacity of the buffer
+     */
+    public TcTransferFrameView wrap(ByteBuffer data, int offset) {
+        setStorage(data, offset, TC_PRIMARY_HEADER_LENGTH);
+        setStorage(data, offset, getFrameLength());
+        return this;
+    }
+
+    @Override
+    public short getTransferFrameVersionNumber() {
+        return (short) (getUnsignedByte(0) >>> 6);
+    }
+
+    /**
+     * This method returns the value of the bypass flag.
+     *
+     * @return true if the bypass flag is set (1), false otherwise
+     */
+    public boolean isBypassFlag() {
+        return (getUnsignedByte(0) & 0x20) != 0;
+    }
+
+    /**
+     * This method returns the value of the control command flag.
+     *
+     * @return true if the control command flag is set (1), false otherwise
+     */
+    public boolean isControlCommandFlag() {
+        return (getUnsignedByte(0) & 0x10) != 0;
+    }
+
+    /**
+     * This method returns the type of the TC frame by checking the value of the bypass flag and the control
+     * command flag.
+     *
+     * @return the type of the TC frame, as per {@link TcTransferFrame.FrameType}
+     */
+    public FrameType getFrameType() {
+        if(isBypassFlag()) {
+            return isControlCommandFlag() ? FrameType.BC : FrameType.BD;
+        } else {
+            return isControlCommandFlag() ? FrameType.RESERVED : FrameType.AD;
+        }
+    }
+
+    @Override
+    public short getSpacecraftId() {
+        return (short) (getUnsignedShort(0) & 0x03FF);
+    }
+
+    @Override
+    public short getVirtualChannelId() {
+        return (short) (getUnsignedByte(2) >>> 2);
+    }
+
+    /**
+     * This method returns the value of the frame length field, incremented by one, i.e. the length of the frame.
+     *
+     * @return the length of the frame as reported by the frame header
+     */
+    public int getFrameLength() {
+        return (getUnsignedShort(2) & 0x03FF) + 1;
+    }
+
+    @Override
+    public int getVirtualChannelFrameCount() {
+        return getUnsignedByte(4);
+    }
+
+    /**
+     * This method reports whether the TC frame contains TC segments or not.
+     *
+     * @return true if the TC frame contains TC segments, false otherwise
+     */
+    public boolean isSegmented() {
+        return segmented.apply(getVirtualChannelId());
+    }
+
+    /**
+     * This method returns the value of the MAP ID. The return value is meaningful only if the TC frame contains
+     * TC segments and it is not a control command frame.
+     *
+     * @return the value of the MAP ID
+     */
+    public byte getMapId() {
+        return (byte) (getUnsignedByte(TC_PRIMARY_HEADER_LENGTH) & 0x3F);
+    }
+
+    /**
+     * This method returns the value of the sequence flag. The return value is meaningful only if the TC frame contains
+     * TC segments and it is not a control command frame.
+     *
+     * @return the value of the sequence flag
+     */
+    public SequenceFlagType getSequenceFlag() {
+        return SequenceFlagType.values()[getUnsignedByte(TC_PRIMARY_HEADER_LENGTH) >>> 6];
+    }
+
+    /**
+     * This method returns the type of control command.
+     *
+     * @return the type of control command, or null if the TC frame does not contain a control command
+     */
+    public ControlCommandType getControlCommandType() {
+        if(getFrameType() != FrameType.BC) {
+            return null;
+        }
+        int dataFieldStart = getDataFieldStart();
+        int controlCommandLength = getLength() - dataFieldStart - (fecfPresent ? 2 : 0) - securityTrailerLength;
+        if(controlCommandLength == 1) {
+            return getUnsignedByte(dataFieldStart + securityHeaderLength) == 0x00 ? ControlCommandType.UNLOCK : ControlCommandType.RESERVED;
+        } else if(controlCommandLength == 3 && getUnsignedShort(dataFieldStart) == 0x8200) {
+            return ControlCommandType.SET_VR;
+        } else {
+            return ControlCommandType.RESERVED;
+        }
+    }
+
+    /**
+     * This method returns the SetV(R) value. The return value is meaningful only if the control command is of type
+     * SET_VR.
+     *
+     * @return the SetV(R) value
+     */
+    public short getSetVrValue() {
+        return getControlCommandType() == ControlCommandType.SET_VR ? (short) getUnsignedByte(getDataFieldStart() + 2) : 0;
+    }
+
+    /**
+     * TC frames have no OCF, so this method always returns false.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isOcfPresent() {
+        return false;
+    }
+
+    @Override
+    public short getDataFieldStart() {
+        // Same computation as in TcTransferFrame: the segment header is taken into account only if security is used
+        if(securityHeaderLength > 0) {
+            return (short) (TC_PRIMARY_HEADER_LENGTH + (isSegmented() ? 1 : 0) + securityHeaderLength);
+        } else {
+            return TC_PRIMARY_HEADER_LENGTH;
+        }
+    }
+
+    @Override
+    public int getDataFieldLength() {
+        return getLength() - getDataFieldStart() - (securityHeaderLength > 0 ? securityTrailerLength : 0) - (fecfPresent ? 2 : 0);
+    }
+
+    /**
+     * TC frames are never idle, so this method always returns false.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isIdleFrame() {
+        return false;
+    }
+
+    /**
+     * This method returns the length of the security header field in bytes.
+     *
+     * @return the length of the security header field in bytes
+     */
+    public int getSecurityHeaderLength() {
+        return securityHeaderLength;
+    }
+
+    /**
+     * This method returns the length of the security trailer field in bytes.
+     *
+     * @return the length of the security trailer field in bytes
+     */
+    public int getSecurityTrailerLength() {
+        return securityTrailerLength;
+    }
+
+    @Override
+    public TcTransferFrame toFrame() {
+        return new TcTransferFrame(getFrameCopy(), segmented, fecfPresent, securityHeaderLength, securityTrailerLength);
+    }
+}
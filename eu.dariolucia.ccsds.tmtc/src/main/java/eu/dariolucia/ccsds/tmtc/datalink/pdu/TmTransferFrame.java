@@ -101,6 +101,14 @@ public class TmTransferFrame extends AbstractTransferFrame {
      * @param securityTrailerLength size of the security trailer length in bytes, 0 if not present
      */
     public TmTransferFrame(byte[] frame, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength) {
+        this(frame, fecfPresent, securityHeaderLength, securityTrailerLength, false);
+    }
+
+    /**
+     * Constructor used by the frame builders, which compute the FECF while assembling the frame: if fecfVerified is
+     * true, the FECF is not verified again and the frame is marked as valid.
+     */
+    TmTransferFrame(byte[] frame, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength, boolean fecfVerified) {
         super(frame, fecfPresent);
 
         this.securityHeaderLength = securityHeaderLength;
@@ -177,7 +185,7 @@ public class TmTransferFrame extends AbstractTransferFrame {
 
         // FECF
         if(fecfPresent) {
-            valid = checkValidity();
+            valid = fecfVerified || checkValidity();
         } else {
             // With no FECF it is assumed that the frame is valid
             valid = true;
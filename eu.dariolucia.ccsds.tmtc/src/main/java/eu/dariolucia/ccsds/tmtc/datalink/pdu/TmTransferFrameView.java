@@ -0,0 +1,237 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.datalink.pdu;
+
+import java.nio.ByteBuffer;
+
+import static eu.dariolucia.ccsds.tmtc.datalink.pdu.TmTransferFrame.*;
+
+/**
+ * This class is a flyweight, read-only view on a TM transfer frame as per CCSDS 132.0-B-2, with the security
+ * extensions as per CCSDS 355.0-B-1. See {@link AbstractTransferFrameView} for the general contract.
+ *
+ * Since the length of a TM frame is not encoded in the frame itself, the length is a property of the view.
+ */
+public class TmTransferFrameView extends AbstractTransferFrameView {
+
+    private final int frameLength;
+
+    private final int securityHeaderLength;
+    private final int securityTrailerLength;
+
+    /**
+     * Constructor of a TM transfer frame view, assuming no security protocol used.
+     *
+     * @param frameLength the length of the TM frames in bytes
+     * @param fecfPresent true if the FECF is present, false otherwise
+     */
+    public TmTransferFrameView(int frameLength, boolean fecfPresent) {
+        this(frameLength, fecfPresent, 0, 0);
+    }
+
+    /**
+     * Constructor of a TM transfer frame view.
+     *
+     * @param frameLength the length of the TM frames in bytes
+     * @param fecfPresent true if the FECF is present, false otherwise
+     * @param securityHeaderLength size of the security header length in bytes, 0 if not present
+     * @param securityTrailerLength size of the security trailer length in bytes, 0 if not present
+     */
+    public TmTransferFrameView(int frameLength, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength) {
+        super(fecfPresent);
+        if(frameLength < TM_PRIMARY_HEADER_LENGTH) {
+            throw new IllegalArgumentException("Frame length must be at least " + TM_PRIMARY_HEADER_LENGTH + ", got " + frameLength);
+        }
+        this.frameLength = frameLength;
+        this.securityHeaderLength = securityHeaderLength;
+        this.securityTrailerLength = securityTrailerLength;
+    }
+
+    /**
+     * This method sets the view on the TM frame contained in the provided byte array, at the provided offset.
+     *
+     * @param data the byte array containing the frame
+     * @param offset the index of the first byte of the frame
+     * @return this view
+     * @throws IndexOutOfBoundsException if the frame exceeds the bounds of the byte array
+     */
+    public TmTransferFrameView wrap(byte[] data, int offset) {
+        setStorage(data, offset, frameLength);
+        return this;
+    }
+
+    /**
+     * This method sets the view on the TM frame contained in the provided buffer, at the provided absolute offset.
+     *
+     * @param data the buffer containing the frame
+     * @param offset the index of the first byte of the frame
+     * @return this view
+     * @throws IndexOutOfBoundsException if the frame exceeds the capacity of the buffer
+     */
+    public TmTransferFrameView wrap(ByteBuffer data, int offset) {
+        setStorage(data, offset, frameLength);
+        return this;
+    }
+
+    @Override
+    public short getTransferFrameVersionNumber() {
+        return (short) (getUnsignedByte(0) >>> 6);
+    }
+
+    @Override
+    public short getSpacecraftId() {
+        return (short) ((getUnsignedShort(0) & 0x3FF0) >>> 4);
+    }
+
+    @Override
+    public short getVirtualChannelId() {
+        return (short) ((getUnsignedByte(1) & 0x0E) >>> 1);
+    }
+
+    @Override
+    public boolean isOcfPresent() {
+        return (getUnsignedByte(1) & 0x01) != 0;
+    }
+
+    /**
+     * This method returns the value of the master channel frame count.
+     *
+     * @return the value of the master channel frame count field
+     */
+    public int getMasterChannelFrameCount() {
+        return getUnsignedByte(2);
+    }
+
+    @Override
+    public int getVirtualChannelFrameCount() {
+        return getUnsignedByte(3);
+    }
+
+    /**
+     * This method returns the value of the secondary header flag.
+     *
+     * @return true if the secondary header is present, false otherwise
+     */
+    public boolean isSecondaryHeaderPresent() {
+        return (getUnsignedByte(4) & 0x80) != 0;
+    }
+
+    /**
+     * This method returns the value of the synchronisation flag.
+     *
+     * @return the value of the synchronisation flag
+     */
+    public boolean isSynchronisationFlag() {
+        return (getUnsignedByte(4) & 0x40) != 0;
+    }
+
+    /**
+     * This method returns the value of the packet order flag.
+     *
+     * @return the value of the packet order flag
+     */
+    public boolean isPacketOrderFlag() {
+        return (getUnsignedByte(4) & 0x20) != 0;
+    }
+
+    /**
+     * This method returns the value of the segment length identifier.
+     *
+     * @return the value of the segment length identifier
+     */
+    public byte getSegmentLengthIdentifier() {
+        return (byte) ((getUnsignedByte(4) & 0x18) >>> 3);
+    }
+
+    /**
+     * This method returns the value of the first header pointer.
+     *
+     * @return the value of the first header pointer
+     */
+    public short getFirstHeaderPointer() {
+        return (short) (getUnsignedShort(4) & 0x07FF);
+    }
+
+    /**
+     * This method returns whether the frame contains no start of a packet.
+     *
+     * @return true if the frame contains no start of a packet
+     */
+    public boolean isNoStartPacket() {
+        return getFirstHeaderPointer() == TM_FIRST_HEADER_POINTER_NO_PACKET;
+    }
+
+    @Override
+    public boolean isIdleFrame() {
+        return getFirstHeaderPointer() == TM_FIRST_HEADER_POINTER_IDLE;
+    }
+
+    /**
+     * This method returns the secondary header version number, 0 if the secondary header is not present.
+     *
+     * @return the secondary header version number
+     */
+    public byte getSecondaryHeaderVersionNumber() {
+        return isSecondaryHeaderPresent() ? (byte) (getUnsignedByte(TM_PRIMARY_HEADER_LENGTH) >>> 6) : 0;
+    }
+
+    /**
+     * This method returns the secondary header length, 0 if the secondary header is not present.
+     *
+     * @return the secondary header length
+     */
+    public byte getSecondaryHeaderLength() {
+        return isSecondaryHeaderPresent() ? (byte) (getUnsignedByte(TM_PRIMARY_HEADER_LENGTH) & 0x3F) : 0;
+    }
+
+    @Override
+    public short getDataFieldStart() {
+        int start = TM_PRIMARY_HEADER_LENGTH;
+        if(isSecondaryHeaderPresent()) {
+            start += 1 + getSecondaryHeaderLength();
+        }
+        return (short) (start + securityHeaderLength);
+    }
+
+    @Override
+    public int getDataFieldLength() {
+        return getLength() - getDataFieldStart() - securityTrailerLength - (isOcfPresent() ? 4 : 0) - (fecfPresent ? 2 : 0);
+    }
+
+    /**
+     * This method returns the length of the security header field in bytes.
+     *
+     * @return the length of the security header field in bytes
+     */
+    public int getSecurityHeaderLength() {
+        return securityHeaderLength;
+    }
+
+    /**
+     * This method returns the length of the security trailer field in bytes.
+     *
+     * @return the length of the security trailer field in bytes
+     */
+    public int getSecurityTrailerLength() {
+        return securityTrailerLength;
+    }
+
+    @Override
+    public TmTransferFrame toFrame() {
+        return new TmTransferFrame(getFrameCopy(), fecfPresent, securityHeaderLength, securityTrailerLength);
+    }
+}
@@ -17,6 +17,7 @@
 package eu.dariolucia.ccsds.tmtc.util;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -30,8 +31,8 @@ public abstract class AnnotatedObject implements Serializable {
 
 	public abstract int getLength();
 
-	// Annotations
-	private final Map<Object, Object> annotations = new LinkedHashMap<>();
+	// Annotations: the map is created upon the first insertion, as most objects are never annotated
+	private Map<Object, Object> annotations;
 
 	/**
 	 * This method returns the set of keys present for the registered annotations.
@@ -39,7 +40,7 @@ public abstract class AnnotatedObject implements Serializable {
 	 * @return the set of annotation keys
 	 */
 	public final Set<Object> getAnnotationKeys() {
-		return this.annotations.keySet();
+		return this.annotations == null ? Collections.emptySet() : this.annotations.keySet();
 	}
 
 	/**
@@ -49,7 +50,7 @@ public abstract class AnnotatedObject implements Serializable {
 	 * @return the value linked to the key, null if no value
 	 */
 	public final Object getAnnotationValue(Object key) {
-		return this.annotations.get(key);
+		return this.annotations == null ? null : this.annotations.get(key);
 	}
 
 	/**
@@ -59,7 +60,7 @@ public abstract class AnnotatedObject implements Serializable {
 	 * @param value the annotation value
 	 */
 	public final void setAnnotationValue(Object key, Object value) {
-		this.annotations.put(key, value);
+		annotations().put(key, value);
 	}
 
 	/**
@@ -70,7 +71,7 @@ public abstract class AnnotatedObject implements Serializable {
 	 * @return the previous value associated with the specified key, or null if there was no mapping for the key.
 	 */
 	public final Object setAnnotationValueIfAbsent(Object key, Object value) {
-		return this.annotations.putIfAbsent(key, value);
+		return annotations().putIfAbsent(key, value);
 	}
 
 	/**
@@ -80,14 +81,16 @@ public abstract class AnnotatedObject implements Serializable {
 	 * @return the value linked to the key, null if no value
 	 */
 	public final Object clearAnnotationValue(Object key) {
-		return this.annotations.remove(key);
+		return this.annotations == null ? null : this.annotations.remove(key);
 	}
 
 	/**
 	 * This method clears all the annotations.
 	 */
 	public final void clearAnnotations() {
-		this.annotations.clear();
+		if(this.annotations != null) {
+			this.annotations.clear();
+		}
 	}
 
 	/**
@@ -97,6 +100,13 @@ public abstract class AnnotatedObject implements Serializable {
 	 * @return true if the annotation key is present, false otherwise
 	 */
 	public final boolean isAnnotationPresent(Object key) {
-		return this.annotations.containsKey(key);
+		return this.annotations != null && this.annotations.containsKey(key);
+	}
+
+	private Map<Object, Object> annotations() {
+		if(this.annotations == null) {
+			this.annotations = new LinkedHashMap<>();
+		}
+		return this.annotations;
 	}
 }
@@ -16,9 +16,16 @@
 
 package eu.dariolucia.ccsds.tmtc.util;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -54,4 +61,54 @@ public class StreamUtil {
                     }
                 }, false);
     }
+
+    /**
+     * Utility function to apply a mapping function to the items of a {@link Stream} using the provided {@link Executor}.
+     * Differently from a parallel stream, the returned stream preserves the order of the input stream and the input
+     * stream is consumed lazily: at most window items are submitted to the executor and not yet delivered to the returned
+     * stream. If the mapping function throws an exception, the exception is re-thrown by the returned stream when the
+     * related item is requested.
+     *
+     * @param input    the input stream
+     * @param mapper   the mapping function, which must be stateless
+     * @param executor the executor used to apply the mapping function
+     * @param window   the maximum number of items being processed at the same time, i.e. the size of the reorder window
+     * @param <T>      the object type of the input stream
+     * @param <K>      the object type returned by the stream
+     * @return an ordered stream containing the results of the mapping function
+     * @throws IllegalArgumentException if the window is not positive
+     */
+    public static <T, K> Stream<K> mapOrdered(Stream<T> input, Function<? super T, ? extends K> mapper, Executor executor, int window) {
+        if (input == null || mapper == null || executor == null) {
+            throw new NullPointerException("Input stream, mapper and executor cannot be null");
+        }
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive, got " + window);
+        }
+        Iterator<T> iterator = input.iterator();
+        Deque<CompletableFuture<K>> pending = new ArrayDeque<>(window);
+        return StreamSupport.stream(
+                new Spliterators.AbstractSpliterator<K>(Long.MAX_VALUE, Spliterator.ORDERED) {
+                    public boolean tryAdvance(Consumer<? super K> action) {
+                        while (pending.size() < window && iterator.hasNext()) {
+                            T item = iterator.next();
+                            pending.addLast(CompletableFuture.supplyAsync(() -> mapper.apply(item), executor));
+                        }
+                        if (pending.isEmpty()) {
+                            return false;
+                        }
+                        K result;
+                        try {
+                            result = pending.removeFirst().join();
+                        } catch (CompletionException e) {
+                            if (e.getCause() instanceof RuntimeException) {
+                                throw (RuntimeException) e.getCause();
+                            }
+                            throw e;
+                        }
+                        action.accept(result);
+                        return true;
+                    }
+                }, false).onClose(input::close);
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package eu.dariolucia.ccsds.tmtc.util;
+
+import eu.dariolucia.ccsds.tmtc.util.internal.HashedWheelTimer;
+import eu.dariolucia.ccsds.tmtc.util.internal.SerialExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class allows to drive many protocol engines (e.g. {@link eu.dariolucia.ccsds.tmtc.cop1.fop.FopEngine} and
+ * {@link eu.dariolucia.ccsds.tmtc.cop1.farm.FarmEngine} instances, or CFDP entities and their transactions) with a
+ * fixed set of threads, instead of using dedicated threads for each engine.
+ *
+ * Each engine constructed with a scheduler serialises its processing on its own task queues, which are run by the
+ * scheduler executor (e.g. a thread pool or, on Java 21 and above, a virtual-thread-per-task executor): the thread
+ * confinement of the engine state is preserved, even if consecutive tasks can be run by different threads. The timers
+ * of all the engines are handled by a single hashed timing wheel, ticking on the provided
+ * {@link ScheduledExecutorService}.
+ *
+ * Since the output functions of the engines are invoked by the scheduler executor, output functions which block for
+ * long periods should be avoided with small thread pools.
+ *
+ * The scheduler does not own the provided executors: they must be shut down by the caller, after having invoked
+ * {@link TaskScheduler#dispose()}.
+ */
+public class TaskScheduler {
+
+    /**
+     * Handle of a task scheduled with {@link TaskScheduler#schedule(Runnable, long)}.
+     */
+    @FunctionalInterface
+    public interface Timeout {
+
+        /**
+         * Cancel the timeout. The task of a cancelled timeout is not run.
+         *
+         * @return true if the timeout was cancelled, false if it was already expired or cancelled
+         */
+        boolean cancel();
+    }
+
+    /**
+     * Default duration of the tick of the timing wheel in milliseconds.
+     */
+    public static final long DEFAULT_TICK_MILLIS = 50;
+
+    /**
+     * Default number of buckets of the timing wheel.
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final Executor executor;
+
+    private final HashedWheelTimer timer;
+
+    /**
+     * Construct a scheduler that uses the provided executor to run the engine tasks and to tick the timing wheel, with
+     * the default tick duration and wheel size.
+     *
+     * @param executor the executor, it cannot be null
+     */
+    public TaskScheduler(ScheduledExecutorService executor) {
+        this(executor, executor, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Construct a scheduler.
+     *
+     * @param executor the executor used to run the engine tasks, it cannot be null
+     * @param ticker the executor used to tick the timing wheel, it cannot be null
+     * @param tickMillis the duration of the tick of the timing wheel in milliseconds, i.e. the resolution of the timers
+     * @param wheelSize the number of buckets of the timing wheel
+     */
+    public TaskScheduler(Executor executor, ScheduledExecutorService ticker, long tickMillis, int wheelSize) {
+        if(executor == null) {
+            throw new NullPointerException("Executor cannot be null");
+        }
+        if(ticker == null) {
+            throw new NullPointerException("Ticker cannot be null");
+        }
+        this.executor = executor;
+        this.timer = new HashedWheelTimer(ticker, tickMillis, TimeUnit.MILLISECONDS, wheelSize);
+    }
+
+    /**
+     * This method returns the executor running the engine tasks.
+     *
+     * @return the executor
+     */
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * This method creates a new task queue, whose tasks are run one at a time, in submission order, by the scheduler
+     * executor. Since the executor is shared, {@link ExecutorService#shutdownNow()} on the returned queue discards the
+     * queued tasks, but it does not interrupt the task being run.
+     *
+     * @return the new task queue
+     */
+    public ExecutorService createTaskQueue() {
+        return new SerialExecutor(this.executor);
+    }
+
+    /**
+     * This method schedules the provided task to be run after the provided delay. The task is run by the ticker, it
+     * must not block.
+     *
+     * @param task the task to run
+     * @param delayMillis the delay in milliseconds
+     * @return the handle of the timeout, which can be used to cancel it
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        return this.timer.schedule(task, delayMillis, TimeUnit.MILLISECONDS)::cancel;
+    }
+
+    /**
+     * This method stops the timing wheel. The engines using this scheduler shall be disposed before.
+     */
+    public void dispose() {
+        this.timer.stop();
+    }
+}
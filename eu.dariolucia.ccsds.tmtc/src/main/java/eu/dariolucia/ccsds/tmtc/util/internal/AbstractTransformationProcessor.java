@@ -16,13 +16,18 @@
 
 package eu.dariolucia.ccsds.tmtc.util.internal;
 
+import eu.dariolucia.ccsds.tmtc.util.processor.OverflowPolicy;
+
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
 
 /**
@@ -31,19 +36,43 @@ import java.util.function.Function;
  * and also a timely mode that allows subscriptions to discard old data, if their buffer becomes full.
  *
  * The provision of the executor service drives the functionality of the {@link TransformationProcessor}: if the executor
- * is provided, then the transformation and forwarding of the transformed output is done asynchronously by the executor.
- * If the executor is not provided, then the transformation and forwarding of the transformed output is performed by the same
- * thread that injects the data into the processor.
+ * is provided, then the forwarding of the transformed output is done asynchronously by the executor. If the executor
+ * is not provided, then the forwarding of the transformed output is performed by the same thread that injects the data
+ * into the processor (or by the thread requesting more data, if the subscriber had no outstanding demand).
+ *
+ * Each subscription buffers the transformed items in a lock-free queue. Items are delivered to the subscriber by a
+ * drain loop, of which at most one instance per subscription is scheduled or running at any time, according to the
+ * subscriber demand.
+ *
+ * By default, the subscription buffers are unbounded, an unbounded amount of items is requested to the upstream
+ * publisher and the {@link TransformationProcessor} does not drop any injected item. If a buffer capacity is provided at
+ * construction time, each subscription buffers the transformed items in a bounded ring buffer (capacity rounded up to
+ * the next power of two) and the demand to the upstream publisher is not unbounded: the processor requests as many
+ * items as can be stored by the subscription with the least free space, and it requests more items as the
+ * subscriptions deliver (or drop) the buffered ones. If the processor is subscribed to more than one publisher, only
+ * the first subscription is flow controlled: an unbounded amount of items is requested to the others. If a bounded
+ * subscription buffer is full, the behaviour is driven by the provided {@link OverflowPolicy}: the injecting thread can
+ * wait for free space, the oldest buffered item can be discarded, or the subscription can be terminated with an error.
+ *
+ * Processors producing more than one output item for each input item (see {@link AbstractTransformationProcessor#isSingleOutput()}) request one input
+ * item at a time, and only when all the subscriptions have free space. The output items of a requested input item are
+ * always buffered, even if they exceed the buffer capacity, so that a publisher respecting the demand never triggers
+ * the {@link OverflowPolicy}: a subscription buffers at most the buffer capacity plus the output items of a single
+ * input item.
  *
- * By default, the {@link TransformationProcessor} does not drop any injected byte[]. If the configuration is changed to work
- * in timely mode, if the internal subscription buffer (driven by the subscription request, as per reactive programming) becomes
- * full, then the complete buffer is discarded.
+ * If the configuration is changed to work in timely mode, no flow control is applied to the upstream publisher,
+ * buffered items are discarded as soon as the subscriber has no outstanding demand, and the oldest buffered item is
+ * discarded if a bounded buffer is full.
+ *
+ * Null items returned by the transformation function are not forwarded.
  *
  * @param <T> input type
  * @param <K> output type
  */
 public abstract class AbstractTransformationProcessor<T,K> implements Flow.Processor<T,K> {
 
+    private static final long BLOCK_PARK_NANOS = 100_000L;
+
     private final List<TransformationSubscription> sink = new CopyOnWriteArrayList<>();
 
     private final Function mapper;
@@ -52,10 +81,23 @@ public abstract class AbstractTransformationProcessor<T,K> implements Flow.Proce
 
     private final boolean timely;
 
-    private boolean running;
+    // Zero if the subscription buffers are unbounded
+    private final int bufferCapacity;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final int requestBatchSize;
+
+    private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<>();
+
+    // Items requested to the upstream subscription and not received yet
+    private final AtomicLong upstreamPending = new AtomicLong();
+
+    private volatile boolean running;
 
     /**
-     * Construct a processor to transform data.
+     * Construct a processor to transform data, with unbounded subscription buffers and no flow control on the upstream
+     * publisher.
      *
      * @param mapper the function, converting from an element T to an element K, it cannot be null
      * @param executor the {@link ExecutorService} used to perform the function: if null, the same thread used to inject the input will be used to compute the output
@@ -69,6 +111,39 @@ public abstract class AbstractTransformationProcessor<T,K> implements Flow.Proce
         this.mapper = mapper;
         this.executor = executor;
         this.timely = timely;
+        this.bufferCapacity = 0;
+        // Never applied, the buffers cannot be full
+        this.overflowPolicy = OverflowPolicy.DROP_OLDEST;
+        this.requestBatchSize = 1;
+    }
+
+    /**
+     * Construct a processor to transform data, with bounded subscription buffers and flow control on the upstream
+     * publisher.
+     *
+     * @param mapper the function, converting from an element T to an element K, it cannot be null
+     * @param executor the {@link ExecutorService} used to perform the function: if null, the same thread used to inject the input will be used to compute the output
+     * @param timely if true, data is allowed to be discarded in case of backpressure. If no data should be discarded, set it to false
+     * @param bufferCapacity the maximum number of items buffered for each subscription, it must be positive
+     * @param overflowPolicy the behaviour when a subscription buffer is full, it cannot be null. Ignored in timely mode
+     */
+    public AbstractTransformationProcessor(Function<? super T, ?> mapper, ExecutorService executor, boolean timely, int bufferCapacity, OverflowPolicy overflowPolicy) {
+        if(mapper == null) {
+            throw new NullPointerException("Data mapper cannot be null");
+        }
+        if(overflowPolicy == null) {
+            throw new NullPointerException("Overflow policy cannot be null");
+        }
+        if(bufferCapacity <= 0) {
+            throw new IllegalArgumentException("Buffer capacity must be positive, got " + bufferCapacity);
+        }
+        this.running = true;
+        this.mapper = mapper;
+        this.executor = executor;
+        this.timely = timely;
+        this.bufferCapacity = bufferCapacity;
+        this.overflowPolicy = timely ? OverflowPolicy.DROP_OLDEST : overflowPolicy;
+        this.requestBatchSize = Math.max(1, bufferCapacity / 4);
     }
 
     public boolean isRunning() {
@@ -79,8 +154,64 @@ public abstract class AbstractTransformationProcessor<T,K> implements Flow.Proce
         return mapper;
     }
 
+    /**
+     * This method returns whether the processor forwards at most one output item for each input item. If not, the
+     * upstream flow control requests one input item at a time, since the number of buffer slots needed by each input
+     * item is not known in advance.
+     *
+     * @return true if each input item is transformed into at most one output item, false otherwise
+     */
+    protected boolean isSingleOutput() {
+        return false;
+    }
+
+    /**
+     * This method forwards the result of the transformation of one input item to all the subscriptions. It must be
+     * invoked exactly once for each input item, since it also accounts for the items received from the upstream
+     * publisher.
+     *
+     * @param data the transformed items
+     */
     protected void forwardToSink(Collection<K> data) {
-        this.sink.forEach(o -> o.forwardItem(data));
+        // The input item was requested if the upstream flow control was waiting for it
+        boolean requested = !this.timely && this.bufferCapacity > 0 && this.upstreamPending.getAndUpdate(v -> v > 0 ? v - 1 : 0) > 0;
+        this.sink.forEach(o -> o.forwardItems(data, requested));
+        // Ask for more if the items were not buffered (e.g. no subscription, no output) or can be buffered
+        requestUpstream();
+    }
+
+    /**
+     * This method requests to the upstream publisher the items that can be currently stored by the subscription with
+     * the least free space, taking into account the items already requested.
+     */
+    private void requestUpstream() {
+        Flow.Subscription subscription = this.upstream.get();
+        if(subscription == null || this.timely || this.bufferCapacity == 0) {
+            return;
+        }
+        long free = this.bufferCapacity;
+        for(TransformationSubscription ts : this.sink) {
+            free = Math.min(free, ts.freeSlots());
+        }
+        if(!isSingleOutput()) {
+            // One input item at a time, when there is free space
+            if(free > 0 && this.upstreamPending.compareAndSet(0, 1)) {
+                subscription.request(1);
+            }
+            return;
+        }
+        while(true) {
+            long pending = this.upstreamPending.get();
+            long toRequest = free - pending;
+            // Avoid flooding the publisher with small requests, unless nothing is pending
+            if(toRequest <= 0 || (pending > 0 && toRequest < this.requestBatchSize)) {
+                return;
+            }
+            if(this.upstreamPending.compareAndSet(pending, free)) {
+                subscription.request(toRequest);
+                return;
+            }
+        }
     }
 
     @Override
@@ -102,8 +233,12 @@ public abstract class AbstractTransformationProcessor<T,K> implements Flow.Proce
 
     @Override
     public void onSubscribe(Flow.Subscription subscription) {
-        // No flow control
-        subscription.request(Long.MAX_VALUE);
+        if(this.timely || this.bufferCapacity == 0 || !this.upstream.compareAndSet(null, subscription)) {
+            // No flow control
+            subscription.request(Long.MAX_VALUE);
+        } else {
+            requestUpstream();
+        }
         // No propagation to subscribers, they are already subscribed
     }
 
@@ -125,114 +260,210 @@ public abstract class AbstractTransformationProcessor<T,K> implements Flow.Proce
 
     private class TransformationSubscription implements Flow.Subscription {
 
+        private final Flow.Subscriber<? super K> subscriber;
+
+        private final ItemBuffer<K> bufferedItems;
+
+        // Number of items after which the policy applies to unrequested items, zero if the buffer capacity applies
+        private final int softCapacity;
+
         // The subscription is activated only when a request(...) invocation is performed.
         // If the invocation is done with Long.MAX_VALUE, the subscriber is effectively asking
         // for all data with no flow control.
-        private long toBeSent = 0;
+        private final AtomicLong requested = new AtomicLong();
 
-        private List<K> bufferedItems = new LinkedList<>();
+        // Number of drain requests: only the thread moving it from 0 schedules the drain loop
+        private final AtomicInteger wip = new AtomicInteger();
 
+        // False when no more items are accepted
         private volatile boolean active = true;
 
-        private final Flow.Subscriber<? super K> subscriber;
+        // True when the subscription is cancelled or the terminal signal is delivered
+        private volatile boolean terminated = false;
+
+        private volatile boolean completed = false;
+
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
 
         public TransformationSubscription(Flow.Subscriber<? super K> subscriber) {
             this.subscriber = subscriber;
+            if(bufferCapacity > 0 && isSingleOutput()) {
+                this.bufferedItems = new BoundedRingBuffer<>(bufferCapacity);
+                this.softCapacity = 0;
+            } else {
+                this.bufferedItems = new UnboundedItemBuffer<>();
+                this.softCapacity = bufferCapacity;
+            }
+        }
+
+        private int capacity() {
+            return this.softCapacity > 0 ? this.softCapacity : this.bufferedItems.capacity();
         }
 
-        public synchronized void forwardItem(Collection<K> data) {
-            if(!active) {
+        int freeSlots() {
+            return this.terminated ? capacity() : Math.max(0, capacity() - this.bufferedItems.size());
+        }
+
+        public void forwardItems(Collection<K> data, boolean requested) {
+            if(!this.active) {
                 return;
             }
-            // Add the item to the queue
-            bufferedItems.addAll(data);
-            // Forward the item
-            if(executor == null) {
-                doForwardItems();
-            } else {
-                executor.submit(this::doForwardItems);
+            for(K item : data) {
+                if(item == null) {
+                    continue;
+                }
+                if(requested && this.softCapacity > 0) {
+                    // Output of a requested input item: buffered even beyond the capacity
+                    this.bufferedItems.offer(item);
+                } else if(!tryOffer(item) && !handleOverflow(item)) {
+                    break;
+                }
             }
+            scheduleDrain();
         }
 
-        private synchronized void doForwardItems() {
-            if(!active) {
-                return;
-            }
+        private boolean tryOffer(K item) {
+            // Items are only added by the injecting thread, so the size cannot grow between the check and the offer
+            return (this.softCapacity == 0 || this.bufferedItems.size() < this.softCapacity) && this.bufferedItems.offer(item);
+        }
 
-            // Forward as much data as you can: since this object is fully synchronized, we should not fear any
-            // modification of the queue while we do this operation.
-            while (!this.bufferedItems.isEmpty() && (this.toBeSent == Long.MAX_VALUE || (--this.toBeSent) >= 0)) {
-                this.subscriber.onNext(this.bufferedItems.remove(0));
+        private boolean handleOverflow(K item) {
+            switch (overflowPolicy) {
+                case DROP_OLDEST:
+                    do {
+                        this.bufferedItems.poll();
+                    } while(!tryOffer(item));
+                    return true;
+                case FAIL:
+                    signalError(new IllegalStateException("Subscription buffer overflow, capacity " + capacity()));
+                    return false;
+                default:
+                    // Let the drain loop free some space, then wait
+                    scheduleDrain();
+                    while(!tryOffer(item)) {
+                        if(!this.active || Thread.currentThread().isInterrupted()) {
+                            return false;
+                        }
+                        LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    }
+                    return true;
             }
+        }
 
-            if(timely) {
-                // If the processor works in timely behaviour, in case there are no pending requests from the
-                // subscriber, remaining items in the temporary buffer can be safely dropped.
-                this.bufferedItems.clear();
-            }
+        public void forwardError(Throwable throwable) {
+            signalError(throwable);
         }
 
-        public synchronized void forwardError(Throwable throwable) {
-            if(executor == null) {
-                doForwardError(throwable);
-            } else {
-                executor.submit(() -> doForwardError(throwable));
-            }
+        public void forwardComplete() {
+            this.active = false;
+            this.completed = true;
+            scheduleDrain();
         }
 
-        private synchronized void doForwardError(Throwable throwable) {
-            if(!active) {
-                return;
-            }
+        private void signalError(Throwable throwable) {
             this.active = false;
-            this.subscriber.onError(throwable);
-            cancel();
+            this.error.compareAndSet(null, throwable);
+            scheduleDrain();
         }
 
-        public synchronized void forwardComplete() {
-            if(executor == null) {
-                doForwardComplete();
-            } else {
-                executor.submit(this::doForwardComplete);
+        private void scheduleDrain() {
+            if(this.wip.getAndIncrement() == 0) {
+                if(executor == null) {
+                    drain();
+                } else {
+                    executor.execute(this::drain);
+                }
             }
         }
 
-        private synchronized void doForwardComplete() {
-            if(!active) {
-                return;
+        private void drain() {
+            int missed = 1;
+            while(true) {
+                long r = this.requested.get();
+                long delivered = 0;
+                while(delivered != r) {
+                    if(checkTerminated()) {
+                        return;
+                    }
+                    K item = this.bufferedItems.poll();
+                    if(item == null) {
+                        break;
+                    }
+                    this.subscriber.onNext(item);
+                    ++delivered;
+                }
+                if(checkTerminated()) {
+                    return;
+                }
+                boolean consumed = delivered > 0;
+                if(consumed && r != Long.MAX_VALUE) {
+                    r = this.requested.addAndGet(-delivered);
+                }
+                if(timely && r == 0 && !this.bufferedItems.isEmpty()) {
+                    // If the processor works in timely behaviour, in case there are no pending requests from the
+                    // subscriber, remaining items in the buffer can be safely dropped.
+                    this.bufferedItems.clear();
+                    consumed = true;
+                }
+                if(consumed) {
+                    requestUpstream();
+                }
+                missed = this.wip.addAndGet(-missed);
+                if(missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private boolean checkTerminated() {
+            if(this.terminated) {
+                this.bufferedItems.clear();
+                return true;
+            }
+            Throwable throwable = this.error.get();
+            if(throwable != null) {
+                terminate();
+                this.subscriber.onError(throwable);
+                return true;
+            }
+            if(this.completed && this.bufferedItems.isEmpty()) {
+                terminate();
+                this.subscriber.onComplete();
+                return true;
             }
+            return false;
+        }
+
+        private void terminate() {
             this.active = false;
-            this.subscriber.onComplete();
-            cancel();
+            this.terminated = true;
+            this.bufferedItems.clear();
+            AbstractTransformationProcessor.this.sink.remove(this);
+            requestUpstream();
         }
 
         @Override
-        public synchronized void request(long n) {
-            if(!active) {
+        public void request(long n) {
+            if(this.terminated) {
                 return;
             }
             if(n <= 0) {
-                this.active = false;
-                this.subscriber.onError(new IllegalArgumentException("Number of received requests is <= 0"));
-                cancel();
+                signalError(new IllegalArgumentException("Number of received requests is <= 0"));
             } else {
-                if(this.toBeSent != Long.MAX_VALUE) {
-                    this.toBeSent += n;
-                }
-                // Forward the item
-                if(executor == null) {
-                    doForwardItems();
-                } else {
-                    executor.submit(this::doForwardItems);
-                }
+                this.requested.getAndUpdate(v -> v > Long.MAX_VALUE - n ? Long.MAX_VALUE : v + n);
+                // Forward the items
+                scheduleDrain();
             }
         }
 
         @Override
-        public synchronized void cancel() {
+        public void cancel() {
             this.active = false;
-            this.bufferedItems.clear();
+            this.terminated = true;
             AbstractTransformationProcessor.this.sink.remove(this);
+            // The buffer is cleared by the drain loop
+            scheduleDrain();
+            requestUpstream();
         }
 
         @Override
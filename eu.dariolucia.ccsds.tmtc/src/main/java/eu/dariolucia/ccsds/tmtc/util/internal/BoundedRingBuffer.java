@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.util.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free, array-based queue. Each slot carries a sequence number that tells producers and consumers
+ * whether the slot can be written or read for the current lap, so that offer and poll only need a CAS on the tail or
+ * head index respectively (D. Vyukov's bounded queue). Many threads can offer at the same time; poll can also be
+ * invoked concurrently, which allows producers to evict the oldest element when the buffer is full.
+ *
+ * The capacity is rounded up to the next power of two. Null elements are not allowed.
+ *
+ * @param <E> the element type
+ */
+final class BoundedRingBuffer<E> implements ItemBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    BoundedRingBuffer(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        if(size <= 0) {
+            throw new IllegalArgumentException("Capacity too large: " + capacity);
+        }
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for(int i = 0; i < size; ++i) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public boolean offer(E element) {
+        if(element == null) {
+            throw new NullPointerException("Element cannot be null");
+        }
+        while(true) {
+            long pos = this.tail.get();
+            int idx = (int) (pos & this.mask);
+            long diff = this.sequences.get(idx) - pos;
+            if(diff == 0) {
+                if(this.tail.compareAndSet(pos, pos + 1)) {
+                    this.elements.lazySet(idx, element);
+                    // Publish the slot to consumers
+                    this.sequences.set(idx, pos + 1);
+                    return true;
+                }
+            } else if(diff < 0) {
+                // The slot still holds the element of the previous lap: full
+                return false;
+            }
+            // Another producer took the slot, retry
+        }
+    }
+
+    @Override
+    public E poll() {
+        while(true) {
+            long pos = this.head.get();
+            int idx = (int) (pos & this.mask);
+            long diff = this.sequences.get(idx) - (pos + 1);
+            if(diff == 0) {
+                if(this.head.compareAndSet(pos, pos + 1)) {
+                    E element = this.elements.get(idx);
+                    this.elements.lazySet(idx, null);
+                    // Release the slot for the next lap
+                    this.sequences.set(idx, pos + this.mask + 1);
+                    return element;
+                }
+            } else if(diff < 0) {
+                // The slot has not been published yet: empty
+                return null;
+            }
+            // Another consumer took the slot, retry
+        }
+    }
+
+    @Override
+    public int size() {
+        long size = this.tail.get() - this.head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    @Override
+    public int capacity() {
+        return this.mask + 1;
+    }
+}
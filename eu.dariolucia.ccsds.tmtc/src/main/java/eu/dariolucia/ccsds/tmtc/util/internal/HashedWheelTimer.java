@@ -0,0 +1,193 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.util.internal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A timer for a large number of timeouts with coarse resolution, based on a hashed timing wheel: the timeouts are
+ * hashed into the buckets of a circular array according to their deadline, and a periodic tick processes only the
+ * bucket of the current tick. Scheduling and cancelling a timeout are O(1) operations and do not require locks, and a
+ * single periodic task on the provided {@link ScheduledExecutorService} serves all the timeouts.
+ *
+ * The timeout tasks are run by the tick task, therefore they shall be short and non-blocking (e.g. they should
+ * only submit further work to an executor). A timeout expires not earlier than its deadline and at most one tick
+ * later. Exceptions and errors thrown by a timeout task are reported to the uncaught exception handler of the ticking
+ * thread.
+ */
+public class HashedWheelTimer {
+
+    /**
+     * Handle of a scheduled timeout.
+     */
+    public interface Timeout {
+
+        /**
+         * Cancel the timeout. The task of a cancelled timeout is not run.
+         *
+         * @return true if the timeout was cancelled, false if it was already expired or cancelled
+         */
+        boolean cancel();
+    }
+
+    private final long tickNanos;
+
+    private final int mask;
+
+    private final List<List<WheelTimeout>> wheel;
+
+    private final ConcurrentLinkedQueue<WheelTimeout> newTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final long startTime;
+
+    private final ScheduledFuture<?> tickTask;
+
+    // Accessed only by the tick task
+    private long tick;
+
+    /**
+     * Construct a timer, which starts ticking immediately on the provided executor.
+     *
+     * @param ticker the executor used to run the periodic tick, it cannot be null
+     * @param tickDuration the duration of a tick, it must be positive
+     * @param unit the time unit of the tick duration
+     * @param wheelSize the number of buckets of the wheel, rounded up to the next power of two
+     */
+    public HashedWheelTimer(ScheduledExecutorService ticker, long tickDuration, TimeUnit unit, int wheelSize) {
+        if(tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive, got " + tickDuration);
+        }
+        if(wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("Wheel size must be between 1 and 2^30, got " + wheelSize);
+        }
+        int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.mask = size - 1;
+        this.wheel = new ArrayList<>(size);
+        for(int i = 0; i < size; ++i) {
+            this.wheel.add(new ArrayList<>());
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.startTime = System.nanoTime();
+        this.tickTask = ticker.scheduleAtFixedRate(this::onTick, this.tickNanos, this.tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Schedule the provided task to be run after the provided delay.
+     *
+     * @param task the task to run, it cannot be null
+     * @param delay the delay
+     * @param unit the time unit of the delay
+     * @return the handle of the timeout
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if(task == null) {
+            throw new NullPointerException("Task cannot be null");
+        }
+        WheelTimeout timeout = new WheelTimeout(task, System.nanoTime() - this.startTime + unit.toNanos(Math.max(0, delay)));
+        // Added to the wheel by the tick task, which owns the buckets
+        this.newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stop the timer. The pending timeouts are not run.
+     */
+    public void stop() {
+        this.tickTask.cancel(false);
+        this.newTimeouts.clear();
+    }
+
+    private void onTick() {
+        long elapsed = System.nanoTime() - this.startTime;
+        // Process all the ticks up to now, in case of delays of the ticker
+        while(this.tick * this.tickNanos <= elapsed - this.tickNanos) {
+            transferNewTimeouts();
+            expireTimeouts(this.wheel.get((int) (this.tick & this.mask)), elapsed);
+            ++this.tick;
+        }
+    }
+
+    private void transferNewTimeouts() {
+        WheelTimeout timeout;
+        while((timeout = this.newTimeouts.poll()) != null) {
+            if(timeout.state.get() != WheelTimeout.ST_INIT) {
+                continue;
+            }
+            // Tick at the end of which the deadline is passed
+            long deadlineTick = Math.max(this.tick, (timeout.deadline + this.tickNanos - 1) / this.tickNanos - 1);
+            timeout.remainingRounds = (deadlineTick - this.tick) / this.wheel.size();
+            this.wheel.get((int) (deadlineTick & this.mask)).add(timeout);
+        }
+    }
+
+    private void expireTimeouts(List<WheelTimeout> bucket, long elapsed) {
+        Iterator<WheelTimeout> it = bucket.iterator();
+        while(it.hasNext()) {
+            WheelTimeout timeout = it.next();
+            if(timeout.state.get() != WheelTimeout.ST_INIT) {
+                it.remove();
+            } else if(timeout.remainingRounds <= 0) {
+                it.remove();
+                timeout.expire();
+            } else {
+                --timeout.remainingRounds;
+            }
+        }
+    }
+
+    private static final class WheelTimeout implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+        // Accessed only by the tick task
+        private long remainingRounds;
+
+        private WheelTimeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            return this.state.compareAndSet(ST_INIT, ST_CANCELLED);
+        }
+
+        private void expire() {
+            if(this.state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                try {
+                    this.task.run();
+                } catch (Throwable e) {
+                    // Errors are reported as well: propagating them would cancel the periodic tick for good
+                    Thread t = Thread.currentThread();
+                    t.getUncaughtExceptionHandler().uncaughtException(t, e);
+                }
+            }
+        }
+    }
+}
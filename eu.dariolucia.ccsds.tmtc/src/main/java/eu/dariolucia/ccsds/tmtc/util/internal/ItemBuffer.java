@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.util.internal;
+
+/**
+ * A thread-safe FIFO buffer of items, used by the subscriptions of the {@link AbstractTransformationProcessor}. Many
+ * threads can offer and poll at the same time. Null elements are not allowed.
+ *
+ * @param <E> the element type
+ */
+interface ItemBuffer<E> {
+
+    /**
+     * Insert the element at the tail of the buffer, if there is space.
+     *
+     * @param element the element, not null
+     * @return true if the element was inserted, false if the buffer is full
+     */
+    boolean offer(E element);
+
+    /**
+     * Remove the element at the head of the buffer.
+     *
+     * @return the element, or null if the buffer is empty
+     */
+    E poll();
+
+    /**
+     * Remove all the elements currently in the buffer.
+     */
+    default void clear() {
+        while(poll() != null) {
+            // Discard
+        }
+    }
+
+    /**
+     * Return the number of elements in the buffer. The value is an estimate if other threads are concurrently
+     * modifying the buffer.
+     *
+     * @return the number of elements
+     */
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Return the maximum number of elements in the buffer.
+     *
+     * @return the capacity of the buffer
+     */
+    int capacity();
+}
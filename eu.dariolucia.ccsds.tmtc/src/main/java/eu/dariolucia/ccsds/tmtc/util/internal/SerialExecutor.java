@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.util.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link ExecutorService} that runs the submitted tasks one at a time, in submission order, on top of a delegate
+ * {@link Executor}, which can be shared by many instances of this class (actor-like execution). At most one task of
+ * this executor is running at any time, so that the state accessed only by the tasks is confined and does not need
+ * synchronisation, even if consecutive tasks can be run by different threads of the delegate executor. The thread
+ * running the current task can be checked with {@link SerialExecutor#isCurrentThread()}.
+ *
+ * To avoid monopolising a shared delegate, at most a batch of tasks is run before the execution is yielded back to
+ * the delegate. If the delegate is owned by this executor, it is shut down when this executor terminates. Exceptions
+ * and errors thrown by a task are reported to the uncaught exception handler of the running thread, and the execution
+ * continues with the next task.
+ *
+ * {@link SerialExecutor#shutdownNow()} discards the queued tasks and interrupts the running task only if the delegate
+ * is owned: the thread of a shared delegate can be running tasks of other executors at any time, hence it is never
+ * interrupted.
+ */
+public class SerialExecutor extends AbstractExecutorService {
+
+    private static final int BATCH_SIZE = 64;
+
+    private final Executor delegate;
+
+    private final boolean ownDelegate;
+
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    // Number of tasks submitted and not yet run: only the thread moving it from 0 schedules the drain
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private volatile Thread runner;
+
+    private volatile boolean shutdown;
+
+    /**
+     * Construct a serial executor on top of the provided delegate.
+     *
+     * @param delegate the executor running the tasks, it cannot be null
+     * @param ownDelegate true if the delegate is an {@link ExecutorService} owned by this executor, i.e. to be shut down when this executor terminates
+     */
+    public SerialExecutor(Executor delegate, boolean ownDelegate) {
+        if(delegate == null) {
+            throw new NullPointerException("Delegate executor cannot be null");
+        }
+        if(ownDelegate && !(delegate instanceof ExecutorService)) {
+            throw new IllegalArgumentException("Owned delegate must be an ExecutorService");
+        }
+        this.delegate = delegate;
+        this.ownDelegate = ownDelegate;
+    }
+
+    /**
+     * Construct a serial executor on top of the provided shared delegate.
+     *
+     * @param delegate the executor running the tasks, it cannot be null
+     */
+    public SerialExecutor(Executor delegate) {
+        this(delegate, false);
+    }
+
+    /**
+     * This method returns whether the calling thread is running a task of this executor.
+     *
+     * @return true if the calling thread is running a task of this executor, false otherwise
+     */
+    public boolean isCurrentThread() {
+        return Thread.currentThread() == this.runner;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if(command == null) {
+            throw new NullPointerException("Task cannot be null");
+        }
+        if(this.shutdown) {
+            throw new RejectedExecutionException("Executor shut down");
+        }
+        this.tasks.add(command);
+        if(this.pending.getAndIncrement() == 0) {
+            this.delegate.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        this.runner = Thread.currentThread();
+        for(int i = 0; i < BATCH_SIZE; ++i) {
+            // The task can be null if removed by shutdownNow()
+            Runnable task = this.tasks.poll();
+            if(task != null) {
+                runTask(task);
+            }
+            if(this.pending.decrementAndGet() == 0) {
+                this.runner = null;
+                if(this.shutdown) {
+                    tryTerminate();
+                }
+                return;
+            }
+        }
+        // Yield to the other users of the delegate
+        this.runner = null;
+        this.delegate.execute(this::drain);
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            // Errors are reported as well: propagating them out of drain() would leave the pending tasks not run forever
+            Thread t = Thread.currentThread();
+            t.getUncaughtExceptionHandler().uncaughtException(t, e);
+        }
+    }
+
+    private void tryTerminate() {
+        if(this.pending.get() == 0 && this.terminated.getCount() > 0) {
+            this.terminated.countDown();
+            if(this.ownDelegate) {
+                ((ExecutorService) this.delegate).shutdown();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        this.shutdown = true;
+        tryTerminate();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        this.shutdown = true;
+        List<Runnable> notRun = new ArrayList<>();
+        Runnable task;
+        while((task = this.tasks.poll()) != null) {
+            notRun.add(task);
+        }
+        if(this.ownDelegate) {
+            // The thread is owned, it runs only tasks of this executor. The delegate is not shut down here: the drain
+            // task must still run on it to account for the discarded tasks, then the delegate is shut down on
+            // termination
+            Thread current = this.runner;
+            if(current != null) {
+                current.interrupt();
+            }
+        }
+        tryTerminate();
+        return notRun;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return this.shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return this.terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.terminated.await(timeout, unit);
+    }
+}
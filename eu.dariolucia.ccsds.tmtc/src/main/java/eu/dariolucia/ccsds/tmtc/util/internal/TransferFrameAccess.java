@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.util.internal;
+
+import eu.dariolucia.ccsds.tmtc.datalink.pdu.AbstractTransferFrame;
+import eu.dariolucia.ccsds.tmtc.datalink.pdu.AosTransferFrame;
+import eu.dariolucia.ccsds.tmtc.datalink.pdu.TcTransferFrame;
+import eu.dariolucia.ccsds.tmtc.datalink.pdu.TmTransferFrame;
+
+import java.util.function.IntFunction;
+
+/**
+ * This class gives the frame builders access to the package-private constructors of the transfer frames, which create
+ * frames whose FECF has been computed by the builder while assembling the frame and is therefore not verified again.
+ *
+ * The {@link Accessor} is registered by {@link AbstractTransferFrame} when the class is initialised. This package is
+ * not exported by the module.
+ */
+public final class TransferFrameAccess {
+
+    /**
+     * The constructors made available to the frame builders.
+     */
+    public interface Accessor {
+
+        TmTransferFrame newTmTransferFrame(byte[] frame, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength);
+
+        AosTransferFrame newAosTransferFrame(byte[] frame, boolean frameHeaderErrorControlPresent, int transferFrameInsertZoneLength, AosTransferFrame.UserDataType userDataType, boolean ocfPresent, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength);
+
+        TcTransferFrame newTcTransferFrame(byte[] frame, IntFunction<Boolean> segmented, boolean fecfPresent, int securityHeaderLength, int securityTrailerLength);
+    }
+
+    private static volatile Accessor accessor;
+
+    private TransferFrameAccess() {
+        // Private constructor
+    }
+
+    /**
+     * This method registers the accessor. It can be called only once.
+     *
+     * @param accessor the accessor to the frame constructors
+     * @throws IllegalStateException if an accessor is already registered
+     */
+    public static synchronized void setAccessor(Accessor accessor) {
+        if(TransferFrameAccess.accessor != null) {
+            throw new IllegalStateException("Transfer frame accessor already registered");
+        }
+        TransferFrameAccess.accessor = accessor;
+    }
+
+    /**
+     * This method returns the registered accessor, initialising {@link AbstractTransferFrame} if needed.
+     *
+     * @return the accessor to the frame constructors
+     */
+    public static Accessor getAccessor() {
+        Accessor a = accessor;
+        if(a == null) {
+            try {
+                Class.forName(AbstractTransferFrame.class.getName(), true, AbstractTransferFrame.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+            a = accessor;
+        }
+        return a;
+    }
+}
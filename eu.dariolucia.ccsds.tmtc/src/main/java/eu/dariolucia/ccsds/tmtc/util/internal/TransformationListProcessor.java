@@ -16,6 +16,8 @@
 
 package eu.dariolucia.ccsds.tmtc.util.internal;
 
+import eu.dariolucia.ccsds.tmtc.util.processor.OverflowPolicy;
+
 import java.util.Collection;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
@@ -29,6 +31,10 @@ import java.util.function.Function;
  */
 public class TransformationListProcessor<T,K> extends AbstractTransformationProcessor<T,K> {
 
+    public TransformationListProcessor(Function<T, ? extends Collection<K>> mapper, ExecutorService executor, boolean timely, int bufferCapacity, OverflowPolicy overflowPolicy) {
+        super(mapper, executor, timely, bufferCapacity, overflowPolicy);
+    }
+
     public TransformationListProcessor(Function<T, ? extends Collection<K>> mapper, ExecutorService executor, boolean timely) {
         super(mapper, executor, timely);
     }
@@ -16,6 +16,8 @@
 
 package eu.dariolucia.ccsds.tmtc.util.internal;
 
+import eu.dariolucia.ccsds.tmtc.util.processor.OverflowPolicy;
+
 import java.util.Collections;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
@@ -28,6 +30,10 @@ import java.util.function.Function;
  */
 public class TransformationProcessor<T,K> extends AbstractTransformationProcessor<T, K> {
 
+	public TransformationProcessor(Function<T, K> mapper, ExecutorService executor, boolean timely, int bufferCapacity, OverflowPolicy overflowPolicy) {
+		super(mapper, executor, timely, bufferCapacity, overflowPolicy);
+	}
+
 	public TransformationProcessor(Function<T, K> mapper, ExecutorService executor, boolean timely) {
 		super(mapper, executor, timely);
 	}
@@ -40,6 +46,11 @@ public class TransformationProcessor<T,K> extends AbstractTransformationProcesso
 		this(mapper, false);
 	}
 
+	@Override
+	protected boolean isSingleOutput() {
+		return true;
+	}
+
 	@Override
 	public void onNext(T item) {
 		if(isRunning()) {
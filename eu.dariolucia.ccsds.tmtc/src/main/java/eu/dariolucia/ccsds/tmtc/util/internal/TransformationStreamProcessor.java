@@ -16,6 +16,8 @@
 
 package eu.dariolucia.ccsds.tmtc.util.internal;
 
+import eu.dariolucia.ccsds.tmtc.util.processor.OverflowPolicy;
+
 import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -30,6 +32,10 @@ import java.util.stream.Stream;
  */
 public class TransformationStreamProcessor<T, K> extends AbstractTransformationProcessor<T, K> {
 
+    public TransformationStreamProcessor(Function<T, Stream<K>> mapper, ExecutorService executor, boolean timely, int bufferCapacity, OverflowPolicy overflowPolicy) {
+        super(mapper, executor, timely, bufferCapacity, overflowPolicy);
+    }
+
     public TransformationStreamProcessor(Function<T, Stream<K>> mapper, ExecutorService executor, boolean timely) {
         super(mapper, executor, timely);
     }
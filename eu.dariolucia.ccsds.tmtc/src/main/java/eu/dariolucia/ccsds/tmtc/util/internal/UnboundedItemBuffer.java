@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.util.internal;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An unbounded, lock-free buffer based on a {@link ConcurrentLinkedQueue}, with a constant-time size estimate. The
+ * capacity is reported as {@link Integer#MAX_VALUE}.
+ *
+ * @param <E> the element type
+ */
+final class UnboundedItemBuffer<E> implements ItemBuffer<E> {
+
+    private final ConcurrentLinkedQueue<E> elements = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    @Override
+    public boolean offer(E element) {
+        if(element == null) {
+            throw new NullPointerException("Element cannot be null");
+        }
+        this.elements.add(element);
+        this.size.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        E element = this.elements.poll();
+        if(element != null) {
+            this.size.decrementAndGet();
+        }
+        return element;
+    }
+
+    @Override
+    public int size() {
+        return Math.max(0, this.size.get());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.elements.isEmpty();
+    }
+
+    @Override
+    public int capacity() {
+        return Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.util.processor;
+
+/**
+ * The behaviour of a subscription of a processor, when a new item must be buffered and the subscription buffer is
+ * full.
+ */
+public enum OverflowPolicy {
+    /**
+     * The thread injecting the item waits until there is space in the buffer, or until the subscription is
+     * cancelled or the thread is interrupted (in such cases the item is discarded).
+     */
+    BLOCK,
+    /**
+     * The oldest item in the buffer is discarded.
+     */
+    DROP_OLDEST,
+    /**
+     * The item is discarded and the subscription is terminated with an {@link IllegalStateException}.
+     */
+    FAIL
+}
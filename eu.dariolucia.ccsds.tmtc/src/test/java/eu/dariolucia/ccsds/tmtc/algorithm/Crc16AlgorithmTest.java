@@ -18,6 +18,9 @@ package eu.dariolucia.ccsds.tmtc.algorithm;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class Crc16AlgorithmTest {
@@ -28,4 +31,37 @@ class Crc16AlgorithmTest {
 		short crc = Crc16Algorithm.getCrc16(testData, 0, testData.length);
 		assertEquals(3747, crc);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testCrc16AgainstBitwiseImplementation() {
+		Random r = new Random(1234);
+		byte[] data = new byte[2048];
+		r.nextBytes(data);
+		ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+		direct.put(data);
+		for(int offset = 0; offset < 9; ++offset) {
+			for(int length = 0; length < 100; ++length) {
+				short expected = bitwiseCrc16(data, offset, length);
+				assertEquals(expected, Crc16Algorithm.getCrc16(data, offset, length));
+				assertEquals(expected, Crc16Algorithm.getCrc16(direct, offset, length));
+			}
+		}
+		assertEquals(bitwiseCrc16(data, 3, 2043), Crc16Algorithm.getCrc16(data, 3, 2043));
+		assertEquals(bitwiseCrc16(data, 0, 1113), Crc16Algorithm.getCrc16(data, 0, 1113));
+	}
+
+	// Straightforward bit-by-bit implementation, as per CCSDS 132.0-B-2, 4.1.6.2
+	private static short bitwiseCrc16(byte[] data, int offset, int length) {
+		int shiftRegister = 0xFFFF;
+		for(int i = offset; i < offset + length; ++i) {
+			for(int bit = 7; bit >= 0; --bit) {
+				int feedback = ((shiftRegister >>> 15) ^ (data[i] >>> bit)) & 0x01;
+				shiftRegister = (shiftRegister << 1) & 0xFFFF;
+				if(feedback != 0) {
+					shiftRegister ^= 0x1021;
+				}
+			}
+		}
+		return (short) shiftRegister;
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.dariolucia.ccsds.tmtc.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Crc16ChecksumTest {
+
+	@Test
+	public void testIncrementalUpdate() {
+		Random r = new Random(42);
+		byte[] data = new byte[1115];
+		r.nextBytes(data);
+		short expected = Crc16Algorithm.getCrc16(data, 0, data.length);
+
+		Crc16Checksum checksum = new Crc16Checksum();
+		// Mix of single bytes, arrays and buffers
+		checksum.update(data[0]);
+		checksum.update(data, 1, 10);
+		checksum.update(ByteBuffer.wrap(data, 11, 100));
+		ByteBuffer direct = ByteBuffer.allocateDirect(500);
+		direct.put(data, 111, 500);
+		direct.flip();
+		checksum.update(direct);
+		assertFalse(direct.hasRemaining());
+		ByteBuffer heapSlice = ByteBuffer.wrap(data).position(611).slice();
+		heapSlice.limit(3);
+		checksum.update(heapSlice);
+		checksum.update(data, 614, data.length - 614);
+		assertEquals(expected, checksum.getCrc16());
+		assertEquals(Short.toUnsignedLong(expected), checksum.getValue());
+
+		checksum.reset();
+		checksum.update(data, 0, data.length);
+		assertEquals(expected, checksum.getCrc16());
+
+		checksum.reset();
+		assertEquals(0xFFFF, checksum.getValue());
+		assertThrows(ArrayIndexOutOfBoundsException.class, () -> checksum.update(data, 1000, 200));
+	}
+
+	@Test
+	public void testFecfOfAssembledFrame() {
+		byte[] testData = new byte[] { 0x01, (byte) 0x92, (byte) 0xFE, 0x00, 0x11, (byte) 0x82, 0x5A };
+		Crc16Checksum checksum = new Crc16Checksum();
+		for(byte b : testData) {
+			checksum.update(b);
+		}
+		assertEquals(3747, checksum.getCrc16());
+	}
+}
@@ -22,7 +22,10 @@ import eu.dariolucia.ccsds.tmtc.datalink.pdu.TcTransferFrame;
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.TmTransferFrame;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -83,4 +86,71 @@ class RandomizerAlgorithmTest {
 		// Compare
 		assertArrayEquals(theFrame, ttf.getFrame());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testArbitraryLengthAndOffset() {
+		// Beyond the length of the 64 KB pattern used by previous versions
+		int length = 70000;
+		byte[] tmPattern = generatePattern(length, 0b0001_0101);
+		byte[] cltuPattern = generatePattern(length, 0b0111_1010);
+		Random r = new Random(7);
+		byte[] data = new byte[length + 20];
+		r.nextBytes(data);
+		for(int offset : new int[] { 0, 1, 7, 13 }) {
+			for(int len : new int[] { 0, 1, 7, 8, 9, 254, 255, 256, 1115, length }) {
+				byte[] expectedTm = data.clone();
+				byte[] expectedCltu = data.clone();
+				for(int i = 0; i < len; ++i) {
+					expectedTm[offset + i] ^= tmPattern[i];
+					expectedCltu[offset + i] ^= cltuPattern[i];
+				}
+				// Arrays
+				byte[] tm = data.clone();
+				RandomizerAlgorithm.randomizeFrameTm(tm, offset, len);
+				assertArrayEquals(expectedTm, tm);
+				byte[] cltu = data.clone();
+				RandomizerAlgorithm.randomizeFrameCltu(cltu, offset, len);
+				assertArrayEquals(expectedCltu, cltu);
+				// Copy
+				byte[] copy = new byte[len + 3];
+				RandomizerAlgorithm.randomizeFrameTm(data, offset, copy, 3, len);
+				assertArrayEquals(Arrays.copyOfRange(expectedTm, offset, offset + len), Arrays.copyOfRange(copy, 3, len + 3));
+				// Buffers: heap, direct big endian and direct little endian
+				for(ByteBuffer bb : new ByteBuffer[] { ByteBuffer.wrap(data.clone()), ByteBuffer.allocateDirect(data.length),
+						ByteBuffer.allocateDirect(data.length).order(ByteOrder.LITTLE_ENDIAN) }) {
+					for(int i = 0; i < data.length; ++i) {
+						bb.put(i, data[i]);
+					}
+					RandomizerAlgorithm.randomizeFrameTm(bb, offset, len);
+					assertEquals(0, bb.position());
+					byte[] result = new byte[data.length];
+					bb.get(result);
+					assertArrayEquals(expectedTm, result);
+				}
+				ByteBuffer bb = ByteBuffer.allocateDirect(data.length);
+				bb.put(data);
+				RandomizerAlgorithm.randomizeFrameCltu(bb, offset, len);
+				byte[] result = new byte[data.length];
+				bb.flip();
+				bb.get(result);
+				assertArrayEquals(expectedCltu, result);
+			}
+		}
+		assertThrows(IndexOutOfBoundsException.class, () -> RandomizerAlgorithm.randomizeFrameTm(data, 10, data.length));
+		assertThrows(IndexOutOfBoundsException.class, () -> RandomizerAlgorithm.randomizeFrameCltu(ByteBuffer.allocate(10), 5, 6));
+	}
+
+	// Bit by bit generation of the pseudo random sequence: the output is the MSB of the 8-bit shift register (all ones
+	// at start), the feedback is the parity of the output and of the provided taps
+	private static byte[] generatePattern(int length, int taps) {
+		byte[] pattern = new byte[length];
+		int shiftRegister = 0xFF;
+		for(int i = 0; i < length * 8; ++i) {
+			int output = (shiftRegister >>> 7) & 0x01;
+			int feedback = Integer.bitCount(shiftRegister & (taps | 0x80)) & 0x01;
+			shiftRegister = ((shiftRegister << 1) | feedback) & 0xFF;
+			pattern[i / 8] |= (byte) (output << (7 - (i % 8)));
+		}
+		return pattern;
+	}
+}
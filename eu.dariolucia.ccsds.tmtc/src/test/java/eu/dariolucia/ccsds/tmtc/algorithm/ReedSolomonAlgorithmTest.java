@@ -20,6 +20,8 @@ import eu.dariolucia.ccsds.tmtc.util.StringUtil;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -52,6 +54,72 @@ class ReedSolomonAlgorithmTest {
         }
     }
 
+    @Test
+    public void testFrameErrorCorrection() {
+        byte[] cadu = StringUtil.toByteArray(encodedTestFrame);
+        byte[] frame = StringUtil.toByteArray(testFrame);
+        // 16 errors per codeword, on message and RS symbols
+        for(int i = 0; i < 80; ++i) {
+            cadu[i * 16] ^= (byte) 0xA5;
+        }
+        byte[] corrupted = cadu.clone();
+        assertNull(ReedSolomonAlgorithm.TM_255_223.decodeFrame(cadu, 5, true));
+        assertArrayEquals(frame, ReedSolomonAlgorithm.TM_255_223.correctFrame(cadu, 5));
+        assertArrayEquals(corrupted, cadu);
+
+        byte[] output = new byte[frame.length + 10];
+        assertEquals(80, ReedSolomonAlgorithm.TM_255_223.decodeFrame(cadu, 0, cadu.length, 5, true, output, 10));
+        assertArrayEquals(frame, Arrays.copyOfRange(output, 10, output.length));
+        assertEquals(-1, ReedSolomonAlgorithm.TM_255_223.decodeFrame(cadu, 0, cadu.length, 5, false, output, 10));
+
+        // One more error in the first codeword: not correctable
+        cadu[5 * 200] ^= 0x01;
+        assertNull(ReedSolomonAlgorithm.TM_255_223.correctFrame(cadu, 5));
+    }
+
+    @Test
+    public void testParallelFrameProcessing() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            byte[] cadu = StringUtil.toByteArray(encodedTestFrame);
+            byte[] frame = StringUtil.toByteArray(testFrame);
+            assertArrayEquals(cadu, ReedSolomonAlgorithm.TM_255_223.encodeFrame(frame, 5, executor));
+            assertArrayEquals(frame, ReedSolomonAlgorithm.TM_255_223.decodeFrame(cadu, 5, true, executor));
+            // Errors in the last codeword only
+            cadu[4] ^= 0x01;
+            cadu[9] ^= 0x02;
+            assertNull(ReedSolomonAlgorithm.TM_255_223.decodeFrame(cadu, 5, true, executor));
+            assertArrayEquals(frame, ReedSolomonAlgorithm.TM_255_223.correctFrame(cadu, 5, executor));
+            byte[] output = new byte[frame.length];
+            assertEquals(2, ReedSolomonAlgorithm.TM_255_223.decodeFrame(cadu, 0, cadu.length, 5, true, output, 0, executor));
+            assertArrayEquals(frame, output);
+            // Uncorrectable errors in the third codeword
+            for(int i = 0; i < 17; ++i) {
+                cadu[2 + i * 5] ^= 0x10;
+            }
+            assertNull(ReedSolomonAlgorithm.TM_255_223.correctFrame(cadu, 5, executor));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCodewordErrorCorrection() {
+        byte[] message = new byte[239];
+        for(int i = 0; i < message.length; ++i) {
+            message[i] = (byte) i;
+        }
+        byte[] codeword = ReedSolomonAlgorithm.TM_255_239.encodeCodeword(message);
+        byte[] corrupted = codeword.clone();
+        corrupted[0] ^= 0x11;
+        corrupted[100] ^= 0x22;
+        corrupted[254] ^= 0x33;
+        assertNull(ReedSolomonAlgorithm.TM_255_239.decodeCodeword(corrupted, true));
+        assertEquals(3, ReedSolomonAlgorithm.TM_255_239.correctCodeword(corrupted));
+        assertArrayEquals(codeword, corrupted);
+        assertArrayEquals(message, ReedSolomonAlgorithm.TM_255_239.decodeCodeword(corrupted, true));
+    }
+
     @Test
     public void testEncodingSpeed() {
         {
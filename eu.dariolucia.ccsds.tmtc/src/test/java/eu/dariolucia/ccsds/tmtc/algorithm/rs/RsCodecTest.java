@@ -0,0 +1,183 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.algorithm.rs;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RsCodecTest {
+
+    @Test
+    public void testCrossCheck255223() {
+        crossCheck(223, 112, true);
+        crossCheck(223, 112, false);
+    }
+
+    @Test
+    public void testCrossCheck255239() {
+        crossCheck(239, 120, true);
+        crossCheck(239, 120, false);
+    }
+
+    @Test
+    public void testErrorCorrection255223() {
+        errorCorrection(223, 112);
+    }
+
+    @Test
+    public void testErrorCorrection255239() {
+        errorCorrection(239, 120);
+    }
+
+    @Test
+    public void testInterleavedCodeword() {
+        RsCodec codec = new RsCodec(0x187, 173, 223, 32, 112, true);
+        Random r = new Random(3);
+        byte[] frame = new byte[255 * 5];
+        r.nextBytes(frame);
+        for(int i = 0; i < 5; ++i) {
+            codec.encode(frame, i, 5, frame, 223 * 5 + i, 5);
+        }
+        byte[] original = frame.clone();
+        // Corrupt 16 symbols of the third codeword, all other codewords are not affected
+        for(int k = 0; k < 16; ++k) {
+            frame[2 + k * 5 * 15] ^= 0x5A;
+        }
+        for(int i = 0; i < 5; ++i) {
+            assertEquals(i != 2, codec.check(frame, i, 5));
+        }
+        byte[] output = new byte[223 * 5];
+        assertEquals(16, codec.decode(frame, 2, 5, output, 2, 5, true));
+        assertEquals(16, codec.correct(frame, 2, 5));
+        assertArrayEquals(original, frame);
+        for(int k = 0; k < 223; ++k) {
+            assertEquals(original[2 + k * 5], output[2 + k * 5]);
+        }
+    }
+
+    @Test
+    public void testGf16() {
+        // AOS frame header error control: (10,6) code over GF(2^4), conventional representation
+        ReedSolomon reference = new ReedSolomon(0x13, 2, 6, 4, 6);
+        RsCodec codec = new RsCodec(0x13, 2, 6, 4, 6, false);
+        Random r = new Random(4);
+        for(int i = 0; i < 200; ++i) {
+            byte[] message = new byte[6];
+            for(int j = 0; j < message.length; ++j) {
+                message[j] = (byte) r.nextInt(16);
+            }
+            ByteBuffer sink = ByteBuffer.allocate(10);
+            RsEncoder encoder = new RsEncoder(reference, false, sink);
+            encoder.pushMessage(message.clone());
+            encoder.pullAll();
+            byte[] codeword = Arrays.copyOf(message, 10);
+            codec.encode(message, 0, 1, codeword, 6, 1);
+            assertArrayEquals(sink.array(), codeword);
+            assertTrue(codec.check(codeword, 0, 1));
+            // Up to 2 symbol errors can be corrected
+            byte[] corrupted = codeword.clone();
+            int p1 = r.nextInt(10);
+            int p2 = (p1 + 1 + r.nextInt(9)) % 10;
+            corrupted[p1] ^= (byte) (1 + r.nextInt(15));
+            corrupted[p2] ^= (byte) (1 + r.nextInt(15));
+            assertFalse(codec.check(corrupted, 0, 1));
+            assertEquals(2, codec.correct(corrupted, 0, 1));
+            assertArrayEquals(codeword, corrupted);
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RsCodec(0x11D, 173, 223, 32, 112, true)); // 173 is not primitive in this field
+        assertThrows(IllegalArgumentException.class, () -> new RsCodec(0x1187, 173, 223, 32, 112, true));
+        assertThrows(IllegalArgumentException.class, () -> new RsCodec(0x187, 173, 240, 32, 112, true));
+        assertThrows(IllegalArgumentException.class, () -> new RsCodec(0x187, 173, 223, 0, 112, true));
+        assertThrows(IllegalArgumentException.class, () -> new RsCodec(0x13, 2, 6, 4, 6, true)); // Dual basis only for GF(2^8)
+        assertThrows(IllegalArgumentException.class, () -> new RsCodec(0x13, 2, 6, 10, 6, false));
+    }
+
+    private void crossCheck(int messageLen, int initialRoot, boolean dualBasis) {
+        int eccLen = 255 - messageLen;
+        ReedSolomon reference = new ReedSolomon(0x187, 173, messageLen, eccLen, initialRoot);
+        RsCodec codec = new RsCodec(0x187, 173, messageLen, eccLen, initialRoot, dualBasis);
+        Random r = new Random(1);
+        for(int i = 0; i < 500; ++i) {
+            byte[] message = new byte[messageLen];
+            r.nextBytes(message);
+            // Reference
+            ByteBuffer sink = ByteBuffer.allocate(255);
+            RsEncoder encoder = new RsEncoder(reference, dualBasis, sink);
+            encoder.pushMessage(message.clone());
+            encoder.pullAll();
+            byte[] expected = sink.array();
+            // Codec
+            byte[] codeword = Arrays.copyOf(message, 255);
+            codec.encode(message, 0, 1, codeword, messageLen, 1);
+            assertArrayEquals(expected, codeword);
+            assertTrue(codec.check(codeword, 0, 1));
+            // Corrupt and compare detection
+            codeword[r.nextInt(255)] ^= (byte) (1 + r.nextInt(255));
+            assertEquals(new RsDecoder(reference, dualBasis).decode(codeword, true) != null, codec.check(codeword, 0, 1));
+        }
+    }
+
+    private void errorCorrection(int messageLen, int initialRoot) {
+        int eccLen = 255 - messageLen;
+        RsCodec codec = new RsCodec(0x187, 173, messageLen, eccLen, initialRoot, true);
+        Random r = new Random(2);
+        for(int i = 0; i < 500; ++i) {
+            byte[] message = new byte[messageLen];
+            r.nextBytes(message);
+            byte[] codeword = Arrays.copyOf(message, 255);
+            codec.encode(message, 0, 1, codeword, messageLen, 1);
+            byte[] corrupted = codeword.clone();
+            int numErrors = r.nextInt(eccLen / 2 + 1);
+            Set<Integer> positions = new HashSet<>();
+            while(positions.size() < numErrors) {
+                positions.add(r.nextInt(255));
+            }
+            for(int p : positions) {
+                corrupted[p] ^= (byte) (1 + r.nextInt(255));
+            }
+            byte[] corruptedCopy = corrupted.clone();
+            byte[] output = new byte[messageLen];
+            assertEquals(numErrors == 0 ? 0 : -1, codec.decode(corrupted, 0, 1, output, 0, 1, false));
+            assertEquals(numErrors, codec.decode(corrupted, 0, 1, output, 0, 1, true));
+            assertArrayEquals(message, output);
+            assertArrayEquals(corruptedCopy, corrupted);
+            assertEquals(numErrors, codec.correct(corrupted, 0, 1));
+            assertArrayEquals(codeword, corrupted);
+        }
+        // Beyond the correction capability: the codeword must be left untouched
+        byte[] message = new byte[messageLen];
+        byte[] codeword = Arrays.copyOf(message, 255);
+        codec.encode(message, 0, 1, codeword, messageLen, 1);
+        for(int i = 0; i < eccLen / 2 + 1; ++i) {
+            codeword[i * 3] ^= 0x01;
+        }
+        byte[] corrupted = codeword.clone();
+        assertEquals(-1, codec.correct(corrupted, 0, 1));
+        assertArrayEquals(codeword, corrupted);
+    }
+}
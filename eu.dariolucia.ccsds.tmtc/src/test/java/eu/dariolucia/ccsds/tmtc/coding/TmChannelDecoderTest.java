@@ -26,10 +26,11 @@ import eu.dariolucia.ccsds.tmtc.util.StreamUtil;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class TmChannelDecoderTest {
 
@@ -87,4 +88,50 @@ class TmChannelDecoderTest {
 
         assertEquals(152, frames.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTmDecodingWithBufferFunctions() throws IOException {
+        // Build the reader
+        LineHexDumpChannelReader reader = new LineHexDumpChannelReader(this.getClass().getClassLoader().getResourceAsStream(FILE_TM1));
+        // Build the decoders: the first one uses the buffer decoding functions, the second one the plain byte[] functions
+        ChannelDecoder<TmTransferFrame> bufferDecoder = ChannelDecoder.create(TmTransferFrame.decodingFunction(false))
+                .addDecodingFunction(new TmAsmDecoder())
+                .addDecodingFunction(new ReedSolomonDecoder(ReedSolomonAlgorithm.TM_255_223, 5, true))
+                .configure();
+        TmAsmDecoder asmDecoder = new TmAsmDecoder();
+        ReedSolomonDecoder rsDecoder = new ReedSolomonDecoder(ReedSolomonAlgorithm.TM_255_223, 5, true);
+        ChannelDecoder<TmTransferFrame> plainDecoder = ChannelDecoder.create(TmTransferFrame.decodingFunction(false))
+                .addDecodingFunction(asmDecoder::apply)
+                .addDecodingFunction(rsDecoder::apply)
+                .configure();
+        // Mixed decoder: plain function followed by a buffer function
+        ChannelDecoder<TmTransferFrame> mixedDecoder = ChannelDecoder.create(TmTransferFrame.decodingFunction(false))
+                .addDecodingFunction(asmDecoder::apply)
+                .addDecodingFunction(new ReedSolomonDecoder(ReedSolomonAlgorithm.TM_255_223, 5, true))
+                .configure();
+        byte[] dumpRaw;
+        int counter = 0;
+        while ((dumpRaw = reader.readNext()) != null) {
+            // The RS symbols in the dump file are not meaningful: re-encode the frame, keeping the ASM
+            byte[] encoded = ReedSolomonAlgorithm.TM_255_223.encodeFrame(Arrays.copyOfRange(dumpRaw, 4, 4 + 1115), 5);
+            byte[] tfRaw = new byte[4 + encoded.length];
+            System.arraycopy(dumpRaw, 0, tfRaw, 0, 4);
+            System.arraycopy(encoded, 0, tfRaw, 4, encoded.length);
+            byte[] original = Arrays.copyOf(tfRaw, tfRaw.length);
+            TmTransferFrame fromBuffer = bufferDecoder.apply(tfRaw);
+            // The input is not modified by the buffer decoding functions
+            assertArrayEquals(original, tfRaw);
+            TmTransferFrame fromPlain = plainDecoder.apply(tfRaw);
+            TmTransferFrame fromMixed = mixedDecoder.apply(tfRaw);
+            assertEquals(1115, fromBuffer.getLength());
+            assertArrayEquals(fromPlain.getFrame(), fromBuffer.getFrame());
+            assertArrayEquals(fromPlain.getFrame(), fromMixed.getFrame());
+            // Corrupt the frame: the RS check fails and the frame is discarded
+            tfRaw[10] ^= 0x01;
+            assertNull(bufferDecoder.apply(tfRaw));
+            assertNull(plainDecoder.apply(tfRaw));
+            ++counter;
+        }
+        assertEquals(152, counter);
+    }
+}
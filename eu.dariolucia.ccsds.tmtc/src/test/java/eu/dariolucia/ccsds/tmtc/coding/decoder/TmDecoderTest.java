@@ -25,8 +25,14 @@ import eu.dariolucia.ccsds.tmtc.datalink.pdu.TmTransferFrame;
 import eu.dariolucia.ccsds.tmtc.util.StringUtil;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -105,6 +111,22 @@ public class TmDecoderTest {
     }
 
 
+    @Test
+    public void testTmDecodingFusedSyncMarkerRemoval() {
+        byte[] input = StringUtil.toByteArray(EXPECTED_TM_2);
+        byte[] syncMarker = new byte[] {0x03, 0x47, 0x76, (byte) 0xC7, 0x27, 0x28, (byte) 0x95, (byte) 0xB0};
+
+        // Reference: separate ASM removal and de-randomization
+        byte[] expected = new TmRandomizerDecoder().apply(new TmAsmDecoder(syncMarker).apply(input.clone()));
+        byte[] fused = new TmRandomizerDecoder(syncMarker).apply(input);
+        assertArrayEquals(expected, fused);
+        // The input is not modified
+        assertArrayEquals(StringUtil.toByteArray(EXPECTED_TM_2), input);
+
+        TmRandomizerDecoder wrongMarker = new TmRandomizerDecoder(TmAsmDecoder.DEFAULT_ATTACHED_SYNC_MARKER);
+        assertThrows(IllegalArgumentException.class, () -> wrongMarker.apply(input));
+    }
+
     @Test
     public void testTmDecodingWrongSyncMarker() {
         byte[] input = StringUtil.toByteArray(EXPECTED_TM_2);
@@ -122,6 +144,54 @@ public class TmDecoderTest {
         }
     }
 
+    @Test
+    public void testParallelRsDecoding() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ReedSolomonEncoder<TmTransferFrame> rsEncoder = new ReedSolomonEncoder<>(ReedSolomonAlgorithm.TM_255_223, 5, executor);
+            ReedSolomonDecoder rsDecoder = new ReedSolomonDecoder(ReedSolomonAlgorithm.TM_255_223, 5, false, true, executor);
+            List<byte[]> frames = new ArrayList<>();
+            List<byte[]> encoded = new ArrayList<>();
+            for(int i = 0; i < 50; ++i) {
+                byte[] frame = new byte[1115];
+                Arrays.fill(frame, (byte) i);
+                frames.add(frame);
+                byte[] cadu = rsEncoder.apply(null, frame);
+                assertArrayEquals(ReedSolomonAlgorithm.TM_255_223.encodeFrame(frame, 5), cadu);
+                // Correctable error on even frames, uncorrectable error on frames multiple of 7
+                if(i % 2 == 0) {
+                    cadu[i] ^= (byte) 0xFF;
+                }
+                if(i % 7 == 0) {
+                    for(int j = 0; j < 17; ++j) {
+                        cadu[j * 5] ^= (byte) 0x0F;
+                    }
+                }
+                encoded.add(cadu);
+            }
+            // Single frame, codewords in parallel
+            assertArrayEquals(frames.get(2), rsDecoder.apply(encoded.get(2)));
+            assertNull(rsDecoder.apply(encoded.get(7)));
+            // Sequence of frames, in order
+            List<byte[]> decoded = rsDecoder.applyAll(encoded.stream(), 4).collect(Collectors.toList());
+            assertEquals(frames.size(), decoded.size());
+            for(int i = 0; i < frames.size(); ++i) {
+                if(i % 7 == 0) {
+                    assertNull(decoded.get(i));
+                } else {
+                    assertArrayEquals(frames.get(i), decoded.get(i));
+                }
+            }
+            // Errors are propagated in order
+            List<byte[]> wrongLength = List.of(encoded.get(1), new byte[10]);
+            Iterator<byte[]> it = rsDecoder.applyAll(wrongLength.stream(), 2).iterator();
+            assertArrayEquals(frames.get(1), it.next());
+            assertThrows(IllegalArgumentException.class, it::next);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testNullInput() {
         try {
@@ -0,0 +1,220 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.coding.reader;
+
+import eu.dariolucia.ccsds.tmtc.coding.encoder.TmAsmEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitSyncMarkerFixedLengthChannelReaderTest {
+
+    private static final String FILE_TM1 = "dumpFile_tm_1.hex";
+
+    private static final byte[] ASM = TmAsmEncoder.DEFAULT_ATTACHED_SYNC_MARKER;
+
+    private static final int FRAME_LENGTH = 1115;
+
+    @Test
+    void testReadNextAligned() throws IOException {
+        // Prepare the input
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        LineHexDumpChannelReader reader = new LineHexDumpChannelReader(this.getClass().getClassLoader().getResourceAsStream(FILE_TM1));
+        byte[] frame = null;
+        while((frame = reader.readNext()) != null) {
+            bos.writeBytes(frame);
+        }
+        bos.close();
+        byte[] data = bos.toByteArray();
+
+        SyncMarkerFixedLengthChannelReader reference = new SyncMarkerFixedLengthChannelReader(new ByteArrayInputStream(data), ASM,  1275);
+        BitSyncMarkerFixedLengthChannelReader smReader = new BitSyncMarkerFixedLengthChannelReader(new ByteArrayInputStream(data), ASM,  1275);
+
+        int counter = 0;
+        while ((frame = smReader.readNext()) != null) {
+            assertArrayEquals(reference.readNext(), frame);
+            assertEquals(counter == 0 ? BitSyncMarkerFixedLengthChannelReader.State.CHECK : BitSyncMarkerFixedLengthChannelReader.State.LOCK, smReader.getState());
+            ++counter;
+        }
+        smReader.close();
+        reference.close();
+
+        assertEquals(152, counter);
+    }
+
+    @Test
+    void testReadNextBitShiftedAndInverted() throws IOException {
+        List<byte[]> frames = generateFrames(20);
+        for(int shift = 0; shift < 8; ++shift) {
+            for(boolean invert : new boolean[] { false, true }) {
+                byte[] data = encode(frames, shift, invert);
+                // Add 2 bit errors to each ASM (position depending on the shift)
+                for(int i = 0; i < frames.size(); ++i) {
+                    int asmBitPosition = 13 * Byte.SIZE + shift + i * (ASM.length + FRAME_LENGTH) * Byte.SIZE;
+                    flipBit(data, asmBitPosition + 3);
+                    flipBit(data, asmBitPosition + 17);
+                }
+                BitSyncMarkerFixedLengthChannelReader smReader = new BitSyncMarkerFixedLengthChannelReader(new ByteArrayInputStream(data), ASM, FRAME_LENGTH, false, false, 2, 4, 1, 3, 0, true);
+                List<byte[]> read = readAll(smReader);
+                assertEquals(frames.size(), read.size());
+                for(int i = 0; i < frames.size(); ++i) {
+                    assertArrayEquals(frames.get(i), read.get(i));
+                }
+                assertEquals(invert, smReader.isInverted());
+            }
+        }
+    }
+
+    @Test
+    void testFlywheelAndBitSlip() throws IOException {
+        List<byte[]> frames = generateFrames(10);
+        byte[] data = encode(frames, 5, false);
+        int unitBits = (ASM.length + FRAME_LENGTH) * Byte.SIZE;
+        // Destroy the ASM of frame 3
+        for(int i = 0; i < ASM.length * Byte.SIZE; i += 2) {
+            flipBit(data, 13 * Byte.SIZE + 5 + 3 * unitBits + i);
+        }
+        // Remove one bit before the ASM of frame 6 (bit slip)
+        data = removeBit(data, 13 * Byte.SIZE + 5 + 6 * unitBits - 1);
+
+        BitSyncMarkerFixedLengthChannelReader smReader = new BitSyncMarkerFixedLengthChannelReader(new ByteArrayInputStream(data), ASM, FRAME_LENGTH, false, false, 0, 2, 1, 1, 1, false);
+        List<BitSyncMarkerFixedLengthChannelReader.State> states = new ArrayList<>();
+        byte[] frame;
+        int counter = 0;
+        while ((frame = smReader.readNext()) != null) {
+            states.add(smReader.getState());
+            if(counter != 5) {
+                // Frame 5 has the bit slip in its last bit
+                assertArrayEquals(frames.get(counter), frame);
+            }
+            ++counter;
+        }
+        assertEquals(frames.size(), counter);
+        assertEquals(BitSyncMarkerFixedLengthChannelReader.State.CHECK, states.get(0));
+        assertEquals(BitSyncMarkerFixedLengthChannelReader.State.LOCK, states.get(1));
+        assertEquals(BitSyncMarkerFixedLengthChannelReader.State.FLYWHEEL, states.get(3));
+        assertEquals(BitSyncMarkerFixedLengthChannelReader.State.LOCK, states.get(4));
+        assertEquals(BitSyncMarkerFixedLengthChannelReader.State.LOCK, states.get(6));
+    }
+
+    @Test
+    void testReadNextThrowOutSync() throws IOException {
+        List<byte[]> frames = generateFrames(10);
+        byte[] data = encode(frames, 0, false);
+        int unitLength = ASM.length + FRAME_LENGTH;
+        // Destroy the ASM of frames 4 and 5
+        for(int i = 0; i < ASM.length; ++i) {
+            data[13 + 4 * unitLength + i] ^= (byte) 0xFF;
+            data[13 + 5 * unitLength + i] ^= (byte) 0xFF;
+        }
+
+        BitSyncMarkerFixedLengthChannelReader smReader = new BitSyncMarkerFixedLengthChannelReader(new ByteArrayInputStream(data), ASM, FRAME_LENGTH, true, true, 0, 0, 1, 1, 0, false);
+        int counter = 0;
+        try {
+            while (smReader.readNext() != null) {
+                ++counter;
+            }
+            fail("SynchronizationLostException expected");
+        } catch (SynchronizationLostException e) {
+            assertEquals(5, counter);
+            assertEquals(BitSyncMarkerFixedLengthChannelReader.State.SEARCH, smReader.getState());
+        }
+        // The reader can be used to resynchronise
+        byte[] frame = smReader.readNext();
+        assertNotNull(frame);
+        assertEquals(ASM.length + FRAME_LENGTH, frame.length);
+        smReader.close();
+    }
+
+    @Test
+    void testInvalidArguments() {
+        ByteArrayInputStream bis = new ByteArrayInputStream(new byte[0]);
+        assertThrows(IllegalArgumentException.class, () -> new BitSyncMarkerFixedLengthChannelReader(bis, new byte[9], FRAME_LENGTH));
+        assertThrows(IllegalArgumentException.class, () -> new BitSyncMarkerFixedLengthChannelReader(bis, ASM, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BitSyncMarkerFixedLengthChannelReader(bis, ASM, FRAME_LENGTH, true, false, 0, 0, 1, 1, 8, false));
+    }
+
+    private static List<byte[]> readAll(IChannelReader reader) throws IOException {
+        List<byte[]> read = new ArrayList<>();
+        byte[] frame;
+        while ((frame = reader.readNext()) != null) {
+            read.add(frame);
+        }
+        reader.close();
+        return read;
+    }
+
+    private static List<byte[]> generateFrames(int n) {
+        Random r = new Random(n);
+        List<byte[]> frames = new ArrayList<>();
+        for(int i = 0; i < n; ++i) {
+            byte[] frame = new byte[FRAME_LENGTH];
+            r.nextBytes(frame);
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    // Generate 13 bytes of noise, then the frames preceded by the ASM, shifted right by the specified number of bits
+    private static byte[] encode(List<byte[]> frames, int shift, boolean invert) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] noise = new byte[13];
+        new Random(1).nextBytes(noise);
+        bos.writeBytes(noise);
+        for(byte[] f : frames) {
+            bos.writeBytes(ASM);
+            bos.writeBytes(f);
+        }
+        bos.write(0);
+        byte[] aligned = bos.toByteArray();
+        byte[] shifted = new byte[aligned.length];
+        for(int i = 0; i < aligned.length; ++i) {
+            int previous = i == 0 ? 0 : aligned[i - 1] & 0xFF;
+            shifted[i] = (byte) (((aligned[i] & 0xFF) >>> shift) | (previous << (8 - shift)));
+            if(invert) {
+                shifted[i] = (byte) ~shifted[i];
+            }
+        }
+        return shifted;
+    }
+
+    private static void flipBit(byte[] data, int bitPosition) {
+        data[bitPosition / 8] ^= (byte) (0x80 >>> (bitPosition % 8));
+    }
+
+    private static byte[] removeBit(byte[] data, int bitPosition) {
+        byte[] result = new byte[data.length];
+        int out = 0;
+        for(int i = 0; i < data.length * 8; ++i) {
+            if(i == bitPosition) {
+                continue;
+            }
+            if((data[i / 8] & (0x80 >>> (i % 8))) != 0) {
+                result[out / 8] |= (byte) (0x80 >>> (out % 8));
+            }
+            ++out;
+        }
+        return result;
+    }
+}
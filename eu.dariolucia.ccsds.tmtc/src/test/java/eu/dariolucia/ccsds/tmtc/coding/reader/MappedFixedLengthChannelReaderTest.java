@@ -0,0 +1,120 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.coding.reader;
+
+import eu.dariolucia.ccsds.tmtc.coding.encoder.TmAsmEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFixedLengthChannelReaderTest {
+
+    private static final String FILE_TM1 = "dumpFile_tm_1.hex";
+
+    private static final int HEADER_LENGTH = 10;
+
+    @Test
+    void testReadNext() throws IOException {
+        byte[] data = readDump();
+        Path file = createFile(data);
+        // Small regions: 3 transfer units per region
+        MappedFixedLengthChannelReader reader = new MappedFixedLengthChannelReader(file, 1279, HEADER_LENGTH, TmAsmEncoder.DEFAULT_ATTACHED_SYNC_MARKER, 4000);
+        FixedLengthChannelReader reference = new FixedLengthChannelReader(new ByteArrayInputStream(data), 1279);
+        assertEquals(152, reader.getNumberOfUnits());
+
+        byte[] frame;
+        int counter = 0;
+        while ((frame = reader.readNext()) != null) {
+            assertArrayEquals(reference.readNext(), frame);
+            ++counter;
+        }
+        assertEquals(152, counter);
+        assertEquals(152, reader.getCurrentIndex());
+        assertEquals(-1, reader.readNext(new byte[1279], 0, 1279));
+        assertThrows(IOException.class, () -> reader.readNext(new byte[1000], 0, 1000));
+        reader.close();
+        reference.close();
+    }
+
+    @Test
+    void testSliceAndRandomAccess() throws IOException {
+        byte[] data = readDump();
+        Path file = createFile(data);
+        try (MappedFixedLengthChannelReader reader = new MappedFixedLengthChannelReader(file, 1279, HEADER_LENGTH, null)) {
+            // Random access
+            for (long idx : new long[]{151, 0, 77, 3}) {
+                ByteBuffer slice = reader.getSlice(idx);
+                assertTrue(slice.isReadOnly());
+                assertEquals(0, slice.position());
+                assertEquals(1279, slice.remaining());
+                for (int i = 0; i < 1279; ++i) {
+                    assertEquals(data[(int) idx * 1279 + i], slice.get(i));
+                }
+            }
+            assertEquals(0, reader.getCurrentIndex());
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.getSlice(152));
+            // Seek and sequential access
+            reader.seek(150);
+            ByteBuffer slice = reader.readNextSlice();
+            assertEquals(data[150 * 1279 + 4], slice.get(4));
+            assertNotNull(reader.readNextSlice());
+            assertNull(reader.readNextSlice());
+            assertThrows(IndexOutOfBoundsException.class, () -> reader.seek(153));
+        }
+    }
+
+    @Test
+    void testWrongSyncMarker() throws IOException {
+        byte[] data = readDump();
+        Path file = createFile(data);
+        try (MappedFixedLengthChannelReader reader = new MappedFixedLengthChannelReader(file, 1279, HEADER_LENGTH + 1, TmAsmEncoder.DEFAULT_ATTACHED_SYNC_MARKER)) {
+            assertEquals(152, reader.getNumberOfUnits());
+            assertThrows(SynchronizationLostException.class, reader::readNext);
+        }
+    }
+
+    private byte[] readDump() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        LineHexDumpChannelReader reader = new LineHexDumpChannelReader(this.getClass().getClassLoader().getResourceAsStream(FILE_TM1));
+        byte[] frame = null;
+        while((frame = reader.readNext()) != null) {
+            bos.writeBytes(frame);
+        }
+        reader.close();
+        return bos.toByteArray();
+    }
+
+    // Create a file with a header, followed by the data and by some trailing bytes
+    private Path createFile(byte[] data) throws IOException {
+        Path file = Files.createTempFile("mappedReader", ".bin");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.writeBytes(new byte[HEADER_LENGTH]);
+        bos.writeBytes(data);
+        bos.writeBytes(new byte[100]);
+        Files.write(file, bos.toByteArray());
+        // Mapped files cannot be deleted on some platforms until the mapping is garbage collected
+        file.toFile().deleteOnExit();
+        return file;
+    }
+}
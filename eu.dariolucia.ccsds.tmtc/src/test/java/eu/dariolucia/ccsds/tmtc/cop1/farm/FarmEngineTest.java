@@ -22,12 +22,17 @@ import eu.dariolucia.ccsds.tmtc.datalink.channel.sender.util.TransferFrameCollec
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.TcTransferFrame;
 import eu.dariolucia.ccsds.tmtc.ocf.builder.ClcwBuilder;
 import eu.dariolucia.ccsds.tmtc.ocf.pdu.Clcw;
+import eu.dariolucia.ccsds.tmtc.util.TaskScheduler;
 import org.junit.jupiter.api.Test;
 
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -1050,6 +1055,47 @@ class FarmEngineTest {
         assertNotNull(status.toString());
     }
 
+    @Test
+    public void testFarmSharedScheduler() throws InterruptedException {
+        ScheduledExecutorService pool = Executors.newScheduledThreadPool(2);
+        TaskScheduler scheduler = new TaskScheduler(pool);
+        final List<TcTransferFrame> sink = new CopyOnWriteArrayList<>();
+        List<FarmEngine> farms = new LinkedList<>();
+        for(int i = 0; i < 8; ++i) {
+            FarmEngine farm = new FarmEngine(i, sink::add, true, 5, 10, FarmState.S1, 0, scheduler);
+            farms.add(farm);
+            TcSenderVirtualChannel vc = new TcSenderVirtualChannel(321, i, VirtualChannelAccessMode.DATA, false, false);
+            TransferFrameCollector<TcTransferFrame> collector = new TransferFrameCollector<>();
+            vc.register(collector);
+            // Send 4 AD frames
+            for(int j = 0; j < 4; ++j) {
+                vc.dispatch(true, 0, new byte[200]);
+                farm.frameArrived(collector.retrieveFirst(true));
+            }
+        }
+        // The CLCW is computed after the frames queued on the same engine
+        for(FarmEngine farm : farms) {
+            assertEquals(4, farm.get().getReportValue());
+        }
+        // Delivery happens on a separate queue of the same scheduler
+        long waitUntil = System.currentTimeMillis() + 5000;
+        while(sink.size() < 32 && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+        }
+        assertEquals(32, sink.size());
+
+        // Disposing the engines must not shut down the shared threads
+        for(FarmEngine farm : farms) {
+            farm.dispose();
+        }
+        assertFalse(pool.isShutdown());
+        assertThrows(RejectedExecutionException.class, () -> farms.get(0).get());
+
+        scheduler.dispose();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
     private static class FarmListenerStub implements IFarmObserver {
 
         private final List<FarmStatus> lastStatus = new LinkedList<>();
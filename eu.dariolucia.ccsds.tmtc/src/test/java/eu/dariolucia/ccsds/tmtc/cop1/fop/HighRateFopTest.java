@@ -23,12 +23,17 @@ import eu.dariolucia.ccsds.tmtc.datalink.channel.sender.util.TransferFrameCollec
 import eu.dariolucia.ccsds.tmtc.datalink.pdu.TcTransferFrame;
 import eu.dariolucia.ccsds.tmtc.ocf.builder.ClcwBuilder;
 import eu.dariolucia.ccsds.tmtc.ocf.pdu.Clcw;
+import eu.dariolucia.ccsds.tmtc.util.TaskScheduler;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
@@ -80,6 +85,76 @@ class HighRateFopTest {
         fop.dispose();
     }
 
+    @Test
+    public void testBdFrameSharedScheduler() throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        TaskScheduler scheduler = new TaskScheduler(executor);
+        AtomicInteger sinkCounter = new AtomicInteger();
+        List<FopEngine> engines = new ArrayList<>();
+        List<TcSenderVirtualChannel> channels = new ArrayList<>();
+        List<TransferFrameCollector<TcTransferFrame>> collectors = new ArrayList<>();
+        // 50 engines driven by 2 threads
+        for(int i = 0; i < 50; ++i) {
+            TcSenderVirtualChannel tcVc = new TcSenderVirtualChannel(123, i, VirtualChannelAccessMode.DATA, true, false);
+            BcFrameCollector bcFactory = new BcFrameCollector(tcVc);
+            tcVc.register(bcFactory);
+            TransferFrameCollector<TcTransferFrame> collector = new TransferFrameCollector<>(o -> o.getFrameType() == TcTransferFrame.FrameType.BD);
+            tcVc.register(collector);
+            FopEngine fop = new FopEngine(tcVc.getVirtualChannelId(), tcVc::getNextVirtualChannelFrameCounter, tcVc::setVirtualChannelFrameCounter, bcFactory, bcFactory, o -> {
+                sinkCounter.incrementAndGet();
+                return true;
+            }, scheduler);
+            engines.add(fop);
+            channels.add(tcVc);
+            collectors.add(collector);
+        }
+        for(int j = 0; j < 20; ++j) {
+            for(int i = 0; i < engines.size(); ++i) {
+                channels.get(i).dispatch(false, 0, new byte[200]);
+                engines.get(i).transmit(collectors.get(i).retrieveFirst(true), 2000);
+            }
+        }
+
+        long waitUntil = System.currentTimeMillis() + 5000;
+        while(sinkCounter.get() < 1000 && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(50);
+        }
+        assertEquals(1000, sinkCounter.get());
+
+        engines.forEach(FopEngine::dispose);
+        scheduler.dispose();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testTimerExpirationSharedScheduler() throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+        TaskScheduler scheduler = new TaskScheduler(executor);
+        List<TcTransferFrame> sink = new CopyOnWriteArrayList<>();
+        // VC
+        TcSenderVirtualChannel tcVc = new TcSenderVirtualChannel(123, 0, VirtualChannelAccessMode.DATA, true, false);
+        BcFrameCollector bcFactory = new BcFrameCollector(tcVc);
+        tcVc.register(bcFactory);
+        // Fop Engine
+        FopEngine fop = new FopEngine(tcVc.getVirtualChannelId(), tcVc::getNextVirtualChannelFrameCounter, tcVc::setVirtualChannelFrameCounter, bcFactory, bcFactory, sink::add, scheduler);
+        // Observer stub
+        FopListenerStub stub = new FopListenerStub();
+        fop.register(stub);
+
+        fop.directive(1, FopDirective.SET_T1_INITIAL, 1);
+        fop.directive(2, FopDirective.SET_TIMEOUT_TYPE, 0);
+        fop.directive(3, FopDirective.SET_TRANSMISSION_LIMIT, 2);
+        fop.directive(4, FopDirective.INIT_AD_WITH_CLCW, 0);
+        assertTrue(stub.waitForStatus(o -> o.getCurrentState() == FopState.S4, 5000));
+        // No CLCW: the timer expires and, once the transmission limit is reached, the FOP goes back to S6
+        assertTrue(stub.waitForStatus(o -> o.getCurrentState() == FopState.S6, 5000));
+        assertEquals(FopAlertCode.T1, stub.lastAlert.get());
+
+        fop.deregister(stub);
+        fop.dispose();
+        scheduler.dispose();
+        executor.shutdown();
+    }
 
     @Test
     public void testAdFrame() throws InterruptedException {
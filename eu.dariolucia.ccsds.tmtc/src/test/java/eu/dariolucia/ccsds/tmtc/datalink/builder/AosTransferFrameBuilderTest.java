@@ -136,6 +136,10 @@ class AosTransferFrameBuilderTest {
         assertEquals(0xFED123, ttf.getVirtualChannelFrameCount());
         assertTrue(ttf.isValidHeader());
         assertTrue(ttf.isValid());
+        // The FHEC and the FECF computed by the builder must pass the verification of the public constructor
+        AosTransferFrame parsed = new AosTransferFrame(ttf.getFrameCopy(), true, insertZone.length, AosTransferFrame.UserDataType.IDLE, true, true, secHeader.length, secTrailer.length);
+        assertTrue(parsed.isValidHeader());
+        assertTrue(parsed.isValid());
         assertArrayEquals(secHeader, ttf.getSecurityHeaderCopy());
         assertArrayEquals(secTrailer, ttf.getSecurityTrailerCopy());
         assertArrayEquals(insertZone, ttf.getInsertZoneCopy());
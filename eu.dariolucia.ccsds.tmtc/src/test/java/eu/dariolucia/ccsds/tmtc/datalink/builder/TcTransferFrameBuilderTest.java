@@ -74,4 +74,25 @@ class TcTransferFrameBuilderTest {
         assertArrayEquals(new byte[] {9, 8, 7, 6}, ttf.getSecurityTrailerCopy());
         assertNotNull(ttf.toString());
     }
+
+    @Test
+    public void testTcFecfEncoding() {
+        TcTransferFrameBuilder builder = TcTransferFrameBuilder.create(true)
+                .setSecurity(new byte[] {1, 2, 4}, new byte[] { 9, 8, 7, 6})
+                .setSpacecraftId(123)
+                .setVirtualChannelId(2)
+                .setFrameSequenceNumber(11)
+                .setBypassFlag(true)
+                .setControlCommandFlag(false);
+
+        int residual = builder.addData(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        assertEquals(0, residual);
+
+        TcTransferFrame ttf = builder.build();
+
+        assertTrue(ttf.isFecfPresent());
+        assertTrue(ttf.isValid());
+        // The FECF computed by the builder must pass the verification of the public constructor
+        assertTrue(new TcTransferFrame(ttf.getFrameCopy(), vc -> false, true, 3, 4).isValid());
+    }
 }
\ No newline at end of file
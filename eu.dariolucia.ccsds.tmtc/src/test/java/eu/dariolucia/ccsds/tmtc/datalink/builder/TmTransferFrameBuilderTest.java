@@ -243,6 +243,8 @@ class TmTransferFrameBuilderTest {
         assertFalse(ttf.isNoStartPacket());
         assertTrue(ttf.isValid());
         assertTrue(ttf.isFecfPresent());
+        // The FECF computed by the builder must pass the verification of the public constructor
+        assertTrue(new TmTransferFrame(ttf.getFrameCopy(), true).isValid());
     }
 
     @Test
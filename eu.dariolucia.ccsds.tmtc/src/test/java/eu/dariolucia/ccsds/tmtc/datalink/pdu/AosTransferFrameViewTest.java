@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.dariolucia.ccsds.tmtc.datalink.pdu;
+
+import eu.dariolucia.ccsds.tmtc.datalink.builder.AosTransferFrameBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AosTransferFrameViewTest {
+
+    private static final int FRAME_LENGTH = 892;
+
+    @Test
+    public void testViewMatchesFrame() {
+        for(AosTransferFrame.UserDataType type : AosTransferFrame.UserDataType.values()) {
+            AosTransferFrameBuilder builder = AosTransferFrameBuilder.create(FRAME_LENGTH, true, 4, type, true, true)
+                    .setSpacecraftId(201)
+                    .setVirtualChannelId(type == AosTransferFrame.UserDataType.IDLE ? 63 : 7)
+                    .setVirtualChannelFrameCount(0x123456)
+                    .setVirtualChannelFrameCountUsageFlag(true)
+                    .setVirtualChannelFrameCountCycle(9)
+                    .setReplayFlag(true)
+                    .setInsertZone(new byte[] { 1, 2, 3, 4 })
+                    .setOcf(new byte[] { 5, 6, 7, 8 });
+            if(type == AosTransferFrame.UserDataType.B_PDU) {
+                builder.addBitstreamData(new byte[builder.getFreeUserDataLength()], builder.getFreeUserDataLength() * Byte.SIZE);
+            } else {
+                if(type == AosTransferFrame.UserDataType.M_PDU) {
+                    builder.setIdle();
+                }
+                builder.addData(new byte[builder.getFreeUserDataLength()]);
+            }
+            AosTransferFrame frame = builder.build();
+            byte[] data = new byte[FRAME_LENGTH + 10];
+            System.arraycopy(frame.getFrame(), 0, data, 10, FRAME_LENGTH);
+
+            AosTransferFrameView view = new AosTransferFrameView(FRAME_LENGTH, true, 4, type, true, true);
+            checkView(frame, view.wrap(data, 10));
+            checkView(frame, view.wrap(ByteBuffer.wrap(data), 10));
+        }
+    }
+
+    @Test
+    public void testInvalidHeader() {
+        AosTransferFrameBuilder builder = AosTransferFrameBuilder.create(FRAME_LENGTH, true, 0, AosTransferFrame.UserDataType.VCA, false, false)
+                .setSpacecraftId(201)
+                .setVirtualChannelId(7)
+                .setVirtualChannelFrameCount(12);
+        builder.addData(new byte[builder.getFreeUserDataLength()]);
+        byte[] data = builder.build().getFrameCopy();
+        AosTransferFrameView view = new AosTransferFrameView(FRAME_LENGTH, true, 0, AosTransferFrame.UserDataType.VCA, false, false);
+        assertTrue(view.wrap(data, 0).isValidHeader());
+        assertTrue(view.isValid());
+        data[1] ^= 0x03;
+        assertFalse(view.isValidHeader());
+        assertEquals(new AosTransferFrame(data, true, 0, AosTransferFrame.UserDataType.VCA, false, false).isValidHeader(), view.isValidHeader());
+    }
+
+    private static void checkView(AosTransferFrame frame, AosTransferFrameView view) {
+        assertEquals(frame.getLength(), view.getLength());
+        assertEquals(frame.getTransferFrameVersionNumber(), view.getTransferFrameVersionNumber());
+        assertEquals(frame.getSpacecraftId(), view.getSpacecraftId());
+        assertEquals(frame.getVirtualChannelId(), view.getVirtualChannelId());
+        assertEquals(frame.getVirtualChannelFrameCount(), view.getVirtualChannelFrameCount());
+        assertEquals(frame.isReplayFlag(), view.isReplayFlag());
+        assertEquals(frame.isVirtualChannelFrameCountUsageFlag(), view.isVirtualChannelFrameCountUsageFlag());
+        assertEquals(frame.getVirtualChannelFrameCountCycle(), view.getVirtualChannelFrameCountCycle());
+        assertEquals(frame.isOcfPresent(), view.isOcfPresent());
+        assertEquals(frame.getFhec(), view.getFhec());
+        assertEquals(frame.isValidHeader(), view.isValidHeader());
+        assertEquals(frame.getInsertZoneLength(), view.getInsertZoneLength());
+        assertEquals(frame.getUserDataType(), view.getUserDataType());
+        assertEquals(frame.getFirstHeaderPointer(), view.getFirstHeaderPointer());
+        assertEquals(frame.isNoStartPacket(), view.isNoStartPacket());
+        assertEquals(frame.getPacketZoneStart(), view.getPacketZoneStart());
+        assertEquals(frame.getBitstreamDataPointer(), view.getBitstreamDataPointer());
+        assertEquals(frame.getBitstreamDataZoneStart(), view.getBitstreamDataZoneStart());
+        assertEquals(frame.isBitstreamAllValid(), view.isBitstreamAllValid());
+        assertEquals(frame.isIdleFrame(), view.isIdleFrame());
+        assertEquals(frame.getDataFieldStart(), view.getDataFieldStart());
+        assertEquals(frame.getDataFieldLength(), view.getDataFieldLength());
+        assertEquals(frame.getOcfStart(), view.getOcfStart());
+        assertEquals(frame.isValid(), view.isValid());
+        assertTrue(view.isValid());
+        assertArrayEquals(frame.getFrame(), view.toFrame().getFrame());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.dariolucia.ccsds.tmtc.datalink.pdu;
+
+import eu.dariolucia.ccsds.tmtc.datalink.builder.TcTransferFrameBuilder;
+import eu.dariolucia.ccsds.tmtc.util.StringUtil;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TcTransferFrameViewTest {
+
+    private static byte[] FIRST_FRAME = StringUtil.toByteArray("207B001717C1000102030405060708090A0B0C0D0E0F0DEF");
+
+    @Test
+    public void testViewMatchesFrame() {
+        TcTransferFrameView view = new TcTransferFrameView(vc -> true, true);
+        checkView(new TcTransferFrame(FIRST_FRAME, vc -> true, true), view.wrap(FIRST_FRAME, 0));
+
+        // AD frame with segment header, BC frames, BD frame: stored in a single buffer
+        TcTransferFrameBuilder adBuilder = TcTransferFrameBuilder.create(true)
+                .setSpacecraftId(456)
+                .setVirtualChannelId(3)
+                .setFrameSequenceNumber(200)
+                .setSegment(TcTransferFrame.SequenceFlagType.FIRST, 12);
+        adBuilder.addData(new byte[100]);
+        TcTransferFrame ad = adBuilder.build();
+        TcTransferFrame unlock = TcTransferFrameBuilder.create(true)
+                .setSpacecraftId(456)
+                .setVirtualChannelId(3)
+                .setBypassFlag(true)
+                .setControlCommandFlag(true)
+                .setUnlockControlCommand()
+                .build();
+        TcTransferFrame setVr = TcTransferFrameBuilder.create(true)
+                .setSpacecraftId(456)
+                .setVirtualChannelId(3)
+                .setBypassFlag(true)
+                .setControlCommandFlag(true)
+                .setSetVrControlCommand(34)
+                .build();
+        TcTransferFrameBuilder bdBuilder = TcTransferFrameBuilder.create(true)
+                .setSpacecraftId(456)
+                .setVirtualChannelId(3)
+                .setBypassFlag(true);
+        bdBuilder.addData(new byte[] { 1, 2, 3 });
+        TcTransferFrame bd = bdBuilder.build();
+        TcTransferFrame[] frames = new TcTransferFrame[] { ad, unlock, setVr, bd };
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1000);
+        for(TcTransferFrame f : frames) {
+            buffer.put(f.getFrame());
+        }
+        int offset = 0;
+        for(TcTransferFrame f : frames) {
+            view.wrap(buffer, offset);
+            checkView(new TcTransferFrame(f.getFrame(), vc -> true, true), view);
+            offset += view.getLength();
+        }
+        // Wrapping does not change the buffer
+        assertEquals(offset, buffer.position());
+    }
+
+    @Test
+    public void testWrapOutOfBounds() {
+        TcTransferFrameView view = new TcTransferFrameView(vc -> true, true);
+        assertThrows(IndexOutOfBoundsException.class, () -> view.wrap(FIRST_FRAME, FIRST_FRAME.length - 4));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.wrap(FIRST_FRAME, -1));
+        byte[] truncated = new byte[FIRST_FRAME.length - 1];
+        System.arraycopy(FIRST_FRAME, 0, truncated, 0, truncated.length);
+        assertThrows(IndexOutOfBoundsException.class, () -> view.wrap(truncated, 0));
+    }
+
+    private static void checkView(TcTransferFrame frame, TcTransferFrameView view) {
+        assertEquals(frame.getLength(), view.getLength());
+        assertEquals(frame.getLength(), view.getFrameLength());
+        assertEquals(frame.getTransferFrameVersionNumber(), view.getTransferFrameVersionNumber());
+        assertEquals(frame.isBypassFlag(), view.isBypassFlag());
+        assertEquals(frame.isControlCommandFlag(), view.isControlCommandFlag());
+        assertEquals(frame.getFrameType(), view.getFrameType());
+        assertEquals(frame.getSpacecraftId(), view.getSpacecraftId());
+        assertEquals(frame.getVirtualChannelId(), view.getVirtualChannelId());
+        assertEquals(frame.getVirtualChannelFrameCount(), view.getVirtualChannelFrameCount());
+        assertEquals(frame.isSegmented(), view.isSegmented());
+        if(frame.getFrameType() != TcTransferFrame.FrameType.BC) {
+            assertEquals(frame.getMapId(), view.getMapId());
+            assertEquals(frame.getSequenceFlag(), view.getSequenceFlag());
+        }
+        assertEquals(frame.getControlCommandType(), view.getControlCommandType());
+        assertEquals(frame.getSetVrValue(), view.getSetVrValue());
+        assertEquals(frame.getDataFieldStart(), view.getDataFieldStart());
+        assertEquals(frame.getDataFieldLength(), view.getDataFieldLength());
+        assertEquals(frame.isOcfPresent(), view.isOcfPresent());
+        assertEquals(-1, view.getOcfStart());
+        assertEquals(frame.isIdleFrame(), view.isIdleFrame());
+        assertEquals(frame.getFecf(), view.getFecf());
+        assertTrue(view.isValid());
+        assertArrayEquals(frame.getFrame(), view.toFrame().getFrame());
+    }
+}
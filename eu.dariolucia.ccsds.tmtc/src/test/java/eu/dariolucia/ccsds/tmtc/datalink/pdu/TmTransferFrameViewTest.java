@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018-2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package eu.dariolucia.ccsds.tmtc.datalink.pdu;
+
+import eu.dariolucia.ccsds.tmtc.datalink.builder.TmTransferFrameBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TmTransferFrameViewTest {
+
+    private static final int FRAME_LENGTH = 1115;
+
+    @Test
+    public void testViewMatchesFrame() {
+        // Two frames stored one after the other, preceded by 3 bytes
+        TmTransferFrameBuilder idleBuilder = TmTransferFrameBuilder.create(FRAME_LENGTH, 4, true, true)
+                .setSpacecraftId(789)
+                .setVirtualChannelId(5)
+                .setMasterChannelFrameCount(211)
+                .setVirtualChannelFrameCount(17)
+                .setSecondaryHeader(new byte[] { 1, 2, 3, 4 })
+                .setPacketOrderFlag(false)
+                .setSynchronisationFlag(false)
+                .setSegmentLengthIdentifier(3)
+                .setOcf(new byte[] { 5, 6, 7, 8 })
+                .setIdle();
+        idleBuilder.addData(new byte[idleBuilder.getFreeUserDataLength()]);
+        TmTransferFrame first = idleBuilder.build();
+        TmTransferFrameBuilder builder = TmTransferFrameBuilder.create(FRAME_LENGTH, 0, false, true)
+                .setSpacecraftId(12)
+                .setVirtualChannelId(1)
+                .setMasterChannelFrameCount(3)
+                .setVirtualChannelFrameCount(255)
+                .setPacketOrderFlag(false)
+                .setSynchronisationFlag(true)
+                .setSegmentLengthIdentifier(0);
+        builder.addData(new byte[2000]);
+        TmTransferFrame second = builder.build();
+        byte[] data = new byte[3 + 2 * FRAME_LENGTH];
+        System.arraycopy(first.getFrame(), 0, data, 3, FRAME_LENGTH);
+        System.arraycopy(second.getFrame(), 0, data, 3 + FRAME_LENGTH, FRAME_LENGTH);
+
+        TmTransferFrameView view = new TmTransferFrameView(FRAME_LENGTH, true);
+        assertFalse(view.isWrapped());
+        checkView(first, view.wrap(data, 3));
+        checkView(second, view.wrap(data, 3 + FRAME_LENGTH));
+        checkView(first, view.wrap(ByteBuffer.wrap(data), 3));
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data);
+        checkView(second, view.wrap(direct, 3 + FRAME_LENGTH));
+
+        // Corrupt the second frame: the view detects it without wrapping it again
+        view.wrap(data, 3 + FRAME_LENGTH);
+        assertTrue(view.isValid());
+        data[3 + FRAME_LENGTH + 100] ^= 0x01;
+        assertFalse(view.isValid());
+        assertFalse(view.wrap(data, 3 + FRAME_LENGTH).isValid());
+        assertFalse(view.toFrame().isValid());
+    }
+
+    @Test
+    public void testWrapOutOfBounds() {
+        TmTransferFrameView view = new TmTransferFrameView(FRAME_LENGTH, false);
+        assertThrows(IndexOutOfBoundsException.class, () -> view.wrap(new byte[FRAME_LENGTH], 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.wrap(ByteBuffer.allocate(FRAME_LENGTH - 1), 0));
+        assertThrows(IllegalStateException.class, view::getSpacecraftId);
+        assertThrows(IllegalArgumentException.class, () -> new TmTransferFrameView(5, false));
+    }
+
+    private static void checkView(TmTransferFrame frame, TmTransferFrameView view) {
+        assertTrue(view.isWrapped());
+        assertEquals(frame.getLength(), view.getLength());
+        assertEquals(frame.getTransferFrameVersionNumber(), view.getTransferFrameVersionNumber());
+        assertEquals(frame.getSpacecraftId(), view.getSpacecraftId());
+        assertEquals(frame.getVirtualChannelId(), view.getVirtualChannelId());
+        assertEquals(frame.isOcfPresent(), view.isOcfPresent());
+        assertEquals(frame.getMasterChannelFrameCount(), view.getMasterChannelFrameCount());
+        assertEquals(frame.getVirtualChannelFrameCount(), view.getVirtualChannelFrameCount());
+        assertEquals(frame.isSecondaryHeaderPresent(), view.isSecondaryHeaderPresent());
+        assertEquals(frame.isSynchronisationFlag(), view.isSynchronisationFlag());
+        assertEquals(frame.isPacketOrderFlag(), view.isPacketOrderFlag());
+        assertEquals(frame.getSegmentLengthIdentifier(), view.getSegmentLengthIdentifier());
+        assertEquals(frame.getFirstHeaderPointer(), view.getFirstHeaderPointer());
+        assertEquals(frame.isNoStartPacket(), view.isNoStartPacket());
+        assertEquals(frame.isIdleFrame(), view.isIdleFrame());
+        assertEquals(frame.getSecondaryHeaderVersionNumber(), view.getSecondaryHeaderVersionNumber());
+        assertEquals(frame.getSecondaryHeaderLength(), view.getSecondaryHeaderLength());
+        assertEquals(frame.getDataFieldStart(), view.getDataFieldStart());
+        assertEquals(frame.getDataFieldLength(), view.getDataFieldLength());
+        assertEquals(frame.getOcfStart(), view.getOcfStart());
+        assertEquals(frame.getFecf(), view.getFecf());
+        assertEquals(frame.isValid(), view.isValid());
+        assertArrayEquals(frame.getFrame(), view.getFrameCopy());
+        assertArrayEquals(frame.getFrame(), view.toFrame().getFrame());
+    }
+}
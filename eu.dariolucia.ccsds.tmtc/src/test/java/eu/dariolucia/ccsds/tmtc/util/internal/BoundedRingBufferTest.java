@@ -0,0 +1,93 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.util.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedRingBufferTest {
+
+    @Test
+    public void testOfferPoll() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(5);
+        assertEquals(8, buffer.capacity());
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+        // Several laps
+        for(int lap = 0; lap < 3; ++lap) {
+            for(int i = 0; i < 8; ++i) {
+                assertTrue(buffer.offer(i));
+            }
+            assertFalse(buffer.offer(8));
+            assertEquals(8, buffer.size());
+            for(int i = 0; i < 8; ++i) {
+                assertEquals(Integer.valueOf(i), buffer.poll());
+            }
+            assertNull(buffer.poll());
+        }
+        buffer.offer(1);
+        buffer.offer(2);
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        assertThrows(NullPointerException.class, () -> buffer.offer(null));
+        assertThrows(IllegalArgumentException.class, () -> new BoundedRingBuffer<>(0));
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(64);
+        int producers = 4;
+        int itemsPerProducer = 100000;
+        List<Thread> threads = new ArrayList<>();
+        for(int p = 0; p < producers; ++p) {
+            final int base = p * itemsPerProducer;
+            Thread t = new Thread(() -> {
+                for(int i = 0; i < itemsPerProducer; ++i) {
+                    while(!buffer.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        // Single consumer: the items of each producer must be received in order
+        int[] last = new int[producers];
+        java.util.Arrays.fill(last, -1);
+        int received = 0;
+        while(received < producers * itemsPerProducer) {
+            Integer item = buffer.poll();
+            if(item == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int producer = item / itemsPerProducer;
+            int idx = item % itemsPerProducer;
+            assertEquals(last[producer] + 1, idx);
+            last[producer] = idx;
+            ++received;
+        }
+        for(Thread t : threads) {
+            t.join();
+        }
+        assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.util.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+    @Test
+    public void testExpiration() throws InterruptedException {
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        // Small wheel, to have timeouts spanning several rounds
+        HashedWheelTimer timer = new HashedWheelTimer(ticker, 10, TimeUnit.MILLISECONDS, 8);
+        int timeouts = 200;
+        CountDownLatch expired = new CountDownLatch(timeouts);
+        AtomicBoolean early = new AtomicBoolean(false);
+        AtomicLong maxLateness = new AtomicLong();
+        for(int i = 0; i < timeouts; ++i) {
+            final long delay = i * 2L;
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            timer.schedule(() -> {
+                long now = System.nanoTime();
+                if(now < deadline) {
+                    early.set(true);
+                }
+                maxLateness.accumulateAndGet(now - deadline, Math::max);
+                expired.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertFalse(early.get());
+        // Generous bound, to be robust against loaded machines
+        assertTrue(maxLateness.get() < TimeUnit.MILLISECONDS.toNanos(500));
+        timer.stop();
+        ticker.shutdown();
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        HashedWheelTimer timer = new HashedWheelTimer(ticker, 10, TimeUnit.MILLISECONDS, 16);
+        AtomicBoolean cancelledRun = new AtomicBoolean(false);
+        CountDownLatch expired = new CountDownLatch(1);
+        HashedWheelTimer.Timeout cancelled = timer.schedule(() -> cancelledRun.set(true), 50, TimeUnit.MILLISECONDS);
+        HashedWheelTimer.Timeout notCancelled = timer.schedule(expired::countDown, 100, TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertFalse(cancelledRun.get());
+        // Already expired
+        assertFalse(notCancelled.cancel());
+        timer.stop();
+        ticker.shutdown();
+    }
+
+    @Test
+    public void testErrorInTimeout() throws InterruptedException {
+        AtomicReference<Throwable> reported = new AtomicReference<>();
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setUncaughtExceptionHandler((th, e) -> reported.set(e));
+            return t;
+        });
+        HashedWheelTimer timer = new HashedWheelTimer(ticker, 10, TimeUnit.MILLISECONDS, 16);
+        CountDownLatch expired = new CountDownLatch(1);
+        timer.schedule(() -> {
+            throw new AssertionError("Failure in timeout");
+        }, 10, TimeUnit.MILLISECONDS);
+        timer.schedule(expired::countDown, 100, TimeUnit.MILLISECONDS);
+        // The tick must survive the error
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertTrue(reported.get() instanceof AssertionError);
+        timer.stop();
+        ticker.shutdown();
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        assertThrows(IllegalArgumentException.class, () -> new HashedWheelTimer(ticker, 0, TimeUnit.MILLISECONDS, 16));
+        assertThrows(IllegalArgumentException.class, () -> new HashedWheelTimer(ticker, 10, TimeUnit.MILLISECONDS, 0));
+        HashedWheelTimer timer = new HashedWheelTimer(ticker, 10, TimeUnit.MILLISECONDS, 16);
+        assertThrows(NullPointerException.class, () -> timer.schedule(null, 10, TimeUnit.MILLISECONDS));
+        timer.stop();
+        ticker.shutdown();
+    }
+}
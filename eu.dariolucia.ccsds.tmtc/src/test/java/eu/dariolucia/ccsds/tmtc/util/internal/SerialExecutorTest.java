@@ -0,0 +1,190 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.util.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerialExecutorTest {
+
+    @Test
+    public void testSerialExecutionOnSharedPool() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<SerialExecutor> executors = new ArrayList<>();
+        List<List<Integer>> results = new ArrayList<>();
+        for(int i = 0; i < 10; ++i) {
+            executors.add(new SerialExecutor(pool));
+            results.add(new ArrayList<>());
+        }
+        AtomicInteger running = new AtomicInteger();
+        AtomicBoolean overlap = new AtomicBoolean(false);
+        CountDownLatch done = new CountDownLatch(10 * 1000);
+        for(int j = 0; j < 1000; ++j) {
+            for(int i = 0; i < executors.size(); ++i) {
+                final int item = j;
+                final SerialExecutor executor = executors.get(i);
+                final List<Integer> result = results.get(i);
+                executor.execute(() -> {
+                    if(!executor.isCurrentThread()) {
+                        overlap.set(true);
+                    }
+                    // Not thread-safe list: tasks must be confined
+                    result.add(item);
+                    done.countDown();
+                });
+            }
+        }
+        // Check the mutual exclusion on one executor
+        SerialExecutor first = executors.get(0);
+        CountDownLatch exclusion = new CountDownLatch(100);
+        for(int j = 0; j < 100; ++j) {
+            first.execute(() -> {
+                if(running.incrementAndGet() > 1) {
+                    overlap.set(true);
+                }
+                running.decrementAndGet();
+                exclusion.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(exclusion.await(10, TimeUnit.SECONDS));
+        assertFalse(overlap.get());
+        assertFalse(first.isCurrentThread());
+        for(List<Integer> result : results) {
+            assertEquals(1000, result.size());
+            for(int j = 0; j < 1000; ++j) {
+                assertEquals(Integer.valueOf(j), result.get(j));
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testShutdown() throws InterruptedException {
+        ExecutorService owned = Executors.newSingleThreadExecutor();
+        SerialExecutor executor = new SerialExecutor(owned, true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            counter.incrementAndGet();
+        });
+        executor.execute(counter::incrementAndGet);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        assertFalse(executor.isTerminated());
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(counter::incrementAndGet));
+        release.countDown();
+        // Pending tasks are run before termination
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, counter.get());
+        assertTrue(owned.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testShutdownNowSharedDelegate() throws InterruptedException {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        SerialExecutor executor = new SerialExecutor(pool);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        executor.execute(() -> fail("Task should not be run"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(1, executor.shutdownNow().size());
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> fail("Task should not be run")));
+        // The thread of a shared delegate is not interrupted: the running task completes
+        assertFalse(executor.awaitTermination(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+        // Shared delegate not shut down
+        assertFalse(pool.isShutdown());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testShutdownNowOwnedDelegate() throws InterruptedException {
+        ExecutorService owned = Executors.newSingleThreadExecutor();
+        SerialExecutor executor = new SerialExecutor(owned, true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        executor.execute(() -> fail("Task should not be run"));
+        executor.execute(() -> fail("Task should not be run"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(2, executor.shutdownNow().size());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+        assertTrue(owned.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testErrorInTask() throws InterruptedException {
+        AtomicReference<Throwable> reported = new AtomicReference<>();
+        ExecutorService owned = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setUncaughtExceptionHandler((th, e) -> reported.set(e));
+            return t;
+        });
+        SerialExecutor executor = new SerialExecutor(owned, true);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(() -> {
+            throw new AssertionError("Failure in task");
+        });
+        executor.execute(done::countDown);
+        // The tasks following the error must still be run
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(reported.get() instanceof AssertionError);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ *   Copyright (c) 2019 Dario Lucia (https://www.dariolucia.eu)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package eu.dariolucia.ccsds.tmtc.util.internal;
+
+import eu.dariolucia.ccsds.tmtc.util.processor.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformationProcessorTest {
+
+    @Test
+    public void testUpstreamRequestPropagation() {
+        TransformationProcessor<Integer, Integer> processor = new TransformationProcessor<>(Function.identity(), null, false, 8, OverflowPolicy.FAIL);
+        RecordingSubscription upstream = new RecordingSubscription();
+        TestSubscriber subscriber = new TestSubscriber(0);
+        processor.subscribe(subscriber);
+        processor.onSubscribe(upstream);
+        // Initial request limited by the buffer capacity
+        assertEquals(8, upstream.requested.get());
+        for(int i = 0; i < 8; ++i) {
+            processor.onNext(i);
+        }
+        // Buffer full and no demand downstream: no further request
+        assertEquals(8, upstream.requested.get());
+        assertTrue(subscriber.items.isEmpty());
+        // Demand downstream frees the buffer and propagates upstream
+        subscriber.subscription.request(3);
+        assertEquals(Arrays.asList(0, 1, 2), subscriber.items);
+        assertEquals(11, upstream.requested.get());
+        subscriber.subscription.request(5);
+        assertEquals(8, subscriber.items.size());
+        assertEquals(16, upstream.requested.get());
+        assertNull(subscriber.error.get());
+        // Completion
+        processor.onComplete();
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void testUnboundedByDefault() {
+        TransformationProcessor<Integer, Integer> processor = new TransformationProcessor<>(Function.identity());
+        RecordingSubscription upstream = new RecordingSubscription();
+        TestSubscriber subscriber = new TestSubscriber(0);
+        processor.subscribe(subscriber);
+        processor.onSubscribe(upstream);
+        assertEquals(Long.MAX_VALUE, upstream.requested.get());
+        // No demand downstream and no executor: the injecting thread is never blocked and nothing is dropped
+        int items = Flow.defaultBufferSize() * 4;
+        for(int i = 0; i < items; ++i) {
+            processor.onNext(i);
+        }
+        assertTrue(subscriber.items.isEmpty());
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(items, subscriber.items.size());
+        for(int i = 0; i < items; ++i) {
+            assertEquals(i, subscriber.items.get(i));
+        }
+        assertNull(subscriber.error.get());
+    }
+
+    @Test
+    public void testMultipleOutputsWithinDemand() {
+        // Each input item produces more output items than the buffer capacity
+        TransformationListProcessor<Integer, Integer> processor = new TransformationListProcessor<>(i -> Collections.nCopies(10, i), null, false, 4, OverflowPolicy.FAIL);
+        RecordingSubscription upstream = new RecordingSubscription();
+        TestSubscriber subscriber = new TestSubscriber(0);
+        processor.subscribe(subscriber);
+        processor.onSubscribe(upstream);
+        // One input item at a time
+        assertEquals(1, upstream.requested.get());
+        int sent = 0;
+        while(subscriber.items.size() < 50) {
+            // Publisher respecting the demand
+            while(sent < upstream.requested.get()) {
+                processor.onNext(sent++);
+            }
+            assertTrue(upstream.requested.get() <= sent + 1);
+            subscriber.subscription.request(3);
+        }
+        assertNull(subscriber.error.get());
+        for(int i = 0; i < 50; ++i) {
+            assertEquals(i / 10, subscriber.items.get(i));
+        }
+    }
+
+    @Test
+    public void testTimelyNoUpstreamFlowControl() {
+        TransformationProcessor<Integer, Integer> processor = new TransformationProcessor<>(Function.identity(), null, true, 8, OverflowPolicy.BLOCK);
+        RecordingSubscription upstream = new RecordingSubscription();
+        TestSubscriber subscriber = new TestSubscriber(2);
+        processor.subscribe(subscriber);
+        processor.onSubscribe(upstream);
+        assertEquals(Long.MAX_VALUE, upstream.requested.get());
+        for(int i = 0; i < 20; ++i) {
+            processor.onNext(i);
+        }
+        // No demand: buffered items are dropped
+        subscriber.subscription.request(2);
+        processor.onNext(20);
+        assertEquals(Arrays.asList(0, 1, 20), subscriber.items);
+    }
+
+    @Test
+    public void testDropOldest() {
+        TransformationProcessor<Integer, Integer> processor = new TransformationProcessor<>(Function.identity(), null, false, 4, OverflowPolicy.DROP_OLDEST);
+        TestSubscriber subscriber = new TestSubscriber(0);
+        processor.subscribe(subscriber);
+        for(int i = 0; i < 6; ++i) {
+            processor.onNext(i);
+        }
+        subscriber.subscription.request(10);
+        assertEquals(Arrays.asList(2, 3, 4, 5), subscriber.items);
+        assertNull(subscriber.error.get());
+    }
+
+    @Test
+    public void testFail() {
+        TransformationProcessor<Integer, Integer> processor = new TransformationProcessor<>(Function.identity(), null, false, 4, OverflowPolicy.FAIL);
+        TestSubscriber subscriber = new TestSubscriber(1);
+        processor.subscribe(subscriber);
+        for(int i = 0; i < 6; ++i) {
+            processor.onNext(i);
+        }
+        assertEquals(Arrays.asList(0), subscriber.items);
+        assertTrue(subscriber.error.get() instanceof IllegalStateException);
+        // Subscription terminated
+        subscriber.subscription.request(10);
+        assertEquals(1, subscriber.items.size());
+    }
+
+    @Test
+    public void testBlock() throws InterruptedException {
+        TransformationProcessor<Integer, Integer> processor = new TransformationProcessor<>(Function.identity(), null, false, 4, OverflowPolicy.BLOCK);
+        TestSubscriber subscriber = new TestSubscriber(0);
+        processor.subscribe(subscriber);
+        CountDownLatch injected = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            for(int i = 0; i < 10; ++i) {
+                processor.onNext(i);
+            }
+            injected.countDown();
+        });
+        producer.start();
+        // The producer is blocked on the fifth item
+        assertFalse(injected.await(200, TimeUnit.MILLISECONDS));
+        subscriber.subscription.request(10);
+        assertTrue(injected.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), subscriber.items);
+    }
+
+    @Test
+    public void testAsyncOrderAndCompletion() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        TransformationListProcessor<Integer, Integer> processor = new TransformationListProcessor<>(i -> Arrays.asList(i * 2, i * 2 + 1), executor, false, 16, OverflowPolicy.BLOCK);
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+        processor.subscribe(subscriber);
+        for(int i = 0; i < 5000; ++i) {
+            processor.onNext(i);
+        }
+        processor.onComplete();
+        assertTrue(subscriber.completion.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(10000, subscriber.items.size());
+        for(int i = 0; i < subscriber.items.size(); ++i) {
+            assertEquals(Integer.valueOf(i), subscriber.items.get(i));
+        }
+    }
+
+    @Test
+    public void testNullNotForwarded() {
+        TransformationProcessor<Integer, Integer> processor = new TransformationProcessor<>(i -> i % 2 == 0 ? i : null);
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+        processor.subscribe(subscriber);
+        for(int i = 0; i < 6; ++i) {
+            processor.onNext(i);
+        }
+        assertEquals(Arrays.asList(0, 2, 4), subscriber.items);
+    }
+
+    @Test
+    public void testCancel() {
+        TransformationProcessor<Integer, Integer> processor = new TransformationProcessor<>(Function.identity());
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+        processor.subscribe(subscriber);
+        processor.onNext(0);
+        subscriber.subscription.cancel();
+        processor.onNext(1);
+        assertEquals(Arrays.asList(0), subscriber.items);
+        // A cancelled subscriber can subscribe again
+        processor.subscribe(subscriber);
+        processor.onNext(2);
+        assertEquals(Arrays.asList(0, 2), subscriber.items);
+    }
+
+    private static class RecordingSubscription implements Flow.Subscription {
+
+        private final AtomicLong requested = new AtomicLong();
+
+        @Override
+        public void request(long n) {
+            requested.getAndUpdate(v -> v > Long.MAX_VALUE - n ? Long.MAX_VALUE : v + n);
+        }
+
+        @Override
+        public void cancel() {
+            // Nothing
+        }
+    }
+
+    private static class TestSubscriber implements Flow.Subscriber<Integer> {
+
+        private final long initialRequest;
+        private final List<Integer> items = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private final CountDownLatch completion = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile boolean completed;
+
+        TestSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if(initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            completion.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            completion.countDown();
+        }
+    }
+}